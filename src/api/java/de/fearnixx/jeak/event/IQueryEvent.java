@@ -66,6 +66,56 @@ public interface IQueryEvent extends IEvent {
              */
             Map<Integer, IChannel> getChannelMap();
         }
+
+        /**
+         * Event indicating that properties of a cached client have changed.
+         * Fired for changes detected during refreshes and for changes applied from notifications.
+         * @see de.fearnixx.jeak.teamspeak.cache.IDataCache#subscribeClientChanges to only receive specific changes
+         */
+        interface IClientPropertiesChanged extends IDataEvent {
+
+            /**
+             * The changed client.
+             */
+            IClient getClient();
+
+            /**
+             * The changed properties and their new values - {@code null} for removed properties.
+             * @implNote collection is unmodifiable!
+             */
+            Map<String, String> getChanges();
+
+            /**
+             * The values of the changed properties before the change - {@code null} for added properties.
+             * @implNote collection is unmodifiable!
+             */
+            Map<String, String> getPreviousValues();
+        }
+
+        /**
+         * Event indicating that properties of a cached channel have changed.
+         * Fired for changes detected during refreshes and for changes applied from notifications.
+         * @see de.fearnixx.jeak.teamspeak.cache.IDataCache#subscribeChannelChanges to only receive specific changes
+         */
+        interface IChannelPropertiesChanged extends IDataEvent {
+
+            /**
+             * The changed channel.
+             */
+            IChannel getChannel();
+
+            /**
+             * The changed properties and their new values - {@code null} for removed properties.
+             * @implNote collection is unmodifiable!
+             */
+            Map<String, String> getChanges();
+
+            /**
+             * The values of the changed properties before the change - {@code null} for added properties.
+             * @implNote collection is unmodifiable!
+             */
+            Map<String, String> getPreviousValues();
+        }
     }
 
     /**
@@ -202,6 +252,14 @@ public interface IQueryEvent extends IEvent {
             TargetType getTargetMode();
         }
 
+        interface IClientUpdated extends ITargetClient, IQueryEvent.INotification {
+
+            /**
+             * Client properties and their new values.
+             */
+            Map<String, String> getChanges();
+        }
+
         interface IClientTextMessage extends ITextMessage,ITargetClient {
         }
 
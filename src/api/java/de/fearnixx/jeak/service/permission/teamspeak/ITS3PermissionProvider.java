@@ -1,6 +1,7 @@
 package de.fearnixx.jeak.service.permission.teamspeak;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Specialized permission provider that is capable of reflecting the permission evaluation from TeamSpeak 3.
@@ -26,6 +27,66 @@ public interface ITS3PermissionProvider {
      */
     Integer translateSID(String permSID);
 
+    /**
+     * {@link #getActivePermission(Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getActivePermissionAsync(Integer clientDBID, String permSID) {
+        return CompletableFuture.completedFuture(getActivePermission(clientDBID, permSID));
+    }
+
+    /**
+     * {@link #getClientPermission(Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getClientPermissionAsync(Integer clientDBID, String permSID) {
+        return CompletableFuture.completedFuture(getClientPermission(clientDBID, permSID));
+    }
+
+    /**
+     * {@link #getServerGroupPermission(Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getServerGroupPermissionAsync(Integer serverGroupID, String permSID) {
+        return CompletableFuture.completedFuture(getServerGroupPermission(serverGroupID, permSID));
+    }
+
+    /**
+     * {@link #getChannelGroupPermission(Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getChannelGroupPermissionAsync(Integer channelGroupID, String permSID) {
+        return CompletableFuture.completedFuture(getChannelGroupPermission(channelGroupID, permSID));
+    }
+
+    /**
+     * {@link #getChannelClientPermission(Integer, Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getChannelClientPermissionAsync(Integer channelID, Integer clientDBID, String permSID) {
+        return CompletableFuture.completedFuture(getChannelClientPermission(channelID, clientDBID, permSID));
+    }
+
+    /**
+     * {@link #getChannelPermission(Integer, String)} without blocking the calling thread.
+     * The default implementation looks the permission up on the calling thread.
+     */
+    default CompletableFuture<Optional<ITS3Permission>> getChannelPermissionAsync(Integer channelID, String permSID) {
+        return CompletableFuture.completedFuture(getChannelPermission(channelID, permSID));
+    }
+
+    /**
+     * {@link #translateSID(String)} without blocking the calling thread.
+     * Completes exceptionally with an {@link IllegalArgumentException} for unknown permissions.
+     */
+    default CompletableFuture<Integer> translateSIDAsync(String permSID) {
+        try {
+            return CompletableFuture.completedFuture(translateSID(permSID));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Use sparingly!
      * When the TeamSpeak 3 server is not using a connectable database or the persistence unit is not configured for the framework,
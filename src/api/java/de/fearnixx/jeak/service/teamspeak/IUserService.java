@@ -5,6 +5,7 @@ import de.fearnixx.jeak.teamspeak.data.IUser;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service to provide access to online (client) and offline (user) instances for plugins to work with.
@@ -41,6 +42,30 @@ public interface IUserService {
      */
     List<IUser> findUserByNickname(String ts3nickname);
 
+    /**
+     * {@link #findUserByUniqueID(String)} without blocking the calling thread.
+     * The default implementation searches on the calling thread.
+     */
+    default CompletableFuture<List<IUser>> findUserByUniqueIDAsync(String ts3uniqueID) {
+        return CompletableFuture.completedFuture(findUserByUniqueID(ts3uniqueID));
+    }
+
+    /**
+     * {@link #findUserByDBID(int)} without blocking the calling thread.
+     * The default implementation searches on the calling thread.
+     */
+    default CompletableFuture<List<IUser>> findUserByDBIDAsync(int ts3dbID) {
+        return CompletableFuture.completedFuture(findUserByDBID(ts3dbID));
+    }
+
+    /**
+     * {@link #findUserByNickname(String)} without blocking the calling thread.
+     * The default implementation searches on the calling thread.
+     */
+    default CompletableFuture<List<IUser>> findUserByNicknameAsync(String ts3nickname) {
+        return CompletableFuture.completedFuture(findUserByNickname(ts3nickname));
+    }
+
     /**
      * Searches a client based on their unique ID.
      * @apiNote please note the class-level javadoc.
@@ -59,6 +84,11 @@ public interface IUserService {
      */
     List<IClient> findClientByNickname(String ts3nickname);
 
+    /**
+     * Searches all clients that are member of the server group.
+     */
+    List<IClient> findClientByServerGroup(int serverGroupId);
+
     /**
      * Returns a client by their client ID.
      * As the client ID is unique for each connection to the TS3 server, this can only be one client, if any.
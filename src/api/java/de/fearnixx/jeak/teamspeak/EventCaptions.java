@@ -8,6 +8,7 @@ public abstract class EventCaptions {
     public static final String CLIENT_ENTER = "cliententerview";
     public static final String CLIENT_LEFT = "clientleftview";
     public static final String CLIENT_MOVED = "clientmoved";
+    public static final String CLIENT_UPDATED = "clientupdated";
     public static final String CHANNEL_CREATED = "channelcreated";
     public static final String CHANNEL_EDITED = "channeledited";
     public static final String CHANNEL_EDITED_DESCR = "channeldescriptionchanged";
@@ -1,5 +1,8 @@
 package de.fearnixx.jeak.teamspeak;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * All commands defined in the TS3 server query manual.
  */
@@ -258,4 +261,72 @@ public abstract class QueryCommands {
     public static final String CUSTOM_SEARCH = "customsearch";
     public static final String CUSTOM_INFO = "custominfo";
     public static final String WHOAMI = "whoami";
+
+    /**
+     * Read-only commands.
+     * Identical requests for these commands that are waiting at the same time are sent only once
+     * and the answer is passed to all of them.
+     */
+    public static final Set<String> COALESCIBLE = Set.of(
+            SERVER.VERSION,
+            SERVER.HOST_INFO,
+            SERVER.INSTANCE_INFO,
+            SERVER.LIST_BINDINGS,
+            SERVER.SERVER_LIST,
+            SERVER.SERVER_INFO,
+            SERVER_GROUP.SERVERGROUP_LIST,
+            SERVER_GROUP.SERVERGROUP_LIST_CLIENTS,
+            SERVER_GROUP.SERVERGROUP_GET_BYCLIENT,
+            PERMISSION.SERVERGROUP_LIST_PERMISSIONS,
+            PERMISSION.CHANNEL_LIST_PERMISSIONS,
+            PERMISSION.CHANNEL_CLIENT_LIST_PERMISSIONS,
+            PERMISSION.CHANNEL_GROUP_PERMISSION_LIST,
+            PERMISSION.CLIENT_LIST_PERMISSIONS,
+            PERMISSION.PERMISSION_LIST,
+            PERMISSION.PERMISSION_GET_ID_BYNAME,
+            PERMISSION.PERMISSION_OVERVIEW,
+            PERMISSION.PERMISSION_FIND,
+            CHANNEL.CHANNEL_LIST,
+            CHANNEL.CHANNEL_INFO,
+            CHANNEL.CHANNEL_FIND,
+            CHANNEL_GROUP.CHANNEL_GROUP_LIST,
+            CHANNEL_GROUP.CHANNEL_GROUP_LIST_CLIENTS,
+            CLIENT.CLIENT_LIST,
+            CLIENT.CLIENT_INFO,
+            CLIENT.CLIENT_FIND,
+            CLIENT.CLIENT_GET_IDS,
+            CLIENT.CLIENT_LIST_DB,
+            CLIENT.CLIENT_INFO_DB,
+            CLIENT.CLIENT_FIND_DB,
+            CLIENT.CLIENT_GET_DBID_FROMUID,
+            CLIENT.CLIENT_GET_NAME_FROMUID,
+            CLIENT.CLIENT_GET_NAME_FROMDBID,
+            CUSTOM_SEARCH,
+            CUSTOM_INFO
+    );
+
+    public static boolean isCoalescible(String command) {
+        return command != null && COALESCIBLE.contains(command.toLowerCase());
+    }
+
+    /**
+     * Commands documented to accept multiple targets as a chain - mapped to the key that identifies the target.
+     * Waiting requests for these commands that only differ in their targets are sent as a single chained request.
+     * The server answers such a chain with a single result, which is why pokes and text messages are not included.
+     */
+    public static final Map<String, String> BATCHABLE = Map.of(
+            CLIENT.CLIENT_MOVE, PropertyKeys.Client.ID,
+            CLIENT.CLIENT_KICK, PropertyKeys.Client.ID,
+            SERVER_GROUP.SERVERGROUP_ADD_CLIENT, "cldbid",
+            SERVER_GROUP.SERVERGROUP_DEL_CLIENT, "cldbid"
+    );
+
+    /**
+     * The key identifying the target of a batchable command.
+     *
+     * @return the key or {@code null} if the command cannot be batched
+     */
+    public static String getBatchTargetKey(String command) {
+        return command != null ? BATCHABLE.get(command.toLowerCase()) : null;
+    }
 }
@@ -0,0 +1,44 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.data.IChannel;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the cached clients and channels at one point in time.
+ * All collections of one snapshot are consistent with each other and never change.
+ *
+ * @implNote The snapshot contains the cached representations themselves.
+ * Property updates (e.g. moves) are applied to them and are therefore visible through older snapshots as well.
+ * Only adding, removing or replacing clients and channels creates a new version.
+ */
+public interface ICacheSnapshot {
+
+    /**
+     * Version of this snapshot.
+     * Later snapshots have a greater version. Equal versions mean equal contents.
+     */
+    long getVersion();
+
+    /**
+     * Online clients by clientID.
+     */
+    Map<Integer, IClient> getClientMap();
+
+    /**
+     * Channels by channelID.
+     */
+    Map<Integer, IChannel> getChannelMap();
+
+    /**
+     * Value accessor for {@link #getClientMap()}.
+     */
+    List<IClient> getClients();
+
+    /**
+     * Value accessor for {@link #getChannelMap()}.
+     */
+    List<IChannel> getChannels();
+}
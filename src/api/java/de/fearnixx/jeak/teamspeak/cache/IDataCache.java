@@ -1,5 +1,6 @@
 package de.fearnixx.jeak.teamspeak.cache;
 
+import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.service.teamspeak.IUserService;
 import de.fearnixx.jeak.teamspeak.data.IChannel;
 import de.fearnixx.jeak.teamspeak.data.IClient;
@@ -7,6 +8,7 @@ import de.fearnixx.jeak.teamspeak.data.IClient;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * <p>
@@ -21,13 +23,22 @@ import java.util.Optional;
  */
 public interface IDataCache {
 
+    /**
+     * The current snapshot of cached clients and channels.
+     * A new snapshot is published whenever clients or channels are added, removed or replaced - retrieving one neither locks nor allocates.
+     * Use this when multiple collections need to be consistent with each other.
+     */
+    ICacheSnapshot snapshot();
+
     /**
      * Unmodifiable cache for clients by clientID.
+     * Same as {@code snapshot().getClientMap()}.
      */
     Map<Integer, IClient> getClientMap();
 
     /**
      * Unmodifiable cache for channels by channelID.
+     * Same as {@code snapshot().getChannelMap()}.
      */
     Map<Integer, IChannel> getChannelMap();
 
@@ -46,12 +57,91 @@ public interface IDataCache {
      */
     Optional<IClient> findClientByUniqueId(String uniqueId);
 
+    /**
+     * All online clients with that unique ID - one for each connection.
+     * Looked up from an index - the list is immutable and empty if there is no such client.
+     */
+    List<IClient> getClientsByUniqueId(String uniqueId);
+
+    /**
+     * All online clients with that database ID.
+     * Looked up from an index - the list is immutable and empty if there is no such client.
+     */
+    List<IClient> getClientsByDBID(int dbId);
+
+    /**
+     * All online clients with that nickname.
+     * The nickname has to match completely but case-insensitive.
+     * Looked up from an index - the list is immutable and empty if there is no such client.
+     */
+    List<IClient> getClientsByNickname(String nickname);
+
+    /**
+     * All online clients that are member of the server group.
+     * Looked up from an index - the list is immutable and empty if there is no such client.
+     */
+    List<IClient> getClientsInServerGroup(int serverGroupId);
+
     /**
      * Searches for a channel with that unique ID. Returns the first match as an optional.
      * Name will match case-insensitive and partially.
      */
     Optional<IChannel> findChannelByName(String name);
 
+    /**
+     * Whether or not the channel is the root channel itself or (indirectly) below it.
+     * Answered from a precomputed index without walking the tree.
+     */
+    boolean isInSubtree(int channelId, int rootChannelId);
+
+    /**
+     * Number of clients in the channel and all channels below it.
+     * Unlike {@link IChannel#getClientCountBelow()} this includes moves since the last refresh.
+     */
+    int getSubtreeClientCount(int channelId);
+
+    /**
+     * Clients in the channel - looked up without scanning all clients.
+     * Kept up to date on enter, leave and move notifications.
+     */
+    List<IClient> getClientsInChannel(int channelId);
+
+    /**
+     * Clients in the channel and all channels below it.
+     */
+    List<IClient> getClientsInSubtree(int channelId);
+
+    /**
+     * Whether or not no client is in the channel.
+     */
+    boolean isChannelEmpty(int channelId);
+
+    /**
+     * Subscribes to property changes of cached clients.
+     * The consumer is only called for changes of the given client and keys and runs synchronously on the updating thread.
+     *
+     * @param clientId the client ID or {@code null} for all clients
+     * @param keys     the property keys - none for all keys
+     */
+    ISubscription subscribeClientChanges(Consumer<IQueryEvent.IDataEvent.IClientPropertiesChanged> consumer,
+                                         Integer clientId, String... keys);
+
+    /**
+     * Subscribes to property changes of cached channels.
+     * The consumer is only called for changes of the given channel and keys and runs synchronously on the updating thread.
+     *
+     * @param channelId the channel ID or {@code null} for all channels
+     * @param keys      the property keys - none for all keys
+     */
+    ISubscription subscribeChannelChanges(Consumer<IQueryEvent.IDataEvent.IChannelPropertiesChanged> consumer,
+                                          Integer channelId, String... keys);
+
+    /**
+     * Whether or not the cache contains data restored from the warm-start snapshot that has not yet been confirmed by a refresh.
+     * Provisional clients and channels may have left or changed while the framework was not connected.
+     */
+    boolean isProvisional();
+
     /**
      * Returns the configured refresh period for clients in seconds.
      */
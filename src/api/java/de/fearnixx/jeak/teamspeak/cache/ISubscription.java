@@ -0,0 +1,12 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+/**
+ * Handle of a subscription registered with the {@link IDataCache}.
+ */
+public interface ISubscription {
+
+    /**
+     * Stops the subscription. The consumer will not be called afterwards.
+     */
+    void cancel();
+}
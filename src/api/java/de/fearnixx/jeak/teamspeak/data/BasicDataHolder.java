@@ -4,7 +4,6 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Basic implementation of the {@link IDataHolder} interface.
@@ -52,19 +51,29 @@ public class BasicDataHolder implements IDataHolder {
     }
 
     public IDataHolder copyFrom(IDataHolder other) {
+        Map<String, String> copy = Collections.synchronizedMap(copyValues(other));
         synchronized (LOCK) {
-            this.values = new ConcurrentHashMap<>();
-            return merge(other);
+            this.values = copy;
         }
+        return this;
     }
 
     public IDataHolder merge(IDataHolder other) {
+        Map<String, String> copy = copyValues(other);
         synchronized (LOCK) {
-            for (Map.Entry<String, String> entry : other.getValues().entrySet()) {
-                this.values.put(entry.getKey(), entry.getValue());
-            }
+            this.values.putAll(copy);
         }
-
         return this;
     }
+
+    /**
+     * Copies the values of the other holder without holding our own lock at the same time.
+     */
+    private static Map<String, String> copyValues(IDataHolder other) {
+        Map<String, String> otherValues = other.getValues();
+        // Iterating synchronized maps requires holding their lock.
+        synchronized (otherValues) {
+            return new LinkedHashMap<>(otherValues);
+        }
+    }
 }
@@ -0,0 +1,297 @@
+package de.fearnixx.jeak.teamspeak.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link IDataHolder} storing known properties in a slot array instead of a map.
+ * Slots are assigned by {@link PropertySchema}, unknown keys are kept in an overflow map.
+ *
+ * Reads do not lock. {@link #copyFrom(IDataHolder)} replaces the storage as a whole,
+ * so readers either see the old or the new values - never a partially reset holder.
+ *
+ * @implNote {@link #getValues()} returns a live view. Iteration is weakly consistent and in slot order, not in insertion order.
+ */
+public class CompactDataHolder implements IDataHolder {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(String[].class);
+
+    private volatile Storage storage = new Storage();
+    private final Map<String, String> valuesView = new ValuesView();
+
+    @Override
+    public Map<String, String> getValues() {
+        return valuesView;
+    }
+
+    @Override
+    public boolean hasProperty(String key) {
+        return getProperty(key).isPresent();
+    }
+
+    @Override
+    public Optional<String> getProperty(String key) {
+        return Optional.ofNullable(storage.get(key));
+    }
+
+    @Override
+    public void setProperty(String key, String value) {
+        storage.set(key, value);
+        onPropertyChanged(key);
+    }
+
+    @Override
+    public void setProperty(String key, Object value) {
+        setProperty(key, value != null ? value.toString() : null);
+    }
+
+    @Override
+    public IDataHolder copyFrom(IDataHolder other) {
+        Storage copy = new Storage();
+        copy.putAll(other);
+        storage = copy;
+        onPropertyChanged(null);
+        return this;
+    }
+
+    @Override
+    public IDataHolder merge(IDataHolder other) {
+        storage.putAll(other);
+        onPropertyChanged(null);
+        return this;
+    }
+
+    /**
+     * Called after properties have been changed.
+     * Subclasses may override this to keep values derived from properties up to date.
+     *
+     * @param key the changed key or {@code null} if any property may have changed
+     */
+    protected void onPropertyChanged(String key) {
+        // Nothing derived by default.
+    }
+
+    private static final class Storage {
+
+        private final String[] slots = new String[PropertySchema.size()];
+        private volatile Map<String, String> overflow;
+
+        String get(String key) {
+            int id = PropertySchema.idOf(key);
+            if (id >= 0) {
+                return (String) SLOTS.getAcquire(slots, id);
+            }
+
+            Map<String, String> unknown = overflow;
+            return unknown != null ? unknown.get(key) : null;
+        }
+
+        void set(String key, String value) {
+            int id = PropertySchema.idOf(key);
+            if (id >= 0) {
+                SLOTS.setRelease(slots, id, value);
+            } else if (value != null) {
+                overflow().put(key, value);
+            } else if (overflow != null) {
+                overflow.remove(key);
+            }
+        }
+
+        void putAll(IDataHolder other) {
+            // Lets lazy holders materialize their values before the storage is accessed directly.
+            Map<String, String> otherValues = other.getValues();
+
+            if (otherValues instanceof CompactDataHolder.ValuesView) {
+                Storage source = ((ValuesView) otherValues).storage();
+                for (int i = 0; i < slots.length; i++) {
+                    String value = (String) SLOTS.getAcquire(source.slots, i);
+                    if (value != null) {
+                        SLOTS.setRelease(slots, i, value);
+                    }
+                }
+                if (source.overflow != null) {
+                    overflow().putAll(source.overflow);
+                }
+
+            } else {
+                // Iterating synchronized maps requires holding their lock.
+                synchronized (otherValues) {
+                    otherValues.forEach(this::set);
+                }
+            }
+        }
+
+        private Map<String, String> overflow() {
+            Map<String, String> unknown = overflow;
+            if (unknown == null) {
+                synchronized (this) {
+                    unknown = overflow;
+                    if (unknown == null) {
+                        unknown = new ConcurrentHashMap<>();
+                        overflow = unknown;
+                    }
+                }
+            }
+            return unknown;
+        }
+    }
+
+    /**
+     * Live map view on the current storage.
+     */
+    private class ValuesView extends AbstractMap<String, String> {
+
+        private final Set<Entry<String, String>> entries = new EntrySet();
+
+        Storage storage() {
+            return storage;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? storage.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String put(String key, String value) {
+            if (value == null) {
+                throw new NullPointerException("Values may not be null");
+            }
+            Storage current = storage;
+            String previous = current.get(key);
+            current.set(key, value);
+            onPropertyChanged(key);
+            return previous;
+        }
+
+        @Override
+        public String remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            Storage current = storage;
+            String previous = current.get((String) key);
+            current.set((String) key, null);
+            onPropertyChanged((String) key);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            storage = new Storage();
+            onPropertyChanged(null);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entries;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new EntryIterator(storage);
+        }
+
+        @Override
+        public int size() {
+            Storage current = storage;
+            int size = 0;
+            for (int i = 0; i < current.slots.length; i++) {
+                if (SLOTS.getAcquire(current.slots, i) != null) {
+                    size++;
+                }
+            }
+            Map<String, String> unknown = current.overflow;
+            return unknown != null ? size + unknown.size() : size;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+        private final Storage iterated;
+        private final Iterator<Map.Entry<String, String>> overflowIterator;
+        private int nextSlot = -1;
+        private Map.Entry<String, String> next;
+        private String lastKey;
+
+        EntryIterator(Storage iterated) {
+            this.iterated = iterated;
+            Map<String, String> unknown = iterated.overflow;
+            overflowIterator = unknown != null ? unknown.entrySet().iterator() : null;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (++nextSlot < iterated.slots.length) {
+                String value = (String) SLOTS.getAcquire(iterated.slots, nextSlot);
+                if (value != null) {
+                    next = new SimpleEntry(PropertySchema.keyOf(nextSlot), value);
+                    return;
+                }
+            }
+            if (overflowIterator != null && overflowIterator.hasNext()) {
+                Map.Entry<String, String> entry = overflowIterator.next();
+                next = new SimpleEntry(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, String> entry = next;
+            lastKey = entry.getKey();
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            iterated.set(lastKey, null);
+            onPropertyChanged(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * Entry writing through to the holder.
+     */
+    private class SimpleEntry extends AbstractMap.SimpleEntry<String, String> {
+
+        SimpleEntry(String key, String value) {
+            super(key, value);
+        }
+
+        @Override
+        public String setValue(String value) {
+            setProperty(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -125,6 +125,22 @@ public interface IChannel extends IDataHolder, ITS3Subject {
      */
     List<IChannel> getSubChannels();
 
+    /**
+     * @implNote For cached channels, this is kept up to date on enter, leave and move notifications.
+     * @return The clients currently in this channel
+     */
+    List<IClient> getClients();
+
+    /**
+     * @return The clients in this channel and all channels below it
+     */
+    List<IClient> getClientsBelow();
+
+    /**
+     * @return If no client is in this channel
+     */
+    Boolean isEmpty();
+
     /**
      * Sends a message to this channel.
      * @deprecated <p>Not available at the moment. TS3 forces any messages directed at a channel to be sent to the current one.
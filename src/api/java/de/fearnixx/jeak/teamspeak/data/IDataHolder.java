@@ -7,7 +7,8 @@ import java.util.Optional;
  * Generic data holder.
  * Basically a wrapper around a map with some convenience methods.
  *
- * @implNote {@link BasicDataHolder}s use concurrent maps for thread safety.
+ * @implNote {@link BasicDataHolder}s use synchronized maps for thread safety.
+ * {@link CompactDataHolder}s, used for cached and event data, store known keys in a slot array and read without locking.
  */
 public interface IDataHolder {
 
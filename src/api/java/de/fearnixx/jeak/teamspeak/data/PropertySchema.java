@@ -0,0 +1,94 @@
+package de.fearnixx.jeak.teamspeak.data;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns a fixed slot index to every known property key.
+ * Known keys are all constants of {@link PropertyKeys} and some keys sent by TeamSpeak that have no constant.
+ *
+ * @see CompactDataHolder
+ */
+final class PropertySchema {
+
+    /**
+     * Keys commonly sent by the server that are not defined in {@link PropertyKeys}.
+     */
+    private static final String[] ADDITIONAL_KEYS = {
+            // Answers & notifications
+            "id", "msg", "command", "reasonid", "reasonmsg", "ctid", "cfid", "schandlerid",
+            // Clients
+            "client_login_name", "client_default_channel", "client_meta_data", "client_badges",
+            "client_estimated_location", "client_needed_serverquery_view_power", "client_myteamspeak_id",
+            "client_integrations", "client_channel_group_inherited_channel_id", "client_flag_avatar",
+            "client_talk_request", "client_talk_request_msg", "client_servergroup_ids", "connection_client_port",
+            // Channels
+            "channel_name_phonetic", "channel_needed_subscribe_power", "channel_filepath", "channel_forced_silence",
+            "channel_codec_latency_factor", "channel_security_salt", "channel_banner_gfx_url", "channel_banner_mode",
+            "channel_flag_are_subscribed", "seconds_empty"
+    };
+
+    private static final Map<String, Integer> IDS;
+    private static final String[] KEYS;
+
+    static {
+        Set<String> keys = new LinkedHashSet<>();
+        collectConstants(PropertyKeys.class, keys);
+        Collections.addAll(keys, ADDITIONAL_KEYS);
+
+        KEYS = keys.toArray(new String[0]);
+        Map<String, Integer> ids = new HashMap<>(KEYS.length * 2);
+        for (int i = 0; i < KEYS.length; i++) {
+            ids.put(KEYS[i], i);
+        }
+        IDS = Collections.unmodifiableMap(ids);
+    }
+
+    private PropertySchema() {
+    }
+
+    private static void collectConstants(Class<?> type, Set<String> keys) {
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isPublic(modifiers) && field.getType() == String.class) {
+                try {
+                    keys.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read property key: " + field, e);
+                }
+            }
+        }
+
+        for (Class<?> nestedType : type.getDeclaredClasses()) {
+            collectConstants(nestedType, keys);
+        }
+    }
+
+    /**
+     * Number of known keys.
+     */
+    static int size() {
+        return KEYS.length;
+    }
+
+    /**
+     * The slot index of a key.
+     *
+     * @return the index or {@code -1} if the key is unknown
+     */
+    static int idOf(String key) {
+        Integer id = IDS.get(key);
+        return id != null ? id : -1;
+    }
+
+    static String keyOf(int id) {
+        return KEYS[id];
+    }
+}
@@ -1,7 +1,11 @@
 package de.fearnixx.jeak.teamspeak.query;
 
+import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.teamspeak.data.IDataHolder;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by MarkL4YG on 10.06.17.
  */
@@ -26,6 +30,26 @@ public interface IQueryConnection extends AutoCloseable {
      */
     void sendRequest(IQueryRequest req);
 
+    /**
+     * Send a request and receive the answer through a future.
+     *
+     * The future completes on the connection thread - use the {@code *Async} methods of the future for expensive work.
+     * Cancelling the future before the request has been sent removes it from the queue.
+     * No callback is attached to the request, so the same request may be sent multiple times.
+     * @param req The request to send
+     */
+    CompletableFuture<IQueryEvent.IAnswer> sendRequestAsync(IQueryRequest req);
+
+    /**
+     * {@link #sendRequestAsync(IQueryRequest)} with a deadline.
+     * When no answer has been received in time, the future completes exceptionally with a {@link java.util.concurrent.TimeoutException}.
+     * Requests that have not been sent until then are not sent at all.
+     * @param req The request to send
+     */
+    default CompletableFuture<IQueryEvent.IAnswer> sendRequestAsync(IQueryRequest req, long timeout, TimeUnit unit) {
+        return sendRequestAsync(req).orTimeout(timeout, unit);
+    }
+
     /**
      * Whether or not this connection has been closed for any reason.
      */
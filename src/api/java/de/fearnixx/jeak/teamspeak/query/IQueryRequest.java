@@ -40,6 +40,14 @@ public interface IQueryRequest {
      */
     List<String> getOptions();
 
+    /**
+     * Scheduling class of this request.
+     * Requests of higher priority are sent before others waiting in the queue.
+     */
+    default QueryPriority getPriority() {
+        return QueryPriority.NORMAL;
+    }
+
     /**
      * When the request has been sent and a complete response has been received from TeamSpeak,
      * the {@link IQueryConnection} invokes some callbacks based on the response.
@@ -72,4 +80,12 @@ public interface IQueryRequest {
      * Attach an additional callback to this request.
      */
     void onError(Consumer<IQueryEvent.IAnswer> onErrorConsumer);
+
+    /**
+     * Whether or not any callback is attached to this request.
+     * Requests with callbacks expect an answer of their own and are therefore never merged with others.
+     */
+    default boolean hasCallbacks() {
+        return true;
+    }
 }
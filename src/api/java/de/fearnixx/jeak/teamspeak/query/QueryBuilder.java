@@ -28,6 +28,7 @@ public class QueryBuilder {
         builder.command(request.getCommand());
         request.getDataChain().forEach(builder::appendToChain);
         request.getOptions().forEach(builder::addOption);
+        builder.priority(request.getPriority());
 
         builder.onDone(request.onDone());
         builder.onError(request.onError());
@@ -39,6 +40,7 @@ public class QueryBuilder {
     private IDataHolder currentObj;
     private List<IDataHolder> chain;
     private List<String> options;
+    private QueryPriority priority;
     private Consumer<IQueryEvent.IAnswer> onDone;
     private Consumer<IQueryEvent.IAnswer> onError;
     private Consumer<IQueryEvent.IAnswer> onSuccess;
@@ -52,6 +54,7 @@ public class QueryBuilder {
         currentObj = null;
         chain = new ArrayList<>();
         options = new ArrayList<>();
+        priority = QueryPriority.NORMAL;
         commitChainElement();
         return this;
     }
@@ -108,6 +111,11 @@ public class QueryBuilder {
         return this;
     }
 
+    public QueryBuilder priority(QueryPriority priority) {
+        this.priority = Objects.requireNonNull(priority, "Priority may not be null!");
+        return this;
+    }
+
     public QueryBuilder onDone(Consumer<IQueryEvent.IAnswer> callback) {
         if (WARN_CB_REPLACE && this.onDone != null) {
             logger.warn("Replacing on-done callback. Did you mean to register the CB on the request?");
@@ -154,6 +162,7 @@ public class QueryBuilder {
             final String fComm = command;
             final List<IDataHolder> fChain = Collections.unmodifiableList(chain);
             final List<String> fOptions = Collections.unmodifiableList(options);
+            final QueryPriority fPriority = priority;
 
             @Override
             public String getCommand() {
@@ -170,6 +179,11 @@ public class QueryBuilder {
                 return fOptions;
             }
 
+            @Override
+            public QueryPriority getPriority() {
+                return fPriority;
+            }
+
             @Override
             public Consumer<IQueryEvent.IAnswer> onDone() {
                 return (event) -> onDoneCBs.forEach(callback -> callback.accept(event));
@@ -202,6 +216,11 @@ public class QueryBuilder {
                 Objects.requireNonNull(onSuccessConsumer, "Cannot register null-callback!");
                 onSuccessCBs.add(onSuccessConsumer);
             }
+
+            @Override
+            public boolean hasCallbacks() {
+                return !onDoneCBs.isEmpty() || !onSuccessCBs.isEmpty() || !onErrorCBs.isEmpty();
+            }
         };
     }
 }
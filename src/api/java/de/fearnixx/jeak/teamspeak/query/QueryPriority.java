@@ -0,0 +1,28 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+/**
+ * Scheduling class of a query request.
+ * Requests of a higher priority are sent first, though long-waiting requests of lower priorities catch up over time.
+ */
+public enum QueryPriority {
+
+    /**
+     * Connection management: login, keep-alive, notification registration.
+     */
+    SYSTEM,
+
+    /**
+     * Requests a user is waiting on, e.g. command replies.
+     */
+    INTERACTIVE,
+
+    /**
+     * Default for all requests.
+     */
+    NORMAL,
+
+    /**
+     * Background work like cache refreshes.
+     */
+    BULK
+}
@@ -7,7 +7,7 @@ import de.fearnixx.jeak.event.ITargetClient;
 import de.fearnixx.jeak.teamspeak.NotificationReason;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.TargetType;
-import de.fearnixx.jeak.teamspeak.data.BasicDataHolder;
+import de.fearnixx.jeak.teamspeak.data.CompactDataHolder;
 import de.fearnixx.jeak.teamspeak.data.IChannel;
 import de.fearnixx.jeak.teamspeak.data.IClient;
 import de.fearnixx.jeak.teamspeak.data.IDataHolder;
@@ -16,13 +16,14 @@ import de.fearnixx.jeak.teamspeak.query.IQueryConnection;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Created by MarkL4YG on 01-Feb-18
  */
-public abstract class QueryEvent extends BasicDataHolder implements IQueryEvent {
+public abstract class QueryEvent extends CompactDataHolder implements IQueryEvent {
 
     private IQueryConnection connection;
     private IRawQueryEvent rawReference;
@@ -86,6 +87,62 @@ public abstract class QueryEvent extends BasicDataHolder implements IQueryEvent
                 return channelMap;
             }
         }
+
+        public static class ClientPropertiesChanged extends BasicDataEvent implements IClientPropertiesChanged {
+
+            private final IClient client;
+            private final Map<String, String> changes;
+            private final Map<String, String> previousValues;
+
+            public ClientPropertiesChanged(IClient client, Map<String, String> changes, Map<String, String> previousValues) {
+                this.client = client;
+                this.changes = Collections.unmodifiableMap(changes);
+                this.previousValues = Collections.unmodifiableMap(previousValues);
+            }
+
+            @Override
+            public IClient getClient() {
+                return client;
+            }
+
+            @Override
+            public Map<String, String> getChanges() {
+                return changes;
+            }
+
+            @Override
+            public Map<String, String> getPreviousValues() {
+                return previousValues;
+            }
+        }
+
+        public static class ChannelPropertiesChanged extends BasicDataEvent implements IChannelPropertiesChanged {
+
+            private final IChannel channel;
+            private final Map<String, String> changes;
+            private final Map<String, String> previousValues;
+
+            public ChannelPropertiesChanged(IChannel channel, Map<String, String> changes, Map<String, String> previousValues) {
+                this.channel = channel;
+                this.changes = Collections.unmodifiableMap(changes);
+                this.previousValues = Collections.unmodifiableMap(previousValues);
+            }
+
+            @Override
+            public IChannel getChannel() {
+                return channel;
+            }
+
+            @Override
+            public Map<String, String> getChanges() {
+                return changes;
+            }
+
+            @Override
+            public Map<String, String> getPreviousValues() {
+                return previousValues;
+            }
+        }
     }
 
     public static class Answer extends QueryEvent implements IQueryEvent.IAnswer {
@@ -217,6 +274,16 @@ public abstract class QueryEvent extends BasicDataHolder implements IQueryEvent
         }
     }
 
+    public static class ClientUpdated extends TargetClient implements IQueryEvent.INotification.IClientUpdated {
+
+        @Override
+        public Map<String, String> getChanges() {
+            Map<String, String> changes = new HashMap<>(getValues());
+            changes.remove(PropertyKeys.Client.ID);
+            return Collections.unmodifiableMap(changes);
+        }
+    }
+
     public static class ClientMoved extends TargetClient implements IQueryEvent.INotification.IClientMoved {
 
         @Override
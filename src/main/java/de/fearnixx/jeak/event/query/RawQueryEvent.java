@@ -1,17 +1,21 @@
 package de.fearnixx.jeak.event.query;
 
 import de.fearnixx.jeak.event.IRawQueryEvent;
-import de.fearnixx.jeak.teamspeak.data.BasicDataHolder;
+import de.fearnixx.jeak.teamspeak.data.CompactDataHolder;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import de.fearnixx.jeak.teamspeak.query.QueryConnectionAccessor;
+import de.fearnixx.jeak.teamspeak.query.parser.LazyProperties;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Created by MarkL4YG on 28-Jan-18
  */
-public class RawQueryEvent extends BasicDataHolder implements IRawQueryEvent {
+public class RawQueryEvent extends CompactDataHolder implements IRawQueryEvent {
 
     public QueryConnectionAccessor connection;
 
@@ -31,6 +35,68 @@ public class RawQueryEvent extends BasicDataHolder implements IRawQueryEvent {
         protected Message previous;
         protected Message next;
 
+        // Properties not yet decoded - set by the parser.
+        private volatile LazyProperties lazyProperties;
+
+        public void setLazyProperties(LazyProperties lazyProperties) {
+            this.lazyProperties = lazyProperties;
+        }
+
+        public LazyProperties getLazyProperties() {
+            return lazyProperties;
+        }
+
+        /**
+         * Decodes all lazy properties into the value map.
+         * Required before any modification or when all values are requested.
+         */
+        private void materialize() {
+            LazyProperties props = lazyProperties;
+            if (props == null) {
+                return;
+            }
+
+            synchronized (props) {
+                if (lazyProperties == props) {
+                    props.forEach(super::setProperty);
+                    lazyProperties = null;
+                }
+            }
+        }
+
+        @Override
+        public Optional<String> getProperty(String key) {
+            LazyProperties props = lazyProperties;
+            if (props != null) {
+                return Optional.ofNullable(props.get(key));
+            }
+            return super.getProperty(key);
+        }
+
+        @Override
+        public void setProperty(String key, String value) {
+            materialize();
+            super.setProperty(key, value);
+        }
+
+        @Override
+        public Map<String, String> getValues() {
+            materialize();
+            return super.getValues();
+        }
+
+        @Override
+        public IDataHolder copyFrom(IDataHolder other) {
+            lazyProperties = null;
+            return super.copyFrom(other);
+        }
+
+        @Override
+        public IDataHolder merge(IDataHolder other) {
+            materialize();
+            return super.merge(other);
+        }
+
         public void setPrevious(RawQueryEvent.Message last) {
             this.previous = last;
         }
@@ -12,6 +12,7 @@ import de.fearnixx.jeak.teamspeak.QueryCommands;
 import de.fearnixx.jeak.teamspeak.TargetType;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import de.fearnixx.jeak.teamspeak.query.QueryBuilder;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +83,7 @@ public class CommandService implements ICommandService {
                             Integer targetID = Integer.parseInt(sourceIdStr);
                             QueryBuilder request = IQueryRequest.builder()
                                                                          .command(QueryCommands.TEXTMESSAGE_SEND)
+                                                                         .priority(QueryPriority.INTERACTIVE)
                                                                          .addKey(PropertyKeys.TextMessage.TARGET_TYPE, TargetType.CLIENT.getQueryNum())
                                                                          .addKey(PropertyKeys.TextMessage.TARGET_ID, targetID)
                                                                          .addKey(PropertyKeys.TextMessage.MESSAGE, "Unknown command!");
@@ -155,6 +157,7 @@ public class CommandService implements ICommandService {
 
         QueryBuilder request = IQueryRequest.builder()
                                                      .command(QueryCommands.TEXTMESSAGE_SEND)
+                                                     .priority(QueryPriority.INTERACTIVE)
                                                      .addKey(PropertyKeys.TextMessage.TARGET_TYPE, TargetType.CLIENT.getQueryNum())
                                                      .addKey(PropertyKeys.TextMessage.TARGET_ID, targetID)
                                                      .addKey(PropertyKeys.TextMessage.MESSAGE, message);
@@ -3,6 +3,7 @@ package de.fearnixx.jeak.service.notification;
 import de.fearnixx.jeak.reflect.Inject;
 import de.fearnixx.jeak.teamspeak.IServer;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
 import de.fearnixx.jeak.teamspeak.cache.IDataCache;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import de.fearnixx.jeak.teamspeak.query.QueryBuilder;
@@ -41,14 +42,15 @@ public class PokeClientChannel extends TS3NotificationChannel {
 
     @Override
     public void sendNotification(INotification notification) {
-        QueryBuilder builder = IQueryRequest.builder()
-                .command("clientpoke")
-                .addKey(PropertyKeys.TextMessage.MESSAGE, notification.getShortText());
-
-        addRecipients(notification, builder);
-
-        addLogging(builder, logger);
-        server.getConnection().sendRequest(builder.build());
+        for (Integer clientId : getOnlineRecipientIds(notification)) {
+            QueryBuilder builder = IQueryRequest.builder()
+                    .command(QueryCommands.CLIENT.CLIENT_POKE)
+                    .addKey(PropertyKeys.Client.ID, clientId)
+                    .addKey(PropertyKeys.TextMessage.MESSAGE, notification.getShortText());
+
+            addLogging(builder, logger);
+            server.getConnection().sendRequest(builder.build());
+        }
     }
 
     @Override
@@ -42,15 +42,16 @@ public class SendTextMessageChannel extends TS3NotificationChannel {
 
     @Override
     public void sendNotification(INotification notification) {
-        final QueryBuilder builder = IQueryRequest.builder()
-                .command("sendtextmessage")
-                .addKey(PropertyKeys.TextMessage.TARGET_TYPE, TargetType.CLIENT.getQueryNum())
-                .addKey(PropertyKeys.TextMessage.MESSAGE, notification.getShortText());
-
-        addRecipients(notification, builder);
-
-        addLogging(builder, logger);
-        server.getConnection().sendRequest(builder.build());
+        for (Integer clientId : getOnlineRecipientIds(notification)) {
+            final QueryBuilder builder = IQueryRequest.builder()
+                    .command("sendtextmessage")
+                    .addKey(PropertyKeys.TextMessage.TARGET_TYPE, TargetType.CLIENT.getQueryNum())
+                    .addKey(PropertyKeys.TextMessage.TARGET_ID, clientId)
+                    .addKey(PropertyKeys.TextMessage.MESSAGE, notification.getShortText());
+
+            addLogging(builder, logger);
+            server.getConnection().sendRequest(builder.build());
+        }
     }
 
     @Override
@@ -1,39 +1,28 @@
 package de.fearnixx.jeak.service.notification;
 
 import de.fearnixx.jeak.event.IRawQueryEvent;
-import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.cache.IDataCache;
-import de.fearnixx.jeak.teamspeak.data.IClient;
 import de.fearnixx.jeak.teamspeak.query.QueryBuilder;
 import org.slf4j.Logger;
 
-import java.util.Iterator;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class TS3NotificationChannel implements INotificationChannel {
 
     protected abstract IDataCache getDataCache();
 
-    protected void addRecipients(INotification notification, QueryBuilder builder) {
-        final Iterator<String> it = notification.getRecipients().iterator();
-        while (true) {
-            final String uniqueId = it.next();
-
-            final Optional<IClient> client = getDataCache().getClients()
-                    .stream()
-                    .filter(c -> c.getClientUniqueID().equals(uniqueId))
-                    .findFirst();
-
-            if (client.isPresent()) {
-                builder.addKey(PropertyKeys.TextMessage.TARGET_ID, client.get().getClientID());
-
-                if (it.hasNext()) {
-                    builder.commitChainElement();
-                } else {
-                    break;
-                }
-            }
+    /**
+     * The client IDs of the recipients that are online - looked up from the cache index.
+     * Pokes and text messages do not accept chained targets, so one request has to be sent per client.
+     */
+    protected List<Integer> getOnlineRecipientIds(INotification notification) {
+        List<Integer> clientIds = new ArrayList<>();
+        for (String uniqueId : notification.getRecipients()) {
+            getDataCache().findClientByUniqueId(uniqueId)
+                    .ifPresent(client -> clientIds.add(client.getClientID()));
         }
+        return clientIds;
     }
 
     protected void addLogging(QueryBuilder builder, Logger logger) {
@@ -14,6 +14,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public class UserConfigSubject extends ConfigSubject {
 
@@ -42,10 +44,14 @@ public class UserConfigSubject extends ConfigSubject {
             if (linkedIdentities.isEmpty()) {
                 throw new IllegalStateException("No identities linked to profile: " + userProfile.getUniqueId());
             }
-            linkedIdentities
+            // Search all identities at once - offline users are looked up by a query each.
+            final List<CompletableFuture<List<IUser>>> searches = linkedIdentities
                     .stream()
                     .map(IUserIdentity::identity)
-                    .map(userService::findUserByUniqueID)
+                    .map(userService::findUserByUniqueIDAsync)
+                    .collect(Collectors.toList());
+            searches.stream()
+                    .map(CompletableFuture::join)
                     .filter(results -> {
                         if (results.size() > 0) {
                             return true;
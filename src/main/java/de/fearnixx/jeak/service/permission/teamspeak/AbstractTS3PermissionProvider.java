@@ -14,6 +14,8 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public abstract class AbstractTS3PermissionProvider implements ITS3PermissionProvider {
 
@@ -56,8 +58,16 @@ public abstract class AbstractTS3PermissionProvider implements ITS3PermissionPro
 
     @Override
     public Optional<ITS3Permission> getActivePermission(Integer clientID, String permSID) {
-        List<ITS3Permission> activeContext = getActiveContext(clientID, permSID);
+        return await(getActivePermissionAsync(clientID, permSID));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getActivePermissionAsync(Integer clientID, String permSID) {
+        return getActiveContextAsync(clientID, permSID)
+                .thenApply(AbstractTS3PermissionProvider::effectivePermission);
+    }
 
+    private static Optional<ITS3Permission> effectivePermission(List<ITS3Permission> activeContext) {
         if (activeContext.isEmpty())
             return Optional.empty();
 
@@ -100,18 +110,42 @@ public abstract class AbstractTS3PermissionProvider implements ITS3PermissionPro
         return Optional.ofNullable(effective);
     }
 
-    protected List<ITS3Permission> getActiveContext(Integer clientID, String permSID) {
-        final List<ITS3Permission> result = new ArrayList<>();
+    /**
+     * Requests all permissions in the context of the client at once.
+     * The result keeps the order of the lookups.
+     */
+    protected CompletableFuture<List<ITS3Permission>> getActiveContextAsync(Integer clientID, String permSID) {
         Optional<IClient> optClient = userService.getClientByID(clientID);
         IClient client = optClient.orElseThrow(() -> new IllegalStateException("Given client ID is not online: " + clientID));
 
-        client.getGroupIDs().forEach(gid -> getServerGroupPermission(gid, permSID).ifPresent(result::add));
-        getClientPermission(client.getClientDBID(), permSID).ifPresent(result::add);
-        getChannelGroupPermission(client.getChannelGroupID(), permSID).ifPresent(result::add);
-        getChannelClientPermission(client.getChannelID(), client.getClientDBID(), permSID).ifPresent(result::add);
-        getChannelPermission(client.getChannelID(), permSID).ifPresent(result::add);
+        final List<CompletableFuture<Optional<ITS3Permission>>> lookups = new ArrayList<>();
+        client.getGroupIDs().forEach(gid -> lookups.add(getServerGroupPermissionAsync(gid, permSID)));
+        lookups.add(getClientPermissionAsync(client.getClientDBID(), permSID));
+        lookups.add(getChannelGroupPermissionAsync(client.getChannelGroupID(), permSID));
+        lookups.add(getChannelClientPermissionAsync(client.getChannelID(), client.getClientDBID(), permSID));
+        lookups.add(getChannelPermissionAsync(client.getChannelID(), permSID));
+
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    final List<ITS3Permission> result = new ArrayList<>();
+                    lookups.forEach(lookup -> lookup.join().ifPresent(result::add));
+                    return result;
+                });
+    }
 
-        return result;
+    /**
+     * Waits for a lookup - only to be used by the synchronous interface methods.
+     */
+    protected static Optional<ITS3Permission> await(CompletableFuture<Optional<ITS3Permission>> lookup) {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            logger.warn("Permission lookup failed.", e.getCause());
+            return Optional.empty();
+        }
     }
 
     @Override
@@ -119,6 +153,11 @@ public abstract class AbstractTS3PermissionProvider implements ITS3PermissionPro
         return permIdCache.getPermIdFor(permSID);
     }
 
+    @Override
+    public CompletableFuture<Integer> translateSIDAsync(String permSID) {
+        return permIdCache.getPermIdForAsync(permSID);
+    }
+
     @Listener
     public void onInitialize(IBotStateEvent.IInitializeEvent event) {
         injectionService.injectInto(permIdCache);
@@ -8,7 +8,6 @@ import de.fearnixx.jeak.service.task.ITask;
 import de.fearnixx.jeak.service.task.ITaskService;
 import de.fearnixx.jeak.teamspeak.IServer;
 import de.fearnixx.jeak.teamspeak.data.IDataHolder;
-import de.fearnixx.jeak.teamspeak.query.BlockingRequest;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,12 +16,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class PermIdCache {
 
     private static final Logger logger = LoggerFactory.getLogger(PermIdCache.class);
+    private static final int LOOKUP_TIMEOUT_SECONDS = 30;
     private final Map<String, Integer> internalCache = new ConcurrentHashMap<>();
 
     @Inject
@@ -73,57 +75,80 @@ public class PermIdCache {
         });
     }
 
-    public synchronized Integer getPermIdFor(String permSID) {
+    public Integer getPermIdFor(String permSID) {
+        try {
+            return getPermIdForAsync(permSID).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while looking up permSID: " + permSID, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw new IllegalArgumentException("Unknown permSID: " + permSID, e.getCause());
+        }
+    }
+
+    /**
+     * Looks up the ID without blocking - cache misses are resolved by a query.
+     * Completes exceptionally with an {@link IllegalArgumentException} for unknown permissions.
+     */
+    public CompletableFuture<Integer> getPermIdForAsync(String permSID) {
         Objects.requireNonNull(permSID, "PermSID may not be null!");
         if (permSID.trim().isEmpty()) {
             throw new IllegalArgumentException("PermSID may not be empty!");
         }
 
         Integer permId = internalCache.getOrDefault(permSID, null);
-        if (permId == null) {
-            logger.info("Cache-miss for \"{}\". Attempting lazy retrieval.", permSID);
-            Optional<Integer> optPermId = lazilyGetPermId(permSID);
-
-             permId = optPermId.orElseThrow(() -> new IllegalArgumentException("Unknown permSID: " + permSID));
-             logger.debug("Updating cache: {} -> {}", permSID, permId);
-             internalCache.put(permSID, permId);
+        if (permId != null) {
+            return CompletableFuture.completedFuture(permId);
         }
-        return permId;
+
+        logger.info("Cache-miss for \"{}\". Attempting lazy retrieval.", permSID);
+        return lazilyGetPermId(permSID).thenApply(optPermId -> {
+            Integer lookedUp = optPermId.orElseThrow(() -> new IllegalArgumentException("Unknown permSID: " + permSID));
+            logger.debug("Updating cache: {} -> {}", permSID, lookedUp);
+            internalCache.put(permSID, lookedUp);
+            return lookedUp;
+        });
     }
 
-    private Optional<Integer> lazilyGetPermId(String permSid) {
+    private CompletableFuture<Optional<Integer>> lazilyGetPermId(String permSid) {
         IQueryRequest request = IQueryRequest.builder()
                 .command("permidgetbyname")
                 .addKey("permsid", permSid)
                 .build();
 
-        BlockingRequest bRequest = new BlockingRequest(request);
-        if (bRequest.waitForCompletion()) {
-            IQueryEvent.IAnswer answer = bRequest.getAnswer();
-
-            if (answer.getErrorCode() == 0) {
-                List<IDataHolder> chain = answer.getDataChain();
-                for (IDataHolder holder : chain) {
-                    String dataSID = holder.getProperty("permsid").orElse("_");
-                    if (dataSID.equals(permSid)) {
-                        Integer permid = holder.getProperty("permid")
-                                .map(Integer::parseInt)
-                                .orElse(-1);
-
-                        if (permid > 0) {
-                            return Optional.of(permid);
-                        } else {
-                            logger.warn("Failed to retrieve permID from answer!");
-                        }
+        return server.getConnection()
+                .sendRequestAsync(request, LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .thenApply(answer -> permIdFromAnswer(permSid, answer))
+                .exceptionally(e -> {
+                    logger.warn("Could not complete request for permID lookup.", e);
+                    return Optional.empty();
+                });
+    }
+
+    private static Optional<Integer> permIdFromAnswer(String permSid, IQueryEvent.IAnswer answer) {
+        if (answer.getErrorCode() == 0) {
+            List<IDataHolder> chain = answer.getDataChain();
+            for (IDataHolder holder : chain) {
+                String dataSID = holder.getProperty("permsid").orElse("_");
+                if (dataSID.equals(permSid)) {
+                    Integer permid = holder.getProperty("permid")
+                            .map(Integer::parseInt)
+                            .orElse(-1);
+
+                    if (permid > 0) {
+                        return Optional.of(permid);
                     } else {
-                        logger.debug("Skipping result SID: {}", dataSID);
+                        logger.warn("Failed to retrieve permID from answer!");
                     }
+                } else {
+                    logger.debug("Skipping result SID: {}", dataSID);
                 }
-            } else {
-                logger.warn("Non-OK return code for permID lookup: {} - {}", answer.getErrorCode(), answer.getErrorMessage());
             }
         } else {
-            logger.warn("Could not complete blocking request for permID lookup.");
+            logger.warn("Non-OK return code for permID lookup: {} - {}", answer.getErrorCode(), answer.getErrorMessage());
         }
 
         return Optional.empty();
@@ -5,15 +5,17 @@ import de.fearnixx.jeak.reflect.FrameworkService;
 import de.fearnixx.jeak.service.permission.teamspeak.ITS3Permission.PriorityType;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.QueryCommands;
-import de.fearnixx.jeak.teamspeak.query.BlockingRequest;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Created by MarkL4YG on 04-Feb-18
@@ -26,14 +28,15 @@ public class QueryPermissionProvider extends AbstractTS3PermissionProvider imple
 
     public static final Integer CACHE_TIMEOUT_SECONDS = 90;
     public static final Integer EMPTY_RESULT_ID = 1281;
+    public static final Integer REQUEST_TIMEOUT_SECONDS = 30;
 
     private static final Logger logger = LoggerFactory.getLogger(QueryPermissionProvider.class);
 
-    private final Map<Integer, TS3PermCache> clientPerms = new HashMap<>();
-    private final Map<Integer, TS3PermCache> channelPerms = new HashMap<>();
-    private final Map<Integer, TS3PermCache> channelGroupPerms = new HashMap<>();
-    private final Map<Integer, TS3PermCache> serverGroupPerms = new HashMap<>();
-    private final Map<Integer, Map<Integer, TS3PermCache>> channelClientPerms = new HashMap<>();
+    private final Map<Integer, TS3PermCache> clientPerms = new ConcurrentHashMap<>();
+    private final Map<Integer, TS3PermCache> channelPerms = new ConcurrentHashMap<>();
+    private final Map<Integer, TS3PermCache> channelGroupPerms = new ConcurrentHashMap<>();
+    private final Map<Integer, TS3PermCache> serverGroupPerms = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Integer, TS3PermCache>> channelClientPerms = new ConcurrentHashMap<>();
 
     @Override
     public void clearCache(PriorityType type, Integer optClientOrGroupID, Integer optChannelID) {
@@ -75,177 +78,167 @@ public class QueryPermissionProvider extends AbstractTS3PermissionProvider imple
 
     @Override
     public Optional<ITS3Permission> getClientPermission(Integer clientDBID, String permSID) {
-        IMessage.IAnswer answer = null;
-        TS3PermCache cache = clientPerms.getOrDefault(clientDBID, null);
-        if (cache != null && CACHE_TIMEOUT_SECONDS > 0) {
-            LocalDateTime cacheLimit = LocalDateTime.now().minusSeconds(CACHE_TIMEOUT_SECONDS);
+        return await(getClientPermissionAsync(clientDBID, permSID));
+    }
 
-            if (cache.getTimestamp().isAfter(cacheLimit)) {
-                answer = cache.getAnswer();
-            }
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getClientPermissionAsync(Integer clientDBID, String permSID) {
+        IMessage.IAnswer answer = cachedAnswer(clientPerms.getOrDefault(clientDBID, null));
+        if (answer != null) {
+            return CompletableFuture.completedFuture(permFromList(permSID, answer, PriorityType.CLIENT));
         }
 
-        if (answer == null) {
-            IQueryRequest req = IQueryRequest.builder()
-                                             .command(QueryCommands.PERMISSION.CLIENT_LIST_PERMISSIONS)
-                                             .addKey("cldbid", clientDBID)
-                                             .addOption("-permsid")
-                                             .build();
-            BlockingRequest request = new BlockingRequest(req);
-            getServer().getConnection().sendRequest(req);
-            if (request.waitForCompletion()) {
-                answer = ((IMessage.IAnswer) request.getAnswer().getRawReference());
-                cache = new TS3PermCache();
-                cache.setResponse(answer);
-                clientPerms.put(clientDBID, cache);
-            } else {
-                logger.warn("Permission lookup for \"{}\" on client \"{}\" did not complete.", permSID, clientDBID);
-                return Optional.empty();
-            }
-        }
-        return permFromList(permSID, answer, ITS3Permission.PriorityType.CLIENT);
+        IQueryRequest req = IQueryRequest.builder()
+                                         .command(QueryCommands.PERMISSION.CLIENT_LIST_PERMISSIONS)
+                                         .addKey("cldbid", clientDBID)
+                                         .addOption("-permsid")
+                                         .build();
+        return requestPermissions(req, permCache -> clientPerms.put(clientDBID, permCache))
+                .thenApply(rawAnswer -> permFromList(permSID, rawAnswer, PriorityType.CLIENT))
+                .exceptionally(e -> {
+                    logger.warn("Permission lookup for \"{}\" on client \"{}\" did not complete.", permSID, clientDBID);
+                    return Optional.empty();
+                });
     }
 
     @Override
     public Optional<ITS3Permission> getServerGroupPermission(Integer serverGroupID, String permSID) {
-        IMessage.IAnswer answer = null;
-        TS3PermCache cache = serverGroupPerms.getOrDefault(serverGroupID, null);
-        if (cache != null && CACHE_TIMEOUT_SECONDS > 0) {
-            LocalDateTime cacheLimit = LocalDateTime.now().minusSeconds(CACHE_TIMEOUT_SECONDS);
+        return await(getServerGroupPermissionAsync(serverGroupID, permSID));
+    }
 
-            if (cache.getTimestamp().isAfter(cacheLimit)) {
-                answer = cache.getAnswer();
-            }
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getServerGroupPermissionAsync(Integer serverGroupID, String permSID) {
+        IMessage.IAnswer answer = cachedAnswer(serverGroupPerms.getOrDefault(serverGroupID, null));
+        if (answer != null) {
+            return CompletableFuture.completedFuture(permFromList(permSID, answer, PriorityType.SERVER_GROUP));
         }
 
-        if (answer == null) {
-            IQueryRequest req = IQueryRequest.builder()
-                                             .command(QueryCommands.PERMISSION.SERVERGROUP_LIST_PERMISSIONS)
-                                             .addKey("sgid", serverGroupID)
-                                             .addOption("-permsid")
-                                             .build();
-            BlockingRequest request = new BlockingRequest(req);
-            getServer().getConnection().sendRequest(req);
-            if (request.waitForCompletion()) {
-                answer = ((IMessage.IAnswer) request.getAnswer().getRawReference());
-                cache = new TS3PermCache();
-                cache.setResponse(answer);
-                serverGroupPerms.put(serverGroupID, cache);
-            } else {
-                logger.warn("Permission lookup for \"{}\" on server group \"{}\" did not complete.", permSID, serverGroupID);
-                return Optional.empty();
-            }
-        }
-        return permFromList(permSID, answer, ITS3Permission.PriorityType.SERVER_GROUP);
+        IQueryRequest req = IQueryRequest.builder()
+                                         .command(QueryCommands.PERMISSION.SERVERGROUP_LIST_PERMISSIONS)
+                                         .addKey("sgid", serverGroupID)
+                                         .addOption("-permsid")
+                                         .build();
+        return requestPermissions(req, permCache -> serverGroupPerms.put(serverGroupID, permCache))
+                .thenApply(rawAnswer -> permFromList(permSID, rawAnswer, PriorityType.SERVER_GROUP))
+                .exceptionally(e -> {
+                    logger.warn("Permission lookup for \"{}\" on server group \"{}\" did not complete.", permSID, serverGroupID);
+                    return Optional.empty();
+                });
     }
 
     @Override
     public Optional<ITS3Permission> getChannelGroupPermission(Integer channelGroupID, String permSID) {
-        IMessage.IAnswer answer = null;
-        TS3PermCache cache = channelGroupPerms.getOrDefault(channelGroupID, null);
-        if (cache != null && CACHE_TIMEOUT_SECONDS > 0) {
-            LocalDateTime cacheLimit = LocalDateTime.now().minusSeconds(CACHE_TIMEOUT_SECONDS);
+        return await(getChannelGroupPermissionAsync(channelGroupID, permSID));
+    }
 
-            if (cache.getTimestamp().isAfter(cacheLimit)) {
-                answer = cache.getAnswer();
-            }
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getChannelGroupPermissionAsync(Integer channelGroupID, String permSID) {
+        IMessage.IAnswer answer = cachedAnswer(channelGroupPerms.getOrDefault(channelGroupID, null));
+        if (answer != null) {
+            return CompletableFuture.completedFuture(permFromList(permSID, answer, PriorityType.CHANNEL_GROUP));
         }
 
-        if (answer == null) {
-            IQueryRequest req = IQueryRequest.builder()
-                                             .command(QueryCommands.PERMISSION.CHANNEL_GROUP_PERMISSION_LIST)
-                                             .addKey("cgid", channelGroupID)
-                                             .addOption("-permsid")
-                                             .build();
-            BlockingRequest request = new BlockingRequest(req);
-            getServer().getConnection().sendRequest(req);
-            if (request.waitForCompletion()) {
-                answer = ((IMessage.IAnswer) request.getAnswer().getRawReference());
-                cache = new TS3PermCache();
-                cache.setResponse(answer);
-                channelGroupPerms.put(channelGroupID, cache);
-
-            } else {
-                logger.warn("Permission lookup for \"{}\" on channel group \"{}\" did not complete.", permSID, channelGroupID);
-                return Optional.empty();
-            }
-        }
-        return permFromList(permSID, answer, ITS3Permission.PriorityType.CHANNEL_GROUP);
+        IQueryRequest req = IQueryRequest.builder()
+                                         .command(QueryCommands.PERMISSION.CHANNEL_GROUP_PERMISSION_LIST)
+                                         .addKey("cgid", channelGroupID)
+                                         .addOption("-permsid")
+                                         .build();
+        return requestPermissions(req, permCache -> channelGroupPerms.put(channelGroupID, permCache))
+                .thenApply(rawAnswer -> permFromList(permSID, rawAnswer, PriorityType.CHANNEL_GROUP))
+                .exceptionally(e -> {
+                    logger.warn("Permission lookup for \"{}\" on channel group \"{}\" did not complete.", permSID, channelGroupID);
+                    return Optional.empty();
+                });
     }
 
     @Override
     public Optional<ITS3Permission> getChannelClientPermission(Integer channelID, Integer clientDBID, String permSID) {
-        IMessage.IAnswer answer = null;
+        return await(getChannelClientPermissionAsync(channelID, clientDBID, permSID));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getChannelClientPermissionAsync(Integer channelID, Integer clientDBID, String permSID) {
         Map<Integer, TS3PermCache> channelClientMap = channelClientPerms.getOrDefault(channelID, null);
-        TS3PermCache cache;
         if (channelClientMap != null) {
-            cache = channelClientMap.getOrDefault(clientDBID, null);
-            if (cache != null && CACHE_TIMEOUT_SECONDS > 0) {
-                LocalDateTime cacheLimit = LocalDateTime.now().minusSeconds(CACHE_TIMEOUT_SECONDS);
-
-                if (cache.getTimestamp().isAfter(cacheLimit)) {
-                    answer = cache.getAnswer();
-                }
+            IMessage.IAnswer answer = cachedAnswer(channelClientMap.getOrDefault(clientDBID, null));
+            if (answer != null) {
+                return CompletableFuture.completedFuture(permFromList(permSID, answer, PriorityType.CHANNEL_CLIENT));
             }
         }
 
-        if (answer == null) {
-            IQueryRequest req = IQueryRequest.builder()
-                                             .command(QueryCommands.PERMISSION.CHANNEL_CLIENT_LIST_PERMISSIONS)
-                                             .addKey(PropertyKeys.Channel.ID, channelID)
-                                             .addKey("cldbid", clientDBID)
-                                             .addOption("-permsid")
-                                             .build();
-            BlockingRequest request = new BlockingRequest(req);
-            getServer().getConnection().sendRequest(req);
-            if (request.waitForCompletion()) {
-                answer = ((IMessage.IAnswer) request.getAnswer());
-                cache = new TS3PermCache();
-                cache.setResponse(answer);
-                if (channelClientMap == null) {
-                    channelClientMap = new HashMap<>();
-                    channelClientPerms.put(channelID, channelClientMap);
-                }
-                channelClientMap.put(clientDBID, cache);
-            } else {
-                logger.warn("Permission lookup for \"{}\" on channel \"{}\" for client \"{}\" did not complete.", permSID, channelID, clientDBID);
-                return Optional.empty();
-            }
-        }
-        return permFromList(permSID, answer, ITS3Permission.PriorityType.CHANNEL_CLIENT);
+        IQueryRequest req = IQueryRequest.builder()
+                                         .command(QueryCommands.PERMISSION.CHANNEL_CLIENT_LIST_PERMISSIONS)
+                                         .addKey(PropertyKeys.Channel.ID, channelID)
+                                         .addKey("cldbid", clientDBID)
+                                         .addOption("-permsid")
+                                         .build();
+        return requestPermissions(req, permCache ->
+                channelClientPerms.computeIfAbsent(channelID, id -> new ConcurrentHashMap<>()).put(clientDBID, permCache))
+                .thenApply(rawAnswer -> permFromList(permSID, rawAnswer, PriorityType.CHANNEL_CLIENT))
+                .exceptionally(e -> {
+                    logger.warn("Permission lookup for \"{}\" on channel \"{}\" for client \"{}\" did not complete.", permSID, channelID, clientDBID);
+                    return Optional.empty();
+                });
     }
 
     @Override
     public Optional<ITS3Permission> getChannelPermission(Integer channelID, String permSID) {
-        IMessage.IAnswer answer = null;
-        TS3PermCache cache = channelPerms.getOrDefault(channelID, null);
+        return await(getChannelPermissionAsync(channelID, permSID));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ITS3Permission>> getChannelPermissionAsync(Integer channelID, String permSID) {
+        IMessage.IAnswer answer = cachedAnswer(channelPerms.getOrDefault(channelID, null));
+        if (answer != null) {
+            return CompletableFuture.completedFuture(permFromList(permSID, answer, PriorityType.CHANNEL));
+        }
+
+        IQueryRequest req = IQueryRequest.builder()
+                                         .command(QueryCommands.PERMISSION.CHANNEL_LIST_PERMISSIONS)
+                                         .addKey("cid", channelID)
+                                         .addOption("-permsid")
+                                         .build();
+        return requestPermissions(req, permCache -> channelPerms.put(channelID, permCache))
+                .thenApply(rawAnswer -> permFromList(permSID, rawAnswer, PriorityType.CHANNEL))
+                .exceptionally(e -> {
+                    logger.warn("Permission lookup for \"{}\" on channel \"{}\" did not complete.", permSID, channelID);
+                    return Optional.empty();
+                });
+    }
+
+    /**
+     * The cached answer - {@code null} if there is none or it has expired.
+     */
+    private static IMessage.IAnswer cachedAnswer(TS3PermCache cache) {
         if (cache != null && CACHE_TIMEOUT_SECONDS > 0) {
             LocalDateTime cacheLimit = LocalDateTime.now().minusSeconds(CACHE_TIMEOUT_SECONDS);
 
             if (cache.getTimestamp().isAfter(cacheLimit)) {
-                answer = cache.getAnswer();
+                return cache.getAnswer();
             }
         }
+        return null;
+    }
 
-        if (answer == null) {
-            IQueryRequest req = IQueryRequest.builder()
-                                             .command(QueryCommands.PERMISSION.CHANNEL_LIST_PERMISSIONS)
-                                             .addKey("cid", channelID)
-                                             .addOption("-permsid")
-                                             .build();
-            BlockingRequest request = new BlockingRequest(req);
-            getServer().getConnection().sendRequest(req);
-            if (request.waitForCompletion()) {
-                answer = ((IMessage.IAnswer) request.getAnswer());
-                cache = new TS3PermCache();
-                cache.setResponse(answer);
-                channelPerms.put(channelID, cache);
-            } else {
-                logger.warn("Permission lookup for \"{}\" on channel \"{}\" did not complete.", permSID, channelID);
-                return Optional.empty();
-            }
-        }
-        return permFromList(permSID, answer, ITS3Permission.PriorityType.CHANNEL);
+    /**
+     * Requests a permission list.
+     * The cache is updated from the connection thread as soon as the answer arrives.
+     */
+    private CompletableFuture<IMessage.IAnswer> requestPermissions(IQueryRequest request, Consumer<TS3PermCache> cacheUpdate) {
+        return getServer().getConnection()
+                .sendRequestAsync(request, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .thenApply(event -> {
+                    IMessage.IAnswer rawAnswer = (IMessage.IAnswer) event.getRawReference();
+                    TS3PermCache cache = new TS3PermCache();
+                    cache.setResponse(rawAnswer);
+                    cacheUpdate.accept(cache);
+                    return rawAnswer;
+                })
+                .whenComplete((rawAnswer, e) -> {
+                    if (e != null) {
+                        logger.debug("Permission request failed: {}", request.getCommand(), e);
+                    }
+                });
     }
 
     protected Optional<ITS3Permission> permFromList(String permSID, IMessage.IAnswer answer, ITS3Permission.PriorityType type) {
@@ -31,6 +31,12 @@ public abstract class AbstractUserService implements IUserService {
 
     @Override
     public List<IClient> findClientByUniqueID(String ts3uniqueID) {
+        List<IClient> clients = dataCache.getClientsByUniqueId(ts3uniqueID);
+        if (!clients.isEmpty()) {
+            return clients;
+        }
+
+        // Not a complete unique ID - fall back to prefix search.
         return dataCache.getClients()
                 .stream()
                 .filter(client -> client.getClientUniqueID().startsWith(ts3uniqueID))
@@ -39,10 +45,7 @@ public abstract class AbstractUserService implements IUserService {
 
     @Override
     public List<IClient> findClientByDBID(int ts3dbID) {
-        return dataCache.getClients()
-                .stream()
-                .filter(client -> client.getClientDBID().equals(ts3dbID))
-                .collect(Collectors.toList());
+        return dataCache.getClientsByDBID(ts3dbID);
     }
 
     @Override
@@ -53,6 +56,11 @@ public abstract class AbstractUserService implements IUserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<IClient> findClientByServerGroup(int serverGroupId) {
+        return dataCache.getClientsInServerGroup(serverGroupId);
+    }
+
     @Override
     public Optional<IClient> getClientByID(int clientId) {
         return Optional.ofNullable(dataCache.getClientMap().getOrDefault(clientId, null));
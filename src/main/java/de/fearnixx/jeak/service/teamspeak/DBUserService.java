@@ -6,7 +6,6 @@ import de.fearnixx.jeak.service.database.IPersistenceUnit;
 import de.fearnixx.jeak.teamspeak.IServer;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.cache.IDataCache;
-import de.fearnixx.jeak.teamspeak.data.IClient;
 import de.fearnixx.jeak.teamspeak.data.IUser;
 import de.fearnixx.jeak.teamspeak.data.TS3User;
 import org.slf4j.Logger;
@@ -19,7 +18,6 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Consumer;
 
 @FrameworkService(serviceInterface = IUserService.class)
@@ -131,26 +129,6 @@ public class DBUserService extends AbstractUserService {
         });
     }
 
-    @Override
-    public List<IClient> findClientByUniqueID(String ts3uniqueID) {
-        return null;
-    }
-
-    @Override
-    public List<IClient> findClientByDBID(int ts3dbID) {
-        return null;
-    }
-
-    @Override
-    public List<IClient> findClientByNickname(String ts3nickname) {
-        return null;
-    }
-
-    @Override
-    public Optional<IClient> getClientByID(int clientId) {
-        return Optional.empty();
-    }
-
     private synchronized void withConnection(Consumer<Connection> consumer) {
         try {
             consumer.accept(persistenceUnit.getDataSource().getConnection());
@@ -8,20 +8,27 @@ import de.fearnixx.jeak.teamspeak.cache.IDataCache;
 import de.fearnixx.jeak.teamspeak.data.IClient;
 import de.fearnixx.jeak.teamspeak.data.IUser;
 import de.fearnixx.jeak.teamspeak.data.TS3User;
-import de.fearnixx.jeak.teamspeak.query.BlockingRequest;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @FrameworkService(serviceInterface = IUserService.class)
 public class QueryUserService extends AbstractUserService {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryUserService.class);
+    private static final int REQUEST_TIMEOUT_SECONDS = 30;
 
     @Inject
     private IDataCache dataCache;
@@ -31,9 +38,14 @@ public class QueryUserService extends AbstractUserService {
 
     @Override
     public List<IUser> findUserByUniqueID(String ts3uniqueID) {
+        return await(findUserByUniqueIDAsync(ts3uniqueID));
+    }
+
+    @Override
+    public CompletableFuture<List<IUser>> findUserByUniqueIDAsync(String ts3uniqueID) {
         List<IClient> onlineClients = findClientByUniqueID(ts3uniqueID);
         if (!onlineClients.isEmpty()) {
-            return new LinkedList<>(onlineClients);
+            return CompletableFuture.completedFuture(new LinkedList<>(onlineClients));
         }
 
         IQueryRequest request = IQueryRequest.builder()
@@ -42,42 +54,53 @@ public class QueryUserService extends AbstractUserService {
                 .addOption("-uid")
                 .build();
 
-        BlockingRequest blockingRequest = new BlockingRequest(request);
-        server.getConnection().sendRequest(request);
-        if (!blockingRequest.waitForCompletion()) {
-            logger.warn("Failed to get client DB ID (by uid) from blocking request.");
-            return Collections.emptyList();
-        }
-
-        IQueryEvent.IAnswer answer = blockingRequest.getAnswer();
-        if (answer.getErrorCode() != 0) {
-            logger.warn("Error while getting client DB ID (by uid): {} - {}", answer.getErrorCode(), answer.getErrorMessage());
-            return Collections.emptyList();
-        }
-
-        return findUsersFromSearchAnswer(answer);
+        return sendRequest(request)
+                .thenCompose(answer -> {
+                    if (answer.getErrorCode() != 0) {
+                        logger.warn("Error while getting client DB ID (by uid): {} - {}", answer.getErrorCode(), answer.getErrorMessage());
+                        return CompletableFuture.completedFuture(Collections.<IUser>emptyList());
+                    }
+                    return findUsersFromSearchAnswer(answer);
+                })
+                .exceptionally(e -> {
+                    logger.warn("Failed to get client DB ID (by uid) from request.", e);
+                    return Collections.emptyList();
+                });
     }
 
     @Override
     public List<IUser> findUserByDBID(int ts3dbID) {
+        return await(findUserByDBIDAsync(ts3dbID));
+    }
+
+    @Override
+    public CompletableFuture<List<IUser>> findUserByDBIDAsync(int ts3dbID) {
         List<IClient> onlineClients = findClientByDBID(ts3dbID);
         if (!onlineClients.isEmpty()) {
-            return new LinkedList<>(onlineClients);
+            return CompletableFuture.completedFuture(new LinkedList<>(onlineClients));
         }
 
+        return requestUserInfo(ts3dbID);
+    }
+
+    /**
+     * Requests the database entry of an offline user.
+     * The answer is processed off the connection thread, as attaching the permissions looks up the profile.
+     */
+    private CompletableFuture<List<IUser>> requestUserInfo(int ts3dbID) {
         IQueryRequest request = IQueryRequest.builder()
                 .command("clientdbinfo")
                 .addKey("cldbid", ts3dbID)
                 .build();
+        return sendRequest(request)
+                .thenApplyAsync(this::usersFromInfoAnswer)
+                .exceptionally(e -> {
+                    logger.warn("Failed to get user from request.", e);
+                    return Collections.emptyList();
+                });
+    }
 
-        BlockingRequest blockingRequest = new BlockingRequest(request);
-        server.getConnection().sendRequest(request);
-        if (!blockingRequest.waitForCompletion()) {
-            logger.warn("Failed to get user from blocking request.");
-            return Collections.emptyList();
-        }
-
-        IQueryEvent.IAnswer answer = blockingRequest.getAnswer();
+    private List<IUser> usersFromInfoAnswer(IQueryEvent.IAnswer answer) {
         if (answer.getErrorCode() != 0) {
             logger.warn("Error getting client from db request: {} - {}", answer.getErrorCode(), answer.getErrorMessage());
             return Collections.emptyList();
@@ -98,9 +121,14 @@ public class QueryUserService extends AbstractUserService {
 
     @Override
     public List<IUser> findUserByNickname(String ts3nickname) {
+        return await(findUserByNicknameAsync(ts3nickname));
+    }
+
+    @Override
+    public CompletableFuture<List<IUser>> findUserByNicknameAsync(String ts3nickname) {
         List<IClient> onlineClients = findClientByNickname(ts3nickname);
         if (!onlineClients.isEmpty()) {
-            return new LinkedList<>(onlineClients);
+            return CompletableFuture.completedFuture(new LinkedList<>(onlineClients));
         }
 
         IQueryRequest request = IQueryRequest.builder()
@@ -108,31 +136,58 @@ public class QueryUserService extends AbstractUserService {
                 .addKey("pattern", ts3nickname)
                 .build();
 
-        BlockingRequest blockingRequest = new BlockingRequest(request);
-        server.getConnection().sendRequest(request);
-        if (!blockingRequest.waitForCompletion()) {
-            logger.warn("Failed to get client DB ID (by nickname) from blocking request.");
-            return Collections.emptyList();
-        }
-
-        IQueryEvent.IAnswer answer = blockingRequest.getAnswer();
-        if (answer.getErrorCode() != 0) {
-            logger.warn("Error while getting client DB ID (by nickname): {} - {}", answer.getErrorCode(), answer.getErrorMessage());
-            return Collections.emptyList();
-        }
-
-        return findUsersFromSearchAnswer(answer);
+        return sendRequest(request)
+                .thenCompose(answer -> {
+                    if (answer.getErrorCode() != 0) {
+                        logger.warn("Error while getting client DB ID (by nickname): {} - {}", answer.getErrorCode(), answer.getErrorMessage());
+                        return CompletableFuture.completedFuture(Collections.<IUser>emptyList());
+                    }
+                    return findUsersFromSearchAnswer(answer);
+                })
+                .exceptionally(e -> {
+                    logger.warn("Failed to get client DB ID (by nickname) from request.", e);
+                    return Collections.emptyList();
+                });
     }
 
-    private List<IUser> findUsersFromSearchAnswer(IQueryEvent.IAnswer answer) {
-        final List<IUser> results = new LinkedList<>();
-        answer.getDataChain()
+    private CompletableFuture<List<IUser>> findUsersFromSearchAnswer(IQueryEvent.IAnswer answer) {
+        List<Integer> dbIDs = answer.getDataChain()
                 .stream()
                 .map(holder -> holder.getProperty("cldbid").orElse(null))
                 .filter(Objects::nonNull)
                 .map(Integer::parseInt)
-                .map(this::findUserByDBID)
-                .forEach(results::addAll);
-        return results;
+                .collect(Collectors.toList());
+
+        // Send the requests for all offline users at once instead of waiting for each answer in turn.
+        final Map<Integer, CompletableFuture<List<IUser>>> lookups = new LinkedHashMap<>();
+        for (Integer dbID : dbIDs) {
+            lookups.computeIfAbsent(dbID, this::findUserByDBIDAsync);
+        }
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    final List<IUser> results = new LinkedList<>();
+                    dbIDs.forEach(dbID -> results.addAll(lookups.get(dbID).join()));
+                    return results;
+                });
+    }
+
+    private CompletableFuture<IQueryEvent.IAnswer> sendRequest(IQueryRequest request) {
+        return server.getConnection().sendRequestAsync(request, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits for a search - only to be used by the synchronous interface methods.
+     */
+    private List<IUser> await(CompletableFuture<List<IUser>> search) {
+        try {
+            return search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (ExecutionException e) {
+            logger.debug("Request failed.", e.getCause());
+            return Collections.emptyList();
+        }
     }
 }
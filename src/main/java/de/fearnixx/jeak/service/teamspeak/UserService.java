@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Small loader around the user service that decides whether or not to use direct DB access or queries.
@@ -67,6 +68,21 @@ public class UserService implements IUserService {
         return serviceImplementation.findUserByNickname(ts3nickname);
     }
 
+    @Override
+    public CompletableFuture<List<IUser>> findUserByUniqueIDAsync(String ts3uniqueID) {
+        return serviceImplementation.findUserByUniqueIDAsync(ts3uniqueID);
+    }
+
+    @Override
+    public CompletableFuture<List<IUser>> findUserByDBIDAsync(int ts3dbID) {
+        return serviceImplementation.findUserByDBIDAsync(ts3dbID);
+    }
+
+    @Override
+    public CompletableFuture<List<IUser>> findUserByNicknameAsync(String ts3nickname) {
+        return serviceImplementation.findUserByNicknameAsync(ts3nickname);
+    }
+
     @Override
     public List<IClient> findClientByUniqueID(String ts3uniqueID) {
         return serviceImplementation.findClientByUniqueID(ts3uniqueID);
@@ -82,6 +98,11 @@ public class UserService implements IUserService {
         return serviceImplementation.findClientByNickname(ts3nickname);
     }
 
+    @Override
+    public List<IClient> findClientByServerGroup(int serverGroupId) {
+        return serviceImplementation.findClientByServerGroup(serverGroupId);
+    }
+
     @Override
     public Optional<IClient> getClientByID(int clientId) {
         return serviceImplementation.getClientByID(clientId);
@@ -1,6 +1,7 @@
 package de.fearnixx.jeak.teamspeak;
 
 import de.fearnixx.jeak.IBot;
+import de.fearnixx.jeak.Main;
 import de.fearnixx.jeak.event.bot.BotStateEvent;
 import de.fearnixx.jeak.event.bot.IBotStateEvent;
 import de.fearnixx.jeak.reflect.FrameworkService;
@@ -12,14 +13,20 @@ import de.fearnixx.jeak.teamspeak.except.QueryConnectException;
 import de.fearnixx.jeak.teamspeak.query.IQueryConnection;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
 import de.fearnixx.jeak.teamspeak.query.QueryConnectionAccessor;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
 import de.fearnixx.jeak.teamspeak.query.TS3Connection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
@@ -34,6 +41,7 @@ import java.util.function.Consumer;
 public class Server implements IServer {
 
     private static final Logger logger = LoggerFactory.getLogger(Server.class);
+    private static final boolean USE_NIO = Main.getProperty("bot.connection.nio", false);
     private static final AtomicInteger connectionCounter = new AtomicInteger();
 
     @Inject
@@ -107,19 +115,14 @@ public class Server implements IServer {
 
     @SuppressWarnings("squid:S2095")
     protected void tcpConnectAndInitialize() throws IOException {
-        Socket socket;
-        if (!useSSL) {
-            socket = new Socket(host, port);
-        } else {
-            logger.info("SSL: Enabled.");
-            socket = SSLSocketFactory.getDefault().createSocket(host, port);
-            ((SSLSocket) socket).startHandshake();
-        }
-        socket.setSoTimeout(TS3Connection.SOCKET_TIMEOUT_MILLIS);
-
         mainConnection = new QueryConnectionAccessor();
         injectService.injectInto(mainConnection);
-        mainConnection.initialize(socket.getInputStream(), socket.getOutputStream());
+
+        if (USE_NIO) {
+            channelConnect();
+        } else {
+            socketConnect();
+        }
 
         login(user, pass, instanceId, result -> {
             if (!result) {
@@ -138,6 +141,44 @@ public class Server implements IServer {
         });
     }
 
+    @SuppressWarnings("squid:S2095")
+    private void socketConnect() throws IOException {
+        Socket socket;
+        if (!useSSL) {
+            socket = new Socket(host, port);
+        } else {
+            logger.info("SSL: Enabled.");
+            socket = SSLSocketFactory.getDefault().createSocket(host, port);
+            ((SSLSocket) socket).startHandshake();
+        }
+        socket.setSoTimeout(TS3Connection.SOCKET_TIMEOUT_MILLIS);
+        mainConnection.initialize(socket.getInputStream(), socket.getOutputStream());
+    }
+
+    @SuppressWarnings("squid:S2095")
+    private void channelConnect() throws IOException {
+        logger.debug("Using non-blocking transport.");
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        SSLEngine sslEngine = null;
+        if (useSSL) {
+            logger.info("SSL: Enabled.");
+            try {
+                sslEngine = SSLContext.getDefault().createSSLEngine(host, port);
+                sslEngine.setUseClientMode(true);
+            } catch (NoSuchAlgorithmException e) {
+                channel.close();
+                throw new IOException("Failed to create SSL engine!", e);
+            }
+        }
+
+        try {
+            mainConnection.initialize(channel, sslEngine);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
     protected void ensureClosed(boolean emitDisconnect) {
         if (mainConnection != null && !mainConnection.isClosed()) {
             logger.debug("Closing active connection for reconnection.");
@@ -162,6 +203,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.USE_INSTANCE)
+                        .priority(QueryPriority.SYSTEM)
                         .addOption(Integer.toString(instID))
                         .onError(answer -> {
                             logger.error("Failed to use desired instance: {}", answer.getError().getMessage());
@@ -174,6 +216,7 @@ public class Server implements IServer {
 
         mainConnection.sendRequest(
                 IQueryRequest.builder().command(QueryCommands.SERVER.LOGIN)
+                        .priority(QueryPriority.SYSTEM)
                         .addOption(user)
                         .addOption(pass)
                         .onError(answer -> {
@@ -193,6 +236,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.SERVER_NOTIFY_REGISTER)
+                        .priority(QueryPriority.SYSTEM)
                         .addKey(eventKey, "server")
                         .build()
         );
@@ -200,6 +244,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.SERVER_NOTIFY_REGISTER)
+                        .priority(QueryPriority.SYSTEM)
                         .addKey(eventKey, "channel")
                         .addKey("id", "0")
                         .build()
@@ -208,6 +253,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.SERVER_NOTIFY_REGISTER)
+                        .priority(QueryPriority.SYSTEM)
                         .addKey(eventKey, "textserver")
                         .build()
         );
@@ -215,6 +261,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.SERVER_NOTIFY_REGISTER)
+                        .priority(QueryPriority.SYSTEM)
                         .addKey(eventKey, "textchannel")
                         .build()
         );
@@ -222,6 +269,7 @@ public class Server implements IServer {
         mainConnection.sendRequest(
                 IQueryRequest.builder()
                         .command(QueryCommands.SERVER.SERVER_NOTIFY_REGISTER)
+                        .priority(QueryPriority.SYSTEM)
                         .addKey(eventKey, "textprivate")
                         .build()
         );
@@ -0,0 +1,76 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.data.IChannel;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.TS3Channel;
+import de.fearnixx.jeak.teamspeak.data.TS3Client;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the cache maps, published by {@link DataCache}.
+ * Each structural change publishes a new instance - readers only read the current reference.
+ */
+class CacheSnapshot implements ICacheSnapshot {
+
+    static final CacheSnapshot EMPTY = new CacheSnapshot(0, Map.of(), List.of(), Map.of(), List.of());
+
+    private final long version;
+    private final Map<Integer, IClient> clientMap;
+    private final Map<Integer, IChannel> channelMap;
+    private final List<IClient> clients;
+    private final List<IChannel> channels;
+
+    private CacheSnapshot(long version, Map<Integer, IClient> clientMap, List<IClient> clients,
+                          Map<Integer, IChannel> channelMap, List<IChannel> channels) {
+        this.version = version;
+        this.clientMap = clientMap;
+        this.clients = clients;
+        this.channelMap = channelMap;
+        this.channels = channels;
+    }
+
+    /**
+     * Next version with a fresh copy of the clients. The channels are shared with this snapshot.
+     * The caller must hold the cache lock.
+     */
+    CacheSnapshot withClients(Map<Integer, TS3Client> clients) {
+        Map<Integer, IClient> copy = Map.copyOf(clients);
+        return new CacheSnapshot(version + 1, copy, List.copyOf(copy.values()), channelMap, channels);
+    }
+
+    /**
+     * Next version with a fresh copy of the channels. The clients are shared with this snapshot.
+     * The caller must hold the cache lock.
+     */
+    CacheSnapshot withChannels(Map<Integer, TS3Channel> channels) {
+        Map<Integer, IChannel> copy = Map.copyOf(channels);
+        return new CacheSnapshot(version + 1, clientMap, clients, copy, List.copyOf(copy.values()));
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Map<Integer, IClient> getClientMap() {
+        return clientMap;
+    }
+
+    @Override
+    public Map<Integer, IChannel> getChannelMap() {
+        return channelMap;
+    }
+
+    @Override
+    public List<IClient> getClients() {
+        return clients;
+    }
+
+    @Override
+    public List<IChannel> getChannels() {
+        return channels;
+    }
+}
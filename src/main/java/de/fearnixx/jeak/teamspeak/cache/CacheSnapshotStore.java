@@ -0,0 +1,228 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.IBot;
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.event.bot.IBotStateEvent;
+import de.fearnixx.jeak.reflect.Inject;
+import de.fearnixx.jeak.reflect.Listener;
+import de.fearnixx.jeak.service.task.ITask;
+import de.fearnixx.jeak.service.task.ITaskService;
+import de.fearnixx.jeak.teamspeak.IServer;
+import de.fearnixx.jeak.teamspeak.data.BasicDataHolder;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the cached clients and channels so they are available right after a (re-)connect.
+ *
+ * The snapshot is written periodically, before the caches are cleared on disconnect and on shutdown.
+ * With {@code jeak.cache.warmStart} enabled, it is read (memory-mapped) on connect and loaded as provisional data
+ * which is then reconciled by the first refresh. Snapshots of another server or older than
+ * {@code jeak.cache.warmStartMaxAge} seconds are ignored.
+ *
+ * Format: Magic, format version, write time, server, then channels and clients as length-prefixed property lists.
+ */
+public class CacheSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    private static final boolean WARM_START = Main.getProperty("jeak.cache.warmStart", false);
+    private static final int WRITE_INTERVAL = Main.getProperty("jeak.cache.warmStartInterval", 300);
+    private static final long MAX_AGE = Main.getProperty("jeak.cache.warmStartMaxAge", 3600L);
+
+    private static final int MAGIC = 0x4A4B4353;
+    private static final int FORMAT_VERSION = 1;
+
+    private final DataCache dataCache;
+
+    @Inject
+    private IBot bot;
+
+    @Inject
+    private IServer server;
+
+    @Inject
+    private ITaskService taskService;
+
+    private final ITask writeTask = ITask.builder()
+            .name("cache.snapshotWrite")
+            .interval(WRITE_INTERVAL, TimeUnit.SECONDS)
+            .runnable(this::write)
+            .build();
+
+    public CacheSnapshotStore(DataCache dataCache) {
+        this.dataCache = dataCache;
+    }
+
+    @Listener(order = Listener.Orders.SYSTEM)
+    public void onConnected(IBotStateEvent.IConnectStateEvent.IPostConnect event) {
+        if (!WARM_START) {
+            return;
+        }
+
+        load();
+        taskService.scheduleTask(writeTask);
+    }
+
+    @Listener
+    public void onDisconnected(IBotStateEvent.IConnectStateEvent.IDisconnect event) {
+        if (!WARM_START) {
+            return;
+        }
+
+        // Caches are cleared at the latest order.
+        taskService.removeTask(writeTask);
+        write();
+    }
+
+    @Listener
+    public void onShutdown(IBotStateEvent.IPreShutdown event) {
+        if (WARM_START) {
+            write();
+        }
+    }
+
+    private File getFile() {
+        return new File(bot.getConfigDirectory(), "cache/datacache.bin");
+    }
+
+    private String getServerKey() {
+        return server.getHost() + ':' + server.getPort() + '/' + server.getInstanceId();
+    }
+
+    /**
+     * Writes the current snapshot - unless it is empty or not yet confirmed by a refresh.
+     */
+    synchronized void write() {
+        ICacheSnapshot snapshot = dataCache.snapshot();
+        if (dataCache.isProvisional() || snapshot.getClients().isEmpty() && snapshot.getChannels().isEmpty()) {
+            return;
+        }
+
+        File file = getFile();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            writeString(out, getServerKey());
+            writeEntries(out, snapshot.getChannels());
+            writeEntries(out, snapshot.getClients());
+            out.flush();
+
+            Files.createDirectories(file.getParentFile().toPath());
+            Path temp = new File(file.getParentFile(), file.getName() + ".tmp").toPath();
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote cache snapshot with {} channels and {} clients.",
+                    snapshot.getChannels().size(), snapshot.getClients().size());
+        } catch (IOException e) {
+            logger.warn("Failed to write cache snapshot: {}", file, e);
+        }
+    }
+
+    private void load() {
+        File file = getFile();
+        if (!file.isFile()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<IDataHolder> channels;
+        List<IDataHolder> clients;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.info("Ignoring cache snapshot of unknown format.");
+                return;
+            }
+
+            long age = System.currentTimeMillis() - buffer.getLong();
+            if (age > TimeUnit.SECONDS.toMillis(MAX_AGE)) {
+                logger.info("Ignoring cache snapshot: Outdated by {}s.", TimeUnit.MILLISECONDS.toSeconds(age));
+                return;
+            }
+            if (!getServerKey().equals(readString(buffer))) {
+                logger.info("Ignoring cache snapshot: Written for another server.");
+                return;
+            }
+
+            channels = readEntries(buffer);
+            clients = readEntries(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Failed to read cache snapshot: {}", file, e);
+            return;
+        }
+
+        dataCache.loadProvisional(channels, clients);
+        logger.info("Loaded {} channels and {} clients from the cache snapshot in {}ms.",
+                channels.size(), clients.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void writeEntries(DataOutputStream out, List<? extends IDataHolder> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (IDataHolder entry : entries) {
+            Map<String, String> values = entry.getValues();
+            out.writeInt(values.size());
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                writeString(out, value.getKey());
+                writeString(out, value.getValue());
+            }
+        }
+    }
+
+    private static List<IDataHolder> readEntries(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid entry count: " + count);
+        }
+
+        List<IDataHolder> entries = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            BasicDataHolder entry = new BasicDataHolder();
+            int properties = buffer.getInt();
+            for (int j = 0; j < properties; j++) {
+                entry.setProperty(readString(buffer), readString(buffer));
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -9,28 +9,31 @@ import de.fearnixx.jeak.reflect.Listener;
 import de.fearnixx.jeak.service.event.IEventService;
 import de.fearnixx.jeak.service.permission.base.IPermissionService;
 import de.fearnixx.jeak.service.permission.teamspeak.TS3ChannelSubject;
-import de.fearnixx.jeak.service.task.ITask;
 import de.fearnixx.jeak.service.task.ITaskService;
 import de.fearnixx.jeak.teamspeak.IServer;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.QueryCommands;
 import de.fearnixx.jeak.teamspeak.data.*;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
 import de.fearnixx.jeak.util.TS3DataFixes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ChannelCache {
 
     private static final Logger logger = LoggerFactory.getLogger(ChannelCache.class);
 
     private final Map<Integer, TS3Channel> internalCache = new ConcurrentHashMap<>(60);
+    private final ChannelTree channelTree;
+    private volatile boolean provisional = false;
+    private final RefreshStatistics refreshStatistics = new RefreshStatistics("channels");
 
     @Inject
     private IEventService eventService;
@@ -45,10 +48,12 @@ public class ChannelCache {
     private IPermissionService permService;
 
     private final Object LOCK;
+    private final DataCache dataCache;
 
     // == CHANNELLIST == //
     private final IQueryRequest channelListRequest = IQueryRequest.builder()
             .command(QueryCommands.CHANNEL.CHANNEL_LIST)
+            .priority(QueryPriority.BULK)
             .addOption("-topic")
             .addOption("-flags")
             .addOption("-voice")
@@ -56,14 +61,14 @@ public class ChannelCache {
             .addOption("-icon")
             .onDone(this::onListAnswer)
             .build();
-    private final ITask channelListTask = ITask.builder()
-            .name("cache.channelrefresh")
-            .interval(DataCache.CHANNEL_REFRESH_INTERVAL, TimeUnit.SECONDS)
-            .runnable(() -> server.optConnection().ifPresent(conn -> conn.sendRequest(channelListRequest)))
-            .build();
+    private final ReconciliationTask channelListTask = new ReconciliationTask("cache.channelrefresh",
+            () -> server.optConnection().ifPresent(conn -> conn.sendRequest(channelListRequest)),
+            DataCache.CHANNEL_REFRESH_INTERVAL, DataCache.CHANNEL_REFRESH_MAX_INTERVAL);
 
-    public ChannelCache(Object lock) {
+    public ChannelCache(Object lock, DataCache dataCache) {
         this.LOCK = lock;
+        this.dataCache = dataCache;
+        this.channelTree = new ChannelTree(internalCache);
     }
 
     @Listener
@@ -76,8 +81,38 @@ public class ChannelCache {
         synchronized (LOCK) {
             logger.info("Clearing channel cache due to disconnect.");
             taskService.removeTask(channelListTask);
+            channelListTask.reset();
             internalCache.values().forEach(TS3ChannelHolder::invalidate);
             internalCache.clear();
+            channelTree.clear();
+            provisional = false;
+            dataCache.publishChannels();
+        }
+    }
+
+    /**
+     * Fills the empty cache with channels from the warm-start snapshot.
+     * They are reconciled by the first refresh.
+     */
+    void loadProvisional(List<IDataHolder> channels) {
+        synchronized (LOCK) {
+            if (!internalCache.isEmpty() || channels.isEmpty()) {
+                return;
+            }
+
+            for (IDataHolder data : channels) {
+                int cid = Integer.parseInt(data.getProperty(PropertyKeys.Channel.ID).orElse("-1"));
+                if (cid == -1) {
+                    continue;
+                }
+                boolean isSpacer = TS3Spacer.spacerPattern.matcher(data.getProperty(PropertyKeys.Channel.NAME).orElse("")).matches();
+                TS3Channel channel = createChannelFrom(isSpacer, data);
+                internalCache.put(cid, channel);
+                channelTree.update(channel);
+            }
+            channelTree.commit();
+            provisional = true;
+            dataCache.publishChannels();
         }
     }
 
@@ -97,21 +132,34 @@ public class ChannelCache {
      */
     private void refreshChannels(IRawQueryEvent.IMessage.IAnswer event) {
         final List<IRawQueryEvent.IMessage> messages = event.toList();
-        synchronized (internalCache) {
-            final Map<Integer, TS3Channel> newMap = generateChannelMapping(messages);
+        final Queue<PropertyDelta<TS3Channel>> deltas = new ConcurrentLinkedQueue<>();
+        final boolean firstFill;
+        int added;
+        int removed = 0;
+        int replaced = 0;
+        final long[] stageNanos = new long[RefreshStatistics.Stage.values().length];
+        synchronized (LOCK) {
+            long start = System.nanoTime();
+            final Map<Integer, TS3Channel> newMap = generateChannelMapping(messages, deltas);
+            long parsed = System.nanoTime();
+            stageNanos[RefreshStatistics.Stage.PARSE.ordinal()] = parsed - start;
             TS3Channel o;
             Integer oID;
             TS3Channel n;
+            boolean modified = false;
             Integer[] cIDs = internalCache.keySet().toArray(new Integer[0]);
             for (int i = internalCache.size() - 1; i >= 0; i--) {
                 oID = cIDs[i];
                 o = internalCache.get(oID);
-                o.clearChildren();
                 n = newMap.getOrDefault(oID, null);
                 if (n == null) {
                     // Channel removed - invalidate & remove
                     o.invalidate();
                     internalCache.remove(oID);
+                    channelTree.remove(oID, false);
+                    dataCache.unsafeGetClientIndex().channelRemoved(oID);
+                    modified = true;
+                    removed++;
 
                 } else if (n == o) {
                     // Channel unchanged - continue
@@ -121,40 +169,59 @@ public class ChannelCache {
                     // Channel reference updated - invalidate & change
                     o.invalidate();
                     internalCache.put(oID, n);
+                    dataCache.unsafeGetClientIndex().channelAdded(n);
                     newMap.remove(oID);
+                    modified = true;
+                    replaced++;
                 }
             }
 
             // All others are new - Add them
-            boolean firstFill = internalCache.isEmpty();
+            firstFill = internalCache.isEmpty() || provisional;
+            provisional = false;
+            added = newMap.size();
+            modified |= !newMap.isEmpty();
             newMap.forEach(internalCache::put);
+            newMap.values().forEach(dataCache.unsafeGetClientIndex()::channelAdded);
+            if (modified) {
+                dataCache.publishChannels();
+            }
 
-            // Update children
-            internalCache.forEach((cid, c) -> {
-                int pid = c.getParent();
-                if (pid == 0) return;
-                TS3Channel parent = internalCache.getOrDefault(pid, null);
-                if (parent == null) {
-                    logger.warn("Channel {} has nonexistent parent: {}", cid, c.getParent());
-                    return;
-                }
-                parent.addSubChannel(c);
-            });
-
-            // Ensure children lists to be ordered
-            // TODO: Find a better solution than re-sorting the whole list every time!
-            internalCache.values().forEach(TS3Channel::sortChildren);
+            // Only parents with changed children are re-ordered.
+            internalCache.values().forEach(channelTree::update);
+            if (!channelTree.commit()) {
+                // Client counts have been refreshed as well.
+                channelTree.rebuildIndex();
+            }
             if (firstFill) {
                 logger.info("Channel cache is ready.");
             }
+            stageNanos[RefreshStatistics.Stage.APPLY.ordinal()] = System.nanoTime() - parsed;
         }
 
         logger.debug("Channellist updated");
+        long publishStart = System.nanoTime();
+        ICacheSnapshot snapshot = dataCache.snapshot();
         QueryEvent refresh = new QueryEvent.BasicDataEvent
-                .RefreshChannels(getChannels(), getChannelMap());
+                .RefreshChannels(snapshot.getChannels(), snapshot.getChannelMap());
         refresh.setConnection(event.getConnection());
         refresh.setRawReference(event);
         eventService.fireEvent(refresh);
+        dataCache.publishChannelChanges(deltas, event.getConnection(), event);
+        stageNanos[RefreshStatistics.Stage.PUBLISH.ordinal()] = System.nanoTime() - publishStart;
+        refreshStatistics.record(stageNanos);
+
+        if (!firstFill) {
+            // Family counts are not maintained from notifications.
+            int changed = (int) deltas.stream()
+                    .filter(delta -> delta.getChanges().size() > 1
+                            || !delta.getChanges().containsKey(PropertyKeys.Channel.CLIENT_COUNT_FAMILY))
+                    .count();
+            String details = added + " unknown, " + removed + " gone, " + replaced + " replaced, " + changed + " changed";
+            if (channelListTask.onReconciled(added + removed + replaced + changed, details)) {
+                taskService.rescheduleTask(channelListTask);
+            }
+        }
     }
 
     /**
@@ -162,55 +229,63 @@ public class ChannelCache {
      * Helper method for {@link #refreshChannels(IRawQueryEvent.IMessage.IAnswer)}.
      * <p>
      * Handles update existing and creating channels.
+     * Property changes of existing channels are added to the deltas.
      */
-    private Map<Integer, TS3Channel> generateChannelMapping(List<IRawQueryEvent.IMessage> messageObjects) {
+    private Map<Integer, TS3Channel> generateChannelMapping(List<IRawQueryEvent.IMessage> messageObjects,
+                                                            Queue<PropertyDelta<TS3Channel>> deltas) {
         final Map<Integer, TS3Channel> channelMap = new ConcurrentHashMap<>(messageObjects.size(), 1.1f);
-        messageObjects
-                .stream()
-                .parallel()
-                .forEach(o -> {
-                    try {
-                        int cid = Integer.parseInt(o.getProperty(PropertyKeys.Channel.ID).orElse("-1"));
-                        if (cid == -1) {
-                            logger.warn("Skipping a channel due to invalid channel ID");
-                            return;
-                        }
-
-                        TS3Channel channel = internalCache.getOrDefault(cid, null);
-
-                        if (channel == null) {
-                            // Channel is new - New reference
-                            channel = new TS3Channel();
-                            channel.copyFrom(o);
-
-                        } else {
-                            String nName = o.getProperty(PropertyKeys.Channel.NAME).orElse(null);
-
-                            if (nName == null) {
-                                logger.warn("Skipping a channel due to missing name");
-                                return;
-                            }
-
-                            boolean wasSpacer = channel.isSpacer();
-                            boolean isSpacer = TS3Spacer.spacerPattern.matcher(nName).matches();
-
-                            if (isSpacer != wasSpacer) {
-                                // Spacer state changed - Update reference
-                                channel = createChannelFrom(isSpacer, o);
-
-                            } else {
-                                // Channel not new - Update values
-                                channel.copyFrom(o);
-                            }
-                        }
-
-                        // Fix channel icon ID in case it got misread by TS3
-                        TS3DataFixes.ICONS_INVALID_CRC32(channel, PropertyKeys.Channel.ICON_ID);
-                        channelMap.put(cid, channel);
-                    } catch (Exception e) {
-                        logger.warn("Failed to parse a channel", e);
+        dataCache.getRefreshPipeline().forEach(messageObjects, o -> {
+            try {
+                int cid = Integer.parseInt(o.getProperty(PropertyKeys.Channel.ID).orElse("-1"));
+                if (cid == -1) {
+                    logger.warn("Skipping a channel due to invalid channel ID");
+                    return;
+                }
+
+                TS3Channel channel = internalCache.getOrDefault(cid, null);
+                Map<String, String> previousValues = null;
+
+                if (channel == null) {
+                    // Channel is new - New reference
+                    channel = new TS3Channel();
+                    channel.copyFrom(o);
+
+                } else {
+                    String nName = o.getProperty(PropertyKeys.Channel.NAME).orElse(null);
+
+                    if (nName == null) {
+                        logger.warn("Skipping a channel due to missing name");
+                        return;
+                    }
+
+                    boolean wasSpacer = channel.isSpacer();
+                    boolean isSpacer = TS3Spacer.spacerPattern.matcher(nName).matches();
+
+                    if (isSpacer != wasSpacer) {
+                        // Spacer state changed - Update reference
+                        channel = createChannelFrom(isSpacer, o);
+
+                    } else {
+                        // Channel not new - Update values
+                        previousValues = PropertyDelta.previousValues(channel, o, true);
+                        channel.copyFrom(o);
+                    }
+                }
+
+                // Fix channel icon ID in case it got misread by TS3
+                TS3DataFixes.ICONS_INVALID_CRC32(channel, PropertyKeys.Channel.ICON_ID);
+                channelMap.put(cid, channel);
+
+                if (previousValues != null) {
+                    PropertyDelta<TS3Channel> delta = PropertyDelta.of(cid, channel, previousValues);
+                    if (delta != null) {
+                        deltas.add(delta);
                     }
-                });
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to parse a channel", e);
+            }
+        });
         return channelMap;
     }
 
@@ -222,21 +297,19 @@ public class ChannelCache {
         return channel;
     }
 
-    public List<IChannel> getChannels() {
-        synchronized (internalCache) {
-            return List.copyOf(internalCache.values());
-        }
+    boolean isProvisional() {
+        return provisional;
     }
 
-    public Map<Integer, IChannel> getChannelMap() {
-        synchronized (internalCache) {
-            return Collections.unmodifiableMap(internalCache);
-        }
+    RefreshStatistics getRefreshStatistics() {
+        return refreshStatistics;
+    }
+
+    ChannelTree getChannelTree() {
+        return channelTree;
     }
 
     Map<Integer, TS3Channel> getUnsafeChannelMap() {
-        synchronized (internalCache) {
-            return internalCache;
-        }
+        return internalCache;
     }
 }
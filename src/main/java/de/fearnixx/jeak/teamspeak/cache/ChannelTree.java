@@ -0,0 +1,347 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.IChannel;
+import de.fearnixx.jeak.teamspeak.data.TS3Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Maintains the parent/child links of the cached channels.
+ *
+ * Siblings are ordered like a linked list: {@code channel_order} is the ID of the sibling above, {@code 0} for the first one.
+ * Only parents whose children have changed are re-linked.
+ *
+ * For subtree queries, an Euler-tour index is kept: Every channel gets a position in depth-first order
+ * and its subtree spans the positions up to {@code end}. The index is rebuilt by the writer on commit.
+ * Client counts per position are kept in a Fenwick tree so moves do not require a rebuild.
+ *
+ * Modifications have to be made while holding the cache lock.
+ * Queries do not lock: They use the index published by the last commit.
+ */
+class ChannelTree {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelTree.class);
+
+    private final Map<Integer, TS3Channel> channels;
+
+    /**
+     * Link of a channel as it is currently reflected in the tree - by channel ID.
+     */
+    private final Map<Integer, Link> links = new HashMap<>(64);
+    private final Map<Integer, Set<TS3Channel>> childrenByParent = new HashMap<>(64);
+    private final Set<Integer> dirtyParents = new HashSet<>();
+    private List<TS3Channel> rootChannels = List.of();
+
+    private volatile EulerIndex index = EulerIndex.EMPTY;
+
+    ChannelTree(Map<Integer, TS3Channel> channels) {
+        this.channels = channels;
+    }
+
+    /**
+     * Links the channel according to its parent and order properties.
+     * Does nothing if the channel is already linked that way.
+     */
+    void update(TS3Channel channel) {
+        int channelId = channel.getID();
+        int parentId = channel.getParent();
+        int order = channel.getOrder();
+
+        Link previous = links.get(channelId);
+        if (previous != null) {
+            if (previous.channel == channel && previous.parentId == parentId && previous.order == order) {
+                return;
+            }
+            unlink(previous);
+        }
+        if ((previous == null || previous.channel != channel) && childrenByParent.containsKey(channelId)) {
+            // New instance - needs the children of the previous one.
+            dirtyParents.add(channelId);
+        }
+
+        links.put(channelId, new Link(channel, parentId, order));
+        childrenByParent.computeIfAbsent(parentId, id -> new LinkedHashSet<>()).add(channel);
+        dirtyParents.add(parentId);
+    }
+
+    /**
+     * Inserts or moves a channel the way the server does:
+     * The sibling previously at the new position moves down, the sibling below the old position moves up.
+     */
+    void insert(TS3Channel channel) {
+        Link previous = links.get(channel.getID());
+        if (previous != null) {
+            closeGap(previous);
+        }
+
+        int channelId = channel.getID();
+        int parentId = channel.getParent();
+        int order = channel.getOrder();
+        for (TS3Channel sibling : childrenByParent.getOrDefault(parentId, Set.of())) {
+            if (sibling != channel && sibling.getOrder() == order) {
+                sibling.setProperty(PropertyKeys.Channel.ORDER, Integer.toString(channelId));
+                links.put(sibling.getID(), new Link(sibling, parentId, channelId));
+                dirtyParents.add(parentId);
+            }
+        }
+        update(channel);
+    }
+
+    /**
+     * Removes a channel from the tree.
+     *
+     * @param closeGap whether or not to move the sibling below up - like the server does on deletion
+     */
+    void remove(int channelId, boolean closeGap) {
+        Link previous = links.remove(channelId);
+        if (previous != null) {
+            if (closeGap) {
+                closeGap(previous);
+            }
+            unlink(previous);
+        }
+    }
+
+    void clear() {
+        links.clear();
+        childrenByParent.clear();
+        dirtyParents.clear();
+        rootChannels = List.of();
+        index = EulerIndex.EMPTY;
+    }
+
+    /**
+     * Re-orders the children of all parents changed since the last commit and rebuilds the index.
+     *
+     * @return whether or not anything has changed
+     */
+    boolean commit() {
+        if (dirtyParents.isEmpty()) {
+            return false;
+        }
+
+        for (Integer parentId : dirtyParents) {
+            List<TS3Channel> ordered = orderChildren(parentId);
+            if (parentId == 0) {
+                rootChannels = ordered;
+                continue;
+            }
+
+            TS3Channel parent = channels.getOrDefault(parentId, null);
+            if (parent != null) {
+                parent.setSubChannels(List.copyOf(ordered));
+            } else if (!ordered.isEmpty()) {
+                logger.warn("Channels {} have nonexistent parent: {}", ordered, parentId);
+            }
+        }
+        dirtyParents.clear();
+        rebuildIndex();
+        return true;
+    }
+
+    /**
+     * Rebuilds the index so client counts are read again from the channels.
+     */
+    void rebuildIndex() {
+        index = EulerIndex.build(rootChannels);
+    }
+
+    /**
+     * Applies a change of the client count of a single channel to the index.
+     */
+    void clientCountChanged(int channelId, int delta) {
+        index.add(channelId, delta);
+    }
+
+    boolean isInSubtree(int channelId, int rootChannelId) {
+        EulerIndex current = index;
+        int root = current.positionOf(rootChannelId);
+        int position = current.positionOf(channelId);
+        return root >= 0 && position >= root && position <= current.end[root];
+    }
+
+    /**
+     * IDs of the channel and all channels below it - in depth-first order.
+     */
+    int[] getSubtreeChannelIds(int channelId) {
+        EulerIndex current = index;
+        int position = current.positionOf(channelId);
+        return position >= 0 ? Arrays.copyOfRange(current.channelIds, position, current.end[position] + 1) : new int[0];
+    }
+
+    int getSubtreeClientCount(int channelId) {
+        EulerIndex current = index;
+        int position = current.positionOf(channelId);
+        return position >= 0 ? current.sum(position, current.end[position]) : 0;
+    }
+
+    private void unlink(Link link) {
+        Set<TS3Channel> siblings = childrenByParent.get(link.parentId);
+        if (siblings != null) {
+            siblings.remove(link.channel);
+            if (siblings.isEmpty()) {
+                childrenByParent.remove(link.parentId);
+            }
+        }
+        dirtyParents.add(link.parentId);
+    }
+
+    private void closeGap(Link link) {
+        int channelId = link.channel.getID();
+        for (TS3Channel sibling : childrenByParent.getOrDefault(link.parentId, Set.of())) {
+            if (sibling != link.channel && sibling.getOrder() == channelId) {
+                sibling.setProperty(PropertyKeys.Channel.ORDER, Integer.toString(link.order));
+                links.put(sibling.getID(), new Link(sibling, link.parentId, link.order));
+                dirtyParents.add(link.parentId);
+            }
+        }
+    }
+
+    /**
+     * Walks the linked list of siblings starting at order {@code 0}.
+     * Channels not reachable that way (inconsistent orders) are appended.
+     */
+    private List<TS3Channel> orderChildren(int parentId) {
+        Set<TS3Channel> children = childrenByParent.getOrDefault(parentId, Set.of());
+        Map<Integer, TS3Channel> byOrder = new HashMap<>(children.size() * 2);
+        for (TS3Channel child : children) {
+            byOrder.put(links.get(child.getID()).order, child);
+        }
+
+        List<TS3Channel> ordered = new ArrayList<>(children.size());
+        TS3Channel next = byOrder.remove(0);
+        while (next != null) {
+            ordered.add(next);
+            next = byOrder.remove(next.getID());
+        }
+
+        if (ordered.size() < children.size()) {
+            logger.debug("Could not order all children of channel {}.", parentId);
+            for (TS3Channel child : children) {
+                if (!ordered.contains(child)) {
+                    ordered.add(child);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static final class Link {
+
+        private final TS3Channel channel;
+        private final int parentId;
+        private final int order;
+
+        private Link(TS3Channel channel, int parentId, int order) {
+            this.channel = channel;
+            this.parentId = parentId;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Depth-first positions of all channels reachable from the root channels.
+     */
+    private static final class EulerIndex {
+
+        private static final EulerIndex EMPTY = new EulerIndex(Map.of(), new int[0], new int[0]);
+
+        private final Map<Integer, Integer> positions;
+        private final int[] channelIds;
+        private final int[] end;
+        private final AtomicIntegerArray counts;
+
+        private EulerIndex(Map<Integer, Integer> positions, int[] channelIds, int[] end) {
+            this.positions = positions;
+            this.channelIds = channelIds;
+            this.end = end;
+            this.counts = new AtomicIntegerArray(end.length + 1);
+        }
+
+        static EulerIndex build(List<TS3Channel> roots) {
+            List<TS3Channel> order = new ArrayList<>();
+            Map<Integer, Integer> positions = new HashMap<>();
+            Deque<TS3Channel> stack = new ArrayDeque<>();
+            for (int i = roots.size() - 1; i >= 0; i--) {
+                stack.push(roots.get(i));
+            }
+            while (!stack.isEmpty()) {
+                TS3Channel channel = stack.pop();
+                if (positions.putIfAbsent(channel.getID(), order.size()) != null) {
+                    continue;
+                }
+                order.add(channel);
+                List<IChannel> children = channel.getSubChannels();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push((TS3Channel) children.get(i));
+                }
+            }
+
+            // Children come after their parent, so their ends are known when the parent is reached.
+            int[] end = new int[order.size()];
+            for (int i = order.size() - 1; i >= 0; i--) {
+                end[i] = i;
+                for (IChannel child : order.get(i).getSubChannels()) {
+                    Integer childPosition = positions.get(child.getID());
+                    if (childPosition != null && childPosition > i) {
+                        end[i] = Math.max(end[i], end[childPosition]);
+                    }
+                }
+            }
+
+            int[] channelIds = new int[order.size()];
+            for (int i = 0; i < order.size(); i++) {
+                channelIds[i] = order.get(i).getID();
+            }
+
+            EulerIndex index = new EulerIndex(Map.copyOf(positions), channelIds, end);
+            for (int i = 0; i < order.size(); i++) {
+                index.addAt(i, order.get(i).getClientCount());
+            }
+            return index;
+        }
+
+        int positionOf(int channelId) {
+            Integer position = positions.get(channelId);
+            return position != null ? position : -1;
+        }
+
+        void add(int channelId, int delta) {
+            int position = positionOf(channelId);
+            if (position >= 0) {
+                addAt(position, delta);
+            }
+        }
+
+        private void addAt(int position, int delta) {
+            for (int i = position + 1; i < counts.length(); i += i & -i) {
+                counts.addAndGet(i, delta);
+            }
+        }
+
+        private int prefixSum(int position) {
+            int sum = 0;
+            for (int i = position + 1; i > 0; i -= i & -i) {
+                sum += counts.get(i);
+            }
+            return sum;
+        }
+
+        int sum(int from, int to) {
+            return prefixSum(to) - (from > 0 ? prefixSum(from - 1) : 0);
+        }
+    }
+}
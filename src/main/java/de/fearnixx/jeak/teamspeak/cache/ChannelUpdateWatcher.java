@@ -2,10 +2,15 @@ package de.fearnixx.jeak.teamspeak.cache;
 
 import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.reflect.Listener;
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.data.TS3Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class ChannelUpdateWatcher {
 
     private static final Logger logger = LoggerFactory.getLogger(ChannelUpdateWatcher.class);
@@ -21,6 +26,7 @@ public class ChannelUpdateWatcher {
     @Listener(order = Listener.Orders.LATEST)
     public void afterChannelEdited(IQueryEvent.INotification.IChannelEdited event) {
         Integer channelId = event.getTarget().getID();
+        PropertyDelta<TS3Channel> delta;
 
         synchronized (LOCK) {
             TS3Channel target = cache.unsafeGetChannels().getOrDefault(channelId, null);
@@ -30,11 +36,54 @@ public class ChannelUpdateWatcher {
                 return;
             }
 
+            Map<String, String> previousValues = new HashMap<>();
             event.getChanges().forEach((key, value) -> {
                 String oldValue = target.getProperty(key).orElse(null);
                 logger.debug("Updating property \"{}\": \"{}\" -> \"{}\"", key, oldValue, value);
+                previousValues.put(key, oldValue);
                 target.setProperty(key, value);
             });
+
+            boolean relink = event.getChanges().containsKey(PropertyKeys.Channel.ORDER)
+                    || event.getChanges().containsKey(PropertyKeys.Channel.PARENT);
+            if (event instanceof IQueryEvent.INotification.IChannelMoved) {
+                // Moves carry the new position as "cpid" and "order" instead of changes.
+                previousValues.put(PropertyKeys.Channel.PARENT, target.getProperty(PropertyKeys.Channel.PARENT).orElse(null));
+                previousValues.put(PropertyKeys.Channel.ORDER, target.getProperty(PropertyKeys.Channel.ORDER).orElse(null));
+                event.getProperty("cpid").ifPresent(pid -> target.setProperty(PropertyKeys.Channel.PARENT, pid));
+                event.getProperty("order").ifPresent(order -> target.setProperty(PropertyKeys.Channel.ORDER, order));
+                relink = true;
+            }
+
+            if (relink) {
+                ChannelTree tree = cache.unsafeGetChannelTree();
+                tree.insert(target);
+                tree.commit();
+            }
+            delta = PropertyDelta.of(channelId, target, previousValues);
+        }
+
+        if (delta != null) {
+            cache.publishChannelChanges(List.of(delta), event.getConnection(), event.getRawReference());
+        }
+    }
+
+    @Listener(order = Listener.Orders.LATEST)
+    public void afterChannelDeleted(IQueryEvent.INotification.IChannelDeleted event) {
+        Integer channelId = event.getTarget().getID();
+
+        synchronized (LOCK) {
+            TS3Channel target = cache.unsafeGetChannels().remove(channelId);
+            if (target == null) {
+                return;
+            }
+
+            ChannelTree tree = cache.unsafeGetChannelTree();
+            tree.remove(channelId, true);
+            tree.commit();
+            target.invalidate();
+            cache.publishChannels();
+            logger.debug("Invalidated channel: {}", target);
         }
     }
 }
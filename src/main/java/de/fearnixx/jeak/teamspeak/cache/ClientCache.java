@@ -1,5 +1,6 @@
 package de.fearnixx.jeak.teamspeak.cache;
 
+import de.fearnixx.jeak.Main;
 import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.event.IRawQueryEvent;
 import de.fearnixx.jeak.event.bot.IBotStateEvent;
@@ -11,32 +12,54 @@ import de.fearnixx.jeak.reflect.Listener;
 import de.fearnixx.jeak.service.event.IEventService;
 import de.fearnixx.jeak.service.permission.base.IPermissionService;
 import de.fearnixx.jeak.service.permission.teamspeak.TS3UserSubject;
-import de.fearnixx.jeak.service.task.ITask;
 import de.fearnixx.jeak.service.task.ITaskService;
 import de.fearnixx.jeak.teamspeak.IServer;
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
 import de.fearnixx.jeak.teamspeak.QueryCommands;
-import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
 import de.fearnixx.jeak.teamspeak.data.TS3Client;
 import de.fearnixx.jeak.teamspeak.data.TS3ClientHolder;
 import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
 import de.fearnixx.jeak.util.TS3DataFixes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClientCache {
 
     private static final Logger logger = LoggerFactory.getLogger(ClientCache.class);
+    private static final int PROFILE_BATCH_SIZE = Main.getProperty("jeak.cache.profileBatchSize", 200);
+
+    /**
+     * Properties kept up to date by notifications - differences found by a refresh count as drift.
+     */
+    private static final Set<String> DRIFT_KEYS = Set.of(
+            PropertyKeys.Client.CHANNEL_ID, PropertyKeys.Client.NICKNAME, PropertyKeys.Client.GROUPS,
+            PropertyKeys.Client.CHANNEL_GROUP, PropertyKeys.Client.UID, PropertyKeys.Client.DBID);
 
     private final Map<Integer, TS3Client> clientCache = new ConcurrentHashMap<>(50);
+    private final ClientIndex clientIndex;
+    private volatile boolean provisional = false;
+    private final RefreshStatistics refreshStatistics = new RefreshStatistics("clients");
+
+    /**
+     * New clients whose profile has not been looked up yet.
+     */
+    private final Queue<TS3Client> pendingProfiles = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean profileBatchScheduled = new AtomicBoolean(false);
     private final Object LOCK;
+    private final DataCache dataCache;
 
     @Inject
     private IServer server;
@@ -57,6 +80,7 @@ public class ClientCache {
 
     private final IQueryRequest clientListRequest = IQueryRequest.builder()
             .command(QueryCommands.CLIENT.CLIENT_LIST)
+            .priority(QueryPriority.BULK)
             .addOption("-uid")
             .addOption("-away")
             .addOption("-voice")
@@ -67,14 +91,14 @@ public class ClientCache {
             .addOption("-country")
             .onDone(this::onListAnswer)
             .build();
-    private final ITask clientListTask = ITask.builder()
-            .name("cache.clientRefresh")
-            .interval(DataCache.CLIENT_REFRESH_INTERVAL, TimeUnit.SECONDS)
-            .runnable(() -> server.optConnection().ifPresent(conn -> conn.sendRequest(clientListRequest)))
-            .build();
+    private final ReconciliationTask clientListTask = new ReconciliationTask("cache.clientRefresh",
+            () -> server.optConnection().ifPresent(conn -> conn.sendRequest(clientListRequest)),
+            DataCache.CLIENT_REFRESH_INTERVAL, DataCache.CLIENT_REFRESH_MAX_INTERVAL);
 
-    public ClientCache(Object lock) {
+    public ClientCache(Object lock, DataCache dataCache) {
         this.LOCK = lock;
+        this.dataCache = dataCache;
+        this.clientIndex = new ClientIndex(dataCache.unsafeGetChannels());
     }
 
     @Listener
@@ -87,9 +111,34 @@ public class ClientCache {
         synchronized (LOCK) {
             logger.info("Clearing client cache due to disconnect.");
             taskService.removeTask(clientListTask);
+            clientListTask.reset();
             clientCache.values().forEach(TS3ClientHolder::invalidate);
             clientCache.clear();
+            clientIndex.clear();
+            pendingProfiles.clear();
+            provisional = false;
+            dataCache.publishClients();
+        }
+    }
+
+    /**
+     * Fills the empty cache with clients from the warm-start snapshot.
+     * They are reconciled by the first refresh.
+     */
+    void loadProvisional(List<IDataHolder> clients) {
+        final Map<Integer, TS3Client> prepared = prepareNewClients(clients);
+        enrichClients(prepared);
+        synchronized (LOCK) {
+            if (!clientCache.isEmpty() || prepared.isEmpty()) {
+                return;
+            }
+
+            clientCache.putAll(prepared);
+            clientCache.forEach(clientIndex::update);
+            provisional = true;
+            dataCache.publishClients();
         }
+        scheduleProfileBatch();
     }
 
     private void onListAnswer(IQueryEvent.IAnswer event) {
@@ -108,13 +157,32 @@ public class ClientCache {
      */
     private void refreshClients(IRawQueryEvent.IMessage.IAnswer event) {
         List<IRawQueryEvent.IMessage> objects = event.toList();
+        final Queue<PropertyDelta<TS3Client>> deltas = new ConcurrentLinkedQueue<>();
+        final boolean firstFill;
+        int added;
+        int removed = 0;
+        int replaced = 0;
+        final long[] stageNanos = new long[RefreshStatistics.Stage.values().length];
+        long start = System.nanoTime();
+
+        // Profile and permission lookups may take a while - resolve them before entering the lock.
+        final Map<Integer, TS3Client> prepared = prepareNewClients(objects);
+        long parsed = System.nanoTime();
+        enrichClients(prepared);
+        long enriched = System.nanoTime();
+        stageNanos[RefreshStatistics.Stage.ENRICH.ordinal()] = enriched - parsed;
+
         synchronized (LOCK) {
-            final Map<Integer, TS3Client> clientMapping = generateClientMapping(objects);
+            long locked = System.nanoTime();
+            final Map<Integer, TS3Client> clientMapping = generateClientMapping(objects, prepared, deltas);
+            long merged = System.nanoTime();
+            stageNanos[RefreshStatistics.Stage.PARSE.ordinal()] = (parsed - start) + (merged - locked);
 
             TS3Client oldClientRep;
             Integer oID;
             TS3Client freshClient;
 
+            boolean modified = false;
             Integer[] cIDs = clientCache.keySet().toArray(new Integer[0]);
             for (int i = clientCache.size() - 1; i >= 0; i--) {
                 oID = cIDs[i];
@@ -125,110 +193,247 @@ public class ClientCache {
                     // Client removed - invalidate & remove
                     oldClientRep.invalidate();
                     clientCache.remove(oID);
+                    clientIndex.remove(oID);
+                    modified = true;
+                    removed++;
 
                 } else {
+                    if (freshClient != oldClientRep) {
+                        // Client ID has been reused - invalidate & change
+                        oldClientRep.invalidate();
+                        clientCache.put(oID, freshClient);
+                        modified = true;
+                        replaced++;
+                    }
                     clientMapping.remove(oID);
                 }
             }
 
             // All others are new - Add them
-            boolean firstFill = clientCache.isEmpty();
+            firstFill = clientCache.isEmpty() || provisional;
+            provisional = false;
+            added = clientMapping.size();
+            modified |= !clientMapping.isEmpty();
             clientMapping.forEach(clientCache::put);
             clientMapping.clear();
+            // Merged clients may have changed nickname or groups as well
+            clientCache.forEach(clientIndex::update);
+            if (modified) {
+                dataCache.publishClients();
+            }
             if (firstFill) {
                 logger.info("Client cache is ready.");
             }
+            stageNanos[RefreshStatistics.Stage.APPLY.ordinal()] = System.nanoTime() - merged;
         }
 
         logger.debug("Clientlist updated");
+        scheduleProfileBatch();
+        long publishStart = System.nanoTime();
+        ICacheSnapshot snapshot = dataCache.snapshot();
         QueryEvent refresh = new QueryEvent.BasicDataEvent
-                .RefreshClients(getClients(), getClientMap());
+                .RefreshClients(snapshot.getClients(), snapshot.getClientMap());
         refresh.setConnection(event.getConnection());
         refresh.setRawReference(event);
         eventService.fireEvent(refresh);
+        dataCache.publishClientChanges(deltas, event.getConnection(), event);
+        stageNanos[RefreshStatistics.Stage.PUBLISH.ordinal()] = System.nanoTime() - publishStart;
+        refreshStatistics.record(stageNanos);
+
+        if (!firstFill) {
+            int changed = (int) deltas.stream()
+                    .filter(delta -> delta.getChanges().keySet().stream().anyMatch(DRIFT_KEYS::contains))
+                    .count();
+            String details = added + " unknown, " + removed + " gone, " + replaced + " replaced, " + changed + " changed";
+            if (clientListTask.onReconciled(added + removed + replaced + changed, details)) {
+                taskService.rescheduleTask(clientListTask);
+            }
+        }
+    }
+
+    /**
+     * Creates the representations of all clients not yet cached.
+     * Does not lock - clients that have entered or left in the meantime are handled by {@link #generateClientMapping}.
+     */
+    private Map<Integer, TS3Client> prepareNewClients(List<? extends IDataHolder> messageObjects) {
+        final Map<Integer, TS3Client> prepared = new ConcurrentHashMap<>();
+        dataCache.getRefreshPipeline().forEach(messageObjects, message -> {
+            try {
+                int cid = Integer.parseInt(message.getProperty(PropertyKeys.Client.ID).orElse("-1"));
+                if (cid != -1 && !isSameClient(clientCache.get(cid), message)) {
+                    prepared.put(cid, newClient(message));
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to prepare a client", e);
+            }
+        });
+        return prepared;
+    }
+
+    /**
+     * Attaches permission subjects to the prepared clients.
+     * Clients this fails for are dropped - {@link #generateClientMapping} creates them again.
+     */
+    private void enrichClients(Map<Integer, TS3Client> prepared) {
+        dataCache.getRefreshPipeline().forEach(new ArrayList<>(prepared.entrySet()), entry -> {
+            try {
+                applyPermissions(entry.getValue());
+            } catch (Exception e) {
+                logger.warn("Failed to apply permissions to client: {}", entry.getValue(), e);
+                prepared.remove(entry.getKey());
+            }
+        });
     }
 
     /**
      * Creates a Map of all available clients from a `clientlist` answer event.
      * Helper method for {@link #refreshClients(IRawQueryEvent.IMessage.IAnswer)}.
      * <p>
-     * Handles update existing and creating clients
+     * Handles update existing and creating clients.
+     * New clients are taken from the prepared ones where possible.
+     * Property changes of existing clients are added to the deltas.
      */
-    private Map<Integer, TS3Client> generateClientMapping(List<IRawQueryEvent.IMessage> messageObjects) {
-        final Map<Integer, TS3Client> mapping = new HashMap<>(messageObjects.size(), 1.1f);
-        messageObjects
-                .stream()
-                .parallel()
-                .forEach(message -> {
-                    try {
-                        int cid = Integer.parseInt(message.getProperty(PropertyKeys.Client.ID).orElse("-1"));
-
-                        if (cid == -1) {
-                            logger.warn("Skipping a client due to invalid ID: {}",
-                                    message.getProperty(PropertyKeys.Client.ID)
-                                            .orElse("null"));
-                            return;
-                        }
-
-                        TS3Client client = clientCache.getOrDefault(cid, null);
-
-                        if (client == null) {
-                            // Client is new - New reference
-                            client = createClient(message);
-
-                        } else {
-                            // Client not new - Update values
-                            client.merge(message);
-                        }
-
-                        // Fix client icon ID in case it got misread by TS3
-                        TS3DataFixes.ICONS_INVALID_CRC32(client, PropertyKeys.Client.ICON_ID);
-                        mapping.put(cid, client);
-                    } catch (Exception e) {
-                        logger.warn("Failed to parse a client", e);
+    private Map<Integer, TS3Client> generateClientMapping(List<IRawQueryEvent.IMessage> messageObjects,
+                                                          Map<Integer, TS3Client> prepared,
+                                                          Queue<PropertyDelta<TS3Client>> deltas) {
+        final Map<Integer, TS3Client> mapping = new ConcurrentHashMap<>(messageObjects.size(), 1.1f);
+        dataCache.getRefreshPipeline().forEach(messageObjects, message -> {
+            try {
+                int cid = Integer.parseInt(message.getProperty(PropertyKeys.Client.ID).orElse("-1"));
+
+                if (cid == -1) {
+                    logger.warn("Skipping a client due to invalid ID: {}",
+                            message.getProperty(PropertyKeys.Client.ID)
+                                    .orElse("null"));
+                    return;
+                }
+
+                TS3Client client = clientCache.getOrDefault(cid, null);
+                Map<String, String> previousValues = null;
+
+                if (!isSameClient(client, message)) {
+                    // Client is new or ID reused - New reference
+                    client = prepared.get(cid);
+                    if (client == null) {
+                        client = createClient(message);
+                    }
+
+                } else {
+                    // Client not new - Update values
+                    previousValues = PropertyDelta.previousValues(client, message, false);
+                    client.merge(message);
+                }
+
+                // Fix client icon ID in case it got misread by TS3
+                TS3DataFixes.ICONS_INVALID_CRC32(client, PropertyKeys.Client.ICON_ID);
+                mapping.put(cid, client);
+
+                if (previousValues != null) {
+                    PropertyDelta<TS3Client> delta = PropertyDelta.of(cid, client, previousValues);
+                    if (delta != null) {
+                        deltas.add(delta);
                     }
-                });
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to parse a client", e);
+            }
+        });
         return mapping;
     }
 
-    private TS3Client createClient(IRawQueryEvent.IMessage message) {
-        TS3Client client;
-        client = new TS3Client();
-        client.copyFrom(message);
+    /**
+     * Whether or not the cached client is the one described by the message.
+     * Client IDs are reused by the server - e.g. for clients that joined while the cache was provisional.
+     */
+    private static boolean isSameClient(TS3Client cached, IDataHolder message) {
+        return cached != null
+                && cached.getProperty(PropertyKeys.Client.UID).equals(message.getProperty(PropertyKeys.Client.UID));
+    }
+
+    private TS3Client createClient(IDataHolder message) {
+        TS3Client client = newClient(message);
         applyPermissions(client);
+        return client;
+    }
+
+    private TS3Client newClient(IDataHolder message) {
+        TS3Client client = new TS3Client();
+        client.copyFrom(message);
 
         logger.debug("Created new client representation for {}/{}",
                 client.getClientUniqueID(), client.getNickName());
         return client;
     }
 
-    private void applyPermissions(TS3Client client) {
+    /**
+     * Attaches the permission subjects.
+     * The profile - and with it the framework subject - is looked up on first access or by the next profile batch.
+     */
+    void applyPermissions(TS3Client client) {
+        final TS3UserSubject ts3Subject = new TS3UserSubject(permService.getTS3Provider(), client.getClientDBID());
+        client.setTs3PermSubject(ts3Subject);
+        client.setFrwPermProvider(permService.getFrameworkProvider());
+        client.setFrameworkSubjectResolver(() -> lookupProfile(client));
+        pendingProfiles.add(client);
+    }
+
+    private UUID lookupProfile(TS3Client client) {
         String ts3uid = client.getClientUniqueID();
         UUID uuid = profileService.getOrCreateProfile(ts3uid)
                 .map(IUserProfile::getUniqueId)
                 .orElseThrow(() -> new IllegalStateException("Failed to reserve profile UUID for subject: " + client));
         logger.debug("Client {} got permission UUID: {}", client, uuid);
-        final TS3UserSubject ts3Subject = new TS3UserSubject(permService.getTS3Provider(), client.getClientDBID());
-        client.setTs3PermSubject(ts3Subject);
-        client.setFrameworkSubjectUUID(uuid);
-        client.setFrwPermProvider(permService.getFrameworkProvider());
+        return uuid;
     }
 
-    public Map<Integer, IClient> getClientMap() {
-        synchronized (LOCK) {
-            return Map.copyOf(clientCache);
+    /**
+     * Looks up the profiles of pending clients in the background - in batches of {@code jeak.cache.profileBatchSize}.
+     */
+    void scheduleProfileBatch() {
+        if (!pendingProfiles.isEmpty() && profileBatchScheduled.compareAndSet(false, true)) {
+            if (!dataCache.getRefreshPipeline().submit(this::runProfileBatch)) {
+                profileBatchScheduled.set(false);
+            }
         }
     }
 
-    public List<IClient> getClients() {
-        synchronized (LOCK) {
-            return List.copyOf(clientCache.values());
+    private void runProfileBatch() {
+        long start = System.nanoTime();
+        int resolved = 0;
+        try {
+            TS3Client client;
+            while (resolved < PROFILE_BATCH_SIZE && (client = pendingProfiles.poll()) != null) {
+                if (!client.isValid()) {
+                    continue;
+                }
+                try {
+                    client.resolveFrameworkSubject();
+                    resolved++;
+                } catch (Exception e) {
+                    logger.warn("Failed to look up profile of client: {}", client, e);
+                }
+            }
+        } finally {
+            profileBatchScheduled.set(false);
         }
+
+        logger.debug("Looked up {} profiles in {}ms.", resolved, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        scheduleProfileBatch();
+    }
+
+    boolean isProvisional() {
+        return provisional;
+    }
+
+    RefreshStatistics getRefreshStatistics() {
+        return refreshStatistics;
+    }
+
+    ClientIndex getClientIndex() {
+        return clientIndex;
     }
 
     Map<Integer, TS3Client> getUnsafeClientMap() {
-        synchronized (LOCK) {
-            return clientCache;
-        }
+        return clientCache;
     }
 }
@@ -0,0 +1,275 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.TS3Channel;
+import de.fearnixx.jeak.teamspeak.data.TS3Client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes of the cached clients by unique ID, database ID, nickname, server group and channel.
+ *
+ * Modifications have to be made while holding the cache lock.
+ * Each key maps to a concurrent bucket of clients by client ID, so a change only touches the affected entry.
+ * Lookups do not lock and copy the bucket when they are made.
+ * The cached channels read a view of their bucket, see {@link TS3Channel#getClients()}.
+ * Channel buckets are therefore kept while empty and only dropped with the channel.
+ */
+class ClientIndex {
+
+    private final Map<String, Map<Integer, IClient>> byUniqueId = new ConcurrentHashMap<>(64);
+    private final Map<Integer, Map<Integer, IClient>> byDBID = new ConcurrentHashMap<>(64);
+    private final Map<String, Map<Integer, IClient>> byNickname = new ConcurrentHashMap<>(64);
+    private final Map<Integer, Map<Integer, IClient>> byServerGroup = new ConcurrentHashMap<>(16);
+    private final Map<Integer, Map<Integer, IClient>> byChannel = new ConcurrentHashMap<>(64);
+
+    private final Map<Integer, TS3Channel> channels;
+
+    /**
+     * Keys a client is currently indexed with - by client ID.
+     */
+    private final Map<Integer, IndexKeys> indexed = new HashMap<>(64);
+
+    ClientIndex(Map<Integer, TS3Channel> channels) {
+        this.channels = channels;
+    }
+
+    List<IClient> getByUniqueId(String uniqueId) {
+        return copyOf(byUniqueId.get(uniqueId));
+    }
+
+    /**
+     * Any client with that unique ID - without copying the bucket.
+     */
+    Optional<IClient> findByUniqueId(String uniqueId) {
+        Map<Integer, IClient> bucket = byUniqueId.get(uniqueId);
+        return bucket != null ? bucket.values().stream().findAny() : Optional.empty();
+    }
+
+    List<IClient> getByDBID(int dbId) {
+        return copyOf(byDBID.get(dbId));
+    }
+
+    List<IClient> getByNickname(String nickname) {
+        return copyOf(byNickname.get(nickname.toLowerCase()));
+    }
+
+    List<IClient> getByServerGroup(int groupId) {
+        return copyOf(byServerGroup.get(groupId));
+    }
+
+    List<IClient> getByChannel(int channelId) {
+        return copyOf(byChannel.get(channelId));
+    }
+
+    boolean isChannelEmpty(int channelId) {
+        Map<Integer, IClient> bucket = byChannel.get(channelId);
+        return bucket == null || bucket.isEmpty();
+    }
+
+    /**
+     * Adds a client or re-indexes it if its indexed properties have changed.
+     * Only the changed properties are re-indexed, so moves do not touch the other indexes.
+     */
+    void update(int clientId, TS3Client client) {
+        IndexKeys keys = IndexKeys.of(clientId, client);
+        IndexKeys previous = indexed.put(clientId, keys);
+        if (previous == null || previous.client != client) {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(keys);
+            return;
+        }
+
+        if (!Objects.equals(previous.uniqueId, keys.uniqueId)) {
+            remove(byUniqueId, previous.uniqueId, clientId);
+            add(byUniqueId, keys.uniqueId, clientId, client);
+        }
+        if (!Objects.equals(previous.dbId, keys.dbId)) {
+            remove(byDBID, previous.dbId, clientId);
+            add(byDBID, keys.dbId, clientId, client);
+        }
+        if (!Objects.equals(previous.nickname, keys.nickname)) {
+            remove(byNickname, previous.nickname, clientId);
+            add(byNickname, keys.nickname, clientId, client);
+        }
+        if (!previous.groupIds.equals(keys.groupIds)) {
+            for (Integer groupId : previous.groupIds) {
+                remove(byServerGroup, groupId, clientId);
+            }
+            for (Integer groupId : keys.groupIds) {
+                add(byServerGroup, groupId, clientId, client);
+            }
+        }
+        if (!Objects.equals(previous.channelId, keys.channelId)) {
+            removeFromChannel(previous.channelId, clientId);
+            addToChannel(keys.channelId, clientId, client);
+        }
+    }
+
+    void remove(int clientId) {
+        IndexKeys previous = indexed.remove(clientId);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    void clear() {
+        indexed.clear();
+        byUniqueId.clear();
+        byDBID.clear();
+        byNickname.clear();
+        byServerGroup.clear();
+        // Channels may still hold a view.
+        byChannel.values().forEach(Map::clear);
+        byChannel.clear();
+    }
+
+    /**
+     * Sets the view of its clients on a channel that has been added or replaced.
+     */
+    void channelAdded(TS3Channel channel) {
+        channel.setClients(channelBucket(channel.getID()).values());
+    }
+
+    /**
+     * Drops the bucket of a removed channel - unless clients are still indexed with it.
+     */
+    void channelRemoved(int channelId) {
+        byChannel.computeIfPresent(channelId, (k, bucket) -> bucket.isEmpty() ? null : bucket);
+    }
+
+    private void index(IndexKeys keys) {
+        add(byUniqueId, keys.uniqueId, keys.clientId, keys.client);
+        add(byDBID, keys.dbId, keys.clientId, keys.client);
+        add(byNickname, keys.nickname, keys.clientId, keys.client);
+        for (Integer groupId : keys.groupIds) {
+            add(byServerGroup, groupId, keys.clientId, keys.client);
+        }
+        addToChannel(keys.channelId, keys.clientId, keys.client);
+    }
+
+    private void unindex(IndexKeys keys) {
+        remove(byUniqueId, keys.uniqueId, keys.clientId);
+        remove(byDBID, keys.dbId, keys.clientId);
+        remove(byNickname, keys.nickname, keys.clientId);
+        for (Integer groupId : keys.groupIds) {
+            remove(byServerGroup, groupId, keys.clientId);
+        }
+        removeFromChannel(keys.channelId, keys.clientId);
+    }
+
+    private void addToChannel(Integer channelId, int clientId, IClient client) {
+        if (channelId != null) {
+            channelBucket(channelId).put(clientId, client);
+        }
+    }
+
+    private void removeFromChannel(Integer channelId, int clientId) {
+        if (channelId != null) {
+            Map<Integer, IClient> bucket = byChannel.get(channelId);
+            if (bucket != null) {
+                bucket.remove(clientId);
+            }
+        }
+    }
+
+    /**
+     * The bucket of a channel - created and handed to the cached channel on first use.
+     */
+    private Map<Integer, IClient> channelBucket(int channelId) {
+        Map<Integer, IClient> bucket = byChannel.get(channelId);
+        if (bucket == null) {
+            bucket = new ConcurrentHashMap<>(4);
+            byChannel.put(channelId, bucket);
+            TS3Channel channel = channels.get(channelId);
+            if (channel != null) {
+                channel.setClients(bucket.values());
+            }
+        }
+        return bucket;
+    }
+
+    private static <K> void add(Map<K, Map<Integer, IClient>> index, K key, int clientId, IClient client) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentHashMap<>(4)).put(clientId, client);
+        }
+    }
+
+    private static <K> void remove(Map<K, Map<Integer, IClient>> index, K key, int clientId) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, bucket) -> {
+                bucket.remove(clientId);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    private static List<IClient> copyOf(Map<Integer, IClient> bucket) {
+        return bucket != null ? List.copyOf(bucket.values()) : List.of();
+    }
+
+    /**
+     * Values of the indexed properties at the time of indexing.
+     * Read from the raw properties as clients from notifications may not have all of them.
+     */
+    private static final class IndexKeys {
+
+        private final int clientId;
+        private final TS3Client client;
+        private final String uniqueId;
+        private final Integer dbId;
+        private final String nickname;
+        private final List<Integer> groupIds;
+        private final Integer channelId;
+
+        private IndexKeys(int clientId, TS3Client client, String uniqueId, Integer dbId, String nickname, List<Integer> groupIds,
+                          Integer channelId) {
+            this.clientId = clientId;
+            this.client = client;
+            this.uniqueId = uniqueId;
+            this.dbId = dbId;
+            this.nickname = nickname;
+            this.groupIds = groupIds;
+            this.channelId = channelId;
+        }
+
+        static IndexKeys of(int clientId, TS3Client client) {
+            String uniqueId = client.getProperty(PropertyKeys.Client.UID).orElse(null);
+            Integer dbId = client.getProperty(PropertyKeys.Client.DBID).map(IndexKeys::parseOrNull).orElse(null);
+            String nickname = client.getProperty(PropertyKeys.Client.NICKNAME).map(String::toLowerCase).orElse(null);
+            List<Integer> groupIds = client.getProperty(PropertyKeys.Client.GROUPS)
+                    .map(IndexKeys::parseGroups)
+                    .orElse(List.of());
+            Integer channelId = client.getProperty(PropertyKeys.Client.CHANNEL_ID).map(IndexKeys::parseOrNull).orElse(null);
+            return new IndexKeys(clientId, client, uniqueId, dbId, nickname, groupIds, channelId);
+        }
+
+        private static Integer parseOrNull(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static List<Integer> parseGroups(String value) {
+            List<Integer> groupIds = new ArrayList<>();
+            for (String groupId : value.split(",")) {
+                Integer parsed = parseOrNull(groupId);
+                if (parsed != null) {
+                    groupIds.add(parsed);
+                }
+            }
+            return groupIds;
+        }
+    }
+}
@@ -8,6 +8,8 @@ import de.fearnixx.jeak.teamspeak.data.TS3Client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ClientUpdateWatcher {
@@ -31,6 +33,7 @@ public class ClientUpdateWatcher {
         if (event instanceof IQueryEvent.INotification.IClientMoved) {
             // Client has moved - Apply to representation
             final Map<Integer, TS3Client> internalCache = dataCache.unsafeGetClients();
+            PropertyDelta<TS3Client> delta;
             synchronized (LOCK) {
                 Integer clientID = Integer.valueOf(event.getProperty("clid").orElse("-1"));
                 TS3Client client = internalCache.getOrDefault(clientID, null);
@@ -56,7 +59,10 @@ public class ClientUpdateWatcher {
                         clientID, PropertyKeys.Client.CHANNEL_ID, fromChannelId, toChannelId);
 
                 // Set new channel
+                Map<String, String> previousValues = Map.of(PropertyKeys.Client.CHANNEL_ID, fromChannelId.toString());
                 client.setProperty(PropertyKeys.Client.CHANNEL_ID, toChannelId.toString());
+                dataCache.unsafeGetClientIndex().update(clientID, client);
+                delta = PropertyDelta.of(clientID, client, previousValues);
                 // Set new client count - FROM
                 fromChannel.setProperty(
                         PropertyKeys.Channel.CLIENT_COUNT,
@@ -71,6 +77,39 @@ public class ClientUpdateWatcher {
                 toChannel.setProperty(
                         PropertyKeys.Channel.CLIENT_COUNT_FAMILY,
                         Integer.toString(toChannel.getClientCount() + 1));
+
+                ChannelTree tree = dataCache.unsafeGetChannelTree();
+                tree.clientCountChanged(fromChannelId, -1);
+                tree.clientCountChanged(toChannelId, 1);
+            }
+
+            if (delta != null) {
+                dataCache.publishClientChanges(List.of(delta), event.getConnection(), event.getRawReference());
+            }
+
+        } else if (event instanceof IQueryEvent.INotification.IClientUpdated) {
+            // Client properties have changed - Apply to representation
+            Map<String, String> changes = ((IQueryEvent.INotification.IClientUpdated) event).getChanges();
+            PropertyDelta<TS3Client> delta;
+            synchronized (LOCK) {
+                Integer clientID = Integer.valueOf(event.getProperty("clid").orElse("-1"));
+                TS3Client client = dataCache.unsafeGetClients().getOrDefault(clientID, null);
+                if (client == null) {
+                    logger.debug("Cannot update client {}: Not yet cached.", clientID);
+                    return;
+                }
+
+                Map<String, String> previousValues = new HashMap<>();
+                changes.forEach((key, value) -> {
+                    previousValues.put(key, client.getProperty(key).orElse(null));
+                    client.setProperty(key, value);
+                });
+                dataCache.unsafeGetClientIndex().update(clientID, client);
+                delta = PropertyDelta.of(clientID, client, previousValues);
+            }
+
+            if (delta != null) {
+                dataCache.publishClientChanges(List.of(delta), event.getConnection(), event.getRawReference());
             }
 
         } else if (event instanceof IQueryEvent.INotification.IClientLeave) {
@@ -85,6 +124,14 @@ public class ClientUpdateWatcher {
                 }
                 client.invalidate();
                 clientCache.remove(clientID);
+                dataCache.unsafeGetClientIndex().remove(clientID);
+                dataCache.publishClients();
+
+                TS3Channel channel = dataCache.unsafeGetChannels().getOrDefault(client.getChannelID(), null);
+                if (channel != null) {
+                    channel.setProperty(PropertyKeys.Channel.CLIENT_COUNT, Integer.toString(channel.getClientCount() - 1));
+                    dataCache.unsafeGetChannelTree().clientCountChanged(channel.getID(), -1);
+                }
                 logger.debug("Invalidated client: {}", client);
             }
         }
@@ -1,7 +1,10 @@
 package de.fearnixx.jeak.teamspeak.cache;
 
 import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.IRawQueryEvent;
 import de.fearnixx.jeak.event.bot.IBotStateEvent;
+import de.fearnixx.jeak.event.query.QueryEvent;
 import de.fearnixx.jeak.reflect.FrameworkService;
 import de.fearnixx.jeak.reflect.IInjectionService;
 import de.fearnixx.jeak.reflect.Inject;
@@ -9,20 +12,28 @@ import de.fearnixx.jeak.reflect.Listener;
 import de.fearnixx.jeak.service.event.IEventService;
 import de.fearnixx.jeak.teamspeak.data.IChannel;
 import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
 import de.fearnixx.jeak.teamspeak.data.TS3Channel;
 import de.fearnixx.jeak.teamspeak.data.TS3Client;
+import de.fearnixx.jeak.teamspeak.query.IQueryConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @FrameworkService(serviceInterface = IDataCache.class)
 public class DataCache implements IDataCache {
 
     public static final int CLIENT_REFRESH_INTERVAL = Main.getProperty("jeak.cache.clientRefresh", 60);
     public static final int CHANNEL_REFRESH_INTERVAL = Main.getProperty("jeak.cache.channelRefresh", 180);
+    public static final int CLIENT_REFRESH_MAX_INTERVAL = Main.getProperty("jeak.cache.clientRefreshMax", CLIENT_REFRESH_INTERVAL * 10);
+    public static final int CHANNEL_REFRESH_MAX_INTERVAL = Main.getProperty("jeak.cache.channelRefreshMax", CHANNEL_REFRESH_INTERVAL * 10);
     private static final Logger logger = LoggerFactory.getLogger(DataCache.class);
 
     @Inject
@@ -31,12 +42,26 @@ public class DataCache implements IDataCache {
     @Inject
     private IInjectionService injectionService;
 
+    /**
+     * Single writer lane: All modifications of the cache are made while holding this lock.
+     * Readers never acquire it - they use the published snapshot, the indexes and the channel tree.
+     */
     private final Object LOCK = new Object();
-    private final ChannelCache channelCache = new ChannelCache(LOCK);
-    private final ClientCache clientCache = new ClientCache(LOCK);
+    private final RefreshPipeline refreshPipeline = new RefreshPipeline();
+    private final ChannelCache channelCache = new ChannelCache(LOCK, this);
+    private final ClientCache clientCache = new ClientCache(LOCK, this);
     private final ChannelUpdateWatcher channelUpdateWatcher = new ChannelUpdateWatcher(LOCK, this);
     private final ClientUpdateWatcher clientUpdateWatcher = new ClientUpdateWatcher(LOCK, this);
     private final EventDataInjector dataInjector = new EventDataInjector(LOCK, this);
+    private final CacheSnapshotStore snapshotStore = new CacheSnapshotStore(this);
+
+    /**
+     * Replaced by writers after adding, removing or replacing clients or channels.
+     */
+    private volatile CacheSnapshot snapshot = CacheSnapshot.EMPTY;
+
+    private final PropertySubscriptions<IQueryEvent.IDataEvent.IClientPropertiesChanged> clientSubscriptions = new PropertySubscriptions<>();
+    private final PropertySubscriptions<IQueryEvent.IDataEvent.IChannelPropertiesChanged> channelSubscriptions = new PropertySubscriptions<>();
 
     @Listener(order = Listener.Orders.SYSTEM)
     public void onInitialize(IBotStateEvent.IInitializeEvent event) {
@@ -52,13 +77,63 @@ public class DataCache implements IDataCache {
 
         injectionService.injectInto(dataInjector);
         eventService.registerListener(dataInjector);
+
+        injectionService.injectInto(snapshotStore);
+        eventService.registerListener(snapshotStore);
+    }
+
+    @Listener
+    public void onShutdown(IBotStateEvent.IPostShutdown event) {
+        refreshPipeline.getExecutor().shutdown();
+        refreshPipeline.getBackgroundExecutor().shutdown();
+        event.addExecutor(refreshPipeline.getExecutor());
+        event.addExecutor(refreshPipeline.getBackgroundExecutor());
+    }
+
+    @Override
+    public ICacheSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes a new snapshot with the current clients.
+     * Has to be called while holding the lock whenever clients are added, removed or replaced.
+     */
+    void publishClients() {
+        snapshot = snapshot.withClients(clientCache.getUnsafeClientMap());
+    }
+
+    /**
+     * Publishes a new snapshot with the current channels.
+     * Has to be called while holding the lock whenever channels are added, removed or replaced.
+     */
+    void publishChannels() {
+        snapshot = snapshot.withChannels(channelCache.getUnsafeChannelMap());
     }
 
     @Override
     public Optional<IClient> findClientByUniqueId(String uniqueId) {
-        return getClients().stream()
-                .filter(c -> c.getClientUniqueID().equals(uniqueId))
-                .findFirst();
+        return clientCache.getClientIndex().findByUniqueId(uniqueId);
+    }
+
+    @Override
+    public List<IClient> getClientsByUniqueId(String uniqueId) {
+        return clientCache.getClientIndex().getByUniqueId(uniqueId);
+    }
+
+    @Override
+    public List<IClient> getClientsByDBID(int dbId) {
+        return clientCache.getClientIndex().getByDBID(dbId);
+    }
+
+    @Override
+    public List<IClient> getClientsByNickname(String nickname) {
+        return clientCache.getClientIndex().getByNickname(nickname);
+    }
+
+    @Override
+    public List<IClient> getClientsInServerGroup(int serverGroupId) {
+        return clientCache.getClientIndex().getByServerGroup(serverGroupId);
     }
 
     @Override
@@ -69,6 +144,122 @@ public class DataCache implements IDataCache {
                 .findFirst();
     }
 
+    @Override
+    public boolean isInSubtree(int channelId, int rootChannelId) {
+        return channelCache.getChannelTree().isInSubtree(channelId, rootChannelId);
+    }
+
+    @Override
+    public int getSubtreeClientCount(int channelId) {
+        return channelCache.getChannelTree().getSubtreeClientCount(channelId);
+    }
+
+    @Override
+    public List<IClient> getClientsInChannel(int channelId) {
+        return clientCache.getClientIndex().getByChannel(channelId);
+    }
+
+    @Override
+    public List<IClient> getClientsInSubtree(int channelId) {
+        ClientIndex index = clientCache.getClientIndex();
+        int[] channelIds = channelCache.getChannelTree().getSubtreeChannelIds(channelId);
+        if (channelIds.length == 0) {
+            return List.of();
+        } else if (channelIds.length == 1) {
+            return index.getByChannel(channelIds[0]);
+        }
+
+        List<IClient> clients = new ArrayList<>();
+        for (int id : channelIds) {
+            clients.addAll(index.getByChannel(id));
+        }
+        return Collections.unmodifiableList(clients);
+    }
+
+    @Override
+    public boolean isChannelEmpty(int channelId) {
+        return clientCache.getClientIndex().isChannelEmpty(channelId);
+    }
+
+    @Override
+    public ISubscription subscribeClientChanges(Consumer<IQueryEvent.IDataEvent.IClientPropertiesChanged> consumer, Integer clientId, String... keys) {
+        return clientSubscriptions.subscribe(consumer, clientId, keys);
+    }
+
+    @Override
+    public ISubscription subscribeChannelChanges(Consumer<IQueryEvent.IDataEvent.IChannelPropertiesChanged> consumer, Integer channelId, String... keys) {
+        return channelSubscriptions.subscribe(consumer, channelId, keys);
+    }
+
+    /**
+     * Fires the change events and notifies subscribers.
+     * Must not be called while holding the lock.
+     */
+    void publishClientChanges(Collection<PropertyDelta<TS3Client>> deltas, IQueryConnection connection, IRawQueryEvent rawReference) {
+        for (PropertyDelta<TS3Client> delta : deltas) {
+            QueryEvent.BasicDataEvent.ClientPropertiesChanged event =
+                    new QueryEvent.BasicDataEvent.ClientPropertiesChanged(delta.getEntity(), delta.getChanges(), delta.getPrevious());
+            event.setConnection(connection);
+            event.setRawReference(rawReference);
+            clientSubscriptions.dispatch(delta.getEntityId(), delta.getChanges().keySet(), event);
+            eventService.fireEvent(event);
+        }
+    }
+
+    /**
+     * Fires the change events and notifies subscribers.
+     * Must not be called while holding the lock.
+     */
+    void publishChannelChanges(Collection<PropertyDelta<TS3Channel>> deltas, IQueryConnection connection, IRawQueryEvent rawReference) {
+        for (PropertyDelta<TS3Channel> delta : deltas) {
+            QueryEvent.BasicDataEvent.ChannelPropertiesChanged event =
+                    new QueryEvent.BasicDataEvent.ChannelPropertiesChanged(delta.getEntity(), delta.getChanges(), delta.getPrevious());
+            event.setConnection(connection);
+            event.setRawReference(rawReference);
+            channelSubscriptions.dispatch(delta.getEntityId(), delta.getChanges().keySet(), event);
+            eventService.fireEvent(event);
+        }
+    }
+
+    @Override
+    public boolean isProvisional() {
+        return channelCache.isProvisional() || clientCache.isProvisional();
+    }
+
+    /**
+     * Fills the empty caches with data from the warm-start snapshot.
+     */
+    void loadProvisional(List<IDataHolder> channels, List<IDataHolder> clients) {
+        channelCache.loadProvisional(channels);
+        clientCache.loadProvisional(clients);
+    }
+
+    /**
+     * Stage timings of the client refreshes.
+     */
+    public RefreshStatistics getClientRefreshStatistics() {
+        return clientCache.getRefreshStatistics();
+    }
+
+    /**
+     * Stage timings of the channel refreshes.
+     */
+    public RefreshStatistics getChannelRefreshStatistics() {
+        return channelCache.getRefreshStatistics();
+    }
+
+    /**
+     * Attaches the permission subjects to a new client and schedules the lookup of its profile.
+     */
+    void applyPermissions(TS3Client client) {
+        clientCache.applyPermissions(client);
+        clientCache.scheduleProfileBatch();
+    }
+
+    RefreshPipeline getRefreshPipeline() {
+        return refreshPipeline;
+    }
+
     @Override
     public int getClientRefreshTime() {
         return CLIENT_REFRESH_INTERVAL;
@@ -81,28 +272,36 @@ public class DataCache implements IDataCache {
 
     @Override
     public Map<Integer, IClient> getClientMap() {
-        return clientCache.getClientMap();
+        return snapshot().getClientMap();
     }
 
     @Override
     public Map<Integer, IChannel> getChannelMap() {
-        return channelCache.getChannelMap();
+        return snapshot().getChannelMap();
     }
 
     @Override
     public List<IClient> getClients() {
-        return clientCache.getClients();
+        return snapshot().getClients();
     }
 
     @Override
     public List<IChannel> getChannels() {
-        return channelCache.getChannels();
+        return snapshot().getChannels();
     }
 
     Map<Integer, TS3Channel> unsafeGetChannels() {
         return channelCache.getUnsafeChannelMap();
     }
 
+    ChannelTree unsafeGetChannelTree() {
+        return channelCache.getChannelTree();
+    }
+
+    ClientIndex unsafeGetClientIndex() {
+        return clientCache.getClientIndex();
+    }
+
     Map<Integer, TS3Client> unsafeGetClients() {
         return clientCache.getUnsafeClientMap();
     }
@@ -43,8 +43,21 @@ public class EventDataInjector {
             // Reset `cliententerview` specific properties.
             client.setProperty("ctid", null);
             client.setProperty("cfid", null);
+            dataCache.applyPermissions(client);
             synchronized (LOCK) {
-                dataCache.unsafeGetClients().put(client.getClientID(), client);
+                TS3Client previous = dataCache.unsafeGetClients().put(client.getClientID(), client);
+                if (previous != null) {
+                    // Provisional client with a reused ID.
+                    previous.invalidate();
+                }
+                dataCache.unsafeGetClientIndex().update(client.getClientID(), client);
+                dataCache.publishClients();
+
+                TS3Channel channel = dataCache.unsafeGetChannels().getOrDefault(client.getChannelID(), null);
+                if (channel != null) {
+                    channel.setProperty(PropertyKeys.Channel.CLIENT_COUNT, Integer.toString(channel.getClientCount() + 1));
+                    dataCache.unsafeGetChannelTree().clientCountChanged(channel.getID(), 1);
+                }
             }
         }
 
@@ -57,10 +70,7 @@ public class EventDataInjector {
         if (optClientID.isPresent()) {
             Integer clientID = Integer.valueOf(optClientID.get());
 
-            TS3Client client;
-            synchronized (LOCK) {
-                client = dataCache.unsafeGetClients().getOrDefault(clientID, null);
-            }
+            TS3Client client = dataCache.unsafeGetClients().getOrDefault(clientID, null);
 
             if (client != null) {
                 event.setClient(client);
@@ -77,18 +87,21 @@ public class EventDataInjector {
             boolean isSpacer = TS3Spacer.spacerPattern.matcher(channelName).matches();
             TS3Channel channel = isSpacer ? new TS3Spacer() : new TS3Channel();
             channel.copyFrom(event);
+            // Channel-Create events use "cpid" and not "pid".
+            event.getProperty("cpid").ifPresent(pid -> channel.setProperty(PropertyKeys.Channel.PARENT, pid));
             synchronized (LOCK) {
                 dataCache.unsafeGetChannels().put(channel.getID(), channel);
+                ChannelTree tree = dataCache.unsafeGetChannelTree();
+                tree.insert(channel);
+                tree.commit();
+                dataCache.publishChannels();
             }
         }
 
         Optional<String> optChannelID = event.getProperty("cid");
         if (optChannelID.isPresent()) {
             Integer channelID = Integer.valueOf(optChannelID.get());
-            TS3Channel client;
-            synchronized (LOCK) {
-                client = dataCache.unsafeGetChannels().getOrDefault(channelID, null);
-            }
+            TS3Channel client = dataCache.unsafeGetChannels().getOrDefault(channelID, null);
 
             if (client != null) {
                 event.setChannel(client);
@@ -0,0 +1,140 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Properties of a cached client or channel that have changed during an update.
+ *
+ * Usage: Record the previous values with {@link #previousValues} before applying the update,
+ * then create the delta with {@link #of} from what has actually changed afterwards.
+ */
+class PropertyDelta<T extends IDataHolder> {
+
+    /**
+     * Keys that change on (nearly) every refresh and would only cause noise.
+     * Comma separated - entries ending with {@code *} match all keys starting with the rest.
+     */
+    static final String DEFAULT_IGNORED_KEYS = "client_idle_time,client_flag_talking,seconds_empty,"
+            + "connection_*,client_month_bytes_*,client_total_bytes_*";
+
+    private static final Set<String> IGNORED_KEYS = new HashSet<>();
+    private static final List<String> IGNORED_PREFIXES = new ArrayList<>();
+
+    static {
+        for (String key : Main.getProperty("jeak.cache.deltaIgnoredKeys", DEFAULT_IGNORED_KEYS).split(",")) {
+            key = key.trim();
+            if (key.endsWith("*")) {
+                IGNORED_PREFIXES.add(key.substring(0, key.length() - 1));
+            } else if (!key.isEmpty()) {
+                IGNORED_KEYS.add(key);
+            }
+        }
+    }
+
+    private final int entityId;
+    private final T entity;
+    private final Map<String, String> changes;
+    private final Map<String, String> previous;
+
+    private PropertyDelta(int entityId, T entity, Map<String, String> changes, Map<String, String> previous) {
+        this.entityId = entityId;
+        this.entity = entity;
+        this.changes = changes;
+        this.previous = previous;
+    }
+
+    static boolean isIgnored(String key) {
+        if (IGNORED_KEYS.contains(key)) {
+            return true;
+        }
+        for (String prefix : IGNORED_PREFIXES) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the current values of all properties an update from {@code incoming} would change.
+     *
+     * @param replace whether or not the update replaces all properties - properties missing in the update are removed then
+     */
+    static Map<String, String> previousValues(IDataHolder current, IDataHolder incoming, boolean replace) {
+        Map<String, String> previous = null;
+        for (Map.Entry<String, String> entry : incoming.getValues().entrySet()) {
+            String key = entry.getKey();
+            String value = current.getProperty(key).orElse(null);
+            if (!isIgnored(key) && !Objects.equals(value, entry.getValue())) {
+                if (previous == null) {
+                    previous = new HashMap<>();
+                }
+                previous.put(key, value);
+            }
+        }
+
+        if (replace) {
+            for (Map.Entry<String, String> entry : current.getValues().entrySet()) {
+                String key = entry.getKey();
+                if (!isIgnored(key) && !incoming.hasProperty(key)) {
+                    if (previous == null) {
+                        previous = new HashMap<>();
+                    }
+                    previous.put(key, entry.getValue());
+                }
+            }
+        }
+        return previous != null ? previous : Map.of();
+    }
+
+    /**
+     * Creates the delta of all recorded properties whose value differs from the previous one now.
+     *
+     * @return the delta or {@code null} if nothing has changed
+     */
+    static <T extends IDataHolder> PropertyDelta<T> of(int entityId, T entity, Map<String, String> previousValues) {
+        if (previousValues.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> changes = null;
+        Map<String, String> previous = null;
+        for (Map.Entry<String, String> entry : previousValues.entrySet()) {
+            String value = entity.getProperty(entry.getKey()).orElse(null);
+            if (!Objects.equals(value, entry.getValue())) {
+                if (changes == null) {
+                    changes = new HashMap<>();
+                    previous = new HashMap<>();
+                }
+                changes.put(entry.getKey(), value);
+                previous.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return changes != null ? new PropertyDelta<>(entityId, entity, changes, previous) : null;
+    }
+
+    int getEntityId() {
+        return entityId;
+    }
+
+    T getEntity() {
+        return entity;
+    }
+
+    Map<String, String> getChanges() {
+        return changes;
+    }
+
+    Map<String, String> getPrevious() {
+        return previous;
+    }
+}
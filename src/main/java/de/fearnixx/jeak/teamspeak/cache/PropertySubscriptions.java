@@ -0,0 +1,107 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Subscriptions to property changes, looked up by changed key.
+ * Subscribers are not called for changes of other keys or other entities.
+ */
+class PropertySubscriptions<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertySubscriptions.class);
+
+    private final List<Subscription> anyKey = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Subscription>> byKey = new ConcurrentHashMap<>();
+
+    ISubscription subscribe(Consumer<E> consumer, Integer entityId, String... keys) {
+        Subscription subscription = new Subscription(consumer, entityId, keys);
+        if (keys.length == 0) {
+            anyKey.add(subscription);
+        } else {
+            for (String key : keys) {
+                byKey.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(subscription);
+            }
+        }
+        return subscription;
+    }
+
+    void dispatch(int entityId, Set<String> changedKeys, E event) {
+        for (Subscription subscription : anyKey) {
+            if (subscription.matches(entityId)) {
+                subscription.accept(event);
+            }
+        }
+
+        // Subscriptions to multiple keys are called only once per change.
+        List<Subscription> notified = null;
+        for (String key : changedKeys) {
+            List<Subscription> subscriptions = byKey.get(key);
+            if (subscriptions == null) {
+                continue;
+            }
+
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.matches(entityId)) {
+                    continue;
+                }
+                if (subscription.keys.length > 1) {
+                    if (notified == null) {
+                        notified = new ArrayList<>(4);
+                    } else if (notified.contains(subscription)) {
+                        continue;
+                    }
+                    notified.add(subscription);
+                }
+                subscription.accept(event);
+            }
+        }
+    }
+
+    private class Subscription implements ISubscription {
+
+        private final Consumer<E> consumer;
+        private final Integer entityId;
+        private final String[] keys;
+
+        private Subscription(Consumer<E> consumer, Integer entityId, String[] keys) {
+            this.consumer = consumer;
+            this.entityId = entityId;
+            this.keys = keys.clone();
+        }
+
+        boolean matches(int changedId) {
+            return entityId == null || entityId == changedId;
+        }
+
+        void accept(E event) {
+            try {
+                consumer.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Property change subscriber failed.", e);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (keys.length == 0) {
+                anyKey.remove(this);
+            } else {
+                for (String key : keys) {
+                    List<Subscription> subscriptions = byKey.get(key);
+                    if (subscriptions != null) {
+                        subscriptions.remove(this);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.service.task.ITask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeating task requesting a full list to reconcile a cache that is otherwise kept up to date by notifications.
+ *
+ * With {@code jeak.cache.adaptive} enabled, the interval adapts to the drift found by the last reconciliation:
+ * It doubles (up to the maximum) while no mismatches are found and is halved (down to the base interval) when they are.
+ * Otherwise the base interval is used.
+ */
+class ReconciliationTask implements ITask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationTask.class);
+
+    static final boolean ADAPTIVE = Main.getProperty("jeak.cache.adaptive", false);
+
+    private final String name;
+    private final Runnable runnable;
+    private final int baseInterval;
+    private final int maxInterval;
+
+    private volatile int interval;
+    private long reconciliations = 0;
+    private long totalDrift = 0;
+
+    /**
+     * @param baseInterval minimum interval in seconds
+     * @param maxInterval  maximum interval in seconds when adaptive
+     */
+    ReconciliationTask(String name, Runnable runnable, int baseInterval, int maxInterval) {
+        this.name = name;
+        this.runnable = runnable;
+        this.baseInterval = baseInterval;
+        this.maxInterval = ADAPTIVE ? Math.max(baseInterval, maxInterval) : baseInterval;
+        this.interval = baseInterval;
+    }
+
+    /**
+     * Adapts the interval to the number of mismatches found by a reconciliation.
+     *
+     * @return whether or not the interval has changed
+     */
+    synchronized boolean onReconciled(int drift, String details) {
+        reconciliations++;
+        totalDrift += drift;
+
+        int previous = interval;
+        if (drift == 0) {
+            interval = Math.min(maxInterval, previous * 2);
+        } else {
+            interval = Math.max(baseInterval, previous / 2);
+        }
+
+        if (drift > 0) {
+            logger.info("{}: Reconciliation found {} mismatches ({}). Next in {}s. Total: {} in {} runs.",
+                    name, drift, details, interval, totalDrift, reconciliations);
+        } else {
+            logger.debug("{}: Reconciliation found no mismatches. Next in {}s.", name, interval);
+        }
+        return interval != previous;
+    }
+
+    /**
+     * Restarts at the base interval, e.g. after a reconnect.
+     */
+    synchronized void reset() {
+        interval = baseInterval;
+    }
+
+    @Override
+    public long getDelay() {
+        return interval;
+    }
+
+    @Override
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.SECONDS;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.REPEAT;
+    }
+
+    @Override
+    public boolean shouldReschedule() {
+        return true;
+    }
+
+    @Override
+    public Runnable getRunnable() {
+        return runnable;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
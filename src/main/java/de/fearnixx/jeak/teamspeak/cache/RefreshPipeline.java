@@ -0,0 +1,104 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.util.NamePatternThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs the per-element stages of cache refreshes on a dedicated, bounded pool.
+ * Background stages, such as attaching profiles, run on a separate thread - they may block on storage
+ * and must not hold up refreshes waiting for the pool while holding the cache lock.
+ * Lists below {@code jeak.cache.parallelThreshold} elements are processed sequentially on the calling thread.
+ */
+class RefreshPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshPipeline.class);
+
+    private static final int THREADS = Math.max(1, Main.getProperty("jeak.cache.refreshThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final int PARALLEL_THRESHOLD = Main.getProperty("jeak.cache.parallelThreshold", 500);
+
+    private final int threads;
+    private final ExecutorService executor;
+    private final ExecutorService backgroundExecutor =
+            Executors.newSingleThreadExecutor(new NamePatternThreadFactory("cache-background-%d"));
+
+    RefreshPipeline() {
+        this(THREADS);
+    }
+
+    RefreshPipeline(int threads) {
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads, new NamePatternThreadFactory("cache-refresh-%d"));
+    }
+
+    /**
+     * Applies the action to all items and waits for completion.
+     * Larger lists are split into one chunk per thread - the calling thread processes the last one.
+     * The action has to handle failures of single items itself.
+     */
+    <T> void forEach(List<T> items, Consumer<? super T> action) {
+        int size = items.size();
+        if (size < PARALLEL_THRESHOLD || threads == 1) {
+            items.forEach(action);
+            return;
+        }
+
+        int chunkSize = (size + threads - 1) / threads;
+        List<Future<?>> futures = new ArrayList<>(threads - 1);
+        int from = 0;
+        try {
+            for (; from + chunkSize < size; from += chunkSize) {
+                List<T> chunk = items.subList(from, from + chunkSize);
+                futures.add(executor.submit(() -> chunk.forEach(action)));
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Refresh pool not available - continuing sequentially.");
+        }
+        items.subList(from, size).forEach(action);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.warn("Refresh chunk failed.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Runs a background stage without waiting for it.
+     *
+     * @return whether or not the stage has been accepted
+     */
+    boolean submit(Runnable stage) {
+        try {
+            backgroundExecutor.execute(stage);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.debug("Background executor not available - background stage skipped.");
+            return false;
+        }
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    ExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+}
@@ -0,0 +1,104 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the stages of cache refreshes take.
+ * {@link #toString()} lists the last, average and maximum duration of each stage.
+ */
+public class RefreshStatistics {
+
+    public enum Stage {
+        /**
+         * Parsing the answer and merging it into the cached representations.
+         */
+        PARSE,
+
+        /**
+         * Attaching profiles and permission subjects to new representations.
+         */
+        ENRICH,
+
+        /**
+         * Updating the cache maps, indexes and the channel tree.
+         */
+        APPLY,
+
+        /**
+         * Firing refresh and change events.
+         */
+        PUBLISH
+    }
+
+    private final Object lock = new Object();
+
+    private final String name;
+    private long count;
+    private final long[] lastNanos = new long[Stage.values().length];
+    private final long[] maxNanos = new long[Stage.values().length];
+    private final long[] totalNanos = new long[Stage.values().length];
+
+    RefreshStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the durations of one refresh - indexed by {@link Stage#ordinal()}.
+     */
+    void record(long[] stageNanos) {
+        synchronized (lock) {
+            count++;
+            for (int i = 0; i < stageNanos.length; i++) {
+                lastNanos[i] = stageNanos[i];
+                maxNanos[i] = Math.max(maxNanos[i], stageNanos[i]);
+                totalNanos[i] += stageNanos[i];
+            }
+        }
+    }
+
+    /**
+     * Number of refreshes recorded.
+     */
+    public long getCount() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    public long getLastNanos(Stage stage) {
+        synchronized (lock) {
+            return lastNanos[stage.ordinal()];
+        }
+    }
+
+    public long getMaxNanos(Stage stage) {
+        synchronized (lock) {
+            return maxNanos[stage.ordinal()];
+        }
+    }
+
+    public long getAverageNanos(Stage stage) {
+        synchronized (lock) {
+            return count > 0 ? totalNanos[stage.ordinal()] / count : 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            StringBuilder builder = new StringBuilder("RefreshStatistics{name=").append(name)
+                    .append(", count=").append(count);
+            for (Stage stage : Stage.values()) {
+                int i = stage.ordinal();
+                builder.append(", ").append(stage.name().toLowerCase())
+                        .append(String.format("=%.2f/%.2f/%.2fms",
+                                toMillis(lastNanos[i]), toMillis(count > 0 ? totalNanos[i] / count : 0), toMillis(maxNanos[i])));
+            }
+            return builder.append('}').toString();
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -6,41 +6,77 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-public abstract class TS3ChannelHolder extends BasicDataHolder implements IChannel {
+public abstract class TS3ChannelHolder extends CompactDataHolder implements IChannel {
 
     private static final Logger logger = LoggerFactory.getLogger(TS3Channel.class);
 
+    // Slots of the typed properties.
+    private static final int ID = 0;
+    private static final int PARENT = 1;
+    private static final int ORDER = 2;
+    private static final int TALK_POWER = 3;
+    private static final int CLIENT_COUNT = 4;
+    private static final int MAX_CLIENTS = 5;
+    private static final int CLIENT_COUNT_FAMILY = 6;
+    private static final int MAX_CLIENTS_FAMILY = 7;
+    private static final int CODEC = 8;
+    private static final int QUALITY = 9;
+
+    private static final String[] TYPED_KEYS = {
+            PropertyKeys.Channel.ID, PropertyKeys.Channel.PARENT, PropertyKeys.Channel.ORDER,
+            PropertyKeys.Channel.TALK_POWER, PropertyKeys.Channel.CLIENT_COUNT, PropertyKeys.Channel.MAX_CLIENTS,
+            PropertyKeys.Channel.CLIENT_COUNT_FAMILY, PropertyKeys.Channel.MAX_CLIENTS_FAMILY,
+            PropertyKeys.Channel.CODEC, PropertyKeys.Channel.QUALITY
+    };
+    private static final String[] TYPED_DEFAULTS = {null, "0", "0", "0", "0", "-1", "0", "0", "0", "0"};
+
     private boolean invalidated = false;
-    private final List<IChannel> children;
+    // Immutable - replaced as a whole so readers never see a partially updated list.
+    private volatile List<IChannel> children = List.of();
+    // Read-only view of the live index bucket - copied when read.
+    private volatile Collection<IClient> clients = List.of();
+
+    // Parsed when properties change.
+    private final TypedIntProperties typed = new TypedIntProperties(this, TYPED_KEYS, TYPED_DEFAULTS);
 
     public TS3ChannelHolder(){
         super();
-        children = new ArrayList<>();
+        typed.update(null);
     }
 
     public void invalidate() {
         clearChildren();
+        clients = List.of();
         invalidated = true;
     }
 
+    @Override
+    protected void onPropertyChanged(String key) {
+        super.onPropertyChanged(key);
+        // Not yet initialized while the super constructor runs.
+        if (typed != null) {
+            typed.update(key);
+        }
+    }
+
     @Override
     public Integer getID() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.ID)
-                .orElseThrow(() -> new ConsistencyViolationException("Channel is missing ID!")));
+        return typed.get(ID, "Channel is missing ID!");
     }
 
     @Override
     public Integer getParent() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.PARENT).orElse("0"));
+        return typed.get(PARENT);
     }
 
     @Override
     public Integer getOrder() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.ORDER).orElse("0"));
+        return typed.get(ORDER);
     }
 
     @Override
@@ -90,53 +126,98 @@ public abstract class TS3ChannelHolder extends BasicDataHolder implements IChann
 
     @Override
     public Integer getTalkPower() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.TALK_POWER).orElse("0"));
+        return typed.get(TALK_POWER);
     }
 
     @Override
     public Integer getClientCount() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.CLIENT_COUNT).orElse("0"));
+        return typed.get(CLIENT_COUNT);
     }
 
     @Override
     public Integer getMaxClientCount() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.MAX_CLIENTS).orElse("-1"));
+        return typed.get(MAX_CLIENTS);
     }
 
     @Override
     public Integer getClientCountBelow() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.CLIENT_COUNT_FAMILY).orElse("0"));
+        return typed.get(CLIENT_COUNT_FAMILY);
     }
 
     @Override
     public Integer getMaxClientCountBelow() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.MAX_CLIENTS_FAMILY).orElse("0"));
+        return typed.get(MAX_CLIENTS_FAMILY);
     }
 
     @Override
     public Integer getCodec() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.CODEC).orElse("0"));
+        return typed.get(CODEC);
     }
 
     @Override
     public Integer getCodecQuality() {
-        return Integer.parseInt(getProperty(PropertyKeys.Channel.QUALITY).orElse("0"));
+        return typed.get(QUALITY);
     }
 
     public void clearChildren() {
-        children.clear();
+        children = List.of();
     }
 
     @Override
     public List<IChannel> getSubChannels() {
-        return Collections.unmodifiableList(children);
+        return children;
+    }
+
+    /**
+     * Replaces the sub channels.
+     * The list is expected to be ordered already.
+     */
+    public void setSubChannels(List<IChannel> subChannels) {
+        children = List.copyOf(subChannels);
+    }
+
+    @Override
+    public List<IClient> getClients() {
+        return List.copyOf(clients);
+    }
+
+    /**
+     * Sets the clients in this channel.
+     * The collection is kept as a view and is expected to be safe for concurrent reads.
+     */
+    public void setClients(Collection<IClient> clients) {
+        this.clients = Collections.unmodifiableCollection(clients);
+    }
+
+    @Override
+    public List<IClient> getClientsBelow() {
+        List<IChannel> children = this.children;
+        if (children.isEmpty()) {
+            return getClients();
+        }
+
+        List<IClient> below = new ArrayList<>(clients);
+        for (IChannel child : children) {
+            below.addAll(child.getClientsBelow());
+        }
+        return Collections.unmodifiableList(below);
+    }
+
+    @Override
+    public Boolean isEmpty() {
+        return clients.isEmpty();
     }
 
     public void addSubChannel(IChannel channel) {
         int id = getID();
         if (channel.getParent() != id)
             throw new IllegalArgumentException(id + ": Channel " + channel.getID() + "is not my child! :" + channel.getParent());
-        if (!children.contains(channel)) children.add(channel);
+        List<IChannel> current = children;
+        if (!current.contains(channel)) {
+            List<IChannel> updated = new ArrayList<>(current);
+            updated.add(channel);
+            children = List.copyOf(updated);
+        }
     }
 
     @Override
@@ -145,6 +226,7 @@ public abstract class TS3ChannelHolder extends BasicDataHolder implements IChann
     }
 
     public void sortChildren() {
+        final List<IChannel> children = this.children;
         List<IChannel> sortedChildren = new LinkedList<>();
         int lastId = 0;
         final int childCount = children.size();
@@ -168,8 +250,7 @@ public abstract class TS3ChannelHolder extends BasicDataHolder implements IChann
             }
         }
 
-        clearChildren();
-        children.addAll(sortedChildren);
+        setSubChannels(sortedChildren);
     }
 
 }
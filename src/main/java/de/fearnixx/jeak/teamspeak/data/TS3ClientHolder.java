@@ -1,16 +1,55 @@
 package de.fearnixx.jeak.teamspeak.data;
 
 import de.fearnixx.jeak.teamspeak.PropertyKeys;
-import de.fearnixx.jeak.teamspeak.except.ConsistencyViolationException;
-
-import java.util.Optional;
 
 public abstract class TS3ClientHolder extends TS3User implements IClient {
 
+    // Slots of the typed integer properties.
+    private static final int ID = 0;
+    private static final int DBID = 1;
+    private static final int CHANNEL_ID = 2;
+    private static final int CHANNEL_GROUP = 3;
+    private static final int CHANNEL_GROUP_SOURCE = 4;
+    private static final int TALKPOWER = 5;
+    private static final int IDLE_TIME = 6;
+
+    private static final String[] TYPED_INT_KEYS = {
+            PropertyKeys.Client.ID, PropertyKeys.Client.DBID, PropertyKeys.Client.CHANNEL_ID,
+            PropertyKeys.Client.CHANNEL_GROUP, PropertyKeys.Client.CHANNEL_GROUP_SOURCE,
+            PropertyKeys.Client.TALKPOWER, PropertyKeys.Client.IDLE_TIME
+    };
+    private static final String[] TYPED_INT_DEFAULTS = {null, null, null, null, null, "0", "0"};
+
+    private static final String[] TYPED_KEYS = {
+            PropertyKeys.Client.TYPE, PropertyKeys.Client.PLATFORM,
+            PropertyKeys.Client.FLAG_AWAY, PropertyKeys.Client.FLAG_TALKING, PropertyKeys.Client.FLAG_TALKER,
+            PropertyKeys.Client.FLAG_PRIO_TALKER, PropertyKeys.Client.FLAG_COMMANDER, PropertyKeys.Client.FLAG_RECORDING,
+            PropertyKeys.Client.IOIN, PropertyKeys.Client.IOIN_MUTED, PropertyKeys.Client.IOOUT, PropertyKeys.Client.IOOUT_MUTED
+    };
+
+    private static final int AWAY = 1;
+    private static final int TALKING = 1 << 1;
+    private static final int TALKER = 1 << 2;
+    private static final int PRIO_TALKER = 1 << 3;
+    private static final int COMMANDER = 1 << 4;
+    private static final int RECORDING = 1 << 5;
+    private static final int MIC = 1 << 6;
+    private static final int MIC_MUTED = 1 << 7;
+    private static final int OUTPUT = 1 << 8;
+    private static final int OUTPUT_MUTED = 1 << 9;
+
     private boolean invalidated = false;
 
+    // Parsed when properties change.
+    private final TypedIntProperties typed = new TypedIntProperties(this, TYPED_INT_KEYS, TYPED_INT_DEFAULTS);
+    // Null if missing or not parsable - getters fall back to the raw property then.
+    private volatile ClientType clientType;
+    private volatile PlatformType platform;
+    private volatile int flags;
+
     public TS3ClientHolder() {
         super();
+        typed.update(null);
     }
 
     public void invalidate() {
@@ -23,16 +62,83 @@ public abstract class TS3ClientHolder extends TS3User implements IClient {
     }
 
     @Override
-    public Integer getClientID() {
-        Optional<String> optProperty = getProperty(PropertyKeys.Client.ID);
-        if (optProperty.isEmpty())
-            throw new ConsistencyViolationException("Client is missing ID")
-                    .setSourceObject(this);
-        return Integer.parseInt(optProperty.get());
+    protected void onPropertyChanged(String key) {
+        super.onPropertyChanged(key);
+        // Not yet initialized while the super constructor runs.
+        if (typed != null) {
+            typed.update(key);
+        }
+        if (key != null) {
+            updateTypedField(key);
+        } else {
+            for (String typedKey : TYPED_KEYS) {
+                updateTypedField(typedKey);
+            }
+        }
     }
 
-    @Override
-    public PlatformType getPlatform() {
+    private void updateTypedField(String key) {
+        switch (key) {
+            case PropertyKeys.Client.TYPE:
+                clientType = parseClientType();
+                break;
+            case PropertyKeys.Client.PLATFORM:
+                platform = parsePlatform();
+                break;
+            case PropertyKeys.Client.FLAG_AWAY:
+                updateFlag(key, AWAY);
+                break;
+            case PropertyKeys.Client.FLAG_TALKING:
+                updateFlag(key, TALKING);
+                break;
+            case PropertyKeys.Client.FLAG_TALKER:
+                updateFlag(key, TALKER);
+                break;
+            case PropertyKeys.Client.FLAG_PRIO_TALKER:
+                updateFlag(key, PRIO_TALKER);
+                break;
+            case PropertyKeys.Client.FLAG_COMMANDER:
+                updateFlag(key, COMMANDER);
+                break;
+            case PropertyKeys.Client.FLAG_RECORDING:
+                updateFlag(key, RECORDING);
+                break;
+            case PropertyKeys.Client.IOIN:
+                updateFlag(key, MIC);
+                break;
+            case PropertyKeys.Client.IOIN_MUTED:
+                updateFlag(key, MIC_MUTED);
+                break;
+            case PropertyKeys.Client.IOOUT:
+                updateFlag(key, OUTPUT);
+                break;
+            case PropertyKeys.Client.IOOUT_MUTED:
+                updateFlag(key, OUTPUT_MUTED);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Integer parseInteger(String key, String def) {
+        String value = getProperty(key).orElse(def);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private ClientType parseClientType() {
+        Integer type = parseInteger(PropertyKeys.Client.TYPE, "0");
+        ClientType[] types = ClientType.values();
+        return type != null && type >= 0 && type < types.length ? types[type] : null;
+    }
+
+    private PlatformType parsePlatform() {
         switch (getProperty(PropertyKeys.Client.PLATFORM).orElse("unknown").toLowerCase()) {
             case "windows":
                 return PlatformType.WINDOWS;
@@ -49,6 +155,29 @@ public abstract class TS3ClientHolder extends TS3User implements IClient {
         }
     }
 
+    private synchronized void updateFlag(String key, int flag) {
+        if ("1".equals(getProperty(key).orElse(null))) {
+            flags |= flag;
+        } else {
+            flags &= ~flag;
+        }
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    @Override
+    public Integer getClientID() {
+        return typed.get(ID, "Client is missing ID");
+    }
+
+    @Override
+    public PlatformType getPlatform() {
+        PlatformType parsed = platform;
+        return parsed != null ? parsed : parsePlatform();
+    }
+
     @Override
     public String getVersion() {
         return getProperty(PropertyKeys.Client.VERSION).orElse("unknown");
@@ -56,6 +185,10 @@ public abstract class TS3ClientHolder extends TS3User implements IClient {
 
     @Override
     public ClientType getClientType() {
+        ClientType parsed = clientType;
+        if (parsed != null) {
+            return parsed;
+        }
         return ClientType.values()[Integer.parseInt(getProperty(PropertyKeys.Client.TYPE).orElse("0"))];
     }
 
@@ -66,34 +199,22 @@ public abstract class TS3ClientHolder extends TS3User implements IClient {
 
     @Override
     public Integer getChannelID() {
-        Optional<String> optProperty = getProperty(PropertyKeys.Client.CHANNEL_ID);
-        if (optProperty.isEmpty())
-            throw new ConsistencyViolationException("Client is missing channel ID")
-                    .setSourceObject(this);
-        return Integer.parseInt(optProperty.get());
+        return typed.get(CHANNEL_ID, "Client is missing channel ID");
     }
 
     @Override
     public Integer getChannelGroupID() {
-        Optional<String> optProperty = getProperty(PropertyKeys.Client.CHANNEL_GROUP);
-        if (optProperty.isEmpty())
-            throw new ConsistencyViolationException("Client is missing channel group ID")
-                    .setSourceObject(this);
-        return Integer.parseInt(optProperty.get());
+        return typed.get(CHANNEL_GROUP, "Client is missing channel group ID");
     }
 
     @Override
     public Integer getChannelGroupSource() {
-        Optional<String> optProperty = getProperty(PropertyKeys.Client.CHANNEL_GROUP_SOURCE);
-        if (optProperty.isEmpty())
-            throw new ConsistencyViolationException("Client has no channel group source!")
-                    .setSourceObject(this);
-        return Integer.parseInt(optProperty.get());
+        return typed.get(CHANNEL_GROUP_SOURCE, "Client has no channel group source!");
     }
 
     @Override
     public Boolean isAway() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_AWAY).orElse(null));
+        return hasFlag(AWAY);
     }
 
     @Override
@@ -103,57 +224,62 @@ public abstract class TS3ClientHolder extends TS3User implements IClient {
 
     @Override
     public Integer getTalkPower() {
-        return Integer.parseInt(getProperty(PropertyKeys.Client.TALKPOWER).orElse("0"));
+        return typed.get(TALKPOWER);
     }
 
     @Override
     public Boolean isTalking() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_TALKING).orElse(null));
+        return hasFlag(TALKING);
     }
 
     @Override
     public Boolean isTalker() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_TALKER).orElse(null));
+        return hasFlag(TALKER);
     }
 
     @Override
     public Boolean isPrioTalker() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_PRIO_TALKER).orElse(null));
+        return hasFlag(PRIO_TALKER);
     }
 
     @Override
     public Boolean isCommander() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_COMMANDER).orElse(null));
+        return hasFlag(COMMANDER);
     }
 
     @Override
     public Boolean isRecording() {
-        return "1".equals(getProperty(PropertyKeys.Client.FLAG_RECORDING).orElse(null));
+        return hasFlag(RECORDING);
     }
 
     @Override
     public Boolean hasMic() {
-        return "1".equals(getProperty(PropertyKeys.Client.IOIN).orElse(null));
+        return hasFlag(MIC);
     }
 
     @Override
     public Boolean hasMicMuted() {
-        return "1".equals(getProperty(PropertyKeys.Client.IOIN_MUTED).orElse(null));
+        return hasFlag(MIC_MUTED);
     }
 
     @Override
     public Boolean hasOutput() {
-        return "1".equals(getProperty(PropertyKeys.Client.IOOUT).orElse(null));
+        return hasFlag(OUTPUT);
     }
 
     @Override
     public Boolean hasOutputMuted() {
-        return "1".equals(getProperty(PropertyKeys.Client.IOOUT_MUTED).orElse(null));
+        return hasFlag(OUTPUT_MUTED);
     }
 
     @Override
     public Integer getIdleTime() {
-        return Integer.parseInt(getProperty(PropertyKeys.Client.IDLE_TIME).orElse("0"));
+        return typed.get(IDLE_TIME);
+    }
+
+    @Override
+    public Integer getClientDBID() {
+        return typed.has(DBID) ? typed.get(DBID) : super.getClientDBID();
     }
 
     @Override
@@ -16,12 +16,15 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 public class TS3User extends TS3UserHolder {
     private TS3UserSubject ts3PermSubject;
 
-    private UUID frameworkSubject;
+    private volatile UUID frameworkSubject;
+    private volatile Supplier<UUID> frameworkSubjectResolver;
     private IPermissionProvider frwPermProvider;
+    private final Object subjectLock = new Object();
 
     public void setTs3PermSubject(TS3UserSubject ts3PermSubject) {
         if (this.ts3PermSubject != null) {
@@ -31,10 +34,42 @@ public class TS3User extends TS3UserHolder {
     }
 
     public void setFrameworkSubjectUUID(UUID frameworkSubject) {
-        if (this.frameworkSubject != null) {
-            throw new IllegalStateException("#setFrameworkSubject is an unsafe operation and may not be repeated after init!");
+        synchronized (subjectLock) {
+            if (this.frameworkSubject != null) {
+                throw new IllegalStateException("#setFrameworkSubject is an unsafe operation and may not be repeated after init!");
+            }
+            this.frameworkSubject = frameworkSubject;
+        }
+    }
+
+    /**
+     * Sets the lookup of the framework subject UUID.
+     * It is invoked once on first access, unless {@link #resolveFrameworkSubject()} has been called before.
+     */
+    public void setFrameworkSubjectResolver(Supplier<UUID> frameworkSubjectResolver) {
+        this.frameworkSubjectResolver = frameworkSubjectResolver;
+    }
+
+    /**
+     * Returns the framework subject UUID - resolving it if necessary.
+     */
+    public UUID resolveFrameworkSubject() {
+        UUID subject = frameworkSubject;
+        if (subject != null) {
+            return subject;
+        }
+
+        synchronized (subjectLock) {
+            if (frameworkSubject == null && frameworkSubjectResolver != null) {
+                frameworkSubject = frameworkSubjectResolver.get();
+                frameworkSubjectResolver = null;
+            }
+            if (frameworkSubject == null) {
+                throw new IllegalStateException("No framework subject available for: "
+                        + getProperty(PropertyKeys.Client.UID).orElse("<unknown>"));
+            }
+            return frameworkSubject;
         }
-        this.frameworkSubject = frameworkSubject;
     }
 
     public void setFrwPermProvider(IPermissionProvider frwPermProvider) {
@@ -45,8 +80,9 @@ public class TS3User extends TS3UserHolder {
 
 
     private ISubject getSubject() {
-        return frwPermProvider.getSubject(frameworkSubject)
-                .orElseThrow(() -> new IllegalStateException("Framework did not return subject for: " + frameworkSubject));
+        UUID subject = resolveFrameworkSubject();
+        return frwPermProvider.getSubject(subject)
+                .orElseThrow(() -> new IllegalStateException("Framework did not return subject for: " + subject));
     }
 
     @Override
@@ -0,0 +1,94 @@
+package de.fearnixx.jeak.teamspeak.data;
+
+import de.fearnixx.jeak.teamspeak.except.ConsistencyViolationException;
+
+/**
+ * Integer properties of a data holder, parsed once when they change.
+ * Values are kept as primitives by slot, along with a bit mask of the slots that hold a parsed value.
+ *
+ * A slot is empty when its property is missing (without default) or cannot be parsed.
+ * Reading an empty slot parses the raw property, so errors are reported as if it was not pre-parsed.
+ */
+final class TypedIntProperties {
+
+    private final IDataHolder holder;
+    private final String[] keys;
+    private final String[] defaults;
+    private final int[] values;
+
+    // Written after the values - reading it first makes the values visible.
+    private volatile int present = 0;
+
+    /**
+     * @param keys     the property key of each slot
+     * @param defaults the value used if the property of a slot is missing - {@code null} for none
+     */
+    TypedIntProperties(IDataHolder holder, String[] keys, String[] defaults) {
+        if (keys.length > Integer.SIZE || keys.length != defaults.length) {
+            throw new IllegalArgumentException("Invalid slot definition!");
+        }
+        this.holder = holder;
+        this.keys = keys;
+        this.defaults = defaults;
+        this.values = new int[keys.length];
+    }
+
+    /**
+     * Re-parses the slot of a changed property.
+     *
+     * @param key the changed key or {@code null} to re-parse all slots
+     */
+    synchronized void update(String key) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (key == null || keys[slot].equals(key)) {
+                parse(slot);
+            }
+        }
+    }
+
+    private void parse(int slot) {
+        int bit = 1 << slot;
+        String value = holder.getProperty(keys[slot]).orElse(defaults[slot]);
+        try {
+            if (value != null) {
+                values[slot] = Integer.parseInt(value);
+                present |= bit;
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // Reported when read.
+        }
+        present &= ~bit;
+    }
+
+    boolean has(int slot) {
+        return (present & (1 << slot)) != 0;
+    }
+
+    /**
+     * {@link #get(int, String)} for slots with a default value.
+     */
+    int get(int slot) {
+        return get(slot, null);
+    }
+
+    /**
+     * The value of a slot - or the raw property parsed now if the slot is empty.
+     *
+     * @param missingMessage message of the exception thrown if the property is missing and has no default - may be {@code null}
+     * @throws ConsistencyViolationException if the property is missing and has no default
+     * @throws NumberFormatException         if the property cannot be parsed
+     */
+    int get(int slot, String missingMessage) {
+        if (has(slot)) {
+            return values[slot];
+        }
+
+        String value = holder.getProperty(keys[slot]).orElse(defaults[slot]);
+        if (value == null) {
+            String message = missingMessage != null ? missingMessage : "Missing property: " + keys[slot];
+            throw new ConsistencyViolationException(message).setSourceObject(holder);
+        }
+        return Integer.parseInt(value);
+    }
+}
@@ -9,6 +9,7 @@ public abstract class AbstractQueryConnection implements IQueryConnection {
     protected final IQueryRequest whoAmIRequest =
             IQueryRequest.builder()
                     .command(QueryCommands.WHOAMI)
+                    .priority(QueryPriority.SYSTEM)
                     .onSuccess(answer -> whoamiAnswer = answer.getDataChain().get(0))
                     .build();
 
@@ -0,0 +1,529 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.query.RawQueryEvent;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Request bookkeeping shared by all transports of the TS3 server query.
+ * Implementations only have to move the messages over the wire and feed received lines into a parser
+ * that has been wired to {@link #onAnswer}, {@link #onNotification}, {@link #onGreetingStatus} and {@link #supplyRequest}.
+ */
+public abstract class AbstractTS3Connection implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractTS3Connection.class);
+
+    public static final int SOCKET_TIMEOUT_MILLIS = Main.getProperty("bot.connection.sotimeout", 500);
+    public static final int KEEP_ALIVE_SECS = Main.getProperty("bot.connection.keepalive", 240);
+    public static final int KEEP_ALIVE_MILLIS = KEEP_ALIVE_SECS * 1000;
+    public static final int MAX_FAILING_KEEP_ALIVE = Main.getProperty("bot.connection.max_keepalive", 1);
+    public static final float REQ_DELAY_SOT_FACTOR = Main.getProperty("bot.connection.reqdelay", 0.25f);
+    public static final int REQUEST_DELAY_MILLIS = (int) Math.ceil(SOCKET_TIMEOUT_MILLIS * REQ_DELAY_SOT_FACTOR);
+
+    /**
+     * Maximum number of requests on the wire awaiting their answer.
+     * As the query answers strictly in order, answers are matched to the outstanding requests FIFO.
+     */
+    public static final int PIPELINE_WINDOW = Math.max(1, Main.getProperty("bot.connection.pipeline", 1));
+
+    /**
+     * Error id returned by the server when flood protection kicks in.
+     */
+    public static final int FLOOD_ERROR_ID = 524;
+    public static final long FLOOD_BACKOFF_MILLIS = Main.getProperty("bot.connection.floodbackoff", 1000L);
+    public static final long FLOOD_BACKOFF_MAX_MILLIS = Main.getProperty("bot.connection.floodbackoff_max", 30000L);
+    public static final int MAX_FLOOD_RETRIES = Main.getProperty("bot.connection.floodretries", 3);
+
+    /**
+     * Time after which a waiting request is treated as if it had the next higher priority.
+     * Prevents lower priorities from starving.
+     */
+    public static final long PRIORITY_AGING_MILLIS = Math.max(1, Main.getProperty("bot.connection.priority_aging", 2000L));
+
+    private static final String GREETING_COMMAND = "dummy";
+
+    /**
+     * Whether or not identical read-only requests are sent only once.
+     * @see QueryCommands#COALESCIBLE
+     */
+    public static final boolean COALESCE_REQUESTS = Main.getProperty("bot.connection.coalesce", true);
+
+    /**
+     * Whether or not requests waiting next to each other that only differ in their target are sent as one chained request.
+     * @see QueryCommands#BATCHABLE
+     */
+    public static final boolean BATCH_REQUESTS = Main.getProperty("bot.connection.batch", true);
+    public static final int MAX_BATCH_TARGETS = Math.max(1, Main.getProperty("bot.connection.batch_max", 50));
+
+    // Receives the answer along with the request it is dispatched for - returns the dispatched answer.
+    private final BiFunction<RawQueryEvent.Message.Answer, IQueryRequest, IQueryEvent.IAnswer> onAnswer;
+    private final Consumer<RawQueryEvent.Message.Notification> onNotification;
+
+    /**
+     * Lock for all request bookkeeping.
+     */
+    protected final Object requestLock = new Object();
+    // One FIFO lane per priority.
+    private final Map<QueryPriority, Queue<QueuedRequest>> requestLanes = new EnumMap<>(QueryPriority.class);
+    private int queuedCount = 0;
+    // Requests rejected due to flooding - sent one at a time before any other queued request.
+    private final Queue<QueuedRequest> retryQueue = new ArrayDeque<>();
+    private boolean retryInFlight = false;
+    private final Deque<QueuedRequest> inFlight = new ArrayDeque<>();
+    // Queued or in-flight coalescible requests by their wire message.
+    private final Map<String, QueuedRequest> coalescibleRequests = new HashMap<>();
+    private final int pipelineWindow;
+
+    private final IQueryRateLimiter rateLimiter;
+    private long nextAttemptMillis = 0;
+    private long blockedUntilMillis = 0;
+    private long floodBackOffMillis = FLOOD_BACKOFF_MILLIS;
+    private final RequestQueueStatistics statistics = new RequestQueueStatistics();
+    // Only set when capturing is enabled.
+    protected final WireRecorder recorder = WireRecorder.fromProperties();
+
+    protected final IQueryRequest keepAliveRequest =
+            IQueryRequest.builder()
+                    .command(QueryCommands.SERVER.VERSION)
+                    .priority(QueryPriority.SYSTEM)
+                    .onDone(event -> onKeepAliveAnswered())
+                    .build();
+
+    protected AbstractTS3Connection(BiFunction<RawQueryEvent.Message.Answer, IQueryRequest, IQueryEvent.IAnswer> onAnswer,
+                                    Consumer<RawQueryEvent.Message.Notification> onNotification) {
+        this(onAnswer, onNotification, PIPELINE_WINDOW, IQueryRateLimiter.fromProperties(REQUEST_DELAY_MILLIS));
+    }
+
+    protected AbstractTS3Connection(BiFunction<RawQueryEvent.Message.Answer, IQueryRequest, IQueryEvent.IAnswer> onAnswer,
+                                    Consumer<RawQueryEvent.Message.Notification> onNotification,
+                                    int pipelineWindow,
+                                    IQueryRateLimiter rateLimiter) {
+        this.onAnswer = onAnswer;
+        this.onNotification = onNotification;
+        this.pipelineWindow = pipelineWindow;
+        this.rateLimiter = rateLimiter;
+
+        for (QueryPriority priority : QueryPriority.values()) {
+            requestLanes.put(priority, new ArrayDeque<>());
+        }
+
+        // Nothing may be sent until the greeting has been received.
+        inFlight.add(new QueuedRequest(IQueryRequest.builder().command(GREETING_COMMAND).build(), null, null, 0));
+    }
+
+    /**
+     * Processes the connection until it is closed.
+     * Answers and notifications are passed to the callbacks from within this method.
+     */
+    public abstract void read() throws IOException;
+
+    public abstract boolean isClosed();
+
+    protected void sendRequest(IQueryRequest request) {
+        sendRequest(request, null);
+    }
+
+    /**
+     * Queues a request whose answer is awaited through the given future.
+     * The future is completed once the answer has been dispatched - the request itself is not modified.
+     * Once the future is done (cancelled or timed out) before the request has been sent, the request is dropped.
+     */
+    protected void sendRequest(IQueryRequest request, CompletableFuture<IQueryEvent.IAnswer> completion) {
+        synchronized (requestLock) {
+            String coalesceKey = coalesceKeyOf(request);
+
+            if (coalesceKey != null) {
+                QueuedRequest identical = coalescibleRequests.get(coalesceKey);
+                // Do not make the request wait longer than it would on its own.
+                if (identical != null
+                        && (identical.sent || identical.request.getPriority().compareTo(request.getPriority()) <= 0)) {
+                    identical.followers.add(new QueuedRequest(request, null, completion, nanoTime()));
+                    return;
+                }
+            }
+
+            QueuedRequest queued = new QueuedRequest(request, coalesceKey, completion, nanoTime());
+            if (coalesceKey != null) {
+                coalescibleRequests.put(coalesceKey, queued);
+            } else if (BATCH_REQUESTS && completion == null && !request.hasCallbacks()) {
+                // The server answers a chain as a whole - the result cannot be told apart per request.
+                queued.batchKey = RequestBatcher.batchKeyOf(request);
+            }
+            requestLanes.get(request.getPriority()).add(queued);
+            queuedCount++;
+        }
+        onRequestQueued();
+    }
+
+    private static String coalesceKeyOf(IQueryRequest request) {
+        if (!COALESCE_REQUESTS || !QueryCommands.isCoalescible(request.getCommand())) {
+            return null;
+        }
+        // Requests are identical if they look the same on the wire.
+        return QueryMessageWriter.buildSocketMessage(request);
+    }
+
+    /**
+     * Called after a request has been added to the queue.
+     * Transports that may sleep while requests are pending use this to wake up.
+     */
+    protected void onRequestQueued() {
+        // Nothing to do by default.
+    }
+
+    /**
+     * Called when the keep-alive request has been answered.
+     */
+    protected abstract void onKeepAliveAnswered();
+
+    /**
+     * Removes the next request from the queue and marks it as outstanding, if a request may be sent right now.
+     *
+     * @return the request to be written or {@code null} if nothing may be sent at the moment.
+     */
+    protected IQueryRequest pollNextRequest() {
+        synchronized (requestLock) {
+            dropAbandoned();
+            if (!canSend()) {
+                return null;
+            }
+
+            long now = currentTimeMillis();
+            if (now < blockedUntilMillis) {
+                return null;
+            }
+
+            long wait = rateLimiter.tryAcquire(now);
+            if (wait > 0) {
+                nextAttemptMillis = now + wait;
+                return null;
+            }
+
+            long nowNanos = nanoTime();
+            QueuedRequest next;
+            if (retryQueue.isEmpty()) {
+                next = pollByPriority(nowNanos);
+                if (next.batchKey != null) {
+                    mergeFollowing(next);
+                }
+            } else {
+                next = retryQueue.poll();
+                retryInFlight = true;
+            }
+            statistics.recordWait(nowNanos - next.queuedNanos);
+            next.sent = true;
+            inFlight.add(next);
+            return next.request;
+        }
+    }
+
+    /**
+     * Takes the head of the lane with the best priority.
+     * Every {@link #PRIORITY_AGING_MILLIS} a request has been waiting raise its priority by one.
+     * On ties, the lane of higher priority wins.
+     */
+    private QueuedRequest pollByPriority(long nowNanos) {
+        final long agingNanos = TimeUnit.MILLISECONDS.toNanos(PRIORITY_AGING_MILLIS);
+        Queue<QueuedRequest> bestLane = null;
+        long bestRank = Long.MAX_VALUE;
+
+        for (Map.Entry<QueryPriority, Queue<QueuedRequest>> lane : requestLanes.entrySet()) {
+            QueuedRequest head = lane.getValue().peek();
+            if (head == null) {
+                continue;
+            }
+
+            long rank = lane.getKey().ordinal() - (nowNanos - head.queuedNanos) / agingNanos;
+            if (rank < bestRank) {
+                bestRank = rank;
+                bestLane = lane.getValue();
+            }
+        }
+
+        if (bestLane == null) {
+            return null;
+        }
+        queuedCount--;
+        return bestLane.poll();
+    }
+
+    /**
+     * Removes abandoned requests from the heads of the queues.
+     * Requests further back are removed once they move up.
+     */
+    private void dropAbandoned() {
+        while (!retryQueue.isEmpty() && retryQueue.peek().isAbandoned()) {
+            discard(retryQueue.poll());
+        }
+        for (Queue<QueuedRequest> lane : requestLanes.values()) {
+            while (!lane.isEmpty() && lane.peek().isAbandoned()) {
+                queuedCount--;
+                discard(lane.poll());
+            }
+        }
+    }
+
+    private void discard(QueuedRequest request) {
+        if (request.coalesceKey != null) {
+            coalescibleRequests.remove(request.coalesceKey, request);
+        }
+        statistics.recordAbandoned();
+        logger.debug("Dropping abandoned request: {}", request.request.getCommand());
+    }
+
+    /**
+     * Merges the compatible requests directly following the given one in its lane into a single request.
+     * Only direct successors are merged so the order of side effects does not change.
+     */
+    private void mergeFollowing(QueuedRequest first) {
+        Queue<QueuedRequest> lane = requestLanes.get(first.request.getPriority());
+        List<IQueryRequest> batch = null;
+        int targets = RequestBatcher.targetCountOf(first.request);
+
+        QueuedRequest following;
+        while ((following = lane.peek()) != null && first.batchKey.equals(following.batchKey)) {
+            if (following.isAbandoned()) {
+                queuedCount--;
+                discard(lane.poll());
+                continue;
+            }
+
+            int followingTargets = RequestBatcher.targetCountOf(following.request);
+            if (targets + followingTargets > MAX_BATCH_TARGETS) {
+                break;
+            }
+
+            lane.poll();
+            queuedCount--;
+            targets += followingTargets;
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batch.add(first.request);
+            }
+            batch.add(following.request);
+        }
+
+        if (batch != null) {
+            first.batched = batch;
+            first.request = RequestBatcher.merge(batch);
+            statistics.recordBatch(batch.size());
+        }
+    }
+
+    /**
+     * Ordering rule for flood retries: Once a request has been rejected, nothing is sent until all requests
+     * on the wire have been answered. The rejected requests are then sent again one at a time in their original order,
+     * each only after the previous one has been answered. Pipelining resumes when no retry is left.
+     * Requests pipelined behind a rejected one that the server has already accepted are not undone -
+     * with a {@link #PIPELINE_WINDOW} of 1, the original order is always kept.
+     */
+    private boolean canSend() {
+        if (isAwaitingGreeting()) {
+            return false;
+        } else if (retryInFlight || !retryQueue.isEmpty()) {
+            return inFlight.isEmpty() && !retryQueue.isEmpty();
+        }
+        return inFlight.size() < pipelineWindow && queuedCount > 0;
+    }
+
+    private boolean isAwaitingGreeting() {
+        QueuedRequest head = inFlight.peek();
+        return head != null && GREETING_COMMAND.equals(head.request.getCommand());
+    }
+
+    /**
+     * The time in milliseconds until {@link #pollNextRequest()} may return the next queued request.
+     *
+     * @return {@code 0} if a request may be sent right away, {@code -1} if no request can be sent until an answer or a new request arrives.
+     */
+    protected long getMillisUntilNextRequest() {
+        synchronized (requestLock) {
+            dropAbandoned();
+            if (!canSend()) {
+                return -1;
+            }
+            long notBefore = Math.max(blockedUntilMillis, nextAttemptMillis);
+            return Math.max(0, notBefore - currentTimeMillis());
+        }
+    }
+
+    /**
+     * The clock used for rate limiting and flood back-off.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * The clock used for the time requests spend in the queue.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Whether or not requests have been sent and are still awaiting their answer.
+     */
+    protected boolean isAwaitingAnswer() {
+        synchronized (requestLock) {
+            return !inFlight.isEmpty();
+        }
+    }
+
+    /**
+     * The request the next answer belongs to.
+     */
+    protected IQueryRequest supplyRequest() {
+        synchronized (requestLock) {
+            QueuedRequest head = inFlight.peek();
+            return head != null ? head.request : null;
+        }
+    }
+
+    /**
+     * Statistics about the time requests spend in the queue.
+     */
+    public RequestQueueStatistics getStatistics() {
+        return statistics;
+    }
+
+    protected void onAnswer(RawQueryEvent.Message.Answer event) {
+        QueuedRequest answered;
+        List<QueuedRequest> followers;
+        List<IQueryRequest> batched;
+
+        synchronized (requestLock) {
+            answered = inFlight.poll();
+            // Retries are sent alone - this is the answer to it.
+            retryInFlight = false;
+
+            if (event.getError().getCode() != FLOOD_ERROR_ID) {
+                floodBackOffMillis = FLOOD_BACKOFF_MILLIS;
+
+            } else if (answered != null && answered.floodRetries < MAX_FLOOD_RETRIES) {
+                answered.floodRetries++;
+                retryQueue.add(answered);
+                onFloodRejected(answered);
+                // Do not dispatch - the request will be sent again.
+                return;
+
+            } else {
+                onFloodRejected(answered);
+            }
+
+            followers = answered != null ? answered.followers : List.of();
+            batched = answered != null ? answered.batched : null;
+            if (answered != null && answered.coalesceKey != null) {
+                coalescibleRequests.remove(answered.coalesceKey, answered);
+            }
+        }
+
+        if (onAnswer != null) {
+            if (batched != null) {
+                // The server reports one result for the whole chain - merged requests are not awaited.
+                batched.forEach(original -> onAnswer.apply(event, original));
+            } else {
+                complete(answered, onAnswer.apply(event, event.getRequest()));
+            }
+            followers.forEach(follower -> complete(follower, onAnswer.apply(event, follower.request)));
+        }
+    }
+
+    private static void complete(QueuedRequest request, IQueryEvent.IAnswer answer) {
+        if (request != null && request.completion != null) {
+            request.completion.complete(answer);
+        }
+    }
+
+    private void onFloodRejected(QueuedRequest request) {
+        long now = currentTimeMillis();
+        blockedUntilMillis = Math.max(blockedUntilMillis, now + floodBackOffMillis);
+        logger.warn("Request rejected due to flooding: {} - Backing off for {}ms.",
+                request != null ? request.request.getCommand() : null, floodBackOffMillis);
+
+        floodBackOffMillis = Math.min(FLOOD_BACKOFF_MAX_MILLIS, floodBackOffMillis * 2);
+        rateLimiter.onFloodRejected(now);
+        statistics.recordFloodRejection();
+    }
+
+    protected void onNotification(RawQueryEvent.Message.Notification event) {
+        if (onNotification != null) {
+            onNotification.accept(event);
+        }
+    }
+
+    protected void onGreetingStatus(Boolean fullyReceived) {
+        if (fullyReceived) {
+            synchronized (requestLock) {
+                if (isAwaitingGreeting()) {
+                    inFlight.poll();
+                } else {
+                    throw new IllegalStateException("Greeting status may only be received initially!");
+                }
+            }
+        }
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+
+    protected void closeRecorder() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close capture file.", e);
+            }
+        }
+    }
+
+    private static class QueuedRequest {
+
+        private IQueryRequest request;
+        private final String coalesceKey;
+        // Future awaiting the answer - if any.
+        private final CompletableFuture<IQueryEvent.IAnswer> completion;
+        // Key of compatible requests that may be merged with this one.
+        private String batchKey;
+        // The original requests if this one has been merged from several.
+        private List<IQueryRequest> batched;
+        private final long queuedNanos;
+        // Identical requests that receive the answer of this one.
+        private final List<QueuedRequest> followers = new LinkedList<>();
+        private boolean sent = false;
+        private int floodRetries = 0;
+
+        private QueuedRequest(IQueryRequest request, String coalesceKey, CompletableFuture<IQueryEvent.IAnswer> completion,
+                              long queuedNanos) {
+            this.request = request;
+            this.coalesceKey = coalesceKey;
+            this.completion = completion;
+            this.queuedNanos = queuedNanos;
+        }
+
+        /**
+         * Whether or not nobody is interested in the answer anymore.
+         */
+        private boolean isAbandoned() {
+            return completion != null && completion.isDone() && followers.isEmpty();
+        }
+    }
+}
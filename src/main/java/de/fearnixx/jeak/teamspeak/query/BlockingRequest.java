@@ -4,20 +4,28 @@ import de.fearnixx.jeak.event.IQueryEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for the answer of a request.
+ *
+ * @deprecated Blocks the calling thread. Use {@link IQueryConnection#sendRequestAsync(IQueryRequest, long, TimeUnit)} instead.
+ */
+@Deprecated
 public class BlockingRequest {
 
     private static final Logger logger = LoggerFactory.getLogger(BlockingRequest.class);
 
     private final IQueryRequest originalRequest;
-    private final Object monitor = new Object();
+    private final CompletableFuture<IQueryEvent.IAnswer> future = new CompletableFuture<>();
     private long maxThreshold = TimeUnit.SECONDS.toMillis(30);
-    private IQueryEvent.IAnswer answer;
 
     public BlockingRequest(IQueryRequest originalRequest) {
         this.originalRequest = originalRequest;
-        this.originalRequest.onDone(this::onAnswer);
+        this.originalRequest.onDone(future::complete);
     }
 
     public BlockingRequest(IQueryRequest originalRequest, int time, TimeUnit timeUnit) {
@@ -25,24 +33,20 @@ public class BlockingRequest {
         maxThreshold = timeUnit.toMillis(time);
     }
 
+    /**
+     * Waits until the answer has been received or the timeout is reached.
+     * Returns immediately if the answer has been received before.
+     */
     public boolean waitForCompletion() {
-        synchronized (monitor) {
-            try {
-                monitor.wait(maxThreshold);
-                return answer != null;
-            } catch (IllegalMonitorStateException e) {
-                throw new RuntimeException("Failed to await request completion!", e);
-            } catch (InterruptedException e) {
-                logger.info("Blocking request interrupted during wait.");
-                return false;
-            }
-        }
-    }
-
-    private void onAnswer(IQueryEvent.IAnswer answer) {
-        synchronized (monitor) {
-            this.answer = answer;
-            monitor.notify();
+        try {
+            future.get(maxThreshold, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            logger.info("Blocking request interrupted during wait.");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
         }
     }
 
@@ -51,8 +55,6 @@ public class BlockingRequest {
     }
 
     public IQueryEvent.IAnswer getAnswer() {
-        synchronized (monitor) {
-            return answer;
-        }
+        return future.getNow(null);
     }
 }
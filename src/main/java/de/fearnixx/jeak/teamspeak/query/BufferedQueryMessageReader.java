@@ -0,0 +1,78 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.event.query.RawQueryEvent;
+import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
+import de.fearnixx.jeak.teamspeak.query.parser.QueryParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads the input stream in large chunks and frames lines using a {@link QueryLineFramer}.
+ * Replaces the character-wise {@link QueryMessageReader}.
+ */
+public class BufferedQueryMessageReader implements AutoCloseable {
+
+    private static final Logger netLogger = LoggerFactory.getLogger("de.fearnixx.jeak.teamspeak.query.Netlog");
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final InputStream in;
+    private final QueryParser parser;
+    private final QueryLineFramer framer = new QueryLineFramer(this::onLine);
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private WireRecorder recorder;
+    private boolean closed = false;
+
+    public BufferedQueryMessageReader(InputStream in,
+                                      Consumer<RawQueryEvent.Message.Notification> onNotification,
+                                      Consumer<RawQueryEvent.Message.Answer> onAnswer,
+                                      Consumer<Boolean> onGreetingStatus,
+                                      Supplier<IQueryRequest> requestSupplier) {
+
+        this.in = in;
+        this.parser = new QueryParser(onNotification, onAnswer, onGreetingStatus, requestSupplier);
+    }
+
+    public void read() throws IOException {
+        int read;
+        while (!isClosed() && (read = in.read(chunk, 0, chunk.length)) != -1) {
+            framer.feed(chunk, 0, read);
+        }
+
+        closed = true;
+        throw new QueryClosedException("End of input stream reached.");
+    }
+
+    private void onLine(CharBuffer line) {
+        netLogger.debug("<== {}", line);
+        if (recorder != null) {
+            recorder.recordInbound(line);
+        }
+        parser.parse(line);
+    }
+
+    /**
+     * Sets the recorder received lines are captured to - {@code null} to disable capturing.
+     */
+    public void setRecorder(WireRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isClosed()) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
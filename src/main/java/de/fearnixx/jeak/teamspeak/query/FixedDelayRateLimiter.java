@@ -0,0 +1,23 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+/**
+ * Enforces a fixed gap between two requests.
+ */
+public class FixedDelayRateLimiter implements IQueryRateLimiter {
+
+    private final long delayMillis;
+    private long nextMillis = 0;
+
+    public FixedDelayRateLimiter(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        if (nowMillis < nextMillis) {
+            return nextMillis - nowMillis;
+        }
+        nextMillis = nowMillis + delayMillis;
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.Main;
+
+/**
+ * Paces the requests written to the query connection in order to stay within the flood limits of the server.
+ * Implementations are only called while holding the request queue lock.
+ */
+public interface IQueryRateLimiter {
+
+    String MODE_DELAY = "delay";
+    String MODE_BUCKET = "bucket";
+    String MODE_UNLIMITED = "unlimited";
+
+    /**
+     * Tries to take a permit for sending a request.
+     *
+     * @return {@code 0} if the permit has been taken and the request may be sent,
+     * otherwise the number of milliseconds after which a permit may become available.
+     */
+    long tryAcquire(long nowMillis);
+
+    /**
+     * Notifies the limiter that the server has rejected a request due to flooding.
+     */
+    default void onFloodRejected(long nowMillis) {
+        // Nothing to adjust by default.
+    }
+
+    /**
+     * Creates the limiter configured by the system properties.
+     * <ul>
+     *     <li>{@code bot.connection.ratelimit}: {@code delay} (default), {@code bucket} or {@code unlimited}</li>
+     *     <li>{@code bot.connection.ratelimit.commands}: commands per window for the bucket</li>
+     *     <li>{@code bot.connection.ratelimit.window}: window length in milliseconds for the bucket</li>
+     *     <li>{@code bot.connection.ratelimit.burst}: maximum number of commands sent at once by the bucket</li>
+     * </ul>
+     */
+    static IQueryRateLimiter fromProperties(long requestDelayMillis) {
+        String mode = Main.getProperty("bot.connection.ratelimit", MODE_DELAY);
+
+        switch (mode.toLowerCase()) {
+            case MODE_UNLIMITED:
+                return new UnlimitedRateLimiter();
+
+            case MODE_BUCKET:
+                // Defaults match the flood settings of a stock TeamSpeak 3 server.
+                int commands = Main.getProperty("bot.connection.ratelimit.commands", 10);
+                long window = Main.getProperty("bot.connection.ratelimit.window", 3000L);
+                int burst = Main.getProperty("bot.connection.ratelimit.burst", commands);
+                return new TokenBucketRateLimiter(commands, window, burst);
+
+            case MODE_DELAY:
+                return new FixedDelayRateLimiter(requestDelayMillis);
+
+            default:
+                throw new IllegalArgumentException("Unknown rate limit mode: " + mode);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package de.fearnixx.jeak.teamspeak.query;
 
 import de.fearnixx.jeak.IBot;
+import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.event.bot.BotStateEvent;
 import de.fearnixx.jeak.event.query.RawQueryEvent;
 import de.fearnixx.jeak.reflect.IInjectionService;
@@ -11,9 +12,12 @@ import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLEngine;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
 
 public class QueryConnectionAccessor extends AbstractQueryConnection implements Runnable {
 
@@ -29,20 +33,35 @@ public class QueryConnectionAccessor extends AbstractQueryConnection implements
     private IBot bot;
 
     private QueryEventDispatcher dispatcher;
-    private TS3Connection connection;
+    private AbstractTS3Connection connection;
 
-    private boolean terminated = false;
+    private volatile boolean terminated = false;
 
     public void initialize(InputStream in, OutputStream out) {
-        if (connection != null) {
-            throw new IllegalStateException("Cannot re-run already used connection!");
-        }
-
+        ensureUnused();
         dispatcher = injectionService.injectInto(new QueryEventDispatcher());
         connection = new TS3Connection(in, out, this::onAnswer, this::onNotification);
         injectionService.injectInto(connection);
     }
 
+    /**
+     * Initializes this accessor with the non-blocking transport.
+     *
+     * @param sslEngine client-mode engine for SSL connections or {@code null} for plain TCP
+     */
+    public void initialize(SocketChannel channel, SSLEngine sslEngine) throws IOException {
+        ensureUnused();
+        dispatcher = injectionService.injectInto(new QueryEventDispatcher());
+        connection = new TS3NioConnection(channel, sslEngine, this::onAnswer, this::onNotification);
+        injectionService.injectInto(connection);
+    }
+
+    private void ensureUnused() {
+        if (connection != null) {
+            throw new IllegalStateException("Cannot re-run already used connection!");
+        }
+    }
+
     @Override
     public void run() {
         sendRequest(whoAmIRequest);
@@ -57,8 +76,8 @@ public class QueryConnectionAccessor extends AbstractQueryConnection implements
         }
     }
 
-    private void read(TS3Connection connection) {
-        while (!terminated) {
+    private void read(AbstractTS3Connection connection) {
+        while (!terminated && !connection.isClosed()) {
             try {
                 connection.read();
             } catch (IOException e) {
@@ -71,13 +90,17 @@ public class QueryConnectionAccessor extends AbstractQueryConnection implements
             } catch (ConsistencyViolationException e) {
                 reportConsistencyViolation(e);
 
+            } catch (QueryClosedException e) {
+                throw e;
+
             } catch (Exception e) {
                 logger.error("Fatal error occurred while reading the connection!", e);
             }
         }
 
         logger.info("Disconnected.");
-        BotStateEvent.ConnectEvent.Disconnect disconnectEvent = new BotStateEvent.ConnectEvent.Disconnect(true);
+        logger.debug("Request queue: {}", connection.getStatistics());
+        BotStateEvent.ConnectEvent.Disconnect disconnectEvent = new BotStateEvent.ConnectEvent.Disconnect(terminated);
         disconnectEvent.setBot(bot);
         eventService.fireEvent(disconnectEvent);
     }
@@ -86,9 +109,9 @@ public class QueryConnectionAccessor extends AbstractQueryConnection implements
         logger.warn("Consistency violation reported.", e);
     }
 
-    private void onAnswer(RawQueryEvent.Message.Answer event) {
+    private IQueryEvent.IAnswer onAnswer(RawQueryEvent.Message.Answer event, IQueryRequest request) {
         event.setConnection(this);
-        dispatcher.dispatchAnswer(event);
+        return dispatcher.dispatchAnswer(event, request);
     }
 
     private void onNotification(RawQueryEvent.Message.Notification event) {
@@ -101,6 +124,20 @@ public class QueryConnectionAccessor extends AbstractQueryConnection implements
         connection.sendRequest(request);
     }
 
+    @Override
+    public CompletableFuture<IQueryEvent.IAnswer> sendRequestAsync(IQueryRequest request) {
+        CompletableFuture<IQueryEvent.IAnswer> future = new CompletableFuture<>();
+        connection.sendRequest(request, future);
+        return future;
+    }
+
+    /**
+     * Statistics about the time requests spend in the queue before being sent.
+     */
+    public RequestQueueStatistics getRequestStatistics() {
+        return connection.getStatistics();
+    }
+
     public void shutdown() {
         try {
             terminated = true;
@@ -1,7 +1,14 @@
 package de.fearnixx.jeak.teamspeak.query;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 /**
  * Created by MarkL4YG on 31.05.17.
+ *
+ * Escaping of keys and values for the query connection.
+ * All methods work in a single pass using lookup tables and write into buffers supplied by the caller.
  */
 public class QueryEncoder {
     public static final char ESCAPE_CHAR = '\\';
@@ -33,43 +40,220 @@ public class QueryEncoder {
             "\\v"
     };
 
+    private static final int TABLE_SIZE = 128;
+    private static final char NONE = '\0';
+
+    // Critical ASCII character -> second character of the escape sequence.
+    private static final char[] ENCODE_TABLE = new char[TABLE_SIZE];
+    // Second character of the escape sequence -> critical character.
+    private static final char[] DECODE_TABLE = new char[TABLE_SIZE];
+
+    // The only critical character outside of ASCII.
+    private static final char WIDE_CRIT_CHAR;
+    private static final char WIDE_ESCAPE;
+
+    private static final ThreadLocal<StringBuilder> STRING_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    static {
+        char wideCrit = NONE;
+        char wideEscape = NONE;
+        for (int i = 0; i < critChars.length; i++) {
+            char crit = critChars[i];
+            char escape = escapeSeqs[i].charAt(1);
+            if (crit < TABLE_SIZE) {
+                ENCODE_TABLE[crit] = escape;
+            } else {
+                wideCrit = crit;
+                wideEscape = escape;
+            }
+            DECODE_TABLE[escape] = crit;
+        }
+        WIDE_CRIT_CHAR = wideCrit;
+        WIDE_ESCAPE = wideEscape;
+    }
+
     /**
-     * Encode an ASCII String for the query connection
-     * @param upTo only work on partial buffer - exclusive last index
-     * @return A new buffer with critical characters replaced
+     * Returns the second character of the escape sequence for the given character.
+     * @return the escape or {@code '\0'} if the character does not need escaping
      */
-    public static char[] encodeBuffer(char[] origin, int upTo) {
-        // Evaluate the new size first
-        int pos;
-        int innerPos;
-        int replaced = 0;
-        for (pos = 0; pos < upTo; pos++) {
-            for (innerPos = 0; innerPos < critChars.length; innerPos++)
-                if (origin[pos] == critChars[innerPos]) {
-                    // Add an additional character
-                    replaced++;
+    private static char escapeOf(char c) {
+        if (c < TABLE_SIZE) {
+            return ENCODE_TABLE[c];
+        }
+        return c == WIDE_CRIT_CHAR ? WIDE_ESCAPE : NONE;
+    }
+
+    /**
+     * Returns the unescaped character for the second character of an escape sequence.
+     * @return the character or {@code '\0'} if the sequence is unknown
+     */
+    private static char unescapeOf(char c) {
+        return c < TABLE_SIZE ? DECODE_TABLE[c] : NONE;
+    }
+
+    /**
+     * The length of the sequence after encoding.
+     */
+    public static int encodedLength(CharSequence origin) {
+        final int len = origin.length();
+        int encodedLen = len;
+        for (int i = 0; i < len; i++) {
+            if (escapeOf(origin.charAt(i)) != NONE) {
+                encodedLen++;
+            }
+        }
+        return encodedLen;
+    }
+
+    /**
+     * Encodes the sequence and appends it to the builder.
+     */
+    public static StringBuilder encode(CharSequence origin, StringBuilder dest) {
+        final int len = origin.length();
+        for (int i = 0; i < len; i++) {
+            char c = origin.charAt(i);
+            char escape = escapeOf(c);
+            if (escape == NONE) {
+                dest.append(c);
+            } else {
+                dest.append(ESCAPE_CHAR).append(escape);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Encodes the sequence and puts it into the buffer.
+     * @throws BufferOverflowException if the remaining space is insufficient - use {@link #encodedLength(CharSequence)} to check beforehand
+     */
+    public static CharBuffer encode(CharSequence origin, CharBuffer dest) {
+        final int len = origin.length();
+        for (int i = 0; i < len; i++) {
+            char c = origin.charAt(i);
+            char escape = escapeOf(c);
+            if (escape == NONE) {
+                dest.put(c);
+            } else {
+                dest.put(ESCAPE_CHAR).put(escape);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Encodes the sequence and puts it into the buffer as UTF-8.
+     * Unpaired surrogates are replaced by {@code '?'}.
+     * @throws BufferOverflowException if the remaining space is insufficient
+     */
+    public static ByteBuffer encode(CharSequence origin, ByteBuffer dest) {
+        return putUtf8(origin, dest, true);
+    }
+
+    /**
+     * Puts the sequence into the buffer as UTF-8 <strong>without</strong> escaping it.
+     * @throws BufferOverflowException if the remaining space is insufficient
+     */
+    public static ByteBuffer putUtf8(CharSequence origin, ByteBuffer dest) {
+        return putUtf8(origin, dest, false);
+    }
+
+    private static ByteBuffer putUtf8(CharSequence origin, ByteBuffer dest, boolean escape) {
+        final int len = origin.length();
+        for (int i = 0; i < len; i++) {
+            char c = origin.charAt(i);
+            char escaped = escape ? escapeOf(c) : NONE;
+
+            if (escaped != NONE) {
+                dest.put((byte) ESCAPE_CHAR).put((byte) escaped);
+            } else if (c < 0x80) {
+                dest.put((byte) c);
+            } else if (c < 0x800) {
+                dest.put((byte) (0xC0 | (c >> 6)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            } else if (!Character.isSurrogate(c)) {
+                dest.put((byte) (0xE0 | (c >> 12)))
+                        .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(origin.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, origin.charAt(++i));
+                dest.put((byte) (0xF0 | (codePoint >> 18)))
+                        .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                dest.put((byte) '?');
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Encodes the sequence using a thread-local buffer.
+     */
+    public static String encode(CharSequence origin) {
+        StringBuilder builder = STRING_BUFFER.get();
+        builder.setLength(0);
+        return encode(origin, builder).toString();
+    }
+
+    /**
+     * Decodes a partial buffer into the destination.
+     * The destination may be the source array as long as {@code destOffset <= offset} since decoding never grows the content.
+     * Unknown escape sequences are kept as they are.
+     * @return the number of characters written to the destination
+     */
+    public static int decode(char[] origin, int offset, int length, char[] dest, int destOffset) {
+        final int end = offset + length;
+        int pos = offset;
+        int destPos = destOffset;
+
+        while (pos < end) {
+            char c = origin[pos++];
+            if (c == ESCAPE_CHAR && pos < end) {
+                char unescaped = unescapeOf(origin[pos]);
+                if (unescaped != NONE) {
+                    c = unescaped;
+                    pos++;
                 }
+            }
+            dest[destPos++] = c;
         }
-        char[] dest = new char[upTo + replaced];
-
-        replaced = 0;
-        int destPos;
-        outer: for (pos = 0; pos < upTo; pos++) {
-            destPos = pos + replaced;
-            for (innerPos = 0; innerPos < critChars.length; innerPos++) {
-                if (origin[pos] == critChars[innerPos]) {
-                    // Replace critical character
-                    dest[destPos] = escapeSeqs[innerPos].charAt(0);
-                    dest[destPos+1] = escapeSeqs[innerPos].charAt(1);
-                    replaced++;
-                    continue outer;
+        return destPos - destOffset;
+    }
+
+    /**
+     * Decodes a partial buffer and appends the result to the builder.
+     */
+    public static StringBuilder decode(char[] origin, int offset, int length, StringBuilder dest) {
+        final int end = offset + length;
+        int pos = offset;
+
+        while (pos < end) {
+            char c = origin[pos++];
+            if (c == ESCAPE_CHAR && pos < end) {
+                char unescaped = unescapeOf(origin[pos]);
+                if (unescaped != NONE) {
+                    c = unescaped;
+                    pos++;
                 }
             }
-            dest[destPos] = origin[pos];
+            dest.append(c);
         }
         return dest;
     }
 
+    /**
+     * Encode an ASCII String for the query connection
+     * @param upTo only work on partial buffer - exclusive last index
+     * @return A new buffer with critical characters replaced
+     */
+    public static char[] encodeBuffer(char[] origin, int upTo) {
+        CharBuffer source = CharBuffer.wrap(origin, 0, upTo);
+        char[] dest = new char[encodedLength(source)];
+        encode(source, CharBuffer.wrap(dest));
+        return dest;
+    }
+
 
     public static char[] encodeBuffer(char[] origin) {
         return encodeBuffer(origin, origin.length);
@@ -81,33 +265,14 @@ public class QueryEncoder {
      * @return A new buffer with escape characters replaced
      */
     public static char[] decodeBuffer(char[] origin, int upTo) {
-        // Evaluate the new size first
-        int pos;
-        int innerPos;
-        int size = upTo;
-        for (pos = upTo-1; pos >= 0; pos--) {
-            for (innerPos = 0; innerPos < escapeSeqs.length; innerPos++)
-                if (origin[pos] == escapeSeqs[innerPos].charAt(0) && origin[pos+1] == escapeSeqs[innerPos].charAt(1))
-                    // Subtract a character
-                    size--;
-        }
-        char[] dest = new char[size];
-        int replacements = 0;
-        int origPos;
-        outer: for (pos = 0; pos < dest.length; pos++) {
-            // Each replacement causes the lengths to be 1 char off since we replace 2 chars with 1
-            origPos = pos + replacements;
-            for (innerPos = 0; innerPos < escapeSeqs.length; innerPos++)
-                if (origin[origPos] == escapeSeqs[innerPos].charAt(0) && origin[origPos + 1] == escapeSeqs[innerPos].charAt(1)) {
-                    // Replace escape characters
-                    dest[pos] = critChars[innerPos];
-                    replacements++;
-                    // Abort normal copy
-                    continue outer;
-                }
-            dest[pos] = origin[origPos];
+        char[] dest = new char[upTo];
+        int length = decode(origin, 0, upTo, dest, 0);
+        if (length == upTo) {
+            return dest;
         }
-        return dest;
+        char[] trimmed = new char[length];
+        System.arraycopy(dest, 0, trimmed, 0, length);
+        return trimmed;
     }
 
     public static char[] decodeBuffer(char[] origin) {
@@ -56,6 +56,10 @@ public class QueryEventDispatcher {
                 notification = new QueryEvent.ClientMoved();
                 break;
 
+            case EventCaptions.CLIENT_UPDATED:
+                notification = new QueryEvent.ClientUpdated();
+                break;
+
             case EventCaptions.CHANNEL_CREATED:
                 notification = new QueryEvent.ChannelCreate();
                 break;
@@ -174,8 +178,16 @@ public class QueryEventDispatcher {
     }
 
     public void dispatchAnswer(IRawQueryEvent.IMessage.IAnswer event) {
-        IQueryRequest request = event.getRequest();
+        dispatchAnswer(event, event.getRequest());
+    }
 
+    /**
+     * Dispatches the answer for a specific request.
+     * When requests have been coalesced, the same answer is dispatched for each one of them.
+     *
+     * @return the answer that has been passed to the callbacks and listeners
+     */
+    public QueryEvent.Answer dispatchAnswer(IRawQueryEvent.IMessage.IAnswer event, IQueryRequest request) {
         QueryEvent.Answer answer = new QueryEvent.Answer();
         answer.setConnection(event.getConnection());
         answer.setRequest(request);
@@ -190,6 +202,7 @@ public class QueryEventDispatcher {
 
         // Fire the processed event
         eventService.fireEvent(answer);
+        return answer;
     }
 
     private void invokeCallbacks(IRawQueryEvent.IMessage.IAnswer event, IQueryRequest request, QueryEvent.Answer answer) {
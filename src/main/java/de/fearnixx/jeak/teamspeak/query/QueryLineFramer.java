@@ -0,0 +1,143 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Splits the raw byte stream of the query into lines.
+ * Line boundaries are searched for directly in the received bytes.
+ * Completed lines are decoded (UTF-8) into a re-used {@link CharBuffer} which is handed to the consumer.
+ *
+ * @implNote The buffer passed to the consumer is only valid during the invocation and will be overwritten afterwards!
+ */
+public class QueryLineFramer {
+
+    private static final int INITIAL_LINE_SIZE = 4096;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final Consumer<CharBuffer> lineConsumer;
+
+    // Partial line that has not been terminated within the last chunk.
+    private byte[] pending = new byte[INITIAL_LINE_SIZE];
+    private int pendingLength = 0;
+
+    private char[] lineChars = new char[INITIAL_LINE_SIZE];
+    private CharBuffer lineBuffer = CharBuffer.wrap(lineChars);
+
+    public QueryLineFramer(Consumer<CharBuffer> lineConsumer) {
+        this.lineConsumer = lineConsumer;
+    }
+
+    /**
+     * Consumes the remaining bytes of the buffer.
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] chunk = new byte[buffer.remaining()];
+            buffer.get(chunk);
+            feed(chunk, 0, chunk.length);
+        }
+    }
+
+    public void feed(byte[] data, int offset, int length) {
+        final int end = offset + length;
+        int lineStart = offset;
+
+        for (int pos = offset; pos < end; pos++) {
+            if (data[pos] != '\n') {
+                continue;
+            }
+
+            if (pendingLength == 0) {
+                // Line is contained in the chunk - no need to copy.
+                decode(data, lineStart, pos - lineStart);
+            } else {
+                appendPending(data, lineStart, pos - lineStart);
+                decode(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            lineConsumer.accept(lineBuffer);
+            lineStart = pos + 1;
+        }
+
+        if (lineStart < end) {
+            appendPending(data, lineStart, end - lineStart);
+        }
+    }
+
+    private void appendPending(byte[] data, int offset, int length) {
+        if (pendingLength + length > pending.length) {
+            byte[] larger = new byte[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, larger, 0, pendingLength);
+            pending = larger;
+        }
+        System.arraycopy(data, offset, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * Decodes UTF-8 into {@link #lineChars}.
+     * CR and NUL characters are dropped as UNIX-style LF is used.
+     */
+    private void decode(byte[] src, int offset, int length) {
+        // UTF-8 never produces more chars than bytes.
+        if (lineChars.length < length) {
+            lineChars = new char[Math.max(lineChars.length * 2, length)];
+            lineBuffer = CharBuffer.wrap(lineChars);
+        }
+
+        final char[] dst = lineChars;
+        final int end = offset + length;
+        int pos = offset;
+        int len = 0;
+
+        while (pos < end) {
+            int b = src[pos++];
+
+            if (b >= 0) {
+                if (b != '\r' && b != 0) {
+                    dst[len++] = (char) b;
+                }
+                continue;
+            }
+
+            int codePoint;
+            int extra;
+            if ((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                extra = 1;
+            } else if ((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                extra = 2;
+            } else if ((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                extra = 3;
+            } else {
+                dst[len++] = REPLACEMENT;
+                continue;
+            }
+
+            int i = 0;
+            while (i < extra && pos < end && (src[pos] & 0xC0) == 0x80) {
+                codePoint = (codePoint << 6) | (src[pos++] & 0x3F);
+                i++;
+            }
+
+            if (i < extra) {
+                dst[len++] = REPLACEMENT;
+            } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                dst[len++] = Character.highSurrogate(codePoint);
+                dst[len++] = Character.lowSurrogate(codePoint);
+            } else {
+                dst[len++] = (char) codePoint;
+            }
+        }
+
+        lineBuffer.clear();
+        lineBuffer.limit(len);
+    }
+}
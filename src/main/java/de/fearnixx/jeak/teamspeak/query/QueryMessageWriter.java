@@ -6,29 +6,41 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Encodes requests as UTF-8 directly into a re-used buffer.
+ * With auto-flush disabled, multiple messages are collected and written to the stream at once by {@link #flush()}.
+ */
 public class QueryMessageWriter implements AutoCloseable {
 
     private static final Logger netLogger = LoggerFactory.getLogger("de.fearnixx.jeak.teamspeak.query.Netlog");
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final byte LF = '\n';
 
     private boolean autoFlush = true;
-    private final OutputStreamWriter writer;
+    private final OutputStream outputStream;
+    // Heap buffer as the stream needs an array anyway.
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private WireRecorder recorder;
     private boolean closed = false;
 
     public QueryMessageWriter(OutputStream outputStream) {
-        writer = new OutputStreamWriter(outputStream, Charset.forName("UTF-8"));
+        this.outputStream = outputStream;
     }
 
     public void writeMessage(IQueryRequest request) throws IOException {
-        String message = buildSocketMessage(request);
-        netLogger.debug("==> {}", message);
-        writer.write(message);
-        writer.write("\n");
+        int start = buffer.position();
+        buffer = appendSocketMessage(request, buffer);
+        if (recorder != null) {
+            // Without the line feed.
+            recorder.recordOutbound(buffer, start, buffer.position() - 1);
+        }
 
         if (autoFlush) {
             flush();
@@ -36,13 +48,105 @@ public class QueryMessageWriter implements AutoCloseable {
     }
 
     public void flush() throws IOException {
-        writer.flush();
+        if (buffer.position() > 0) {
+            outputStream.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+            buffer.clear();
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Appends the message for the request, terminated by a line feed, to the buffer.
+     * If the buffer is too small, the content is moved to a larger one of the same kind (heap/direct).
+     *
+     * @return the buffer containing the message - may be a new instance
+     */
+    static ByteBuffer appendSocketMessage(IQueryRequest request, ByteBuffer buffer) {
+        final int start = buffer.position();
+        while (true) {
+            try {
+                putSocketMessage(request, buffer);
+                buffer.put(LF);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer.position(start);
+                buffer = grow(buffer);
+            }
+        }
+
+        if (netLogger.isDebugEnabled()) {
+            ByteBuffer message = buffer.duplicate();
+            message.position(start).limit(buffer.position() - 1);
+            netLogger.debug("==> {}", StandardCharsets.UTF_8.decode(message));
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        int capacity = buffer.capacity() * 2;
+        ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Encodes the message for the request into the buffer.
+     * Produces the same output as {@link #buildSocketMessage(IQueryRequest)}.
+     *
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    static void putSocketMessage(IQueryRequest request, ByteBuffer buffer) {
+        final int start = buffer.position();
+
+        // Append: Command
+        if (request.getCommand().length() > 0) {
+            QueryEncoder.putUtf8(request.getCommand(), buffer).put((byte) ' ');
+        }
+
+        // Append: Objects
+        // (Chain of `key=val key2=val2...` separated by '|')
+        List<IDataHolder> dataChain = request.getDataChain();
+        final int chainLength = dataChain.size();
+
+        for (int i = 0; i < chainLength; i++) {
+            Map<String, String> properties = dataChain.get(i).getValues();
+
+            // Iterating synchronized maps requires holding their lock.
+            synchronized (properties) {
+                // Skip empty chain elements
+                if (properties.isEmpty()) {
+                    continue;
+                } else if (i > 0) {
+                    buffer.put((byte) '|');
+                }
+
+                boolean first = true;
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    if (!first) {
+                        buffer.put((byte) ' ');
+                    }
+                    first = false;
+
+                    QueryEncoder.encode(property.getKey(), buffer).put((byte) '=');
+                    QueryEncoder.encode(property.getValue(), buffer);
+                }
+            }
+        }
+
+        // Append: Options
+        for (String option : request.getOptions()) {
+            if (buffer.position() > start) {
+                buffer.put((byte) ' ');
+            }
+            QueryEncoder.putUtf8(option, buffer);
+        }
     }
 
     /**
      * Builds the message for the TS3 query from a request.
      */
-    private String buildSocketMessage(IQueryRequest request) {
+    static String buildSocketMessage(IQueryRequest request) {
         StringBuilder sockMessage = new StringBuilder();
 
         // Append: Command
@@ -54,7 +158,6 @@ public class QueryMessageWriter implements AutoCloseable {
         // (Chain of `key=val key2=val2...` separated by '|')
         List<IDataHolder> dataChain = request.getDataChain();
         final int chainLength = dataChain.size();
-        final int chainLastIndex = chainLength - 1;
 
         for (int i = 0; i < chainLength; i++) {
             // Copy the mapping in order to avoid concurrent modification
@@ -69,21 +172,8 @@ public class QueryMessageWriter implements AutoCloseable {
             }
 
             for (int j = 0; j < keys.length; j++) {
-                String propKey = keys[j];
-                int keyLen = propKey.length();
-                char[] propKeyParts = new char[keyLen];
-                propKey.getChars(0, keyLen, propKeyParts, 0);
-
-                String propValue = properties.get(keys[j]);
-                int valLen = propValue.length();
-                char[] propValParts = new char[valLen];
-                propValue.getChars(0, valLen, propValParts, 0);
-
-                char[] encodedKeyParts = QueryEncoder.encodeBuffer(propKeyParts);
-                char[] encodedValParts = QueryEncoder.encodeBuffer(propValParts);
-                sockMessage.append(encodedKeyParts)
-                        .append('=')
-                        .append(encodedValParts);
+                QueryEncoder.encode(keys[j], sockMessage).append('=');
+                QueryEncoder.encode(properties.get(keys[j]), sockMessage);
 
                 if (j < keys.length-1) {
                     sockMessage.append(' ');
@@ -101,6 +191,13 @@ public class QueryMessageWriter implements AutoCloseable {
         return sockMessage.toString();
     }
 
+    /**
+     * Sets the recorder sent lines are captured to - {@code null} to disable capturing.
+     */
+    public void setRecorder(WireRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     public boolean isAutoFlush() {
         return autoFlush;
     }
@@ -113,7 +210,7 @@ public class QueryMessageWriter implements AutoCloseable {
     public void close() throws IOException {
         if (!isClosed()) {
             closed = true;
-            writer.close();
+            outputStream.close();
         }
     }
 
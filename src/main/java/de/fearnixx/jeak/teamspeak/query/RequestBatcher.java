@@ -0,0 +1,121 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges requests for commands that accept multiple targets into a single chained request.
+ * Requests are compatible when they have the same command, options and priority and
+ * all properties except for the target key are equal.
+ * Only requests nobody awaits an answer for are merged, see {@link IQueryRequest#hasCallbacks()}.
+ *
+ * @see QueryCommands#BATCHABLE
+ */
+class RequestBatcher {
+
+    private RequestBatcher() {
+    }
+
+    /**
+     * Key under which compatible requests are grouped.
+     *
+     * @return the key or {@code null} if the request cannot be merged with others
+     */
+    static String batchKeyOf(IQueryRequest request) {
+        String targetKey = QueryCommands.getBatchTargetKey(request.getCommand());
+        if (targetKey == null) {
+            return null;
+        }
+
+        Map<String, String> shared = sharedPropertiesOf(request, targetKey);
+        if (shared == null) {
+            return null;
+        }
+        return request.getCommand().toLowerCase() + ' ' + request.getPriority() + ' ' + shared + ' ' + request.getOptions();
+    }
+
+    /**
+     * Collects the properties of all chain elements except for the target.
+     *
+     * @return the properties or {@code null} if an element has no target or values differ between elements
+     */
+    private static Map<String, String> sharedPropertiesOf(IQueryRequest request, String targetKey) {
+        Map<String, String> shared = new TreeMap<>();
+        int targets = 0;
+        for (IDataHolder element : request.getDataChain()) {
+            Map<String, String> properties = element.getValues();
+            synchronized (properties) {
+                if (properties.isEmpty()) {
+                    continue;
+                } else if (!properties.containsKey(targetKey)) {
+                    return null;
+                }
+                targets++;
+
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    if (targetKey.equals(property.getKey())) {
+                        continue;
+                    }
+                    String previous = shared.putIfAbsent(property.getKey(), property.getValue());
+                    if (previous != null && !previous.equals(property.getValue())) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return targets > 0 ? shared : null;
+    }
+
+    /**
+     * Number of targets in the chain of the request.
+     */
+    static int targetCountOf(IQueryRequest request) {
+        int targets = 0;
+        for (IDataHolder element : request.getDataChain()) {
+            if (!element.getValues().isEmpty()) {
+                targets++;
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Builds a single request containing the targets of all given requests.
+     * The properties shared by all targets are added to the first chain element.
+     * Requests must have the same batch key.
+     */
+    static IQueryRequest merge(List<IQueryRequest> requests) {
+        IQueryRequest first = requests.get(0);
+        String targetKey = QueryCommands.getBatchTargetKey(first.getCommand());
+        Map<String, String> shared = sharedPropertiesOf(first, targetKey);
+
+        QueryBuilder builder = IQueryRequest.builder()
+                .command(first.getCommand())
+                .priority(first.getPriority());
+        first.getOptions().forEach(builder::addOption);
+
+        boolean firstTarget = true;
+        for (IQueryRequest request : requests) {
+            for (IDataHolder element : request.getDataChain()) {
+                String target = element.getProperty(targetKey).orElse(null);
+                if (target == null) {
+                    continue;
+                }
+
+                if (firstTarget) {
+                    builder.addKey(targetKey, target);
+                    shared.forEach(builder::addKey);
+                    firstTarget = false;
+                } else {
+                    builder.commitChainElement();
+                    builder.addKey(targetKey, target);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
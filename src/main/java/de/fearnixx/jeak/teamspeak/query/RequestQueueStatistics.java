@@ -0,0 +1,124 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long requests have been waiting in the queue before being written to the connection.
+ */
+public class RequestQueueStatistics {
+
+    private final Object lock = new Object();
+
+    private long count;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long lastWaitNanos;
+    private long floodRejections;
+    private long abandoned;
+    private long batches;
+    private long batchedRequests;
+
+    void recordWait(long waitNanos) {
+        synchronized (lock) {
+            count++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            lastWaitNanos = waitNanos;
+        }
+    }
+
+    void recordFloodRejection() {
+        synchronized (lock) {
+            floodRejections++;
+        }
+    }
+
+    void recordAbandoned() {
+        synchronized (lock) {
+            abandoned++;
+        }
+    }
+
+    void recordBatch(int requests) {
+        synchronized (lock) {
+            batches++;
+            batchedRequests += requests;
+        }
+    }
+
+    /**
+     * Number of requests written to the connection.
+     */
+    public long getCount() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    public long getAverageWaitMillis() {
+        synchronized (lock) {
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / count) : 0;
+        }
+    }
+
+    public long getMaxWaitMillis() {
+        synchronized (lock) {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+    }
+
+    public long getLastWaitMillis() {
+        synchronized (lock) {
+            return TimeUnit.NANOSECONDS.toMillis(lastWaitNanos);
+        }
+    }
+
+    /**
+     * Number of requests the server rejected due to flooding.
+     */
+    public long getFloodRejections() {
+        synchronized (lock) {
+            return floodRejections;
+        }
+    }
+
+    /**
+     * Number of requests dropped from the queue as their future has been cancelled or timed out.
+     */
+    public long getAbandoned() {
+        synchronized (lock) {
+            return abandoned;
+        }
+    }
+
+    /**
+     * Number of chained requests that have been merged from multiple requests.
+     */
+    public long getBatches() {
+        synchronized (lock) {
+            return batches;
+        }
+    }
+
+    /**
+     * Number of requests that have been sent as part of a merged request.
+     */
+    public long getBatchedRequests() {
+        synchronized (lock) {
+            return batchedRequests;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "RequestQueueStatistics{count=" + count
+                    + ", avgWaitMillis=" + (count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / count) : 0)
+                    + ", maxWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)
+                    + ", floodRejections=" + floodRejections
+                    + ", abandoned=" + abandoned
+                    + ", batches=" + batches
+                    + ", batchedRequests=" + batchedRequests + '}';
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package de.fearnixx.jeak.teamspeak.query;
 
-import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.event.IQueryEvent;
 import de.fearnixx.jeak.event.query.RawQueryEvent;
-import de.fearnixx.jeak.teamspeak.QueryCommands;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,140 +9,172 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
-public class TS3Connection implements AutoCloseable {
-
-    public static final int SOCKET_TIMEOUT_MILLIS = Main.getProperty("bot.connection.sotimeout", 500);
-    public static final int KEEP_ALIVE_SECS = Main.getProperty("bot.connection.keepalive", 240);
-    public static final int KEEP_ALIVE_MILLIS = KEEP_ALIVE_SECS * 1000;
-    public static final int MAX_FAILING_KEEP_ALIVE = Main.getProperty("bot.connection.max_keepalive", 1);
-    public static final float REQ_DELAY_SOT_FACTOR = Main.getProperty("bot.connection.reqdelay", 0.25f);
-    public static final int REQUEST_DELAY_MILLIS = (int) Math.ceil(SOCKET_TIMEOUT_MILLIS * REQ_DELAY_SOT_FACTOR);
+/**
+ * Blocking stream transport.
+ * Requests are written by a separate writer thread that waits on the request lock until a request may be sent.
+ * The socket timeout ({@link #SOCKET_TIMEOUT_MILLIS}) is only used for the keep-alive.
+ */
+public class TS3Connection extends AbstractTS3Connection {
 
     private static final Logger logger = LoggerFactory.getLogger(TS3Connection.class);
 
-    private final QueryMessageReader messageReader;
+    private final BufferedQueryMessageReader messageReader;
     private final QueryMessageWriter messageWriter;
 
-    private final Consumer<RawQueryEvent.Message.Answer> onAnswer;
-    private final Consumer<RawQueryEvent.Message.Notification> onNotification;
-
-    private IQueryRequest currentRequest = IQueryRequest.builder().command("dummy").build();
-    private final Queue<IQueryRequest> requestQueue = new LinkedList<>();
-
-    private int requestDelayMillis = 0;
     private int timeoutCount = 0;
     private int keepAliveCount = 0;
-    private final IQueryRequest keepAliveRequest =
-            IQueryRequest.builder()
-                    .command(QueryCommands.SERVER.VERSION)
-                    .onDone(event -> {
-                        synchronized (requestQueue) {
-                            timeoutCount = 0;
-                            keepAliveCount = 0;
-                        }
-                    })
-                    .build();
-
-    public TS3Connection(InputStream in, OutputStream out, Consumer<RawQueryEvent.Message.Answer> onAnswer, Consumer<RawQueryEvent.Message.Notification> onNotification) {
-        messageReader = new QueryMessageReader(in, this::onNotification, this::onAnswer, this::onGreetingStatus, this::supplyRequest);
+    private Thread writerThread;
+
+    public TS3Connection(InputStream in, OutputStream out, BiFunction<RawQueryEvent.Message.Answer, IQueryRequest, IQueryEvent.IAnswer> onAnswer, Consumer<RawQueryEvent.Message.Notification> onNotification) {
+        super(onAnswer, onNotification);
+        messageReader = new BufferedQueryMessageReader(in, this::onNotification, this::onAnswer, this::onGreetingStatus, this::supplyRequest);
         messageWriter = new QueryMessageWriter(out);
-        this.onAnswer = onAnswer;
-        this.onNotification = onNotification;
+        messageWriter.setAutoFlush(false);
+        messageReader.setRecorder(recorder);
+        messageWriter.setRecorder(recorder);
     }
 
+    @Override
     public void read() throws IOException {
-        while (!messageReader.isClosed()) {
-            try {
-                nextRequest();
-                messageReader.read();
-            } catch (SocketTimeoutException timeout) {
-                handleTimeout();
-            }
-        }
-    }
-
-    private void nextRequest() throws IOException {
-        synchronized (requestQueue) {
-            if (currentRequest == null && requestQueue.peek() != null && requestDelayMillis <= 0) {
-                requestDelayMillis = REQUEST_DELAY_MILLIS;
-                currentRequest = requestQueue.poll();
-                messageWriter.writeMessage(currentRequest);
+        writerThread = new Thread(this::writeRequests, Thread.currentThread().getName() + "-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        try {
+            while (!messageReader.isClosed()) {
+                try {
+                    messageReader.read();
+                } catch (SocketTimeoutException timeout) {
+                    handleTimeout();
+                }
             }
+        } finally {
+            writerThread.interrupt();
         }
     }
 
-    private void handleTimeout() throws IOException {
-        synchronized (requestQueue) {
-            if (requestDelayMillis > 0) {
-                requestDelayMillis = requestDelayMillis - SOCKET_TIMEOUT_MILLIS;
+    /**
+     * Writes requests as soon as they may be sent.
+     * Sleeps until the next permit of the rate limiter is due or until woken up by a new request or answer.
+     * The request lock is only held to take the requests - writing may block until the server reads,
+     * which it may only do once the reader has processed its answers.
+     */
+    private void writeRequests() {
+        try {
+            while (!isClosed()) {
+                List<IQueryRequest> requests;
+                synchronized (requestLock) {
+                    long wait = getMillisUntilNextRequest();
+                    if (wait != 0) {
+                        // 0 waits until notified.
+                        requestLock.wait(Math.max(0, wait));
+                        continue;
+                    }
+                    requests = pollReadyRequests();
+                }
+                write(requests);
             }
-
-            int timeoutTime = ++timeoutCount * SOCKET_TIMEOUT_MILLIS;
-            if (timeoutTime >= KEEP_ALIVE_MILLIS) {
-                if (keepAliveCount++ > MAX_FAILING_KEEP_ALIVE) {
-                    logger.error("Connection lost - Read timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (!isClosed()) {
+                logger.error("Failed to write requests - Closing connection.", e);
+                try {
                     close();
-
-                } else if (currentRequest == null){
-                    logger.debug("Sending keepalive");
-                    keepAliveCount = 0;
-                    requestQueue.add(keepAliveRequest);
+                } catch (IOException closeException) {
+                    logger.warn("Error while closing connection.", closeException);
                 }
             }
         }
-
     }
 
-    protected void sendRequest(IQueryRequest request) {
-        synchronized (requestQueue) {
-            requestQueue.add(request);
+    private List<IQueryRequest> pollReadyRequests() {
+        List<IQueryRequest> requests = new ArrayList<>();
+        IQueryRequest request;
+        while ((request = pollNextRequest()) != null) {
+            requests.add(request);
         }
+        return requests;
     }
 
-    private IQueryRequest supplyRequest() {
-        synchronized (requestQueue) {
-            return currentRequest;
+    private void write(List<IQueryRequest> requests) throws IOException {
+        if (requests.isEmpty()) {
+            return;
         }
+        for (IQueryRequest request : requests) {
+            messageWriter.writeMessage(request);
+        }
+        // Send all requests at once.
+        messageWriter.flush();
     }
 
-    private void onAnswer(RawQueryEvent.Message.Answer event) {
-        synchronized (requestQueue) {
-            currentRequest = null;
-        }
-        
-        if (onAnswer != null) {
-            onAnswer.accept(event);
+    private void wakeWriter() {
+        synchronized (requestLock) {
+            requestLock.notifyAll();
         }
     }
 
-    private void onNotification(RawQueryEvent.Message.Notification event) {
-        if (onNotification != null) {
-            onNotification.accept(event);
-        }
+    @Override
+    protected void onRequestQueued() {
+        wakeWriter();
+    }
+
+    @Override
+    protected void onAnswer(RawQueryEvent.Message.Answer event) {
+        super.onAnswer(event);
+        // The pipeline window has room again.
+        wakeWriter();
+    }
+
+    @Override
+    protected void onGreetingStatus(Boolean fullyReceived) {
+        super.onGreetingStatus(fullyReceived);
+        wakeWriter();
     }
 
-    private void onGreetingStatus(Boolean fullyReceived) {
-        if (fullyReceived) {
-            synchronized (requestQueue) {
-                if (currentRequest != null && currentRequest.getCommand().equals("dummy")) {
-                    currentRequest = null;
-                } else {
-                    throw new IllegalStateException("Greeting status may only be received initially!");
+    private void handleTimeout() throws IOException {
+        synchronized (requestLock) {
+            int timeoutTime = ++timeoutCount * SOCKET_TIMEOUT_MILLIS;
+            if (timeoutTime >= KEEP_ALIVE_MILLIS) {
+                if (keepAliveCount++ > MAX_FAILING_KEEP_ALIVE) {
+                    logger.error("Connection lost - Read timed out");
+                    close();
+
+                } else if (!isAwaitingAnswer()) {
+                    logger.debug("Sending keepalive");
+                    keepAliveCount = 0;
+                    sendRequest(keepAliveRequest);
                 }
             }
         }
+
+    }
+
+    @Override
+    protected void onKeepAliveAnswered() {
+        synchronized (requestLock) {
+            timeoutCount = 0;
+            keepAliveCount = 0;
+        }
     }
 
     @Override
     public void close() throws IOException {
-        messageReader.close();
-        messageWriter.close();
+        try {
+            messageReader.close();
+            messageWriter.close();
+        } finally {
+            closeRecorder();
+            wakeWriter();
+        }
     }
 
+    @Override
     public boolean isClosed() {
         return messageReader.isClosed();
     }
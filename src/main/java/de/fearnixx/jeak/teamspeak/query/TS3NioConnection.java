@@ -0,0 +1,458 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.query.RawQueryEvent;
+import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
+import de.fearnixx.jeak.teamspeak.query.parser.QueryParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking transport based on a {@link Selector}.
+ * Other than {@link TS3Connection}, this wakes up immediately when a request is queued
+ * and handles the keep-alive using deadlines instead of counting socket timeouts.
+ */
+public class TS3NioConnection extends AbstractTS3Connection {
+
+    private static final Logger logger = LoggerFactory.getLogger(TS3NioConnection.class);
+    private static final Logger netLogger = LoggerFactory.getLogger("de.fearnixx.jeak.teamspeak.query.Netlog");
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final SelectionKey selectionKey;
+    private final ChannelTransport transport;
+    private final QueryParser parser;
+    private final QueryLineFramer framer = new QueryLineFramer(this::onLine);
+
+    private final ByteBuffer inBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // Requests are encoded directly into this buffer.
+    private ByteBuffer outBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long keepAliveDeadline;
+    private int keepAliveCount = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Takes over a connected channel.
+     * When an {@link SSLEngine} is passed, the handshake is performed before this constructor returns.
+     *
+     * @param channel   a connected channel in blocking mode
+     * @param sslEngine client-mode engine to use or {@code null} for plain TCP
+     */
+    public TS3NioConnection(SocketChannel channel, SSLEngine sslEngine,
+                            BiFunction<RawQueryEvent.Message.Answer, IQueryRequest, IQueryEvent.IAnswer> onAnswer,
+                            Consumer<RawQueryEvent.Message.Notification> onNotification) throws IOException {
+        super(onAnswer, onNotification);
+        parser = new QueryParser(this::onNotification, this::onAnswer, this::onGreetingStatus, this::supplyRequest);
+        transport = sslEngine != null ? new SslTransport(channel, sslEngine) : new PlainTransport(channel);
+
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        selectionKey = channel.register(selector, SelectionKey.OP_READ);
+        keepAliveDeadline = System.currentTimeMillis() + KEEP_ALIVE_MILLIS;
+    }
+
+    @Override
+    public void read() throws IOException {
+        try {
+            while (!isClosed()) {
+                writeRequests();
+                selector.select(nextTimeout());
+
+                if (isClosed()) {
+                    break;
+                }
+
+                if (selector.selectedKeys().remove(selectionKey)) {
+                    if (selectionKey.isReadable()) {
+                        readInput();
+                    }
+                    if (selectionKey.isValid() && selectionKey.isWritable()) {
+                        flushOutput();
+                    }
+                }
+
+                checkKeepAlive();
+            }
+        } catch (ClosedSelectorException | CancelledKeyException e) {
+            if (!isClosed()) {
+                throw new IOException("Selector has been closed unexpectedly.", e);
+            }
+        }
+    }
+
+    /**
+     * Milliseconds until either the next request may be sent or the keep-alive is due.
+     */
+    private long nextTimeout() {
+        long timeout = keepAliveDeadline - System.currentTimeMillis();
+        long untilRequest = getMillisUntilNextRequest();
+        if (untilRequest >= 0) {
+            timeout = Math.min(timeout, untilRequest);
+        }
+        // Selector#select(0) would block indefinitely.
+        return Math.max(1, timeout);
+    }
+
+    private void writeRequests() throws IOException {
+        IQueryRequest request;
+        while ((request = pollNextRequest()) != null) {
+            int start = outBuffer.position();
+            outBuffer = QueryMessageWriter.appendSocketMessage(request, outBuffer);
+            if (recorder != null) {
+                // Without the line feed.
+                recorder.recordOutbound(outBuffer, start, outBuffer.position() - 1);
+            }
+        }
+
+        if (outBuffer.position() > 0) {
+            flushOutput();
+        }
+    }
+
+    private void flushOutput() throws IOException {
+        outBuffer.flip();
+        transport.write(outBuffer);
+        outBuffer.compact();
+
+        boolean pending = outBuffer.position() > 0 || transport.hasPendingOutput();
+        int interestOps = pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (selectionKey.interestOps() != interestOps) {
+            selectionKey.interestOps(interestOps);
+        }
+    }
+
+    private void readInput() throws IOException {
+        int read;
+        while ((read = transport.read(inBuffer)) > 0) {
+            keepAliveDeadline = System.currentTimeMillis() + KEEP_ALIVE_MILLIS;
+            keepAliveCount = 0;
+
+            inBuffer.flip();
+            framer.feed(inBuffer);
+            inBuffer.clear();
+        }
+
+        if (read < 0) {
+            close();
+            throw new QueryClosedException("End of input stream reached.");
+        }
+    }
+
+    private void onLine(CharBuffer line) {
+        netLogger.debug("<== {}", line);
+        if (recorder != null) {
+            recorder.recordInbound(line);
+        }
+        parser.parse(line);
+    }
+
+    private void checkKeepAlive() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now < keepAliveDeadline) {
+            return;
+        }
+
+        if (keepAliveCount++ > MAX_FAILING_KEEP_ALIVE) {
+            logger.error("Connection lost - Keep-alive not answered");
+            close();
+            return;
+        }
+
+        keepAliveDeadline = now + KEEP_ALIVE_MILLIS;
+        if (!isAwaitingAnswer()) {
+            logger.debug("Sending keepalive");
+            sendRequest(keepAliveRequest);
+        }
+    }
+
+    @Override
+    protected void onRequestQueued() {
+        selector.wakeup();
+    }
+
+    @Override
+    protected void onKeepAliveAnswered() {
+        keepAliveCount = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            transport.close();
+        } finally {
+            selector.close();
+            closeRecorder();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Moves bytes between the channel and the connection.
+     */
+    private abstract static class ChannelTransport {
+
+        protected final SocketChannel channel;
+
+        ChannelTransport(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads what is currently available into the buffer.
+         *
+         * @return the number of bytes put into the buffer or {@code -1} on end of stream
+         */
+        abstract int read(ByteBuffer dst) throws IOException;
+
+        /**
+         * Writes as much of the buffer as the channel currently accepts.
+         */
+        abstract void write(ByteBuffer src) throws IOException;
+
+        /**
+         * Whether or not data is buffered inside the transport that still has to be written to the channel.
+         */
+        abstract boolean hasPendingOutput();
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class PlainTransport extends ChannelTransport {
+
+        PlainTransport(SocketChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        void write(ByteBuffer src) throws IOException {
+            channel.write(src);
+        }
+
+        @Override
+        boolean hasPendingOutput() {
+            return false;
+        }
+    }
+
+    private static class SslTransport extends ChannelTransport {
+
+        private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+        private final SSLEngine engine;
+
+        // All buffers are kept in write mode.
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+        private ByteBuffer appIn;
+
+        SslTransport(SocketChannel channel, SSLEngine engine) throws IOException {
+            super(channel);
+            this.engine = engine;
+            netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+            handshake();
+        }
+
+        /**
+         * Performs the initial handshake while the channel is still blocking.
+         */
+        private void handshake() throws IOException {
+            engine.beginHandshake();
+            SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+
+            while (status != SSLEngineResult.HandshakeStatus.FINISHED
+                    && status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                switch (status) {
+                    case NEED_TASK:
+                        runDelegatedTasks();
+                        break;
+
+                    case NEED_WRAP:
+                        wrap(EMPTY);
+                        while (netOut.position() > 0) {
+                            flushNet();
+                        }
+                        break;
+
+                    case NEED_UNWRAP:
+                    case NEED_UNWRAP_AGAIN:
+                        if (unwrap() == SSLEngineResult.Status.BUFFER_UNDERFLOW && channel.read(netIn) < 0) {
+                            throw new EOFException("Connection closed during SSL handshake.");
+                        }
+                        break;
+
+                    default:
+                        throw new SSLException("Unexpected handshake status: " + status);
+                }
+                status = engine.getHandshakeStatus();
+            }
+        }
+
+        @Override
+        int read(ByteBuffer dst) throws IOException {
+            boolean endOfStream = false;
+
+            if (appIn.position() == 0) {
+                endOfStream = channel.read(netIn) < 0;
+                if (unwrap() == SSLEngineResult.Status.CLOSED) {
+                    endOfStream = true;
+                }
+
+                if (engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                    // Post-handshake messages (e.g. key updates) have to be answered.
+                    wrap(EMPTY);
+                    flushNet();
+                }
+            }
+
+            appIn.flip();
+            int count = Math.min(appIn.remaining(), dst.remaining());
+            int limit = appIn.limit();
+            appIn.limit(appIn.position() + count);
+            dst.put(appIn);
+            appIn.limit(limit);
+            appIn.compact();
+
+            if (count == 0 && endOfStream) {
+                return -1;
+            }
+            return count;
+        }
+
+        @Override
+        void write(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                wrap(src);
+                flushNet();
+
+                if (netOut.position() > 0) {
+                    // The socket does not accept more data at the moment.
+                    break;
+                }
+            }
+        }
+
+        @Override
+        boolean hasPendingOutput() {
+            return netOut.position() > 0;
+        }
+
+        private void wrap(ByteBuffer src) throws SSLException {
+            while (true) {
+                SSLEngineResult result = engine.wrap(src, netOut);
+                switch (result.getStatus()) {
+                    case BUFFER_OVERFLOW:
+                        netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+                        break;
+
+                    case CLOSED:
+                        throw new QueryClosedException("SSL engine has been closed.");
+
+                    default:
+                        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                            runDelegatedTasks();
+                        }
+                        return;
+                }
+            }
+        }
+
+        private SSLEngineResult.Status unwrap() throws SSLException {
+            while (true) {
+                netIn.flip();
+                SSLEngineResult result = engine.unwrap(netIn, appIn);
+                netIn.compact();
+
+                switch (result.getStatus()) {
+                    case BUFFER_OVERFLOW:
+                        appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+                        break;
+
+                    case BUFFER_UNDERFLOW:
+                        if (!netIn.hasRemaining()) {
+                            netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                        }
+                        return result.getStatus();
+
+                    case CLOSED:
+                        return result.getStatus();
+
+                    default:
+                        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                            runDelegatedTasks();
+                        }
+                        if (netIn.position() == 0 || result.bytesConsumed() == 0) {
+                            return result.getStatus();
+                        }
+                }
+            }
+        }
+
+        private void flushNet() throws IOException {
+            netOut.flip();
+            channel.write(netOut);
+            netOut.compact();
+        }
+
+        private void runDelegatedTasks() {
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+        }
+
+        private static ByteBuffer enlarge(ByteBuffer buffer, int minCapacity) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(minCapacity, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                engine.closeOutbound();
+                engine.wrap(EMPTY, netOut);
+                flushNet();
+            } catch (IOException e) {
+                // The peer may already be gone - closing the channel is all that is left.
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+/**
+ * Token bucket that allows {@code commands} requests per {@code windowMillis} on average
+ * and up to {@code burst} requests at once.
+ */
+public class TokenBucketRateLimiter implements IQueryRateLimiter {
+
+    // Tokens are counted in units of 1/windowMillis so the refill is exact - every millisecond adds one unit per command.
+    private final long commands;
+    private final long unitsPerToken;
+    private final long capacity;
+
+    private long units;
+    private long lastRefillMillis = -1;
+
+    public TokenBucketRateLimiter(int commands, long windowMillis, int burst) {
+        if (commands <= 0 || windowMillis <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Commands, window and burst must be positive!");
+        }
+        this.commands = commands;
+        this.unitsPerToken = windowMillis;
+        this.capacity = burst * windowMillis;
+        this.units = capacity;
+    }
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        refill(nowMillis);
+
+        if (units >= unitsPerToken) {
+            units -= unitsPerToken;
+            return 0;
+        }
+        long missing = unitsPerToken - units;
+        return (missing + commands - 1) / commands;
+    }
+
+    @Override
+    public void onFloodRejected(long nowMillis) {
+        // The server disagrees with our accounting - start over with an empty bucket.
+        refill(nowMillis);
+        units = 0;
+    }
+
+    private void refill(long nowMillis) {
+        if (lastRefillMillis >= 0 && nowMillis > lastRefillMillis) {
+            long elapsed = nowMillis - lastRefillMillis;
+            // Anything beyond a full refill does not matter - avoids overflow after long idle periods.
+            units = elapsed >= capacity ? capacity : Math.min(capacity, units + elapsed * commands);
+        }
+        lastRefillMillis = nowMillis;
+    }
+}
@@ -0,0 +1,13 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+/**
+ * Does not limit requests at all.
+ * Only suitable for query users whitelisted on the server.
+ */
+public class UnlimitedRateLimiter implements IQueryRateLimiter {
+
+    @Override
+    public long tryAcquire(long nowMillis) {
+        return 0;
+    }
+}
@@ -0,0 +1,202 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appends the lines sent and received by a connection to a memory-mapped capture file.
+ * Captures can be fed back through the pipeline by {@link WireReplay}.
+ *
+ * Capturing is enabled by setting {@code bot.connection.capture} to a directory.
+ * Each connection then writes its own file.
+ *
+ * File layout: A header of magic, version and start time (epoch millis) followed by records of
+ * direction (byte), nanoseconds since start (long), length (int) and the UTF-8 encoded line.
+ * A direction of {@code 0} marks the end of the capture.
+ * Login requests are recorded without their arguments, so captures never contain credentials.
+ */
+public class WireRecorder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireRecorder.class);
+
+    public static final String CAPTURE_DIR = Main.getProperty("bot.connection.capture", "");
+    public static final int SEGMENT_SIZE = Main.getProperty("bot.connection.capture_segment", 64) * 1024 * 1024;
+
+    static final int MAGIC = 0x4A4B5752;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 13;
+    static final byte END = 0;
+    static final byte INBOUND = 1;
+    static final byte OUTBOUND = 2;
+
+    private static final byte[] LOGIN = QueryCommands.SERVER.LOGIN.getBytes(StandardCharsets.US_ASCII);
+    private static final AtomicInteger captureCounter = new AtomicInteger();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long startNanos = System.nanoTime();
+    private MappedByteBuffer segment;
+    private long segmentOffset = 0;
+    private boolean closed = false;
+
+    public WireRecorder(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        segment.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a recorder for a new connection if capturing is enabled.
+     *
+     * @return the recorder or {@code null} if capturing is disabled or the file cannot be created
+     */
+    static WireRecorder fromProperties() {
+        if (CAPTURE_DIR.isEmpty()) {
+            return null;
+        }
+
+        File dir = new File(CAPTURE_DIR);
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(dir, "capture-" + timestamp + '-' + captureCounter.incrementAndGet() + ".jkw");
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Failed to create directory: " + dir);
+            }
+            logger.info("Capturing query traffic to: {}", file);
+            return new WireRecorder(file.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to open capture file. Capturing is disabled.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Records a line received from the server.
+     */
+    public synchronized void recordInbound(CharSequence line) {
+        if (closed) {
+            return;
+        }
+
+        // Worst case for UTF-8 is three bytes per UTF-16 char.
+        if (!ensureRemaining(RECORD_HEADER_SIZE + line.length() * 3)) {
+            return;
+        }
+        int start = segment.position();
+        segment.position(start + RECORD_HEADER_SIZE);
+        QueryEncoder.putUtf8(line, segment);
+        int length = segment.position() - start - RECORD_HEADER_SIZE;
+
+        segment.put(start, INBOUND)
+                .putLong(start + 1, System.nanoTime() - startNanos)
+                .putInt(start + 9, length);
+    }
+
+    /**
+     * Records a line sent to the server.
+     *
+     * @param buffer buffer containing the encoded line
+     * @param from   index of the first byte
+     * @param to     index after the last byte - excluding the line terminator
+     */
+    public synchronized void recordOutbound(ByteBuffer buffer, int from, int to) {
+        if (closed) {
+            return;
+        }
+
+        if (isLogin(buffer, from, to)) {
+            to = from + LOGIN.length;
+        }
+        int length = to - from;
+        if (!ensureRemaining(RECORD_HEADER_SIZE + length)) {
+            return;
+        }
+        ByteBuffer line = buffer.duplicate();
+        line.limit(to).position(from);
+
+        segment.put(OUTBOUND)
+                .putLong(System.nanoTime() - startNanos)
+                .putInt(length)
+                .put(line);
+    }
+
+    private static boolean isLogin(ByteBuffer buffer, int from, int to) {
+        if (to - from < LOGIN.length) {
+            return false;
+        }
+        for (int i = 0; i < LOGIN.length; i++) {
+            if (buffer.get(from + i) != LOGIN[i]) {
+                return false;
+            }
+        }
+        return to - from == LOGIN.length || buffer.get(from + LOGIN.length) == ' ';
+    }
+
+    /**
+     * Maps the next segment when the record does not fit into the current one.
+     * The next segment starts right at the current position, so records are contiguous in the file.
+     *
+     * @return whether the record can be written - {@code false} if capturing had to be stopped
+     */
+    private boolean ensureRemaining(int bytes) {
+        // One byte is always kept for the end marker.
+        if (segment.remaining() > bytes) {
+            return true;
+        }
+
+        try {
+            long offset = segmentOffset + segment.position();
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, offset, Math.max(SEGMENT_SIZE, bytes + 1));
+            segmentOffset = offset;
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to extend capture file. Capturing is stopped.", e);
+            try {
+                close();
+            } catch (IOException closeEx) {
+                logger.debug("Failed to close capture file.", closeEx);
+            }
+            return false;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            segment.force();
+            // Drop the unused tail of the last segment but keep a zero byte as end marker.
+            channel.truncate(segmentOffset + segment.position() + 1);
+        } catch (IOException e) {
+            logger.debug("Failed to truncate capture file.", e);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.query.RawQueryEvent;
+import de.fearnixx.jeak.service.event.IEventService;
+import de.fearnixx.jeak.teamspeak.query.parser.QueryParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a capture written by {@link WireRecorder} through the same pipeline as a live connection:
+ * {@link QueryLineFramer} → {@link QueryParser} → {@link QueryEventDispatcher} → event service.
+ *
+ * Sent lines are turned back into requests, so answers are dispatched along with a request of the same command and properties.
+ * Callbacks of the original requests are not available.
+ * Requests sent by listeners during the replay are dropped.
+ */
+public class WireReplay {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireReplay.class);
+
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private final Path capture;
+    private final QueryEventDispatcher dispatcher = new QueryEventDispatcher();
+    private final ReplayConnection connection = new ReplayConnection();
+
+    private final Deque<IQueryRequest> sentRequests = new ArrayDeque<>();
+    private final QueryParser parser;
+    private final QueryLineFramer framer;
+
+    private byte[] lineBytes = new byte[4096];
+    private long notifications = 0;
+    private long answers = 0;
+    private long failedLines = 0;
+
+    public WireReplay(Path capture, IEventService eventService) {
+        this.capture = capture;
+        dispatcher.eventService = eventService;
+        parser = new QueryParser(this::onNotification, this::onAnswer, greeting -> {}, sentRequests::peek);
+        framer = new QueryLineFramer(this::onLine);
+    }
+
+    /**
+     * Replays the whole capture.
+     *
+     * @param realTime whether or not to keep the recorded timing between lines - otherwise lines are replayed at maximum speed
+     */
+    public Result replay(boolean realTime) throws IOException {
+        long lines = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        long firstTimestamp = -1;
+
+        try (FileChannel channel = FileChannel.open(capture, StandardOpenOption.READ)) {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), WINDOW_SIZE));
+            long windowOffset = 0;
+            readHeader(window);
+
+            while (true) {
+                if (window.remaining() < WireRecorder.RECORD_HEADER_SIZE) {
+                    windowOffset += window.position();
+                    window = map(channel, windowOffset, WireRecorder.RECORD_HEADER_SIZE);
+                    if (window == null) {
+                        break;
+                    }
+                }
+
+                int recordStart = window.position();
+                byte direction = window.get();
+                if (direction == WireRecorder.END) {
+                    break;
+                }
+                long timestamp = window.getLong();
+                int length = window.getInt();
+
+                if (window.remaining() < length) {
+                    windowOffset += recordStart;
+                    window = map(channel, windowOffset, WireRecorder.RECORD_HEADER_SIZE + length);
+                    if (window == null) {
+                        logger.warn("Capture ends within a record.");
+                        break;
+                    }
+                    window.position(WireRecorder.RECORD_HEADER_SIZE);
+                }
+
+                if (realTime) {
+                    if (firstTimestamp < 0) {
+                        firstTimestamp = timestamp;
+                    }
+                    waitUntil(start + timestamp - firstTimestamp);
+                }
+
+                readLine(window, length);
+                if (direction == WireRecorder.INBOUND) {
+                    feedInbound(length);
+                } else {
+                    sentRequests.add(toRequest(new String(lineBytes, 0, length, StandardCharsets.UTF_8)));
+                }
+                lines++;
+                bytes += length;
+            }
+        }
+
+        return new Result(lines, bytes, notifications, answers, failedLines, connection.droppedRequests,
+                System.nanoTime() - start);
+    }
+
+    private static void readHeader(ByteBuffer window) throws IOException {
+        if (window.remaining() < WireRecorder.HEADER_SIZE || window.getInt() != WireRecorder.MAGIC) {
+            throw new IOException("Not a capture file.");
+        }
+        int version = window.getInt();
+        if (version != WireRecorder.VERSION) {
+            throw new IOException("Unsupported capture version: " + version);
+        }
+        window.getLong();
+    }
+
+    /**
+     * Maps a window starting at the offset.
+     *
+     * @return the window or {@code null} if the file does not contain the required number of bytes
+     */
+    private static ByteBuffer map(FileChannel channel, long offset, int required) throws IOException {
+        long available = channel.size() - offset;
+        if (available < required) {
+            return null;
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(available, Math.max(WINDOW_SIZE, required)));
+    }
+
+    private void readLine(ByteBuffer window, int length) {
+        if (lineBytes.length < length + 1) {
+            lineBytes = new byte[Math.max(lineBytes.length * 2, length + 1)];
+        }
+        window.get(lineBytes, 0, length);
+    }
+
+    private void feedInbound(int length) {
+        lineBytes[length] = '\n';
+        try {
+            framer.feed(lineBytes, 0, length + 1);
+        } catch (RuntimeException e) {
+            failedLines++;
+            logger.warn("Failed to replay line: {}", new String(lineBytes, 0, length, StandardCharsets.UTF_8), e);
+        }
+    }
+
+    private void onLine(CharBuffer line) {
+        parser.parse(line);
+    }
+
+    private void onNotification(RawQueryEvent.Message.Notification event) {
+        notifications++;
+        event.setConnection(connection);
+        dispatcher.dispatchNotification(event);
+    }
+
+    private void onAnswer(RawQueryEvent.Message.Answer event) {
+        answers++;
+        IQueryRequest request = sentRequests.poll();
+        event.setConnection(connection);
+        dispatcher.dispatchAnswer(event, request);
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reconstructs a request from a sent line.
+     */
+    static IQueryRequest toRequest(String line) {
+        String[] parts = line.split(" ", 2);
+        QueryBuilder builder = IQueryRequest.builder().command(parts[0]);
+        if (parts.length < 2) {
+            return builder.build();
+        }
+
+        String[] elements = parts[1].split("\\|");
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) {
+                builder.commitChainElement();
+            }
+
+            for (String token : elements[i].split(" ")) {
+                if (token.isEmpty()) {
+                    continue;
+                } else if (token.startsWith("-")) {
+                    builder.addOption(token);
+                    continue;
+                }
+
+                int separator = token.indexOf('=');
+                if (separator < 0) {
+                    builder.addKey(token, "");
+                } else {
+                    char[] value = token.substring(separator + 1).toCharArray();
+                    builder.addKey(token.substring(0, separator),
+                            QueryEncoder.decode(value, 0, value.length, new StringBuilder()).toString());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Connection passed along with replayed events.
+     */
+    private static class ReplayConnection extends QueryConnectionAccessor {
+
+        private long droppedRequests = 0;
+
+        @Override
+        public void sendRequest(IQueryRequest request) {
+            droppedRequests++;
+        }
+
+        @Override
+        public CompletableFuture<IQueryEvent.IAnswer> sendRequestAsync(IQueryRequest request) {
+            droppedRequests++;
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close.
+        }
+    }
+
+    /**
+     * Numbers of a finished replay.
+     */
+    public static class Result {
+
+        private final long lines;
+        private final long bytes;
+        private final long notifications;
+        private final long answers;
+        private final long failedLines;
+        private final long droppedRequests;
+        private final long elapsedNanos;
+
+        Result(long lines, long bytes, long notifications, long answers, long failedLines, long droppedRequests, long elapsedNanos) {
+            this.lines = lines;
+            this.bytes = bytes;
+            this.notifications = notifications;
+            this.answers = answers;
+            this.failedLines = failedLines;
+            this.droppedRequests = droppedRequests;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNotifications() {
+            return notifications;
+        }
+
+        public long getAnswers() {
+            return answers;
+        }
+
+        public long getFailedLines() {
+            return failedLines;
+        }
+
+        public long getDroppedRequests() {
+            return droppedRequests;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("lines=%d bytes=%d notifications=%d answers=%d failed=%d dropped_requests=%d elapsed=%.3fs (%.0f lines/s)",
+                    lines, bytes, notifications, answers, failedLines, droppedRequests, seconds, seconds > 0 ? lines / seconds : 0d);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package de.fearnixx.jeak.teamspeak.query.parser;
+
+import de.fearnixx.jeak.teamspeak.query.QueryEncoder;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Properties of a single chain element that have been recorded as offsets into the raw line.
+ * Keys are interned while parsing, values are only decoded when they are requested.
+ *
+ * Properties inherited from the previous chain element are looked up through the parent.
+ * Instances are effectively immutable once parsing has finished so they can be shared between elements.
+ */
+public class LazyProperties {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INTERN_CACHE_SIZE = 1024;
+
+    // Keys repeat in virtually every message - avoid creating new strings for them.
+    private static final String[] INTERN_CACHE = new String[INTERN_CACHE_SIZE];
+
+    private final char[] line;
+    private LazyProperties parent;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    // Start (inclusive) and end (exclusive) offset of the value - per property.
+    private int[] valueOffsets = new int[INITIAL_CAPACITY * 2];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public LazyProperties(char[] line, LazyProperties parent) {
+        this.line = line;
+        this.parent = parent;
+    }
+
+    /**
+     * Records a property.
+     * A property without value is recorded with an empty value.
+     */
+    void add(int keyStart, int keyEnd, int valStart, int valEnd) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            valueOffsets = Arrays.copyOf(valueOffsets, size * 4);
+        }
+
+        keys[size] = internKey(keyStart, keyEnd);
+        valueOffsets[size * 2] = valStart;
+        valueOffsets[size * 2 + 1] = valEnd;
+        size++;
+    }
+
+    /**
+     * Drops the parent if this element overrides all inherited properties.
+     * Keeps look-up chains short for long lists where every element has the same keys.
+     */
+    void finish() {
+        if (parent != null && coversAll(parent)) {
+            parent = null;
+        }
+    }
+
+    private boolean coversAll(LazyProperties other) {
+        while (other != null) {
+            for (int i = 0; i < other.size; i++) {
+                // Keys usually appear in the same order.
+                if (i >= size || keys[i] != other.keys[i]) {
+                    if (indexOf(other.keys[i]) < 0) {
+                        return false;
+                    }
+                }
+            }
+            other = other.parent;
+        }
+        return true;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the (decoded) value of the property or {@code null} if not present.
+     */
+    public String get(String key) {
+        LazyProperties props = this;
+        do {
+            int index = props.indexOf(key);
+            if (index >= 0) {
+                return props.valueAt(index);
+            }
+            props = props.parent;
+        } while (props != null);
+
+        return null;
+    }
+
+    private String valueAt(int index) {
+        String value = values[index];
+        if (value == null) {
+            // Racing threads may decode twice which is harmless.
+            value = decode(valueOffsets[index * 2], valueOffsets[index * 2 + 1]);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Passes all properties to the consumer.
+     * Inherited properties are passed first so that overridden values replace them in the target.
+     */
+    public void forEach(BiConsumer<String, String> consumer) {
+        if (parent != null) {
+            parent.forEach(consumer);
+        }
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i], valueAt(i));
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0 && (parent == null || parent.isEmpty());
+    }
+
+    private String decode(int start, int end) {
+        if (start >= end) {
+            return "";
+        }
+        char[] decoded = new char[end - start];
+        int length = QueryEncoder.decode(line, start, end - start, decoded, 0);
+        return new String(decoded, 0, length);
+    }
+
+    private String internKey(int start, int end) {
+        int hash = 0;
+        boolean escaped = false;
+        for (int i = start; i < end; i++) {
+            char c = line[i];
+            hash = 31 * hash + c;
+            escaped |= c == QueryEncoder.ESCAPE_CHAR;
+        }
+        if (escaped) {
+            // Never seen in practice. Don't pollute the cache.
+            return decode(start, end);
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (INTERN_CACHE_SIZE - 1);
+        String cached = INTERN_CACHE[slot];
+        if (cached != null && contentEquals(cached, start, end)) {
+            return cached;
+        }
+
+        String key = new String(line, start, end - start).intern();
+        INTERN_CACHE[slot] = key;
+        return key;
+    }
+
+    private boolean contentEquals(String str, int start, int end) {
+        if (str.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i - start) != line[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,25 +1,24 @@
 package de.fearnixx.jeak.teamspeak.query.parser;
 
 import de.fearnixx.jeak.event.query.RawQueryEvent;
-import de.fearnixx.jeak.teamspeak.except.QueryParseException;
 import de.fearnixx.jeak.teamspeak.query.QueryEncoder;
 
-import java.nio.BufferOverflowException;
+import java.util.Arrays;
 
 public class ParseContext<T extends RawQueryEvent.Message> {
 
-    private static final int KEY_BUFFER_SIZE = 1024;
-    private static final int VAL_BUFFER_SIZE = 4096;
+    private static final int KEY_BUFFER_SIZE = 256;
+    private static final int VAL_BUFFER_SIZE = 1024;
 
     private final T first;
     private RawQueryEvent.Message last;
     private RawQueryEvent.Message working;
     private RawQueryEvent.ErrorMessage error;
 
-    private final char[] keyBuffer = new char[KEY_BUFFER_SIZE];
+    private char[] keyBuffer = new char[KEY_BUFFER_SIZE];
     private int keyBuffPos = 0;
 
-    private final char[] valBuffer = new char[VAL_BUFFER_SIZE];
+    private char[] valBuffer = new char[VAL_BUFFER_SIZE];
     private int valBuffPos = 0;
 
     public ParseContext(T first) {
@@ -30,24 +29,27 @@ public class ParseContext<T extends RawQueryEvent.Message> {
 
     public void addToKeyBuffer(char character) {
         if (keyBuffPos >= keyBuffer.length) {
-            throw new QueryParseException("Key buffer exceeded!", new BufferOverflowException());
+            keyBuffer = Arrays.copyOf(keyBuffer, keyBuffer.length * 2);
         }
         keyBuffer[keyBuffPos++] = character;
     }
 
     private String getDecodedKey() {
-        return new String(QueryEncoder.decodeBuffer(keyBuffer, keyBuffPos));
+        // Decoding never grows the content so we can decode in-place.
+        int length = QueryEncoder.decode(keyBuffer, 0, keyBuffPos, keyBuffer, 0);
+        return new String(keyBuffer, 0, length);
     }
 
     public void addToValBuffer(char character) {
         if (valBuffPos >= valBuffer.length) {
-            throw new QueryParseException("Value buffer exceeded!", new BufferOverflowException());
+            valBuffer = Arrays.copyOf(valBuffer, valBuffer.length * 2);
         }
         valBuffer[valBuffPos++] = character;
     }
 
     private String getDecodedValue() {
-        return new String(QueryEncoder.decodeBuffer(valBuffer, valBuffPos));
+        int length = QueryEncoder.decode(valBuffer, 0, valBuffPos, valBuffer, 0);
+        return new String(valBuffer, 0, length);
     }
 
     public void flushProperty() {
@@ -68,6 +70,34 @@ public class ParseContext<T extends RawQueryEvent.Message> {
         working = next;
     }
 
+    /**
+     * Starts recording the properties of the current object.
+     * Properties already present on the object (e.g. from a previous line or inherited) are kept as parent.
+     */
+    public LazyProperties beginLazyObject(char[] line) {
+        return new LazyProperties(line, working.getLazyProperties());
+    }
+
+    /**
+     * Finishes recording the properties of the current object.
+     */
+    public void flushLazyObject(LazyProperties properties) {
+        properties.finish();
+        working.setLazyProperties(properties);
+    }
+
+    /**
+     * Same as {@link #nextObject(RawQueryEvent.Message)} but the properties are inherited without copying them.
+     */
+    public void nextLazyObject(RawQueryEvent.Message next) {
+        last.setNext(next);
+        next.setPrevious(last);
+        next.setLazyProperties(working.getLazyProperties());
+
+        last = last.getNext();
+        working = next;
+    }
+
     public void closeContext() {
         if (keyBuffPos > 0) {
             flushProperty();
@@ -1,5 +1,6 @@
 package de.fearnixx.jeak.teamspeak.query.parser;
 
+import de.fearnixx.jeak.Main;
 import de.fearnixx.jeak.event.query.RawQueryEvent;
 import de.fearnixx.jeak.event.query.RawQueryEvent.Message;
 import de.fearnixx.jeak.teamspeak.except.QueryParseException;
@@ -17,6 +18,7 @@ import java.util.function.Supplier;
 public class QueryParser {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryParser.class);
+    private static final boolean LAZY_PARSING = Main.getProperty("bot.connection.lazyparse", true);
 
     /* Parsing */
     public static class Symbols {
@@ -48,11 +50,24 @@ public class QueryParser {
 
     private final Consumer<Message.Notification> onNotification;
     private final Consumer<Message.Answer> onAnswer;
+    private final boolean lazyParsing;
 
     public QueryParser(Consumer<Message.Notification> onNotification,
                        Consumer<Message.Answer> onAnswer,
                        Consumer<Boolean> onGreetingStatus,
                        Supplier<IQueryRequest> requestSupplier) {
+        this(onNotification, onAnswer, onGreetingStatus, requestSupplier, LAZY_PARSING);
+    }
+
+    /**
+     * @param lazyParsing whether or not properties are recorded as offsets and only decoded on access
+     */
+    public QueryParser(Consumer<Message.Notification> onNotification,
+                       Consumer<Message.Answer> onAnswer,
+                       Consumer<Boolean> onGreetingStatus,
+                       Supplier<IQueryRequest> requestSupplier,
+                       boolean lazyParsing) {
+        this.lazyParsing = lazyParsing;
         this.onNotification = onNotification;
         this.onAnswer = onAnswer;
         this.onGreetingStatus = onGreetingStatus;
@@ -62,13 +77,13 @@ public class QueryParser {
     /**
      * Parse a query response
      *
-     * @param input The next line to parse
+     * @param input The next line to parse - the parser does not keep a reference to the sequence
      * @return The message if finished - Notifications are one-liners thus don't interrupt receiving other messages
      */
-    public Optional<Message> parse(String input) {
+    public Optional<Message> parse(CharSequence input) {
 
         if (greetingPos < Symbols.GREETINGS.length) {
-            if (input.startsWith(Symbols.GREETINGS[greetingPos])) {
+            if (startsWith(input, Symbols.GREETINGS[greetingPos])) {
                 greetingPos++;
                 logger.debug("Received greeting part: {}", greetingPos);
 
@@ -81,14 +96,14 @@ public class QueryParser {
 
         try {
             ParseInfo parseInfo = new ParseInfo();
-            input = parseInfo.inspect(input);
+            int start = parseInfo.inspect(input);
 
             if (parseInfo.isNotification) {
                 Message.Notification notification = new Message.Notification();
-                notification.setHashCode(input.hashCode());
+                notification.setHashCode(hashCode(input, start));
                 notification.setCaption(parseInfo.caption);
                 ParseContext<Message.Notification> notificationContext = new ParseContext<>(notification);
-                parseToContext(input, parseInfo, notificationContext);
+                parse(input, start, parseInfo, notificationContext);
                 notificationContext.setError(RawQueryEvent.ErrorMessage.OK());
 
                 if (notificationContext.isClosed()) {
@@ -98,7 +113,7 @@ public class QueryParser {
 
             } else {
                 ParseContext<Message.Answer> answerContext = getParseContextFor(parseInfo);
-                parseToContext(input, parseInfo, answerContext);
+                parse(input, start, parseInfo, answerContext);
 
                 if (answerContext.isClosed()) {
                     context = null;
@@ -132,15 +147,87 @@ public class QueryParser {
         return context;
     }
 
+    private void parse(CharSequence input, int start, ParseInfo parseInfo, ParseContext parseContext) {
+        if (lazyParsing) {
+            parseLazyToContext(input, start, parseInfo, parseContext);
+        } else {
+            parseToContext(input, start, parseInfo, parseContext);
+        }
+    }
+
+    /**
+     * Records the offsets of all properties within a copy of the input.
+     * Values are only decoded once they are accessed.
+     */
+    private void parseLazyToContext(CharSequence input, int start, ParseInfo parseInfo, ParseContext parseContext) {
+        final int len = input.length() - start;
+        final char[] line = new char[len];
+        for (int i = 0; i < len; i++) {
+            line[i] = input.charAt(start + i);
+        }
+
+        LazyProperties properties = parseContext.beginLazyObject(line);
+        int keyStart = 0;
+        int valStart = -1;
+
+        // The end of the line is treated like a property divider.
+        for (int pos = 0; pos <= len; pos++) {
+            char c = pos < len ? line[pos] : Symbols.PROPDIV;
+
+            switch (c) {
+                case Symbols.PROPVALDIV:
+                    if (valStart < 0) {
+                        valStart = pos + 1;
+                    }
+                    break;
+
+                case '\n':
+                case Symbols.CHAINDIV:
+                case Symbols.PROPDIV:
+                    int keyEnd = valStart < 0 ? pos : valStart - 1;
+                    // Like the eager parser, an empty key is kept if it has a value divider.
+                    if (keyEnd > keyStart || valStart >= 0) {
+                        properties.add(keyStart, keyEnd, valStart < 0 ? pos : valStart, pos);
+                    }
+                    keyStart = pos + 1;
+                    valStart = -1;
+
+                    if (c != Symbols.PROPDIV) {
+                        parseContext.flushLazyObject(properties);
+                        if (!parseInfo.isError) {
+                            parseContext.nextLazyObject(nextMessage(parseInfo));
+                        }
+                        properties = parseContext.beginLazyObject(line);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        parseContext.flushLazyObject(properties);
+    }
+
+    private Message nextMessage(ParseInfo parseInfo) {
+        if (parseInfo.isNotification) {
+            Message.Notification next = new Message.Notification();
+            next.setCaption(parseInfo.caption);
+            return next;
+        } else {
+            return new Message.Answer(internalProvideRequest());
+        }
+    }
+
     /**
      * Actually parses the input to objects of the parse context.
      */
-    private void parseToContext(String input, ParseInfo parseInfo, ParseContext parseContext) {
+    private void parseToContext(CharSequence input, int start, ParseInfo parseInfo, ParseContext parseContext) {
         boolean doKey = true; // Are we currently reading a property-key ?
         int len = input.length();
 
         // Begin parsing the response
-        for (int pos = 0; pos < len; pos++) {
+        for (int pos = start; pos < len; pos++) {
             char c = input.charAt(pos);
 
             switch (c) {
@@ -151,14 +238,7 @@ public class QueryParser {
                     doKey = true;
 
                     if (!parseInfo.isError) {
-                        Message next;
-                        if (parseInfo.isNotification) {
-                            next = new Message.Notification();
-                            ((Message.Notification) next).setCaption(parseInfo.caption);
-                        } else {
-                            next = new Message.Answer(internalProvideRequest());
-                        }
-                        parseContext.nextObject(next);
+                        parseContext.nextObject(nextMessage(parseInfo));
                     }
                     break;
 
@@ -205,6 +285,42 @@ public class QueryParser {
         return request;
     }
 
+    private static boolean startsWith(CharSequence input, String prefix) {
+        int len = prefix.length();
+        if (input.length() < len) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            if (input.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence input, char c) {
+        int len = input.length();
+        for (int i = 0; i < len; i++) {
+            if (input.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link String#hashCode()} of the substring starting at {@code start}.
+     */
+    private static int hashCode(CharSequence input, int start) {
+        int hash = 0;
+        int len = input.length();
+        for (int i = start; i < len; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+        return hash;
+    }
+
     /**
      * Extracts basic information about the input by peeking into it.
      */
@@ -214,16 +330,20 @@ public class QueryParser {
         private boolean isError;
         private boolean isNotification;
 
-        public String inspect(String input) {
-            int firstSpace = input.indexOf(Symbols.PROPDIV);
-            int firstEquals = input.indexOf(Symbols.PROPVALDIV);
+        /**
+         * @return the index at which the properties of the message start
+         */
+        public int inspect(CharSequence input) {
+            int firstSpace = indexOf(input, Symbols.PROPDIV);
+            int firstEquals = indexOf(input, Symbols.PROPVALDIV);
 
             // Determine message type (check for notification)
             caption = null;
+            int start = 0;
             if (firstSpace >= 0 && firstSpace < firstEquals) {
                 // Response has a caption - extract it
-                caption = input.substring(0, firstSpace).toLowerCase();
-                input = input.substring(firstSpace + 1);
+                caption = input.subSequence(0, firstSpace).toString().toLowerCase();
+                start = firstSpace + 1;
             }
 
             isError = "error".equals(caption);
@@ -233,7 +353,7 @@ public class QueryParser {
                 caption = caption.substring(6);
             }
 
-            return input;
+            return start;
         }
     }
 }
@@ -0,0 +1,196 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.IChannel;
+import de.fearnixx.jeak.teamspeak.data.TS3Channel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TestChannelTree {
+
+    private final Map<Integer, TS3Channel> channels = new HashMap<>();
+    private final ChannelTree tree = new ChannelTree(channels);
+
+    private static TS3Channel channel(int id, int parentId, int order, int clients) {
+        TS3Channel channel = new TS3Channel();
+        channel.setProperty(PropertyKeys.Channel.ID, id);
+        channel.setProperty(PropertyKeys.Channel.PARENT, parentId);
+        channel.setProperty(PropertyKeys.Channel.ORDER, order);
+        channel.setProperty(PropertyKeys.Channel.CLIENT_COUNT, clients);
+        channel.setProperty(PropertyKeys.Channel.NAME, "channel-" + id);
+        return channel;
+    }
+
+    /**
+     * 1 (2 clients)
+     *   3 (4 clients)
+     *     5 (5 clients)
+     *   4 (3 clients)
+     * 2 (1 client)
+     */
+    @Before
+    public void buildTree() {
+        // Deliberately not in tree order.
+        for (TS3Channel channel : List.of(channel(2, 0, 1, 1), channel(4, 1, 3, 3), channel(1, 0, 0, 2),
+                channel(5, 3, 0, 5), channel(3, 1, 0, 4))) {
+            channels.put(channel.getID(), channel);
+            tree.update(channel);
+        }
+        Assert.assertTrue(tree.commit());
+    }
+
+    private List<Integer> childrenOf(int channelId) {
+        return channels.get(channelId).getSubChannels().stream().map(IChannel::getID).collect(Collectors.toList());
+    }
+
+    private void move(int channelId, int parentId, int order) {
+        TS3Channel channel = channels.get(channelId);
+        channel.setProperty(PropertyKeys.Channel.PARENT, parentId);
+        channel.setProperty(PropertyKeys.Channel.ORDER, order);
+        tree.insert(channel);
+        tree.commit();
+    }
+
+    @Test
+    public void testLinkedByOrder() {
+        Assert.assertEquals(List.of(3, 4), childrenOf(1));
+        Assert.assertEquals(List.of(5), childrenOf(3));
+        Assert.assertEquals(List.of(), childrenOf(2));
+    }
+
+    @Test
+    public void testCommitOnlyWhenChanged() {
+        Assert.assertFalse(tree.commit());
+        tree.update(channels.get(4));
+        Assert.assertFalse(tree.commit());
+    }
+
+    @Test
+    public void testSubtree() {
+        Assert.assertArrayEquals(new int[]{1, 3, 5, 4}, tree.getSubtreeChannelIds(1));
+        Assert.assertArrayEquals(new int[]{3, 5}, tree.getSubtreeChannelIds(3));
+        Assert.assertArrayEquals(new int[]{2}, tree.getSubtreeChannelIds(2));
+        Assert.assertArrayEquals(new int[0], tree.getSubtreeChannelIds(99));
+
+        Assert.assertTrue(tree.isInSubtree(1, 1));
+        Assert.assertTrue(tree.isInSubtree(5, 1));
+        Assert.assertTrue(tree.isInSubtree(4, 1));
+        Assert.assertFalse(tree.isInSubtree(4, 3));
+        Assert.assertFalse(tree.isInSubtree(1, 3));
+        Assert.assertFalse(tree.isInSubtree(2, 1));
+        Assert.assertFalse(tree.isInSubtree(99, 1));
+    }
+
+    @Test
+    public void testClientCounts() {
+        Assert.assertEquals(14, tree.getSubtreeClientCount(1));
+        Assert.assertEquals(9, tree.getSubtreeClientCount(3));
+        Assert.assertEquals(3, tree.getSubtreeClientCount(4));
+        Assert.assertEquals(1, tree.getSubtreeClientCount(2));
+        Assert.assertEquals(0, tree.getSubtreeClientCount(99));
+
+        // A client moving from 5 to 4 - only the common ancestor keeps its count.
+        tree.clientCountChanged(5, -1);
+        tree.clientCountChanged(4, 1);
+        Assert.assertEquals(14, tree.getSubtreeClientCount(1));
+        Assert.assertEquals(8, tree.getSubtreeClientCount(3));
+        Assert.assertEquals(4, tree.getSubtreeClientCount(4));
+        Assert.assertEquals(4, tree.getSubtreeClientCount(5));
+
+        tree.clientCountChanged(2, 3);
+        Assert.assertEquals(4, tree.getSubtreeClientCount(2));
+        Assert.assertEquals(14, tree.getSubtreeClientCount(1));
+    }
+
+    @Test
+    public void testRebuildReadsCounts() {
+        tree.clientCountChanged(5, 10);
+        channels.get(5).setProperty(PropertyKeys.Channel.CLIENT_COUNT, 1);
+        tree.rebuildIndex();
+        Assert.assertEquals(5, tree.getSubtreeClientCount(3));
+    }
+
+    @Test
+    public void testInsertMovesSiblingDown() {
+        TS3Channel created = channel(6, 1, 0, 2);
+        channels.put(6, created);
+        tree.insert(created);
+        Assert.assertTrue(tree.commit());
+
+        Assert.assertEquals(List.of(6, 3, 4), childrenOf(1));
+        Assert.assertEquals(6, channels.get(3).getOrder().intValue());
+        Assert.assertEquals(16, tree.getSubtreeClientCount(1));
+        Assert.assertArrayEquals(new int[]{1, 6, 3, 5, 4}, tree.getSubtreeChannelIds(1));
+    }
+
+    @Test
+    public void testMoveWithinParent() {
+        move(3, 1, 4);
+        Assert.assertEquals(List.of(4, 3), childrenOf(1));
+        Assert.assertEquals(0, channels.get(4).getOrder().intValue());
+        Assert.assertArrayEquals(new int[]{1, 4, 3, 5}, tree.getSubtreeChannelIds(1));
+    }
+
+    @Test
+    public void testMoveToOtherParent() {
+        move(3, 2, 0);
+        Assert.assertEquals(List.of(4), childrenOf(1));
+        Assert.assertEquals(List.of(3), childrenOf(2));
+        // The sibling below moved up.
+        Assert.assertEquals(0, channels.get(4).getOrder().intValue());
+
+        Assert.assertTrue(tree.isInSubtree(5, 2));
+        Assert.assertFalse(tree.isInSubtree(5, 1));
+        Assert.assertEquals(5, tree.getSubtreeClientCount(1));
+        Assert.assertEquals(10, tree.getSubtreeClientCount(2));
+    }
+
+    @Test
+    public void testMoveToRoot() {
+        move(4, 0, 2);
+        Assert.assertEquals(List.of(3), childrenOf(1));
+        Assert.assertArrayEquals(new int[]{4}, tree.getSubtreeChannelIds(4));
+        Assert.assertEquals(11, tree.getSubtreeClientCount(1));
+    }
+
+    @Test
+    public void testRemoveClosesGap() {
+        channels.remove(3);
+        tree.remove(3, true);
+        Assert.assertTrue(tree.commit());
+
+        Assert.assertEquals(List.of(4), childrenOf(1));
+        Assert.assertEquals(0, channels.get(4).getOrder().intValue());
+        Assert.assertEquals(5, tree.getSubtreeClientCount(1));
+        Assert.assertFalse(tree.isInSubtree(5, 1));
+    }
+
+    @Test
+    public void testRemoveWithoutClosingGap() {
+        channels.remove(3);
+        tree.remove(3, false);
+        tree.commit();
+
+        // The order is left for the server to correct - the channel is still listed.
+        Assert.assertEquals(3, channels.get(4).getOrder().intValue());
+        Assert.assertEquals(List.of(4), childrenOf(1));
+    }
+
+    @Test
+    public void testReplacedInstanceKeepsChildren() {
+        TS3Channel replacement = channel(3, 1, 0, 4);
+        channels.put(3, replacement);
+        tree.update(replacement);
+        Assert.assertTrue(tree.commit());
+
+        Assert.assertSame(replacement, channels.get(1).getSubChannels().get(0));
+        Assert.assertEquals(List.of(5), childrenOf(3));
+        Assert.assertEquals(9, tree.getSubtreeClientCount(3));
+    }
+}
@@ -0,0 +1,228 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.TS3Channel;
+import de.fearnixx.jeak.teamspeak.data.TS3Client;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TestClientIndex {
+
+    private final Map<Integer, TS3Channel> channels = new HashMap<>();
+    private final ClientIndex index = new ClientIndex(channels);
+
+    private static TS3Client client(int clientId, int channelId, String nickname, String groups) {
+        TS3Client client = new TS3Client();
+        client.setProperty(PropertyKeys.Client.ID, clientId);
+        client.setProperty(PropertyKeys.Client.CHANNEL_ID, channelId);
+        client.setProperty(PropertyKeys.Client.NICKNAME, nickname);
+        client.setProperty(PropertyKeys.Client.UID, "uid-" + nickname.toLowerCase());
+        client.setProperty(PropertyKeys.Client.DBID, 100 + clientId);
+        client.setProperty(PropertyKeys.Client.GROUPS, groups);
+        return client;
+    }
+
+    private static TS3Channel channel(int channelId) {
+        TS3Channel channel = new TS3Channel();
+        channel.setProperty(PropertyKeys.Channel.ID, channelId);
+        channel.setProperty(PropertyKeys.Channel.PARENT, 0);
+        return channel;
+    }
+
+    private static Set<Integer> idsOf(Collection<? extends IClient> clients) {
+        return clients.stream().map(IClient::getClientID).collect(Collectors.toSet());
+    }
+
+    @Before
+    public void addChannels() {
+        for (int channelId = 1; channelId <= 3; channelId++) {
+            TS3Channel channel = channel(channelId);
+            channels.put(channelId, channel);
+            index.channelAdded(channel);
+        }
+    }
+
+    @Test
+    public void testLookups() {
+        TS3Client alice = client(1, 1, "Alice", "6,8");
+        TS3Client bob = client(2, 1, "Bob", "8");
+        index.update(1, alice);
+        index.update(2, bob);
+
+        Assert.assertEquals(List.of(alice), index.getByUniqueId("uid-alice"));
+        Assert.assertSame(alice, index.findByUniqueId("uid-alice").orElse(null));
+        Assert.assertFalse(index.findByUniqueId("uid-nobody").isPresent());
+        Assert.assertEquals(List.of(bob), index.getByDBID(102));
+        // Nicknames are matched case insensitively.
+        Assert.assertEquals(List.of(bob), index.getByNickname("BOB"));
+        Assert.assertEquals(Set.of(1), idsOf(index.getByServerGroup(6)));
+        Assert.assertEquals(Set.of(1, 2), idsOf(index.getByServerGroup(8)));
+        Assert.assertEquals(Set.of(1, 2), idsOf(index.getByChannel(1)));
+        Assert.assertFalse(index.isChannelEmpty(1));
+        Assert.assertTrue(index.isChannelEmpty(2));
+        Assert.assertTrue(index.getByChannel(99).isEmpty());
+    }
+
+    @Test
+    public void testSameUniqueIdTwice() {
+        TS3Client first = client(1, 1, "Alice", "8");
+        TS3Client second = client(2, 2, "Alice", "8");
+        index.update(1, first);
+        index.update(2, second);
+
+        Assert.assertEquals(Set.of(1, 2), idsOf(index.getByUniqueId("uid-alice")));
+        index.remove(1);
+        Assert.assertEquals(List.of(second), index.getByUniqueId("uid-alice"));
+    }
+
+    @Test
+    public void testMove() {
+        TS3Client alice = client(1, 1, "Alice", "8");
+        index.update(1, alice);
+
+        alice.setProperty(PropertyKeys.Client.CHANNEL_ID, 2);
+        index.update(1, alice);
+
+        Assert.assertTrue(index.isChannelEmpty(1));
+        Assert.assertEquals(List.of(alice), index.getByChannel(2));
+        Assert.assertEquals(List.of(alice), index.getByServerGroup(8));
+        Assert.assertEquals(List.of(alice), index.getByNickname("alice"));
+    }
+
+    @Test
+    public void testPropertiesChanged() {
+        TS3Client alice = client(1, 1, "Alice", "6,8");
+        index.update(1, alice);
+
+        alice.setProperty(PropertyKeys.Client.NICKNAME, "Carol");
+        alice.setProperty(PropertyKeys.Client.GROUPS, "8,9");
+        index.update(1, alice);
+
+        Assert.assertTrue(index.getByNickname("alice").isEmpty());
+        Assert.assertEquals(List.of(alice), index.getByNickname("carol"));
+        Assert.assertTrue(index.getByServerGroup(6).isEmpty());
+        Assert.assertEquals(List.of(alice), index.getByServerGroup(8));
+        Assert.assertEquals(List.of(alice), index.getByServerGroup(9));
+    }
+
+    @Test
+    public void testReplacedInstance() {
+        TS3Client previous = client(1, 1, "Alice", "8");
+        index.update(1, previous);
+        TS3Client current = client(1, 1, "Alice", "8");
+        index.update(1, current);
+
+        Assert.assertEquals(1, index.getByChannel(1).size());
+        Assert.assertSame(current, index.getByChannel(1).get(0));
+        Assert.assertSame(current, index.getByUniqueId("uid-alice").get(0));
+        Assert.assertSame(current, index.getByServerGroup(8).get(0));
+    }
+
+    @Test
+    public void testRemove() {
+        index.update(1, client(1, 1, "Alice", "6,8"));
+        index.update(2, client(2, 1, "Bob", "8"));
+        index.remove(1);
+
+        Assert.assertTrue(index.getByUniqueId("uid-alice").isEmpty());
+        Assert.assertTrue(index.getByDBID(101).isEmpty());
+        Assert.assertTrue(index.getByNickname("alice").isEmpty());
+        Assert.assertTrue(index.getByServerGroup(6).isEmpty());
+        Assert.assertEquals(Set.of(2), idsOf(index.getByServerGroup(8)));
+        Assert.assertEquals(Set.of(2), idsOf(index.getByChannel(1)));
+
+        // Unknown clients are ignored.
+        index.remove(42);
+    }
+
+    @Test
+    public void testMissingProperties() {
+        TS3Client partial = new TS3Client();
+        partial.setProperty(PropertyKeys.Client.ID, 7);
+        partial.setProperty(PropertyKeys.Client.DBID, "invalid");
+        index.update(7, partial);
+        Assert.assertTrue(index.isChannelEmpty(1));
+
+        partial.setProperty(PropertyKeys.Client.CHANNEL_ID, 1);
+        index.update(7, partial);
+        Assert.assertEquals(Set.of(7), idsOf(index.getByChannel(1)));
+        index.remove(7);
+        Assert.assertTrue(index.isChannelEmpty(1));
+    }
+
+    @Test
+    public void testChannelViewFollowsIndex() {
+        Collection<IClient> first = channels.get(1).getClients();
+        Assert.assertTrue(first.isEmpty());
+
+        TS3Client alice = client(1, 1, "Alice", "8");
+        index.update(1, alice);
+        Assert.assertEquals(List.of(alice), channels.get(1).getClients());
+
+        alice.setProperty(PropertyKeys.Client.CHANNEL_ID, 2);
+        index.update(1, alice);
+        Assert.assertTrue(channels.get(1).getClients().isEmpty());
+        Assert.assertEquals(List.of(alice), channels.get(2).getClients());
+
+        // Reads are copies - not affected by later changes.
+        Collection<IClient> snapshot = channels.get(2).getClients();
+        index.remove(1);
+        Assert.assertEquals(List.of(alice), snapshot);
+        Assert.assertTrue(channels.get(2).getClients().isEmpty());
+    }
+
+    @Test
+    public void testReplacedChannelGetsView() {
+        index.update(1, client(1, 3, "Alice", "8"));
+
+        TS3Channel replacement = channel(3);
+        channels.put(3, replacement);
+        index.channelAdded(replacement);
+        Assert.assertEquals(Set.of(1), idsOf(replacement.getClients()));
+    }
+
+    @Test
+    public void testChannelCreatedAfterClient() {
+        index.update(1, client(1, 4, "Alice", "8"));
+
+        TS3Channel created = channel(4);
+        channels.put(4, created);
+        index.channelAdded(created);
+        Assert.assertEquals(Set.of(1), idsOf(created.getClients()));
+    }
+
+    @Test
+    public void testChannelRemoved() {
+        index.channelRemoved(2);
+        Assert.assertTrue(index.isChannelEmpty(2));
+
+        // Kept while clients are still indexed with it.
+        index.update(1, client(1, 1, "Alice", "8"));
+        index.channelRemoved(1);
+        Assert.assertEquals(Set.of(1), idsOf(index.getByChannel(1)));
+    }
+
+    @Test
+    public void testClear() {
+        index.update(1, client(1, 1, "Alice", "8"));
+        index.clear();
+
+        Assert.assertTrue(index.getByUniqueId("uid-alice").isEmpty());
+        Assert.assertTrue(index.getByServerGroup(8).isEmpty());
+        Assert.assertTrue(index.isChannelEmpty(1));
+        Assert.assertTrue(channels.get(1).getClients().isEmpty());
+
+        // Channels still cached receive a view of the new bucket.
+        index.update(2, client(2, 1, "Bob", "8"));
+        Assert.assertEquals(Set.of(2), idsOf(channels.get(1).getClients()));
+    }
+}
@@ -0,0 +1,53 @@
+package de.fearnixx.jeak.teamspeak.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRefreshPipeline {
+
+    private final RefreshPipeline pipeline = new RefreshPipeline(4);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        pipeline.getExecutor().shutdownNow();
+        pipeline.getBackgroundExecutor().shutdownNow();
+    }
+
+    @Test
+    public void testRefreshNotBlockedByBackgroundStages() throws Exception {
+        // More blocked stages than the pool has threads - like slow profile lookups.
+        for (int i = 0; i < 16; i++) {
+            Assert.assertTrue(pipeline.submit(this::awaitRelease));
+        }
+
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(i);
+        }
+        AtomicInteger processed = new AtomicInteger();
+        Thread refresh = new Thread(() -> pipeline.forEach(items, item -> processed.incrementAndGet()));
+        refresh.setDaemon(true);
+        refresh.start();
+        refresh.join(TimeUnit.SECONDS.toMillis(5));
+
+        Assert.assertFalse("Refresh waited for background stages", refresh.isAlive());
+        Assert.assertEquals(items.size(), processed.get());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
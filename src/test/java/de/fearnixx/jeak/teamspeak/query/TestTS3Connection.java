@@ -0,0 +1,156 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
+import de.fearnixx.jeak.teamspeak.query.parser.QueryParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TestTS3Connection {
+
+    private final ServerInput in = new ServerInput();
+    private final FullSendBuffer out = new FullSendBuffer();
+    private final List<IQueryRequest> answered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch answerReceived = new CountDownLatch(1);
+
+    private TS3Connection connection;
+    private Thread readerThread;
+
+    @Before
+    public void connect() {
+        connection = new TS3Connection(in, out, (answer, request) -> {
+            answered.add(request);
+            answerReceived.countDown();
+            return null;
+        }, null);
+
+        readerThread = new Thread(() -> {
+            try {
+                connection.read();
+            } catch (IOException | QueryClosedException e) {
+                // Closed by the test.
+            }
+        }, "test-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        in.feed(QueryParser.Symbols.GREETINGS[0]);
+        in.feed(QueryParser.Symbols.GREETINGS[1]);
+    }
+
+    @After
+    public void disconnect() throws Exception {
+        out.release();
+        connection.close();
+        readerThread.join(5000);
+    }
+
+    @Test
+    public void testAnswersProcessedWhileWriteBlocks() throws Exception {
+        IQueryRequest request = IQueryRequest.builder().command("whoami").build();
+        connection.sendRequest(request);
+
+        // The writer is stuck in the socket - like with a full send buffer.
+        Assert.assertTrue("Request not written", out.writeStarted.await(5, TimeUnit.SECONDS));
+
+        // The server answers and only reads on once its answers have been read.
+        in.feed("error id=0 msg=ok");
+        Assert.assertTrue("Answer not processed while the writer is blocked",
+                answerReceived.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(List.of(request), answered);
+
+        // Queueing does not wait for the writer either.
+        Thread queueing = new Thread(() -> connection.sendRequest(IQueryRequest.builder().command("version").build()));
+        queueing.start();
+        queueing.join(5000);
+        Assert.assertFalse("Queueing blocked by the writer", queueing.isAlive());
+    }
+
+    /**
+     * Input stream fed line by line by the test.
+     */
+    private static class ServerInput extends InputStream {
+
+        private static final byte[] EOF = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+        void feed(String line) {
+            chunks.add((line + "\n\r").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                byte[] chunk = chunks.take();
+                if (chunk == EOF) {
+                    chunks.add(EOF);
+                    return -1;
+                }
+                // Lines are short - a chunk always fits.
+                System.arraycopy(chunk, 0, b, off, chunk.length);
+                return chunk.length;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            chunks.add(EOF);
+        }
+    }
+
+    /**
+     * Output stream blocking all writes until released - like a socket whose send buffer is full.
+     */
+    private static class FullSendBuffer extends OutputStream {
+
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeStarted.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.fearnixx.jeak.teamspeak.query;
+
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestWireRecorder {
+
+    private Path file;
+    private WireRecorder recorder;
+    private QueryMessageWriter writer;
+
+    @Before
+    public void open() throws IOException {
+        file = Files.createTempFile("capture", ".jkw");
+        recorder = new WireRecorder(file);
+        writer = new QueryMessageWriter(new ByteArrayOutputStream());
+        writer.setRecorder(recorder);
+    }
+
+    @After
+    public void delete() throws IOException {
+        recorder.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testLoginCredentialsNotRecorded() throws IOException {
+        writer.writeMessage(IQueryRequest.builder()
+                .command(QueryCommands.SERVER.LOGIN)
+                .addOption("serveradmin")
+                .addOption("secret1")
+                .build());
+        writer.writeMessage(IQueryRequest.builder()
+                .command(QueryCommands.SERVER.LOGIN)
+                .addKey("client_login_name", "serveradmin")
+                .addKey("client_login_password", "secret2")
+                .build());
+        recorder.close();
+
+        Assert.assertEquals(List.of("login", "login"), readOutbound());
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assert.assertFalse(content.contains("secret"));
+        Assert.assertFalse(content.contains("serveradmin"));
+    }
+
+    @Test
+    public void testOtherRequestsRecordedVerbatim() throws IOException {
+        writer.writeMessage(IQueryRequest.builder().command("use").addKey("sid", 1).build());
+        writer.writeMessage(IQueryRequest.builder().command("loginfo").addKey("x", "y").build());
+        recorder.close();
+
+        Assert.assertEquals(List.of("use sid=1", "loginfo x=y"), readOutbound());
+    }
+
+    private List<String> readOutbound() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        buffer.position(WireRecorder.HEADER_SIZE);
+
+        List<String> lines = new ArrayList<>();
+        byte direction;
+        while ((direction = buffer.get()) != WireRecorder.END) {
+            buffer.getLong();
+            byte[] line = new byte[buffer.getInt()];
+            buffer.get(line);
+            Assert.assertEquals(WireRecorder.OUTBOUND, direction);
+            lines.add(new String(line, StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+}
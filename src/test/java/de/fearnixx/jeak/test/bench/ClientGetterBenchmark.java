@@ -0,0 +1,114 @@
+package de.fearnixx.jeak.test.bench;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.BasicDataHolder;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.data.TS3Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the pre-parsed getters of {@link TS3Client} against parsing the raw properties on each call,
+ * as the getters did before, by iterating over all clients like plugins do with the cache.
+ * {@link #copyFrom(Blackhole)} shows the added cost on updates.
+ * Run with: {@code gradle jmh -PjmhArgs=ClientGetterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientGetterBenchmark {
+
+    @Param({"100", "2000"})
+    public int clients;
+
+    private TS3Client[] cached;
+    private BasicDataHolder[] updates;
+
+    @Setup
+    public void setup() {
+        cached = new TS3Client[clients];
+        updates = new BasicDataHolder[clients];
+        for (int i = 0; i < clients; i++) {
+            BasicDataHolder raw = new BasicDataHolder();
+            raw.setProperty(PropertyKeys.Client.ID, 1000 + i);
+            raw.setProperty(PropertyKeys.Client.CHANNEL_ID, i % 50);
+            raw.setProperty(PropertyKeys.Client.DBID, 5000 + i);
+            raw.setProperty(PropertyKeys.Client.NICKNAME, "Benchmark User " + i);
+            raw.setProperty(PropertyKeys.Client.UID, "uid" + i + "=");
+            raw.setProperty(PropertyKeys.Client.TYPE, 0);
+            raw.setProperty(PropertyKeys.Client.PLATFORM, i % 2 == 0 ? "Windows" : "Linux");
+            raw.setProperty(PropertyKeys.Client.CHANNEL_GROUP, 8);
+            raw.setProperty(PropertyKeys.Client.TALKPOWER, 75);
+            raw.setProperty(PropertyKeys.Client.IDLE_TIME, 1234 * i);
+            raw.setProperty(PropertyKeys.Client.FLAG_AWAY, i % 3 == 0 ? 1 : 0);
+            raw.setProperty(PropertyKeys.Client.IOIN_MUTED, i % 5 == 0 ? 1 : 0);
+            raw.setProperty(PropertyKeys.Client.IOOUT_MUTED, 0);
+
+            cached[i] = new TS3Client();
+            cached[i].copyFrom(raw);
+            updates[i] = raw;
+        }
+    }
+
+    @Benchmark
+    public long typedGetters() {
+        long sum = 0;
+        for (IClient client : cached) {
+            sum += client.getClientID() + client.getChannelID() + client.getChannelGroupID() + client.getTalkPower();
+            sum += client.getIdleTime() + client.getPlatform().ordinal() + client.getClientType().ordinal();
+            sum += client.isAway() ? 1 : 0;
+            sum += client.hasMicMuted() ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parsedGetters() {
+        long sum = 0;
+        for (IClient client : cached) {
+            sum += parse(client, PropertyKeys.Client.ID) + parse(client, PropertyKeys.Client.CHANNEL_ID);
+            sum += parse(client, PropertyKeys.Client.CHANNEL_GROUP) + parse(client, PropertyKeys.Client.TALKPOWER);
+            sum += parse(client, PropertyKeys.Client.IDLE_TIME) + parsePlatform(client) + parse(client, PropertyKeys.Client.TYPE);
+            sum += "1".equals(client.getProperty(PropertyKeys.Client.FLAG_AWAY).orElse(null)) ? 1 : 0;
+            sum += "1".equals(client.getProperty(PropertyKeys.Client.IOIN_MUTED).orElse(null)) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void copyFrom(Blackhole blackhole) {
+        for (int i = 0; i < clients; i++) {
+            blackhole.consume(cached[i].copyFrom(updates[i]));
+        }
+    }
+
+    private static int parse(IClient client, String key) {
+        return Integer.parseInt(client.getProperty(key).orElse("0"));
+    }
+
+    private static int parsePlatform(IClient client) {
+        switch (client.getProperty(PropertyKeys.Client.PLATFORM).orElse("unknown").toLowerCase()) {
+            case "windows":
+                return 0;
+            case "linux":
+                return 2;
+            default:
+                return 5;
+        }
+    }
+}
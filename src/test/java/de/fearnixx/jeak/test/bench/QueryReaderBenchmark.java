@@ -0,0 +1,90 @@
+package de.fearnixx.jeak.test.bench;
+
+import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
+import de.fearnixx.jeak.teamspeak.query.BufferedQueryMessageReader;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryMessageReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the character-wise {@link QueryMessageReader} against the chunked {@link BufferedQueryMessageReader}
+ * by reading a synthetic "clientlist" answer.
+ * That both produce the same messages is covered by {@code TestQueryLineFramer}.
+ * Run with: {@code gradle jmh -PjmhArgs=QueryReaderBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryReaderBenchmark {
+
+    @Param({"100", "2000"})
+    public int clients;
+
+    private byte[] input;
+    private final IQueryRequest request = IQueryRequest.builder().command("clientlist").build();
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TS3\n\r");
+        builder.append("Welcome to the TeamSpeak 3 ServerQuery interface.\n\r");
+
+        for (int i = 0; i < clients; i++) {
+            if (i > 0) {
+                builder.append('|');
+            }
+            builder.append("clid=").append(i)
+                    .append(" cid=").append(i % 50)
+                    .append(" client_database_id=").append(1000 + i)
+                    .append(" client_nickname=Benchmark\\sUser\\s").append(i).append("\\s\u00e4\u00f6\u00fc")
+                    .append(" client_type=0")
+                    .append(" client_away=0 client_away_message")
+                    .append(" client_unique_identifier=abcdefghijklmnopqrstuvwxyz").append(i).append('=');
+        }
+        builder.append("\n\r");
+        builder.append("error id=0 msg=ok\n\r");
+
+        input = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void characterReader(Blackhole blackhole) throws IOException {
+        QueryMessageReader reader = new QueryMessageReader(new ByteArrayInputStream(input),
+                blackhole::consume, blackhole::consume, blackhole::consume, () -> request);
+        try {
+            reader.read();
+        } catch (QueryClosedException expected) {
+            // End of input.
+        }
+    }
+
+    @Benchmark
+    public void bufferedReader(Blackhole blackhole) throws IOException {
+        BufferedQueryMessageReader reader = new BufferedQueryMessageReader(new ByteArrayInputStream(input),
+                blackhole::consume, blackhole::consume, blackhole::consume, () -> request);
+        try {
+            reader.read();
+        } catch (QueryClosedException expected) {
+            // End of input.
+        }
+    }
+}
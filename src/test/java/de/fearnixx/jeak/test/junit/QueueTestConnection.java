@@ -0,0 +1,123 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.query.QueryEvent;
+import de.fearnixx.jeak.event.query.RawQueryEvent;
+import de.fearnixx.jeak.teamspeak.query.AbstractTS3Connection;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.UnlimitedRateLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection without a transport for testing the request queue.
+ * Requests are taken with {@link #poll()} and answered with {@link #answer(int)}, the clock is set by the test.
+ */
+public class QueueTestConnection extends AbstractTS3Connection {
+
+    /**
+     * Requests the answers have been dispatched for - in dispatch order.
+     */
+    public final List<IQueryRequest> dispatched;
+
+    public long millis = 1000;
+
+    public QueueTestConnection(int pipelineWindow) {
+        this(pipelineWindow, new ArrayList<>());
+    }
+
+    private QueueTestConnection(int pipelineWindow, List<IQueryRequest> dispatched) {
+        super((answer, request) -> dispatch(dispatched, request), null, pipelineWindow, new UnlimitedRateLimiter());
+        this.dispatched = dispatched;
+        onGreetingStatus(true);
+    }
+
+    private static IQueryEvent.IAnswer dispatch(List<IQueryRequest> dispatched, IQueryRequest request) {
+        dispatched.add(request);
+        QueryEvent.Answer answer = new QueryEvent.Answer();
+        answer.setRequest(request);
+        return answer;
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+        return millis;
+    }
+
+    @Override
+    protected long nanoTime() {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public void queue(IQueryRequest request) {
+        sendRequest(request);
+    }
+
+    public CompletableFuture<IQueryEvent.IAnswer> queueAsync(IQueryRequest request) {
+        CompletableFuture<IQueryEvent.IAnswer> future = new CompletableFuture<>();
+        sendRequest(request, future);
+        return future;
+    }
+
+    /**
+     * The next request that would be written - {@code null} if none may be sent.
+     */
+    public IQueryRequest poll() {
+        return pollNextRequest();
+    }
+
+    /**
+     * All requests that may be written right now.
+     */
+    public List<IQueryRequest> pollAll() {
+        List<IQueryRequest> requests = new ArrayList<>();
+        IQueryRequest request;
+        while ((request = pollNextRequest()) != null) {
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    public long millisUntilNext() {
+        return getMillisUntilNextRequest();
+    }
+
+    /**
+     * Answers the oldest request on the wire with the given error id.
+     */
+    public void answer(int errorId) {
+        RawQueryEvent.Message.Answer answer = new RawQueryEvent.Message.Answer(supplyRequest());
+        RawQueryEvent.ErrorMessage error = new RawQueryEvent.ErrorMessage(null);
+        error.setProperty("id", errorId);
+        error.setProperty("msg", errorId == 0 ? "ok" : "error");
+        answer.setError(error);
+        onAnswer(answer);
+    }
+
+    public void answerOk() {
+        answer(0);
+    }
+
+    @Override
+    public void read() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    protected void onKeepAliveAnswered() {
+        // Not sent.
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close.
+    }
+}
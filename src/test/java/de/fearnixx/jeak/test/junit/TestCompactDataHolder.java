@@ -0,0 +1,69 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.data.BasicDataHolder;
+import de.fearnixx.jeak.teamspeak.data.CompactDataHolder;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestCompactDataHolder {
+
+    @Test
+    public void testKnownAndUnknownKeys() {
+        CompactDataHolder holder = new CompactDataHolder();
+        holder.setProperty(PropertyKeys.Client.NICKNAME, "Alice");
+        holder.setProperty("some_unknown_key", 5);
+
+        Assert.assertEquals("Alice", holder.getProperty(PropertyKeys.Client.NICKNAME).orElse(null));
+        Assert.assertEquals("5", holder.getProperty("some_unknown_key").orElse(null));
+        Assert.assertFalse(holder.hasProperty(PropertyKeys.Client.UID));
+
+        holder.setProperty(PropertyKeys.Client.NICKNAME, null);
+        holder.setProperty("some_unknown_key", null);
+        Assert.assertTrue(holder.getValues().isEmpty());
+    }
+
+    @Test
+    public void testValuesView() {
+        CompactDataHolder holder = new CompactDataHolder();
+        holder.setProperty(PropertyKeys.Client.ID, "1");
+        holder.setProperty(PropertyKeys.Channel.ID, "2");
+        holder.setProperty("some_unknown_key", "3");
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put(PropertyKeys.Client.ID, "1");
+        expected.put(PropertyKeys.Channel.ID, "2");
+        expected.put("some_unknown_key", "3");
+        Assert.assertEquals(expected, new HashMap<>(holder.getValues()));
+
+        holder.getValues().put(PropertyKeys.Client.ID, "4");
+        holder.getValues().remove("some_unknown_key");
+        Assert.assertEquals("4", holder.getProperty(PropertyKeys.Client.ID).orElse(null));
+        Assert.assertEquals(2, holder.getValues().size());
+    }
+
+    @Test
+    public void testCopyAndMerge() {
+        IDataHolder source = new BasicDataHolder();
+        source.setProperty(PropertyKeys.Client.NICKNAME, "Bob");
+        source.setProperty("some_unknown_key", "x");
+
+        CompactDataHolder holder = new CompactDataHolder();
+        holder.setProperty(PropertyKeys.Client.UID, "uid");
+        holder.copyFrom(source);
+        Assert.assertFalse(holder.hasProperty(PropertyKeys.Client.UID));
+        Assert.assertEquals("Bob", holder.getProperty(PropertyKeys.Client.NICKNAME).orElse(null));
+
+        CompactDataHolder other = new CompactDataHolder();
+        other.setProperty(PropertyKeys.Client.NICKNAME, "Carol");
+        other.setProperty("another_unknown_key", "y");
+        holder.merge(other);
+        Assert.assertEquals("Carol", holder.getProperty(PropertyKeys.Client.NICKNAME).orElse(null));
+        Assert.assertEquals("x", holder.getProperty("some_unknown_key").orElse(null));
+        Assert.assertEquals("y", holder.getProperty("another_unknown_key").orElse(null));
+    }
+}
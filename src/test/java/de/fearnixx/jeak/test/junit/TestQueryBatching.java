@@ -0,0 +1,151 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import de.fearnixx.jeak.teamspeak.data.IDataHolder;
+import de.fearnixx.jeak.teamspeak.query.AbstractTS3Connection;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestQueryBatching {
+
+    private final QueueTestConnection connection = new QueueTestConnection(1);
+
+    private static IQueryRequest move(int clientId, int channelId) {
+        return IQueryRequest.builder()
+                .command(QueryCommands.CLIENT.CLIENT_MOVE)
+                .addKey("clid", clientId)
+                .addKey("cid", channelId)
+                .build();
+    }
+
+    private static List<String> targetsOf(IQueryRequest request) {
+        return request.getDataChain().stream()
+                .map(element -> element.getProperty("clid").orElse(null))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMergesWaitingRequests() {
+        List<IQueryRequest> moves = List.of(move(1, 5), move(2, 5), move(3, 5));
+        moves.forEach(connection::queue);
+
+        IQueryRequest merged = connection.poll();
+        Assert.assertEquals(QueryCommands.CLIENT.CLIENT_MOVE, merged.getCommand());
+        Assert.assertEquals(List.of("1", "2", "3"), targetsOf(merged));
+        IDataHolder first = merged.getDataChain().get(0);
+        Assert.assertEquals("5", first.getProperty("cid").orElse(null));
+        Assert.assertNull(connection.poll());
+
+        // The answer is dispatched for each original request.
+        connection.answerOk();
+        Assert.assertEquals(moves, connection.dispatched);
+        Assert.assertNull(connection.poll());
+    }
+
+    @Test
+    public void testSingleRequestUnchanged() {
+        IQueryRequest move = move(1, 5);
+        connection.queue(move);
+        Assert.assertSame(move, connection.poll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(move), connection.dispatched);
+    }
+
+    @Test
+    public void testOnlyDirectSuccessors() {
+        IQueryRequest a = move(1, 5);
+        IQueryRequest other = move(2, 6);
+        IQueryRequest b = move(3, 5);
+        List.of(a, other, b).forEach(connection::queue);
+
+        Assert.assertEquals(List.of(a, other, b), sendAll());
+    }
+
+    @Test
+    public void testSamePriorityOnly() {
+        IQueryRequest a = move(1, 5);
+        IQueryRequest b = IQueryRequest.builder()
+                .command(QueryCommands.CLIENT.CLIENT_MOVE)
+                .addKey("clid", 2)
+                .addKey("cid", 5)
+                .priority(QueryPriority.BULK)
+                .build();
+        connection.queue(a);
+        connection.queue(b);
+
+        Assert.assertEquals(List.of(a, b), sendAll());
+    }
+
+    @Test
+    public void testRequestsWithCallbacksNotMerged() {
+        IQueryRequest a = move(1, 5);
+        IQueryRequest withCallback = IQueryRequest.builder()
+                .command(QueryCommands.CLIENT.CLIENT_MOVE)
+                .addKey("clid", 2)
+                .addKey("cid", 5)
+                .onDone(answer -> {})
+                .build();
+        IQueryRequest awaited = move(3, 5);
+        IQueryRequest b = move(4, 5);
+
+        connection.queue(a);
+        connection.queue(withCallback);
+        connection.queueAsync(awaited);
+        connection.queue(b);
+
+        Assert.assertEquals(List.of(a, withCallback, awaited, b), sendAll());
+    }
+
+    @Test
+    public void testChainCapableCommandsOnly() {
+        List<IQueryRequest> pokes = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            pokes.add(IQueryRequest.builder()
+                    .command(QueryCommands.CLIENT.CLIENT_POKE)
+                    .addKey("clid", i)
+                    .addKey("msg", "hi")
+                    .build());
+        }
+        pokes.forEach(connection::queue);
+
+        Assert.assertEquals(pokes, sendAll());
+    }
+
+    @Test
+    public void testMaxTargets() {
+        int count = AbstractTS3Connection.MAX_BATCH_TARGETS + 5;
+        List<IQueryRequest> moves = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            moves.add(move(i, 5));
+        }
+        moves.forEach(connection::queue);
+
+        IQueryRequest first = connection.poll();
+        Assert.assertEquals(AbstractTS3Connection.MAX_BATCH_TARGETS, targetsOf(first).size());
+        connection.answerOk();
+        IQueryRequest second = connection.poll();
+        Assert.assertEquals(5, targetsOf(second).size());
+        connection.answerOk();
+
+        Assert.assertEquals(moves, connection.dispatched);
+    }
+
+    /**
+     * Sends and answers requests one by one until the queue is empty.
+     */
+    private List<IQueryRequest> sendAll() {
+        List<IQueryRequest> sent = new ArrayList<>();
+        IQueryRequest next;
+        while ((next = connection.poll()) != null) {
+            sent.add(next);
+            connection.answerOk();
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,139 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import de.fearnixx.jeak.teamspeak.query.AbstractTS3Connection;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestQueryCoalescing {
+
+    private final QueueTestConnection connection = new QueueTestConnection(1);
+
+    private static IQueryRequest clientInfo(int clientId) {
+        return clientInfo(clientId, QueryPriority.NORMAL);
+    }
+
+    private static IQueryRequest clientInfo(int clientId, QueryPriority priority) {
+        return IQueryRequest.builder()
+                .command(QueryCommands.CLIENT.CLIENT_INFO)
+                .addKey("clid", clientId)
+                .priority(priority)
+                .build();
+    }
+
+    @Test
+    public void testIdenticalQueuedRequestsSentOnce() {
+        IQueryRequest first = clientInfo(1);
+        IQueryRequest second = clientInfo(1);
+        IQueryRequest other = clientInfo(2);
+        CompletableFuture<IQueryEvent.IAnswer> firstFuture = connection.queueAsync(first);
+        CompletableFuture<IQueryEvent.IAnswer> secondFuture = connection.queueAsync(second);
+        connection.queue(other);
+
+        Assert.assertSame(first, connection.poll());
+        connection.answerOk();
+        // Every request receives the answer for itself.
+        Assert.assertEquals(List.of(first, second), connection.dispatched);
+        Assert.assertSame(first, firstFuture.getNow(null).getRequest());
+        Assert.assertSame(second, secondFuture.getNow(null).getRequest());
+
+        Assert.assertSame(other, connection.poll());
+        connection.answerOk();
+        Assert.assertNull(connection.poll());
+    }
+
+    @Test
+    public void testJoinsRequestOnTheWire() {
+        IQueryRequest first = clientInfo(1);
+        connection.queue(first);
+        Assert.assertSame(first, connection.poll());
+
+        IQueryRequest second = clientInfo(1);
+        CompletableFuture<IQueryEvent.IAnswer> secondFuture = connection.queueAsync(second);
+        Assert.assertNull(connection.poll());
+
+        connection.answerOk();
+        Assert.assertEquals(List.of(first, second), connection.dispatched);
+        Assert.assertTrue(secondFuture.isDone());
+        Assert.assertNull(connection.poll());
+    }
+
+    @Test
+    public void testNotJoinedAfterAnswer() {
+        IQueryRequest first = clientInfo(1);
+        connection.queue(first);
+        Assert.assertSame(first, connection.poll());
+        connection.answerOk();
+
+        IQueryRequest second = clientInfo(1);
+        connection.queue(second);
+        Assert.assertSame(second, connection.poll());
+    }
+
+    @Test
+    public void testHigherPriorityDoesNotWait() {
+        IQueryRequest bulk = clientInfo(1, QueryPriority.BULK);
+        IQueryRequest interactive = clientInfo(1, QueryPriority.INTERACTIVE);
+        IQueryRequest normal = clientInfo(1, QueryPriority.NORMAL);
+        connection.queue(bulk);
+        connection.queue(interactive);
+        // Joins the interactive request, which now is the latest one.
+        connection.queue(normal);
+
+        Assert.assertSame(interactive, connection.poll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(interactive, normal), connection.dispatched);
+
+        Assert.assertSame(bulk, connection.poll());
+        connection.answerOk();
+        Assert.assertNull(connection.poll());
+    }
+
+    @Test
+    public void testCancelledLeaderStillSentForFollowers() {
+        IQueryRequest first = clientInfo(1);
+        IQueryRequest second = clientInfo(1);
+        CompletableFuture<IQueryEvent.IAnswer> firstFuture = connection.queueAsync(first);
+        CompletableFuture<IQueryEvent.IAnswer> secondFuture = connection.queueAsync(second);
+        firstFuture.cancel(false);
+
+        Assert.assertSame(first, connection.poll());
+        connection.answerOk();
+        Assert.assertTrue(secondFuture.isDone() && !secondFuture.isCancelled());
+    }
+
+    @Test
+    public void testAbandonedRequestDropped() {
+        IQueryRequest first = clientInfo(1);
+        connection.queueAsync(first).cancel(false);
+        Assert.assertNull(connection.poll());
+
+        // No longer coalesced with the dropped request.
+        IQueryRequest second = clientInfo(1);
+        connection.queue(second);
+        Assert.assertSame(second, connection.poll());
+    }
+
+    @Test
+    public void testFollowersWaitForRetry() {
+        IQueryRequest first = clientInfo(1);
+        connection.queue(first);
+        Assert.assertSame(first, connection.poll());
+        IQueryRequest second = clientInfo(1);
+        connection.queue(second);
+
+        connection.answer(AbstractTS3Connection.FLOOD_ERROR_ID);
+        Assert.assertTrue(connection.dispatched.isEmpty());
+
+        connection.millis += AbstractTS3Connection.FLOOD_BACKOFF_MILLIS;
+        Assert.assertSame(first, connection.poll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(first, second), connection.dispatched);
+    }
+}
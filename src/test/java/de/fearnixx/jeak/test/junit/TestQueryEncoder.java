@@ -0,0 +1,85 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.query.QueryEncoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TestQueryEncoder {
+
+    private static final String SAMPLE = "Hello World | a/b \\ c\td\ne\rf\fg\u0008h⭿ ä€😀";
+
+    @Test
+    public void testEscapeTable() {
+        for (int i = 0; i < QueryEncoder.critChars.length; i++) {
+            String crit = String.valueOf(QueryEncoder.critChars[i]);
+            Assert.assertEquals(QueryEncoder.escapeSeqs[i], QueryEncoder.encode(crit));
+            Assert.assertEquals(crit, new String(QueryEncoder.decodeBuffer(QueryEncoder.escapeSeqs[i].toCharArray())));
+        }
+    }
+
+    @Test
+    public void testPlainTextUnchanged() {
+        String plain = "client_nickname=Aliceä";
+        Assert.assertEquals(plain, QueryEncoder.encode(plain));
+        Assert.assertEquals(plain.length(), QueryEncoder.encodedLength(plain));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String encoded = QueryEncoder.encode(SAMPLE);
+        Assert.assertEquals(QueryEncoder.encodedLength(SAMPLE), encoded.length());
+        Assert.assertEquals(-1, encoded.indexOf(' '));
+        Assert.assertEquals(-1, encoded.indexOf('|'));
+
+        Assert.assertEquals(SAMPLE, new String(QueryEncoder.decodeBuffer(encoded.toCharArray())));
+        char[] chars = encoded.toCharArray();
+        Assert.assertEquals(SAMPLE, QueryEncoder.decode(chars, 0, chars.length, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testDecodeInPlace() {
+        char[] chars = ("xx" + QueryEncoder.encode(SAMPLE)).toCharArray();
+        int length = QueryEncoder.decode(chars, 2, chars.length - 2, chars, 0);
+        Assert.assertEquals(SAMPLE, new String(chars, 0, length));
+    }
+
+    @Test
+    public void testUnknownEscapeIsKept() {
+        Assert.assertEquals("a\\qb\\", new String(QueryEncoder.decodeBuffer("a\\qb\\".toCharArray())));
+    }
+
+    @Test
+    public void testBufferVariantsMatch() {
+        String encoded = QueryEncoder.encode(SAMPLE);
+
+        CharBuffer chars = CharBuffer.allocate(QueryEncoder.encodedLength(SAMPLE));
+        QueryEncoder.encode(SAMPLE, chars);
+        Assert.assertFalse(chars.hasRemaining());
+        Assert.assertEquals(encoded, new String(chars.array()));
+        Assert.assertArrayEquals(encoded.toCharArray(), QueryEncoder.encodeBuffer(SAMPLE.toCharArray()));
+
+        ByteBuffer bytes = ByteBuffer.allocate(256);
+        QueryEncoder.encode(SAMPLE, bytes);
+        Assert.assertArrayEquals(encoded.getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(bytes.array(), bytes.position()));
+    }
+
+    @Test
+    public void testPutUtf8DoesNotEscape() {
+        ByteBuffer bytes = ByteBuffer.allocate(64);
+        QueryEncoder.putUtf8("a b|ä", bytes);
+        Assert.assertArrayEquals("a b|ä".getBytes(StandardCharsets.UTF_8), Arrays.copyOf(bytes.array(), bytes.position()));
+    }
+
+    @Test
+    public void testUnpairedSurrogateIsReplaced() {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        QueryEncoder.encode("a\uD83Db", bytes);
+        Assert.assertArrayEquals(new byte[]{'a', '?', 'b'}, Arrays.copyOf(bytes.array(), bytes.position()));
+    }
+}
@@ -0,0 +1,118 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.query.AbstractTS3Connection;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestQueryFloodRetry {
+
+    private static final int FLOOD = AbstractTS3Connection.FLOOD_ERROR_ID;
+    private static final long BACKOFF = AbstractTS3Connection.FLOOD_BACKOFF_MILLIS;
+
+    private static IQueryRequest message(String text) {
+        return IQueryRequest.builder()
+                .command("sendtextmessage")
+                .addKey("targetmode", 3)
+                .addKey("msg", text)
+                .build();
+    }
+
+    @Test
+    public void testRetryBeforeAnythingElse() {
+        QueueTestConnection connection = new QueueTestConnection(3);
+        IQueryRequest a = message("a");
+        IQueryRequest b = message("b");
+        IQueryRequest c = message("c");
+        IQueryRequest d = message("d");
+        List.of(a, b, c, d).forEach(connection::queue);
+
+        Assert.assertEquals(List.of(a, b, c), connection.pollAll());
+        connection.answer(FLOOD);
+        // Nothing is sent while requests sent after the rejected one are on the wire.
+        Assert.assertNull(connection.poll());
+        connection.answerOk();
+        connection.answerOk();
+        Assert.assertEquals(List.of(b, c), connection.dispatched);
+
+        Assert.assertEquals(BACKOFF, connection.millisUntilNext());
+        Assert.assertNull(connection.poll());
+        connection.millis += BACKOFF;
+
+        // The retry is sent alone.
+        Assert.assertEquals(List.of(a), connection.pollAll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(b, c, a), connection.dispatched);
+
+        Assert.assertEquals(List.of(d), connection.pollAll());
+    }
+
+    @Test
+    public void testRetriesKeepTheirOrder() {
+        QueueTestConnection connection = new QueueTestConnection(3);
+        IQueryRequest a = message("a");
+        IQueryRequest b = message("b");
+        IQueryRequest c = message("c");
+        List.of(a, b, c).forEach(connection::queue);
+
+        Assert.assertEquals(List.of(a, b, c), connection.pollAll());
+        connection.answer(FLOOD);
+        connection.answer(FLOOD);
+        connection.answerOk();
+        Assert.assertEquals(List.of(c), connection.dispatched);
+
+        // Back-off doubled by the second rejection.
+        Assert.assertEquals(2 * BACKOFF, connection.millisUntilNext());
+        connection.millis += 2 * BACKOFF;
+
+        Assert.assertEquals(List.of(a), connection.pollAll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(b), connection.pollAll());
+        connection.answerOk();
+        Assert.assertEquals(List.of(c, a, b), connection.dispatched);
+    }
+
+    @Test
+    public void testPipeliningResumesAfterRetries() {
+        QueueTestConnection connection = new QueueTestConnection(3);
+        IQueryRequest a = message("a");
+        connection.queue(a);
+        Assert.assertEquals(List.of(a), connection.pollAll());
+        connection.answer(FLOOD);
+
+        List<IQueryRequest> more = List.of(message("b"), message("c"), message("d"), message("e"));
+        more.forEach(connection::queue);
+        connection.millis += BACKOFF;
+        Assert.assertEquals(List.of(a), connection.pollAll());
+        connection.answerOk();
+
+        Assert.assertEquals(more.subList(0, 3), connection.pollAll());
+        // The back-off has been reset by the successful answer.
+        connection.answer(FLOOD);
+        connection.answerOk();
+        connection.answerOk();
+        Assert.assertEquals(BACKOFF, connection.millisUntilNext());
+    }
+
+    @Test
+    public void testDispatchedAfterMaxRetries() {
+        QueueTestConnection connection = new QueueTestConnection(1);
+        IQueryRequest a = message("a");
+        connection.queue(a);
+
+        long backoff = BACKOFF;
+        for (int i = 0; i < AbstractTS3Connection.MAX_FLOOD_RETRIES; i++) {
+            Assert.assertEquals(List.of(a), connection.pollAll());
+            connection.answer(FLOOD);
+            Assert.assertTrue(connection.dispatched.isEmpty());
+            connection.millis += backoff;
+            backoff = Math.min(AbstractTS3Connection.FLOOD_BACKOFF_MAX_MILLIS, backoff * 2);
+        }
+
+        Assert.assertEquals(List.of(a), connection.pollAll());
+        connection.answer(FLOOD);
+        Assert.assertEquals(List.of(a), connection.dispatched);
+    }
+}
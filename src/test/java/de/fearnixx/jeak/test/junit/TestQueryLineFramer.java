@@ -0,0 +1,158 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.event.IRawQueryEvent;
+import de.fearnixx.jeak.teamspeak.except.QueryClosedException;
+import de.fearnixx.jeak.teamspeak.query.BufferedQueryMessageReader;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryLineFramer;
+import de.fearnixx.jeak.teamspeak.query.QueryMessageReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestQueryLineFramer {
+
+    // 2, 3 and 4 byte sequences.
+    private static final String MULTI_BYTE_LINE = "nickname=Jürgen €😀 end";
+
+    private final List<String> lines = new ArrayList<>();
+    private final QueryLineFramer framer = new QueryLineFramer(line -> lines.add(line.toString()));
+
+    @Test
+    public void testLinesInOneChunk() {
+        feed("first\n\rsecond\n\rthird");
+        Assert.assertEquals(List.of("first", "second"), lines);
+
+        feed("\n\r");
+        Assert.assertEquals(List.of("first", "second", "third"), lines);
+    }
+
+    @Test
+    public void testLineAcrossChunks() {
+        feed("clid=1 client_nick");
+        feed("name=Alice");
+        Assert.assertTrue(lines.isEmpty());
+
+        feed("\n");
+        Assert.assertEquals(List.of("clid=1 client_nickname=Alice"), lines);
+    }
+
+    @Test
+    public void testMultiByteSplitAtEveryPosition() {
+        byte[] bytes = (MULTI_BYTE_LINE + "\n").getBytes(StandardCharsets.UTF_8);
+
+        for (int split = 1; split < bytes.length; split++) {
+            lines.clear();
+            QueryLineFramer splitFramer = new QueryLineFramer(line -> lines.add(line.toString()));
+            splitFramer.feed(bytes, 0, split);
+            splitFramer.feed(bytes, split, bytes.length - split);
+            Assert.assertEquals("Split at " + split, List.of(MULTI_BYTE_LINE), lines);
+        }
+    }
+
+    @Test
+    public void testByteWiseFeed() {
+        byte[] bytes = (MULTI_BYTE_LINE + "\n" + MULTI_BYTE_LINE + "\n").getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            framer.feed(new byte[]{b}, 0, 1);
+        }
+        Assert.assertEquals(List.of(MULTI_BYTE_LINE, MULTI_BYTE_LINE), lines);
+    }
+
+    @Test
+    public void testByteBufferFeed() {
+        ByteBuffer heap = ByteBuffer.wrap("heap\n".getBytes(StandardCharsets.UTF_8));
+        framer.feed(heap);
+        Assert.assertFalse(heap.hasRemaining());
+
+        byte[] bytes = (MULTI_BYTE_LINE + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        framer.feed(direct);
+        Assert.assertFalse(direct.hasRemaining());
+
+        Assert.assertEquals(List.of("heap", MULTI_BYTE_LINE), lines);
+    }
+
+    @Test
+    public void testInvalidSequenceIsReplaced() {
+        framer.feed(new byte[]{'a', (byte) 0xC3, 'b', '\n'}, 0, 4);
+        Assert.assertEquals(List.of("a�b"), lines);
+    }
+
+    @Test
+    public void testLongLine() {
+        String longLine = "x".repeat(10000) + "ä";
+        feed(longLine.substring(0, 5000));
+        feed(longLine.substring(5000) + "\n");
+        Assert.assertEquals(List.of(longLine), lines);
+    }
+
+    @Test
+    public void testBufferedReaderMatchesCharacterReader() throws IOException {
+        byte[] input = ("TS3\n\r"
+                + "Welcome to the TeamSpeak 3 ServerQuery interface.\n\r"
+                + "notifycliententerview cfid=0 ctid=1 clid=5 client_nickname=J\\sürgen\\s€😀\n\r"
+                + "clid=1 client_nickname=Alice\\p1 client_away_message|clid=2 client_nickname=B\\/ob|clid=3\n\r"
+                + "error id=0 msg=ok\n\r").getBytes(StandardCharsets.UTF_8);
+        IQueryRequest request = IQueryRequest.builder().command("clientlist").build();
+
+        List<String> expected = new ArrayList<>();
+        try {
+            new QueryMessageReader(new ByteArrayInputStream(input), n -> expected.add(describe(n)),
+                    a -> expected.add(describe(a)), g -> {}, () -> request).read();
+        } catch (QueryClosedException e) {
+            // End of input.
+        }
+
+        List<String> actual = new ArrayList<>();
+        try {
+            new BufferedQueryMessageReader(new SmallChunkStream(input), n -> actual.add(describe(n)),
+                    a -> actual.add(describe(a)), g -> {}, () -> request).read();
+        } catch (QueryClosedException e) {
+            // End of input.
+        }
+
+        Assert.assertEquals(2, expected.size());
+        Assert.assertEquals(expected, actual);
+    }
+
+    private static String describe(IRawQueryEvent.IMessage.INotification notification) {
+        return notification.getCaption() + ' ' + notification.toList().stream()
+                .map(IRawQueryEvent.IMessage::getValues)
+                .collect(Collectors.toList());
+    }
+
+    private static String describe(IRawQueryEvent.IMessage.IAnswer answer) {
+        return answer.getError().getCode() + " " + answer.toList().stream()
+                .map(IRawQueryEvent.IMessage::getValues)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a few bytes per read, so lines and multi-byte sequences span reads.
+     */
+    private static class SmallChunkStream extends ByteArrayInputStream {
+
+        SmallChunkStream(byte[] input) {
+            super(input);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+
+    private void feed(String chunk) {
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        framer.feed(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,116 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.event.IRawQueryEvent;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.parser.QueryParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+public class TestQueryParser {
+
+    private static final String[] LINES = {
+            "clid=1 cid=2 client_nickname=Foo\\sBar client_flag|clid=2 client_nickname=B\\p\\\\s|clid=3|",
+            "error id=0 msg=ok",
+            "x=1 y=a=b =empty z==",
+            "error id=0 msg=ok",
+            "notifycliententerview ctid=5 reasonid=0 clid=7 client_nickname=Hi|clid=8",
+            "notifytextmessage targetmode=1 msg=hello\\sworld invokerid=3",
+            "channel_description=" + "a".repeat(10000),
+            "error id=1281 msg=database\\sempty\\sresult\\sset",
+    };
+
+    @Test
+    public void testLazyMatchesEager() {
+        List<Map<String, String>> eager = parse(false, LINES);
+        List<Map<String, String>> lazy = parse(true, LINES);
+        Assert.assertFalse(eager.isEmpty());
+        Assert.assertEquals(eager, lazy);
+    }
+
+    @Test
+    public void testLazySingleLookupMatchesEager() {
+        // Lazy entries are parsed on first access - a single lookup must not skew the other values.
+        List<String> eager = new ArrayList<>();
+        List<String> lazy = new ArrayList<>();
+        parse(false, LINES, message -> eager.add(message.getProperty("y").orElse(null)));
+        parse(true, LINES, message -> lazy.add(message.getProperty("y").orElse(null)));
+        Assert.assertEquals(eager, lazy);
+        Assert.assertEquals(parse(false, LINES), parse(true, LINES));
+    }
+
+    @Test
+    public void testValues() {
+        for (boolean lazyParsing : new boolean[]{false, true}) {
+            List<Map<String, String>> messages = parse(lazyParsing, LINES);
+
+            Map<String, String> first = messages.get(0);
+            Assert.assertEquals("1", first.get("clid"));
+            Assert.assertEquals("Foo Bar", first.get("client_nickname"));
+            Assert.assertEquals("", first.get("client_flag"));
+            Assert.assertEquals("B|\\s", messages.get(1).get("client_nickname"));
+            Assert.assertEquals("3", messages.get(2).get("clid"));
+
+            Map<String, String> equalSigns = messages.get(4);
+            Assert.assertEquals("1", equalSigns.get("x"));
+            Assert.assertEquals("a=b", equalSigns.get("y"));
+            Assert.assertEquals("=", equalSigns.get("z"));
+        }
+    }
+
+    @Test
+    public void testNotificationAndError() {
+        for (boolean lazyParsing : new boolean[]{false, true}) {
+            List<Map<String, String>> errors = new ArrayList<>();
+            List<Map<String, String>> notifications = new ArrayList<>();
+            QueryParser parser = new QueryParser(
+                    notification -> notification.toList().forEach(m -> notifications.add(new TreeMap<>(m.getValues()))),
+                    answer -> errors.add(new TreeMap<>(answer.getError().getValues())),
+                    greeting -> {},
+                    () -> IQueryRequest.builder().command("test").build(),
+                    lazyParsing);
+            greet(parser);
+            for (String line : LINES) {
+                parser.parse(line);
+            }
+
+            Assert.assertEquals(3, errors.size());
+            Assert.assertEquals("1281", errors.get(2).get("id"));
+            Assert.assertEquals("database empty result set", errors.get(2).get("msg"));
+
+            Assert.assertEquals(3, notifications.size());
+            Assert.assertEquals("Hi", notifications.get(0).get("client_nickname"));
+            Assert.assertEquals("8", notifications.get(1).get("clid"));
+            Assert.assertEquals("hello world", notifications.get(2).get("msg"));
+        }
+    }
+
+    private static List<Map<String, String>> parse(boolean lazyParsing, String[] lines) {
+        List<Map<String, String>> messages = new ArrayList<>();
+        parse(lazyParsing, lines, message -> messages.add(new TreeMap<>(message.getValues())));
+        return messages;
+    }
+
+    private static void parse(boolean lazyParsing, String[] lines, Consumer<IRawQueryEvent.IMessage> consumer) {
+        QueryParser parser = new QueryParser(
+                notification -> notification.toList().forEach(consumer),
+                answer -> answer.toList().forEach(consumer),
+                greeting -> {},
+                () -> IQueryRequest.builder().command("test").build(),
+                lazyParsing);
+        greet(parser);
+        for (String line : lines) {
+            parser.parse(line);
+        }
+    }
+
+    private static void greet(QueryParser parser) {
+        parser.parse(QueryParser.Symbols.GREETINGS[0]);
+        parser.parse(QueryParser.Symbols.GREETINGS[1]);
+    }
+}
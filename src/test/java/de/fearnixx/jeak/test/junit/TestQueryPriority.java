@@ -0,0 +1,107 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.query.AbstractTS3Connection;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+import de.fearnixx.jeak.teamspeak.query.QueryPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestQueryPriority {
+
+    private static final long AGING = AbstractTS3Connection.PRIORITY_AGING_MILLIS;
+
+    private final QueueTestConnection connection = new QueueTestConnection(1);
+
+    private static IQueryRequest request(QueryPriority priority, String name) {
+        return IQueryRequest.builder()
+                .command("sendtextmessage")
+                .addKey("targetmode", 3)
+                .addKey("msg", name)
+                .priority(priority)
+                .build();
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        IQueryRequest bulk = request(QueryPriority.BULK, "bulk");
+        IQueryRequest normal = request(QueryPriority.NORMAL, "normal");
+        IQueryRequest interactive = request(QueryPriority.INTERACTIVE, "interactive");
+        IQueryRequest system = request(QueryPriority.SYSTEM, "system");
+        List.of(bulk, normal, interactive, system).forEach(connection::queue);
+
+        Assert.assertEquals(List.of(system, interactive, normal, bulk), sendAll());
+    }
+
+    @Test
+    public void testFifoWithinPriority() {
+        List<IQueryRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(request(QueryPriority.NORMAL, "normal-" + i));
+        }
+        requests.forEach(connection::queue);
+
+        Assert.assertEquals(requests, sendAll());
+    }
+
+    @Test
+    public void testAgingRaisesOneLevelPerPeriod() {
+        IQueryRequest bulk = request(QueryPriority.BULK, "bulk");
+        connection.queue(bulk);
+        connection.millis += 2 * AGING;
+
+        IQueryRequest normal = request(QueryPriority.NORMAL, "normal");
+        IQueryRequest interactive = request(QueryPriority.INTERACTIVE, "interactive");
+        connection.queue(normal);
+        connection.queue(interactive);
+
+        // Aged by two levels, the bulk request ranks like an interactive one - the interactive lane wins the tie.
+        Assert.assertEquals(List.of(interactive, bulk, normal), sendAll());
+    }
+
+    @Test
+    public void testNoAgingBeforeFullPeriod() {
+        IQueryRequest bulk = request(QueryPriority.BULK, "bulk");
+        connection.queue(bulk);
+        connection.millis += 2 * AGING - 1;
+
+        IQueryRequest normal = request(QueryPriority.NORMAL, "normal");
+        connection.queue(normal);
+
+        Assert.assertEquals(List.of(normal, bulk), sendAll());
+    }
+
+    @Test
+    public void testLowPriorityIsNotStarved() {
+        IQueryRequest bulk = request(QueryPriority.BULK, "bulk");
+        connection.queue(bulk);
+
+        // A steady stream of fresh normal requests.
+        List<IQueryRequest> sent = new ArrayList<>();
+        for (int i = 0; i < 10 && !sent.contains(bulk); i++) {
+            connection.queue(request(QueryPriority.NORMAL, "normal-" + i));
+            IQueryRequest next = connection.poll();
+            sent.add(next);
+            connection.answerOk();
+            connection.millis += AGING;
+        }
+
+        // Ties with the fresh normal requests after one period, wins after two.
+        Assert.assertEquals(2, sent.indexOf(bulk));
+    }
+
+    /**
+     * Sends and answers requests one by one until the queue is empty.
+     */
+    private List<IQueryRequest> sendAll() {
+        List<IQueryRequest> sent = new ArrayList<>();
+        IQueryRequest next;
+        while ((next = connection.poll()) != null) {
+            sent.add(next);
+            connection.answerOk();
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,109 @@
+package de.fearnixx.jeak.test.junit;
+
+import de.fearnixx.jeak.teamspeak.query.FixedDelayRateLimiter;
+import de.fearnixx.jeak.teamspeak.query.IQueryRateLimiter;
+import de.fearnixx.jeak.teamspeak.query.TokenBucketRateLimiter;
+import de.fearnixx.jeak.teamspeak.query.UnlimitedRateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestQueryRateLimiter {
+
+    // One token per 100ms, three at once.
+    private static IQueryRateLimiter bucket() {
+        return new TokenBucketRateLimiter(10, 1000, 3);
+    }
+
+    @Test
+    public void testBucketBurstThenWait() {
+        IQueryRateLimiter limiter = bucket();
+        Assert.assertEquals(0, limiter.tryAcquire(1000));
+        Assert.assertEquals(0, limiter.tryAcquire(1000));
+        Assert.assertEquals(0, limiter.tryAcquire(1000));
+        Assert.assertEquals(100, limiter.tryAcquire(1000));
+        // A refused attempt does not take anything.
+        Assert.assertEquals(100, limiter.tryAcquire(1000));
+    }
+
+    @Test
+    public void testBucketPartialRefill() {
+        IQueryRateLimiter limiter = drained();
+        Assert.assertEquals(60, limiter.tryAcquire(1040));
+        Assert.assertEquals(1, limiter.tryAcquire(1099));
+        Assert.assertEquals(0, limiter.tryAcquire(1100));
+        Assert.assertEquals(100, limiter.tryAcquire(1100));
+    }
+
+    @Test
+    public void testBucketSteadyRate() {
+        IQueryRateLimiter limiter = drained();
+        int sent = 0;
+        for (long now = 1000; now < 2000; now++) {
+            if (limiter.tryAcquire(now) == 0) {
+                sent++;
+            }
+        }
+        // Refills at 1100, 1200 ... 1900.
+        Assert.assertEquals(9, sent);
+    }
+
+    @Test
+    public void testBucketCapacity() {
+        IQueryRateLimiter limiter = drained();
+        // A long idle period refills no more than the burst.
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0, limiter.tryAcquire(60000));
+        }
+        Assert.assertEquals(100, limiter.tryAcquire(60000));
+    }
+
+    @Test
+    public void testBucketClockGoingBack() {
+        IQueryRateLimiter limiter = drained();
+        Assert.assertEquals(100, limiter.tryAcquire(500));
+        Assert.assertEquals(0, limiter.tryAcquire(600));
+    }
+
+    @Test
+    public void testBucketFloodRejected() {
+        IQueryRateLimiter limiter = bucket();
+        Assert.assertEquals(0, limiter.tryAcquire(1000));
+        limiter.onFloodRejected(1000);
+        Assert.assertEquals(100, limiter.tryAcquire(1000));
+        Assert.assertEquals(0, limiter.tryAcquire(1100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBucketInvalid() {
+        new TokenBucketRateLimiter(0, 1000, 1);
+    }
+
+    @Test
+    public void testFixedDelay() {
+        IQueryRateLimiter limiter = new FixedDelayRateLimiter(250);
+        Assert.assertEquals(0, limiter.tryAcquire(1000));
+        Assert.assertEquals(250, limiter.tryAcquire(1000));
+        Assert.assertEquals(10, limiter.tryAcquire(1240));
+        Assert.assertEquals(0, limiter.tryAcquire(1250));
+        Assert.assertEquals(0, limiter.tryAcquire(5000));
+    }
+
+    @Test
+    public void testUnlimited() {
+        IQueryRateLimiter limiter = new UnlimitedRateLimiter();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(0, limiter.tryAcquire(1000));
+        }
+    }
+
+    /**
+     * A bucket without tokens at 1000ms.
+     */
+    private static IQueryRateLimiter drained() {
+        IQueryRateLimiter limiter = bucket();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0, limiter.tryAcquire(1000));
+        }
+        return limiter;
+    }
+}
@@ -0,0 +1,62 @@
+package de.fearnixx.jeak.test.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latency samples and computes percentiles over them.
+ * Thread-safe.
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count = 0;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Summary in the form {@code name: n=.. avg=.. p50=.. p99=.. max=..} with values in milliseconds.
+     */
+    public synchronized String summary() {
+        if (count == 0) {
+            return name + ": n=0";
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+
+        return String.format("%s: n=%d avg=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                name, count,
+                toMillis(sum / count),
+                toMillis(percentile(sorted, 0.50)),
+                toMillis(percentile(sorted, 0.99)),
+                toMillis(sorted[count - 1]));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,137 @@
+package de.fearnixx.jeak.test.load;
+
+import de.fearnixx.jeak.JeakBot;
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.plugin.persistent.PluginManager;
+import de.fearnixx.jeak.teamspeak.query.IQueryConnection;
+import de.fearnixx.jeak.teamspeak.query.QueryConnectionAccessor;
+import de.mlessmann.confort.LoaderFactory;
+import de.mlessmann.confort.config.FileConfig;
+import de.mlessmann.confort.lang.RegisterLoaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the bot against a {@link MockQueryServer} and reports latencies, queue statistics and heap usage.
+ *
+ * Arguments are given as {@code key=value} and set as system properties:
+ * <ul>
+ *     <li>{@code jeak.loadtest.clients} - number of simulated clients (default 1000)</li>
+ *     <li>{@code jeak.loadtest.channels} - number of simulated channels (default 100)</li>
+ *     <li>{@code jeak.loadtest.joins}, {@code .moves}, {@code .messages} - events per second</li>
+ *     <li>{@code jeak.loadtest.duration} - run time in seconds (default 60)</li>
+ *     <li>{@code jeak.loadtest.readers} - threads reading the cache in parallel (default 4)</li>
+ *     <li>{@code jeak.loadtest.flood} - commands allowed per flood window - 0 disables (default 10)</li>
+ *     <li>{@code jeak.loadtest.floodWindow} - flood window in milliseconds (default 3000)</li>
+ * </ul>
+ * Framework properties such as {@code jeak.cache.clientRefresh} can be passed the same way.
+ *
+ * Run with: {@code gradle loadTest -PloadTestArgs="jeak.loadtest.clients=5000 jeak.loadtest.duration=120"}
+ */
+public class LoadTestMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestMain.class);
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                System.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        // Refresh the caches more often than in production so a run sees several refreshes.
+        setDefault("jeak.cache.clientRefresh", "5");
+        setDefault("jeak.cache.channelRefresh", "10");
+
+        MockServerSimulation simulation = new MockServerSimulation(
+                Main.getProperty("jeak.loadtest.clients", 1000),
+                Main.getProperty("jeak.loadtest.channels", 100),
+                Main.getProperty("jeak.loadtest.joins", 5d),
+                Main.getProperty("jeak.loadtest.moves", 20d),
+                Main.getProperty("jeak.loadtest.messages", 5d));
+        MockQueryServer mockServer = new MockQueryServer(0, simulation,
+                Main.getProperty("jeak.loadtest.flood", 10),
+                Main.getProperty("jeak.loadtest.floodWindow", 3000L));
+        mockServer.start();
+        LoadTestPlugin.setMockServer(mockServer);
+
+        File baseDir = new File(Main.getProperty("jeak.loadtest.dir", "build/loadtest"));
+        File confDir = new File(baseDir, "config");
+        File confFile = writeConfiguration(confDir, mockServer.getPort());
+
+        RegisterLoaders.registerLoaders();
+        JeakBot bot = new JeakBot();
+        bot.setBaseDir(baseDir);
+        bot.setConfDir(confDir);
+        bot.setConfig(new FileConfig(LoaderFactory.getLoader("application/json"), confFile));
+        bot.setPluginManager(new PluginManager());
+        bot.run();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long maxHeap = 0;
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Main.getProperty("jeak.loadtest.duration", 60));
+        while (System.currentTimeMillis() < end) {
+            maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+            Thread.sleep(1000);
+        }
+
+        report(bot, mockServer, maxHeap);
+        bot.shutdown();
+        mockServer.close();
+        System.exit(0);
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private static File writeConfiguration(File confDir, int port) throws IOException {
+        if (!confDir.isDirectory() && !confDir.mkdirs()) {
+            throw new IOException("Failed to create configuration directory: " + confDir);
+        }
+
+        File confFile = new File(confDir, "bot.json");
+        String json = "{\n"
+                + "  \"host\": \"127.0.0.1\",\n"
+                + "  \"port\": " + port + ",\n"
+                + "  \"user\": \"serveradmin\",\n"
+                + "  \"pass\": \"password\",\n"
+                + "  \"instance\": 1,\n"
+                + "  \"nick\": \"LoadTest\",\n"
+                + "  \"ssl\": false\n"
+                + "}\n";
+        Files.write(confFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return confFile;
+    }
+
+    private static void report(JeakBot bot, MockQueryServer mockServer, long maxHeap) {
+        StringBuilder report = new StringBuilder("\n===== Load test results =====\n");
+        report.append("Simulated clients: ").append(mockServer.getSimulation().getClients().size()).append('\n');
+        report.append("Commands received: ").append(mockServer.getCommandCount())
+                .append(" (flood rejections: ").append(mockServer.getFloodRejections()).append(")\n");
+
+        IQueryConnection connection = bot.getServer().optConnection().orElse(null);
+        if (connection instanceof QueryConnectionAccessor) {
+            report.append("Request queue: ").append(((QueryConnectionAccessor) connection).getRequestStatistics()).append('\n');
+        }
+
+        report.append(LoadTestPlugin.NOTIFICATION_LATENCY.summary()).append('\n');
+        report.append(LoadTestPlugin.ANSWER_LATENCY.summary()).append('\n');
+        report.append(LoadTestPlugin.CLIENT_REFRESH.summary()).append('\n');
+        report.append(LoadTestPlugin.CHANNEL_REFRESH.summary()).append('\n');
+        report.append(LoadTestPlugin.CACHE_READ.summary()).append('\n');
+        report.append(LoadTestPlugin.refreshStatistics()).append('\n');
+        report.append(String.format("Max. heap used: %.1f MiB%n", maxHeap / (1024d * 1024d)));
+        logger.info(report.toString());
+    }
+}
@@ -0,0 +1,183 @@
+package de.fearnixx.jeak.test.load;
+
+import de.fearnixx.jeak.Main;
+import de.fearnixx.jeak.event.IQueryEvent;
+import de.fearnixx.jeak.event.bot.IBotStateEvent;
+import de.fearnixx.jeak.reflect.Inject;
+import de.fearnixx.jeak.reflect.JeakBotPlugin;
+import de.fearnixx.jeak.reflect.Listener;
+import de.fearnixx.jeak.teamspeak.IServer;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import de.fearnixx.jeak.teamspeak.cache.DataCache;
+import de.fearnixx.jeak.teamspeak.cache.ICacheSnapshot;
+import de.fearnixx.jeak.teamspeak.cache.IDataCache;
+import de.fearnixx.jeak.teamspeak.data.IChannel;
+import de.fearnixx.jeak.teamspeak.data.IClient;
+import de.fearnixx.jeak.teamspeak.query.IQueryRequest;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures latencies observed by a plugin while {@link LoadTestMain} runs the bot against the mock server.
+ * Parallel readers query the cache throughout the run, so cache reads are measured during refreshes as well.
+ * Does nothing when the bot is not started by the load test.
+ */
+@JeakBotPlugin(id = "loadtest")
+public class LoadTestPlugin {
+
+    private static final long PROBE_INTERVAL_MILLIS = 100;
+    private static final long READ_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static volatile MockQueryServer mockServer;
+    private static volatile IDataCache cache;
+
+    static final LatencyRecorder NOTIFICATION_LATENCY = new LatencyRecorder("notification dispatch");
+    static final LatencyRecorder ANSWER_LATENCY = new LatencyRecorder("request round-trip");
+    static final LatencyRecorder CLIENT_REFRESH = new LatencyRecorder("client cache refresh");
+    static final LatencyRecorder CHANNEL_REFRESH = new LatencyRecorder("channel cache refresh");
+    static final LatencyRecorder CACHE_READ = new LatencyRecorder("cache read");
+
+    @Inject
+    private IServer server;
+
+    @Inject
+    private IDataCache dataCache;
+
+    private ScheduledExecutorService probeExecutor;
+    private ExecutorService readerExecutor;
+    private volatile int readResult;
+
+    static void setMockServer(MockQueryServer mockServer) {
+        LoadTestPlugin.mockServer = mockServer;
+    }
+
+    @Listener
+    public void onConnected(IBotStateEvent.IConnectStateEvent.IPostConnect event) {
+        if (mockServer == null || probeExecutor != null) {
+            return;
+        }
+        cache = dataCache;
+
+        probeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loadtest-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probeExecutor.scheduleAtFixedRate(this::probe, PROBE_INTERVAL_MILLIS, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        int readers = Main.getProperty("jeak.loadtest.readers", 4);
+        readerExecutor = Executors.newFixedThreadPool(Math.max(1, readers), r -> {
+            Thread thread = new Thread(r, "loadtest-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < readers; i++) {
+            readerExecutor.execute(this::readContinuously);
+        }
+    }
+
+    @Listener
+    public void onDisconnect(IBotStateEvent.IConnectStateEvent.IDisconnect event) {
+        if (probeExecutor != null) {
+            probeExecutor.shutdownNow();
+            probeExecutor = null;
+        }
+        if (readerExecutor != null) {
+            readerExecutor.shutdownNow();
+            readerExecutor = null;
+        }
+    }
+
+    /**
+     * Stage timings of the cache refreshes - if available.
+     */
+    static String refreshStatistics() {
+        if (!(cache instanceof DataCache)) {
+            return "Refresh stages: n/a";
+        }
+
+        DataCache dataCache = (DataCache) cache;
+        return dataCache.getClientRefreshStatistics() + "\n" + dataCache.getChannelRefreshStatistics();
+    }
+
+    private void probe() {
+        IQueryRequest request = IQueryRequest.builder()
+                .command(QueryCommands.WHOAMI)
+                .build();
+
+        long start = System.nanoTime();
+        server.optConnection().ifPresent(connection ->
+                connection.sendRequestAsync(request, 10, TimeUnit.SECONDS)
+                        .thenRun(() -> ANSWER_LATENCY.record(System.nanoTime() - start)));
+    }
+
+    private void readContinuously() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long start = System.nanoTime();
+            int result = readCache();
+            CACHE_READ.record(System.nanoTime() - start);
+            // Keeps the reads from being optimized away.
+            readResult = result;
+            LockSupport.parkNanos(READ_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * A mix of the reads plugins typically do: Iterating a snapshot and the index, tree and map lookups.
+     */
+    private int readCache() {
+        ICacheSnapshot snapshot = dataCache.snapshot();
+        int sum = 0;
+        for (IClient client : snapshot.getClients()) {
+            sum += client.getChannelID();
+        }
+
+        List<IChannel> channels = snapshot.getChannels();
+        if (!channels.isEmpty()) {
+            IChannel channel = channels.get(sum % channels.size());
+            sum += dataCache.getSubtreeClientCount(channel.getID());
+            sum += dataCache.getClientsInSubtree(channel.getID()).size();
+            sum += dataCache.getChannelMap().containsKey(channel.getID()) ? 1 : 0;
+        }
+        sum += dataCache.getClientsInServerGroup(MockServerSimulation.DEFAULT_SERVER_GROUP).size();
+        return sum;
+    }
+
+    @Listener
+    public void onNotification(IQueryEvent.INotification event) {
+        if (mockServer == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        event.getProperty(MockServerSimulation.SENT_NANOS)
+                .map(Long::parseLong)
+                .ifPresent(sent -> NOTIFICATION_LATENCY.record(now - sent));
+    }
+
+    @Listener
+    public void onClientsRefreshed(IQueryEvent.IDataEvent.IRefreshClients event) {
+        recordRefresh(QueryCommands.CLIENT.CLIENT_LIST, CLIENT_REFRESH);
+    }
+
+    @Listener
+    public void onChannelsRefreshed(IQueryEvent.IDataEvent.IRefreshChannels event) {
+        recordRefresh(QueryCommands.CHANNEL.CHANNEL_LIST, CHANNEL_REFRESH);
+    }
+
+    private static void recordRefresh(String command, LatencyRecorder recorder) {
+        if (mockServer == null) {
+            return;
+        }
+
+        long answered = mockServer.getLastAnswerNanos(command);
+        if (answered > 0) {
+            recorder.record(System.nanoTime() - answered);
+        }
+    }
+}
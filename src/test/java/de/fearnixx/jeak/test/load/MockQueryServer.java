@@ -0,0 +1,577 @@
+package de.fearnixx.jeak.test.load;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+import de.fearnixx.jeak.teamspeak.QueryCommands;
+import de.fearnixx.jeak.teamspeak.query.QueryEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal stand-in for the ServerQuery interface of a TeamSpeak 3 server.
+ * Supports the commands used by the framework during normal operation and applies a flood limit per connection.
+ * Clients, channels and notifications are provided by a {@link MockServerSimulation}.
+ *
+ * Unknown commands are answered with {@code error id=256}.
+ */
+public class MockQueryServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockQueryServer.class);
+
+    public static final int OK_ID = 0;
+    public static final int COMMAND_NOT_FOUND_ID = 256;
+    public static final int INVALID_CLIENT_ID = 512;
+    public static final int INVALID_CHANNEL_ID = 768;
+    public static final int EMPTY_RESULT_ID = 1281;
+    public static final int FLOOD_ERROR_ID = 524;
+
+    private static final String LINE_END = "\n\r";
+    private static final int QUERY_CLIENT_ID_OFFSET = 100000;
+
+    private static final List<String[]> PERMISSIONS = List.of(
+            new String[]{"1", "b_serverinstance_help_view", "Retrieve information about ServerQuery commands"},
+            new String[]{"2", "b_serverinstance_version_view", "Retrieve global server version"},
+            new String[]{"3", "b_serverinstance_info_view", "Retrieve global server information"},
+            new String[]{"4", "b_serverinstance_virtualserver_list", "List virtual servers"},
+            new String[]{"5", "b_serverinstance_permission_list", "List permissions"},
+            new String[]{"6", "i_client_talk_power", "Client talk power"},
+            new String[]{"7", "i_channel_needed_join_power", "Needed channel join power"},
+            new String[]{"8", "b_client_ignore_antiflood", "Ignore anti-flood measurements"}
+    );
+
+    private final ServerSocket serverSocket;
+    private final MockServerSimulation simulation;
+    private final int floodCommands;
+    private final long floodWindowMillis;
+
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> lastAnswerNanos = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final AtomicLong commandCount = new AtomicLong();
+    private final AtomicLong floodRejections = new AtomicLong();
+
+    /**
+     * @param port              port to listen on - {@code 0} for any free port
+     * @param floodCommands     commands allowed per window - {@code 0} to disable the flood limit
+     * @param floodWindowMillis length of the flood window
+     */
+    public MockQueryServer(int port, MockServerSimulation simulation, int floodCommands, long floodWindowMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.simulation = simulation;
+        this.floodCommands = floodCommands;
+        this.floodWindowMillis = floodWindowMillis;
+        simulation.setNotificationSink(this::broadcast);
+    }
+
+    public void start() {
+        Thread acceptThread = new Thread(this::acceptLoop, "mock-query-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        simulation.start();
+        logger.info("Mock query server listening on port {}", getPort());
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Session session = new Session(socket, sessionCounter.incrementAndGet());
+                sessions.add(session);
+
+                Thread thread = new Thread(session, "mock-query-session-" + session.sessionId);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept connection.", e);
+                }
+            }
+        }
+    }
+
+    private void broadcast(String event, String line) {
+        for (Session session : sessions) {
+            if (session.registeredEvents.contains(event)) {
+                session.write(line);
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public MockServerSimulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Number of commands received - including rejected ones.
+     */
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    public long getFloodRejections() {
+        return floodRejections.get();
+    }
+
+    /**
+     * {@link System#nanoTime()} of when the last answer to the command has been written.
+     *
+     * @return the time or {@code -1} if the command has not been answered yet
+     */
+    public long getLastAnswerNanos(String command) {
+        return lastAnswerNanos.getOrDefault(command, -1L);
+    }
+
+    @Override
+    public void close() throws IOException {
+        simulation.stop();
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+
+    /**
+     * Encodes a message line: The caption followed by the chain of property sets.
+     */
+    public static String encodeLine(String caption, List<Map<String, String>> chain) {
+        StringBuilder builder = new StringBuilder();
+        if (caption != null) {
+            builder.append(caption);
+        }
+
+        for (int i = 0; i < chain.size(); i++) {
+            if (i > 0) {
+                builder.append('|');
+            }
+            boolean first = true;
+            for (Map.Entry<String, String> property : chain.get(i).entrySet()) {
+                if (!first || (i == 0 && caption != null)) {
+                    builder.append(' ');
+                }
+                first = false;
+                builder.append(property.getKey());
+                if (property.getValue() != null) {
+                    QueryEncoder.encode(property.getValue(), builder.append('='));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A received command split into its parts.
+     */
+    static class Command {
+
+        private final String name;
+        private final List<Map<String, String>> chain = new ArrayList<>();
+        private final List<String> options = new ArrayList<>();
+
+        Command(String line) {
+            String[] parts = line.trim().split(" ", 2);
+            name = parts[0].toLowerCase();
+
+            String arguments = parts.length > 1 ? parts[1] : "";
+            for (String element : arguments.split("\\|")) {
+                Map<String, String> properties = new LinkedHashMap<>();
+                for (String token : element.split(" ")) {
+                    if (token.isEmpty()) {
+                        continue;
+                    } else if (token.startsWith("-")) {
+                        options.add(token);
+                        continue;
+                    }
+
+                    int separator = token.indexOf('=');
+                    if (separator < 0) {
+                        properties.put(token, "");
+                    } else {
+                        char[] value = token.substring(separator + 1).toCharArray();
+                        String decoded = QueryEncoder.decode(value, 0, value.length, new StringBuilder()).toString();
+                        properties.put(token.substring(0, separator), decoded);
+                    }
+                }
+                chain.add(properties);
+            }
+        }
+
+        /**
+         * The value from the first chain element that defines the key.
+         */
+        String get(String key) {
+            for (Map<String, String> element : chain) {
+                if (element.containsKey(key)) {
+                    return element.get(key);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * All values of the key through the chain.
+         */
+        List<String> getAll(String key) {
+            List<String> values = new ArrayList<>();
+            for (Map<String, String> element : chain) {
+                if (element.containsKey(key)) {
+                    values.add(element.get(key));
+                }
+            }
+            return values;
+        }
+    }
+
+    private static class Answer {
+
+        private final List<Map<String, String>> data;
+        private final int errorId;
+        private final String message;
+
+        private Answer(List<Map<String, String>> data, int errorId, String message) {
+            this.data = data;
+            this.errorId = errorId;
+            this.message = message;
+        }
+
+        static Answer ok() {
+            return new Answer(Collections.emptyList(), OK_ID, "ok");
+        }
+
+        static Answer of(List<Map<String, String>> data) {
+            return new Answer(data, OK_ID, "ok");
+        }
+
+        static Answer of(Map<String, String> data) {
+            return of(List.of(data));
+        }
+
+        static Answer error(int errorId, String message) {
+            return new Answer(Collections.emptyList(), errorId, message);
+        }
+    }
+
+    private class Session implements Runnable {
+
+        private final Socket socket;
+        private final int sessionId;
+        private final Set<String> registeredEvents = ConcurrentHashMap.newKeySet();
+        private final Object writeLock = new Object();
+        private Writer writer;
+
+        // Flood limit as token bucket.
+        private double floodTokens = floodCommands;
+        private long lastRefillMillis = System.currentTimeMillis();
+
+        private Session(Socket socket, int sessionId) {
+            this.socket = socket;
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                write("TS3");
+                write("Welcome to the TeamSpeak 3 ServerQuery interface, type \"help\" for a list of commands "
+                        + "and \"help <command>\" for information on a specific command.");
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    commandCount.incrementAndGet();
+
+                    Command command = new Command(line);
+                    if (QueryCommands.SERVER.QUIT.equals(command.name)) {
+                        writeAnswer(command.name, Answer.ok());
+                        break;
+                    } else if (isFlooding()) {
+                        floodRejections.incrementAndGet();
+                        writeAnswer(command.name, Answer.error(FLOOD_ERROR_ID, "client is flooding"));
+                    } else {
+                        writeAnswer(command.name, handle(command));
+                    }
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.debug("Session {} closed.", sessionId, e);
+                }
+            } finally {
+                sessions.remove(this);
+                close();
+            }
+        }
+
+        private boolean isFlooding() {
+            if (floodCommands <= 0) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            floodTokens = Math.min(floodCommands, floodTokens + (now - lastRefillMillis) * floodCommands / (double) floodWindowMillis);
+            lastRefillMillis = now;
+
+            if (floodTokens < 1) {
+                return true;
+            }
+            floodTokens--;
+            return false;
+        }
+
+        private Answer handle(Command command) {
+            switch (command.name) {
+                case QueryCommands.SERVER.LOGIN:
+                case QueryCommands.SERVER.USE_INSTANCE:
+                case QueryCommands.CLIENT.CLIENT_UPDATE:
+                case QueryCommands.CLIENT.CLIENT_POKE:
+                case QueryCommands.TEXTMESSAGE_SEND:
+                case QueryCommands.SERVER.SERVER_NOTIFY_UNREGISTER:
+                    return Answer.ok();
+
+                case QueryCommands.SERVER.SERVER_NOTIFY_REGISTER:
+                    registeredEvents.addAll(command.getAll("event"));
+                    return Answer.ok();
+
+                case QueryCommands.WHOAMI:
+                    return Answer.of(whoAmI());
+
+                case QueryCommands.SERVER.VERSION:
+                    return Answer.of(properties("version", "3.13.7", "build", "1655727713", "platform", "Linux"));
+
+                case QueryCommands.CLIENT.CLIENT_LIST:
+                    return Answer.of(simulation.getClients());
+
+                case QueryCommands.CHANNEL.CHANNEL_LIST:
+                    return Answer.of(simulation.getChannels());
+
+                case QueryCommands.CLIENT.CLIENT_INFO:
+                    return clientInfo(command);
+
+                case QueryCommands.CHANNEL.CHANNEL_INFO:
+                    return channelInfo(command);
+
+                case QueryCommands.CLIENT.CLIENT_MOVE:
+                    return moveClients(command);
+
+                case QueryCommands.CLIENT.CLIENT_KICK:
+                    return kickClients(command);
+
+                case QueryCommands.CLIENT.CLIENT_FIND_DB:
+                case QueryCommands.CLIENT.CLIENT_INFO_DB:
+                    return findDatabaseClients(command);
+
+                case QueryCommands.PERMISSION.PERMISSION_LIST:
+                    return Answer.of(permissionList());
+
+                case QueryCommands.PERMISSION.PERMISSION_GET_ID_BYNAME:
+                    return permissionIds(command);
+
+                case QueryCommands.PERMISSION.SERVERGROUP_LIST_PERMISSIONS:
+                    return Answer.of(List.of(
+                            properties("permsid", "b_serverinstance_help_view", "permvalue", "1", "permnegated", "0", "permskip", "0"),
+                            properties("permsid", "i_client_talk_power", "permvalue", "50", "permnegated", "0", "permskip", "0")));
+
+                case QueryCommands.PERMISSION.CLIENT_LIST_PERMISSIONS:
+                case QueryCommands.PERMISSION.CHANNEL_LIST_PERMISSIONS:
+                case QueryCommands.PERMISSION.CHANNEL_GROUP_PERMISSION_LIST:
+                case QueryCommands.PERMISSION.CHANNEL_CLIENT_LIST_PERMISSIONS:
+                    return Answer.error(EMPTY_RESULT_ID, "database empty result set");
+
+                case QueryCommands.SERVER_GROUP.SERVERGROUP_LIST:
+                    return Answer.of(List.of(
+                            properties("sgid", "6", "name", "Server Admin", "type", "1"),
+                            properties("sgid", "8", "name", "Guest", "type", "1")));
+
+                default:
+                    return Answer.error(COMMAND_NOT_FOUND_ID, "command not found");
+            }
+        }
+
+        private Map<String, String> whoAmI() {
+            return properties(
+                    "virtualserver_status", "online",
+                    "virtualserver_id", "1",
+                    "virtualserver_unique_identifier", "mockServerAAAAAAAAAAAAAAAAAA=",
+                    "virtualserver_port", "9987",
+                    "client_id", Integer.toString(QUERY_CLIENT_ID_OFFSET + sessionId),
+                    "client_channel_id", "1",
+                    "client_nickname", "serveradmin",
+                    "client_database_id", "1",
+                    "client_login_name", "serveradmin",
+                    "client_unique_identifier", "serveradmin",
+                    "client_origin_server_id", "0");
+        }
+
+        private Answer clientInfo(Command command) {
+            List<Map<String, String>> result = new ArrayList<>();
+            for (String clid : command.getAll(PropertyKeys.Client.ID)) {
+                Map<String, String> client = simulation.getClient(Integer.parseInt(clid));
+                if (client == null) {
+                    return Answer.error(INVALID_CLIENT_ID, "invalid clientID");
+                }
+                result.add(client);
+            }
+            return Answer.of(result);
+        }
+
+        private Answer channelInfo(Command command) {
+            String cid = command.get(PropertyKeys.Channel.ID);
+            Map<String, String> channel = cid != null ? simulation.getChannel(Integer.parseInt(cid)) : null;
+            if (channel == null) {
+                return Answer.error(INVALID_CHANNEL_ID, "invalid channelID");
+            }
+            return Answer.of(channel);
+        }
+
+        private Answer moveClients(Command command) {
+            String cid = command.get(PropertyKeys.Channel.ID);
+            if (cid == null) {
+                return Answer.error(INVALID_CHANNEL_ID, "invalid channelID");
+            }
+            // Like the real server, processing stops at the first failing element.
+            for (String clid : command.getAll(PropertyKeys.Client.ID)) {
+                if (!simulation.move(Integer.parseInt(clid), Integer.parseInt(cid))) {
+                    return Answer.error(INVALID_CLIENT_ID, "invalid clientID");
+                }
+            }
+            return Answer.ok();
+        }
+
+        private Answer kickClients(Command command) {
+            for (String clid : command.getAll(PropertyKeys.Client.ID)) {
+                if (!simulation.kick(Integer.parseInt(clid), command.get("reasonmsg"))) {
+                    return Answer.error(INVALID_CLIENT_ID, "invalid clientID");
+                }
+            }
+            return Answer.ok();
+        }
+
+        private Answer findDatabaseClients(Command command) {
+            String dbid = command.get("cldbid");
+            String pattern = command.get("pattern");
+            List<Map<String, String>> result = new ArrayList<>();
+
+            for (Map<String, String> client : simulation.getClients()) {
+                boolean matches = dbid != null
+                        ? dbid.equals(client.get(PropertyKeys.Client.DBID))
+                        : pattern != null && (client.get(PropertyKeys.Client.UID).startsWith(pattern)
+                        || client.get(PropertyKeys.Client.NICKNAME).contains(pattern));
+
+                if (matches) {
+                    Map<String, String> dbClient = new LinkedHashMap<>();
+                    dbClient.put("cldbid", client.get(PropertyKeys.Client.DBID));
+                    dbClient.put(PropertyKeys.Client.UID, client.get(PropertyKeys.Client.UID));
+                    dbClient.put(PropertyKeys.Client.NICKNAME, client.get(PropertyKeys.Client.NICKNAME));
+                    dbClient.put(PropertyKeys.Client.CREATED_TIME, client.get(PropertyKeys.Client.CREATED_TIME));
+                    dbClient.put(PropertyKeys.Client.LAST_JOIN_TIME, client.get(PropertyKeys.Client.LAST_JOIN_TIME));
+                    result.add(dbClient);
+                }
+            }
+
+            if (result.isEmpty()) {
+                return Answer.error(EMPTY_RESULT_ID, "database empty result set");
+            }
+            return Answer.of(result);
+        }
+
+        private List<Map<String, String>> permissionList() {
+            List<Map<String, String>> result = new ArrayList<>(PERMISSIONS.size());
+            for (String[] permission : PERMISSIONS) {
+                result.add(properties("permid", permission[0], "permname", permission[1], "permdesc", permission[2]));
+            }
+            return result;
+        }
+
+        private Answer permissionIds(Command command) {
+            List<Map<String, String>> result = new ArrayList<>();
+            for (String permsid : command.getAll("permsid")) {
+                for (String[] permission : PERMISSIONS) {
+                    if (permission[1].equals(permsid)) {
+                        result.add(properties("permsid", permsid, "permid", permission[0]));
+                    }
+                }
+            }
+            if (result.isEmpty()) {
+                return Answer.error(2562, "invalid permission ID");
+            }
+            return Answer.of(result);
+        }
+
+        private void writeAnswer(String command, Answer answer) {
+            synchronized (writeLock) {
+                if (!answer.data.isEmpty()) {
+                    writeLine(encodeLine(null, answer.data));
+                }
+                writeLine("error id=" + answer.errorId + " msg=" + QueryEncoder.encode(answer.message));
+                flush();
+            }
+            lastAnswerNanos.put(command, System.nanoTime());
+        }
+
+        private void write(String line) {
+            synchronized (writeLock) {
+                writeLine(line);
+                flush();
+            }
+        }
+
+        private void writeLine(String line) {
+            try {
+                writer.write(line);
+                writer.write(LINE_END);
+            } catch (IOException e) {
+                logger.debug("Failed to write to session {}", sessionId, e);
+                close();
+            }
+        }
+
+        private void flush() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                logger.debug("Failed to flush session {}", sessionId, e);
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close session {}", sessionId, e);
+            }
+        }
+    }
+
+    private static Map<String, String> properties(String... keyValues) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            properties.put(keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,316 @@
+package de.fearnixx.jeak.test.load;
+
+import de.fearnixx.jeak.teamspeak.PropertyKeys;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Simulated state of a virtual server for the {@link MockQueryServer}.
+ * Clients join, move, chat and leave at configurable rates.
+ * Every notification carries the property {@link #SENT_NANOS} so that receivers in the same JVM can compute the dispatch latency.
+ */
+public class MockServerSimulation {
+
+    public static final String SENT_NANOS = "mock_sent_nanos";
+    static final int DEFAULT_SERVER_GROUP = 8;
+
+    private static final int TICK_MILLIS = 10;
+
+    private final Map<Integer, Map<String, String>> clients = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, String>> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger nextClientId = new AtomicInteger(1);
+    private final AtomicInteger nextDatabaseId = new AtomicInteger(1);
+
+    private final int targetClients;
+    private final double joinsPerSecond;
+    private final double movesPerSecond;
+    private final double messagesPerSecond;
+
+    // Fractions of events carried over between ticks.
+    private double pendingJoins;
+    private double pendingMoves;
+    private double pendingMessages;
+
+    private ScheduledExecutorService executor;
+    private BiConsumer<String, String> notificationSink = (event, line) -> {};
+
+    /**
+     * @param targetClients     number of clients kept online - joins and leaves balance around this number
+     * @param channelCount      number of channels
+     * @param joinsPerSecond    client joins per second - the same number of clients leaves
+     * @param movesPerSecond    client moves per second
+     * @param messagesPerSecond server text messages per second
+     */
+    public MockServerSimulation(int targetClients, int channelCount,
+                                double joinsPerSecond, double movesPerSecond, double messagesPerSecond) {
+        this.targetClients = targetClients;
+        this.joinsPerSecond = joinsPerSecond;
+        this.movesPerSecond = movesPerSecond;
+        this.messagesPerSecond = messagesPerSecond;
+
+        for (int cid = 1; cid <= channelCount; cid++) {
+            // Every tenth channel is a sub channel of the one before.
+            int parent = cid % 10 == 0 ? cid - 1 : 0;
+            channels.put(cid, createChannel(cid, parent));
+        }
+        for (int i = 0; i < targetClients; i++) {
+            int clid = nextClientId.getAndIncrement();
+            clients.put(clid, createClient(clid, randomChannel()));
+        }
+    }
+
+    /**
+     * Sets the receiver of generated notifications.
+     * The receiver is passed the event type as used by {@code servernotifyregister} and the encoded line.
+     */
+    public void setNotificationSink(BiConsumer<String, String> notificationSink) {
+        this.notificationSink = notificationSink;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mock-simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void tick() {
+        final double seconds = TICK_MILLIS / 1000d;
+        pendingJoins += joinsPerSecond * seconds;
+        pendingMoves += movesPerSecond * seconds;
+        pendingMessages += messagesPerSecond * seconds;
+
+        for (; pendingJoins >= 1; pendingJoins--) {
+            join();
+            if (clients.size() > targetClients) {
+                leave();
+            }
+        }
+        for (; pendingMoves >= 1; pendingMoves--) {
+            randomClient().ifPresent(clid -> move(clid, randomChannel()));
+        }
+        for (; pendingMessages >= 1; pendingMessages--) {
+            randomClient().ifPresent(this::chat);
+        }
+    }
+
+    private void join() {
+        int clid = nextClientId.getAndIncrement();
+        Map<String, String> client = createClient(clid, randomChannel());
+        clients.put(clid, client);
+
+        Map<String, String> notification = new LinkedHashMap<>();
+        notification.put("cfid", "0");
+        notification.put("ctid", client.get(PropertyKeys.Client.CHANNEL_ID));
+        notification.put("reasonid", "0");
+        notification.putAll(client);
+        notify("server", "notifycliententerview", notification);
+    }
+
+    private void leave() {
+        randomClient().ifPresent(clid -> {
+            Map<String, String> client = clients.remove(clid);
+            if (client == null) {
+                return;
+            }
+            Map<String, String> notification = new LinkedHashMap<>();
+            notification.put("cfid", client.get(PropertyKeys.Client.CHANNEL_ID));
+            notification.put("ctid", "0");
+            notification.put("reasonid", "8");
+            notification.put("reasonmsg", "leaving");
+            notification.put(PropertyKeys.Client.ID, Integer.toString(clid));
+            notify("server", "notifyclientleftview", notification);
+        });
+    }
+
+    /**
+     * Moves a client and notifies about it.
+     *
+     * @return whether or not the client and channel exist
+     */
+    public boolean move(int clid, int cid) {
+        Map<String, String> client = clients.get(clid);
+        if (client == null || !channels.containsKey(cid)) {
+            return false;
+        }
+        client.put(PropertyKeys.Client.CHANNEL_ID, Integer.toString(cid));
+
+        Map<String, String> notification = new LinkedHashMap<>();
+        notification.put("ctid", Integer.toString(cid));
+        notification.put("reasonid", "0");
+        notification.put(PropertyKeys.Client.ID, Integer.toString(clid));
+        notify("channel", "notifyclientmoved", notification);
+        return true;
+    }
+
+    /**
+     * Removes a client as if it has been kicked from the server.
+     */
+    public boolean kick(int clid, String reason) {
+        Map<String, String> client = clients.remove(clid);
+        if (client == null) {
+            return false;
+        }
+        Map<String, String> notification = new LinkedHashMap<>();
+        notification.put("cfid", client.get(PropertyKeys.Client.CHANNEL_ID));
+        notification.put("ctid", "0");
+        notification.put("reasonid", "5");
+        notification.put("reasonmsg", reason != null ? reason : "");
+        notification.put(PropertyKeys.Client.ID, Integer.toString(clid));
+        notify("server", "notifyclientleftview", notification);
+        return true;
+    }
+
+    private void chat(int clid) {
+        Map<String, String> client = clients.get(clid);
+        if (client == null) {
+            return;
+        }
+        Map<String, String> notification = new LinkedHashMap<>();
+        notification.put(PropertyKeys.TextMessage.TARGET_TYPE, "3");
+        notification.put(PropertyKeys.TextMessage.MESSAGE, "Hello from " + client.get(PropertyKeys.Client.NICKNAME));
+        notification.put("invokerid", Integer.toString(clid));
+        notification.put("invokername", client.get(PropertyKeys.Client.NICKNAME));
+        notification.put("invokeruid", client.get(PropertyKeys.Client.UID));
+        notify("textserver", "notifytextmessage", notification);
+    }
+
+    private void notify(String event, String caption, Map<String, String> properties) {
+        properties.put(SENT_NANOS, Long.toString(System.nanoTime()));
+        notificationSink.accept(event, MockQueryServer.encodeLine(caption, List.of(properties)));
+    }
+
+    private Map<String, String> createClient(int clid, int cid) {
+        int dbid = nextDatabaseId.getAndIncrement();
+        Map<String, String> client = new LinkedHashMap<>();
+        client.put(PropertyKeys.Client.ID, Integer.toString(clid));
+        client.put(PropertyKeys.Client.CHANNEL_ID, Integer.toString(cid));
+        client.put(PropertyKeys.Client.DBID, Integer.toString(dbid));
+        client.put(PropertyKeys.Client.NICKNAME, "Mock User " + clid);
+        client.put(PropertyKeys.Client.TYPE, "0");
+        client.put(PropertyKeys.Client.FLAG_AWAY, "0");
+        client.put(PropertyKeys.Client.AWAY_MESSAGE, "");
+        client.put(PropertyKeys.Client.FLAG_TALKING, "0");
+        client.put(PropertyKeys.Client.IOIN_MUTED, "0");
+        client.put(PropertyKeys.Client.IOOUT_MUTED, "0");
+        client.put(PropertyKeys.Client.IOIN, "1");
+        client.put(PropertyKeys.Client.IOOUT, "1");
+        client.put(PropertyKeys.Client.TALKPOWER, "0");
+        client.put(PropertyKeys.Client.FLAG_TALKER, "0");
+        client.put(PropertyKeys.Client.FLAG_PRIO_TALKER, "0");
+        client.put(PropertyKeys.Client.FLAG_RECORDING, "0");
+        client.put(PropertyKeys.Client.FLAG_COMMANDER, "0");
+        client.put(PropertyKeys.Client.UID, "mock" + dbid + "AAAAAAAAAAAAAAAAAAA=");
+        client.put(PropertyKeys.Client.GROUPS, Integer.toString(DEFAULT_SERVER_GROUP));
+        client.put(PropertyKeys.Client.CHANNEL_GROUP, "8");
+        client.put(PropertyKeys.Client.CHANNEL_GROUP_SOURCE, Integer.toString(cid));
+        client.put(PropertyKeys.Client.VERSION, "3.5.0 [Build: 1574416006]");
+        client.put(PropertyKeys.Client.PLATFORM, "Linux");
+        client.put(PropertyKeys.Client.IDLE_TIME, "0");
+        client.put(PropertyKeys.Client.CREATED_TIME, "1546300800");
+        client.put(PropertyKeys.Client.LAST_JOIN_TIME, Long.toString(System.currentTimeMillis() / 1000));
+        client.put(PropertyKeys.Client.ICON_ID, "0");
+        client.put(PropertyKeys.Client.COUNTRY, "DE");
+        return client;
+    }
+
+    private Map<String, String> createChannel(int cid, int parent) {
+        Map<String, String> channel = new LinkedHashMap<>();
+        channel.put(PropertyKeys.Channel.ID, Integer.toString(cid));
+        channel.put(PropertyKeys.Channel.PARENT, Integer.toString(parent));
+        channel.put(PropertyKeys.Channel.ORDER, Integer.toString(parent == 0 ? cid - 1 : 0));
+        channel.put(PropertyKeys.Channel.NAME, "Mock Channel " + cid);
+        channel.put(PropertyKeys.Channel.TOPIC, "");
+        channel.put(PropertyKeys.Channel.FLAG_DEFAULT, cid == 1 ? "1" : "0");
+        channel.put(PropertyKeys.Channel.FLAG_PASSWORD, "0");
+        channel.put(PropertyKeys.Channel.FLAG_PERMANENT, "1");
+        channel.put(PropertyKeys.Channel.FLAG_SEMI_PERMANENT, "0");
+        channel.put(PropertyKeys.Channel.CODEC, "4");
+        channel.put(PropertyKeys.Channel.QUALITY, "6");
+        channel.put(PropertyKeys.Channel.TALK_POWER, "0");
+        channel.put(PropertyKeys.Channel.ICON_ID, "0");
+        channel.put(PropertyKeys.Channel.MAX_CLIENTS, "-1");
+        channel.put(PropertyKeys.Channel.MAX_CLIENTS_FAMILY, "-1");
+        channel.put(PropertyKeys.Channel.CLIENT_COUNT, "0");
+        channel.put(PropertyKeys.Channel.CLIENT_COUNT_FAMILY, "0");
+        return channel;
+    }
+
+    /**
+     * Snapshot of all clients with up-to-date channel client counts.
+     */
+    public List<Map<String, String>> getClients() {
+        return new ArrayList<>(clients.values());
+    }
+
+    public Map<String, String> getClient(int clid) {
+        return clients.get(clid);
+    }
+
+    public List<Map<String, String>> getChannels() {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        clients.values().forEach(c -> counts.merge(c.get(PropertyKeys.Client.CHANNEL_ID), 1, Integer::sum));
+
+        List<Map<String, String>> result = new ArrayList<>(channels.size());
+        channels.values().forEach(channel -> {
+            Map<String, String> copy = new LinkedHashMap<>(channel);
+            String count = Integer.toString(counts.getOrDefault(channel.get(PropertyKeys.Channel.ID), 0));
+            copy.put(PropertyKeys.Channel.CLIENT_COUNT, count);
+            copy.put(PropertyKeys.Channel.CLIENT_COUNT_FAMILY, count);
+            result.add(copy);
+        });
+        return result;
+    }
+
+    public Map<String, String> getChannel(int cid) {
+        return channels.get(cid);
+    }
+
+    /**
+     * Clients with the given database id - online clients only.
+     */
+    public List<Map<String, String>> findClientsByDatabaseId(String dbid) {
+        List<Map<String, String>> result = new ArrayList<>();
+        clients.values().forEach(c -> {
+            if (dbid.equals(c.get(PropertyKeys.Client.DBID))) {
+                result.add(c);
+            }
+        });
+        return result;
+    }
+
+    private Optional<Integer> randomClient() {
+        Integer[] ids = clients.keySet().toArray(new Integer[0]);
+        if (ids.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    private int randomChannel() {
+        return 1 + ThreadLocalRandom.current().nextInt(channels.size());
+    }
+}
@@ -0,0 +1,35 @@
+package de.fearnixx.jeak.test.load;
+
+import de.fearnixx.jeak.event.EventService;
+import de.fearnixx.jeak.teamspeak.query.WireReplay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Replays a capture written with {@code bot.connection.capture} and reports the throughput.
+ * Arguments: The capture file and optionally {@code realtime} to keep the recorded timing.
+ *
+ * Run with: {@code gradle replay -PreplayArgs="captures/capture-20200101-120000-1.jkw"}
+ */
+public class ReplayMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayMain.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            logger.error("Usage: ReplayMain <capture> [realtime]");
+            System.exit(1);
+        }
+
+        Path capture = Paths.get(args[0]);
+        boolean realTime = args.length > 1 && "realtime".equalsIgnoreCase(args[1]);
+
+        EventService eventService = new EventService();
+        WireReplay.Result result = new WireReplay(capture, eventService).replay(realTime);
+        logger.info("Replayed {}: {}", capture, result);
+        eventService.shutdown();
+    }
+}